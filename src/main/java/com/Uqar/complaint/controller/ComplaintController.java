@@ -5,6 +5,7 @@ import com.Uqar.complaint.dto.ComplaintResponseDTO;
 import com.Uqar.complaint.dto.ComplaintUpdateRequestDTO;
 import com.Uqar.complaint.enums.ComplaintStatus;
 import com.Uqar.complaint.service.ComplaintService;
+import com.Uqar.utils.response.CursorPageDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -111,6 +112,32 @@ public class ComplaintController {
         return ResponseEntity.ok(complaints);
     }
     
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('PHARMACY_MANAGER') or hasRole('PHARMACY_EMPLOYEE') or hasRole('PLATFORM_ADMIN')")
+    @Operation(
+        summary = "Get complaints by cursor",
+        description = "Retrieves complaints of the current user's pharmacy newest first, one page after the given cursor, optionally in one status. " +
+                      "Pass the nextCursor of the previous page to get the next one; the total is only returned on the first page when includeTotal is true."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Complaints retrieved successfully",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = CursorPageDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size")
+    })
+    public ResponseEntity<CursorPageDTO<ComplaintResponseDTO>> getComplaintsByCursor(
+            @Parameter(description = "Cursor returned by the previous page (empty for the first page)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of items per page (1-100)", example = "10")
+            @Min(1) @Max(100) @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Complaint status (optional)")
+            @RequestParam(required = false) ComplaintStatus status,
+            @Parameter(description = "Count the total on the first page", example = "false")
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        logger.info("Retrieving complaints by cursor");
+        return ResponseEntity.ok(complaintService.getComplaintsByCursor(status, cursor, size, includeTotal));
+    }
+    
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('PHARMACY_MANAGER') or hasRole('PHARMACY_EMPLOYEE') or hasRole('PLATFORM_ADMIN')")
     @Operation(
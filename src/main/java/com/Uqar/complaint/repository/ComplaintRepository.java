@@ -80,6 +80,34 @@ public interface ComplaintRepository extends JpaRepository<Complaint, Long> {
      */
     long countByPharmacyIdAndStatus(Long pharmacyId, ComplaintStatus status);
     
+    /**
+     * Count complaints by pharmacy ID
+     */
+    long countByPharmacyId(Long pharmacyId);
+    
+    /**
+     * Find complaints of a pharmacy after the keyset cursor, newest first
+     */
+    @Query("SELECT c FROM Complaint c WHERE c.pharmacyId = :pharmacyId " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Complaint> findPageByPharmacyId(@Param("pharmacyId") Long pharmacyId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+    
+    /**
+     * Find complaints of a pharmacy in a status after the keyset cursor, newest first
+     */
+    @Query("SELECT c FROM Complaint c WHERE c.pharmacyId = :pharmacyId AND c.status = :status " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Complaint> findPageByPharmacyIdAndStatus(@Param("pharmacyId") Long pharmacyId,
+                                                  @Param("status") ComplaintStatus status,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") Long id,
+                                                  Pageable pageable);
+    
     /**
      * Find complaints that need response (PENDING or IN_PROGRESS)
      */
@@ -7,10 +7,12 @@ import com.Uqar.complaint.entity.Complaint;
 import com.Uqar.complaint.enums.ComplaintStatus;
 import com.Uqar.complaint.mapper.ComplaintMapper;
 import com.Uqar.complaint.repository.ComplaintRepository;
+import com.Uqar.utils.response.CursorPageDTO;
 import com.Uqar.user.entity.User;
 import com.Uqar.user.service.BaseSecurityService;
 import com.Uqar.utils.exception.ResourceNotFoundException;
 import com.Uqar.utils.exception.UnAuthorizedException;
+import com.Uqar.utils.request.KeysetCursor;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,6 +91,38 @@ public class ComplaintService extends BaseSecurityService {
         return complaints.map(complaintMapper::toResponseDTO);
     }
     
+    /**
+     * شكاوى الصيدلية بمؤشر الصفحة (الأحدث أولاً)
+     * Complaints of the pharmacy after the cursor, newest first, optionally in one status.
+     * The total is only counted on the first page and when asked for.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ComplaintResponseDTO> getComplaintsByCursor(ComplaintStatus status, String cursor, int size, boolean includeTotal) {
+        Long pharmacyId = getCurrentUserPharmacyId();
+        logger.info("Retrieving complaints for pharmacy ID: {} by cursor", pharmacyId);
+        
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        boolean countTotal = includeTotal && position.isStart();
+        List<Complaint> complaints;
+        Long total = null;
+        if (status != null) {
+            complaints = complaintRepository.findPageByPharmacyIdAndStatus(
+                    pharmacyId, status, position.createdAt(), position.id(), KeysetCursor.limit(size));
+            if (countTotal) {
+                total = complaintRepository.countByPharmacyIdAndStatus(pharmacyId, status);
+            }
+        } else {
+            complaints = complaintRepository.findPageByPharmacyId(
+                    pharmacyId, position.createdAt(), position.id(), KeysetCursor.limit(size));
+            if (countTotal) {
+                total = complaintRepository.countByPharmacyId(pharmacyId);
+            }
+        }
+        
+        return KeysetCursor.page(complaints, size, Complaint::getCreatedAt, Complaint::getId,
+                page -> page.stream().map(complaintMapper::toResponseDTO).toList(), total);
+    }
+    
     @Transactional
     public ComplaintResponseDTO updateComplaint(Long id, ComplaintUpdateRequestDTO updateDTO, HttpServletRequest httpRequest) {
         logger.info("Updating complaint with ID: {}", id);
@@ -0,0 +1,139 @@
+package com.Uqar.config;
+
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import com.Uqar.utils.entity.BaseIdEntity;
+import com.Uqar.utils.entity.EntitySequenceGenerator;
+import com.Uqar.utils.entity.EntitySequenceGenerator.EntitySequence;
+
+/**
+ * مزامنة تسلسلات المعرفات مع أكبر معرف في الجداول عند بدء التشغيل
+ * Moves every entity id sequence past the largest id already in its table(s) at startup.
+ *
+ * Flyway is disabled, so on a database that has not run V20261017_010 the sequences are
+ * created by ddl-auto starting at 1 while the tables already hold rows, and the first inserts
+ * would reuse existing ids. This runs once the session factory is built, after the schema
+ * update and before any bean can insert. A sequence is only ever moved forward, its
+ * INCREMENT BY is aligned with the entity's allocation size, and the whole check holds an
+ * advisory lock so instances starting together do not hand out the same block. A failure stops
+ * the startup.
+ */
+@Component
+public class EntitySequenceSynchronizer implements HibernatePropertiesCustomizer, Integrator, SessionFactoryObserver {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntitySequenceSynchronizer.class);
+    // pg_advisory_xact_lock key of the synchronization
+    private static final long LOCK_KEY = 20261017010L;
+
+    // Sequence of each entity, with the tables drawing ids from it (a TABLE_PER_CLASS hierarchy shares one)
+    private final Map<EntitySequence, Set<String>> sequenceTables = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        HibernateIntegrators.add(hibernateProperties, this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        if (!(sessionFactory.getJdbcServices().getDialect() instanceof PostgreSQLDialect)) {
+            return;
+        }
+        for (PersistentClass entity : metadata.getEntityBindings()) {
+            Class<?> mappedClass = entity.getMappedClass();
+            if (mappedClass == null || !BaseIdEntity.class.isAssignableFrom(mappedClass)
+                    || Modifier.isAbstract(mappedClass.getModifiers()) || entity.getTable() == null) {
+                continue;
+            }
+            EntitySequence sequence = EntitySequenceGenerator.sequenceOf(
+                (Class<? extends BaseIdEntity>) mappedClass, entity.getTable().getName());
+            sequenceTables.computeIfAbsent(sequence, s -> new LinkedHashSet<>()).add(entity.getTable().getName());
+        }
+        // Observers run in order, so this comes after the schema update of ddl-auto
+        sessionFactory.addObserver(this);
+    }
+
+    @Override
+    public void sessionFactoryCreated(SessionFactory sessionFactory) {
+        // A failure stops the startup: inserts from a sequence below MAX(id) would collide with live rows
+        sessionFactory.inTransaction(session -> session.doWork(this::synchronize));
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    private void synchronize(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+            for (Map.Entry<EntitySequence, Set<String>> entry : sequenceTables.entrySet()) {
+                EntitySequence sequence = entry.getKey();
+                if (!exists(statement, sequence.name())) {
+                    logger.warn("Id sequence {} does not exist, skipping", sequence.name());
+                    continue;
+                }
+                long maxId = 0;
+                for (String table : entry.getValue()) {
+                    if (exists(statement, table)) {
+                        maxId = Math.max(maxId, queryLong(statement, "SELECT COALESCE(MAX(id), 0) FROM " + quote(table)));
+                    }
+                }
+                synchronize(statement, sequence, maxId);
+            }
+        }
+    }
+
+    private static void synchronize(Statement statement, EntitySequence sequence, long maxId) throws SQLException {
+        String name = quote(sequence.name());
+        statement.execute("ALTER SEQUENCE " + name + " INCREMENT BY " + sequence.allocationSize());
+        long next;
+        try (ResultSet row = statement.executeQuery("SELECT last_value, is_called FROM " + name)) {
+            row.next();
+            next = row.getBoolean(2) ? row.getLong(1) + sequence.allocationSize() : row.getLong(1);
+        }
+        if (next <= maxId) {
+            // The next nextval() returns MAX(id) + 1
+            statement.execute("SELECT setval('" + name.replace("'", "''") + "', " + (maxId + 1) + ", false)");
+            logger.info("Moved id sequence {} from {} to {}", sequence.name(), next, maxId + 1);
+        }
+    }
+
+    private static boolean exists(Statement statement, String relation) throws SQLException {
+        try (ResultSet row = statement.executeQuery("SELECT to_regclass('" + quote(relation).replace("'", "''") + "') IS NOT NULL")) {
+            return row.next() && row.getBoolean(1);
+        }
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet row = statement.executeQuery(sql)) {
+            return row.next() ? row.getLong(1) : 0;
+        }
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
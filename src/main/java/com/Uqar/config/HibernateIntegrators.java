@@ -0,0 +1,32 @@
+package com.Uqar.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+
+/**
+ * Registration of Hibernate integrators from HibernatePropertiesCustomizer beans.
+ * JpaSettings.INTEGRATOR_PROVIDER holds a single provider, so each registration keeps the
+ * integrators of the customizers that ran before it.
+ */
+final class HibernateIntegrators {
+
+    private HibernateIntegrators() {
+    }
+
+    static void add(Map<String, Object> hibernateProperties, Integrator integrator) {
+        IntegratorProvider previous = (IntegratorProvider) hibernateProperties.get(JpaSettings.INTEGRATOR_PROVIDER);
+        hibernateProperties.put(JpaSettings.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> {
+            List<Integrator> integrators = new ArrayList<>();
+            if (previous != null) {
+                integrators.addAll(previous.getIntegrators());
+            }
+            integrators.add(integrator);
+            return integrators;
+        });
+    }
+}
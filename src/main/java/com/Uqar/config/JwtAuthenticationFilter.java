@@ -1,5 +1,7 @@
 package com.Uqar.config;
 
+import com.Uqar.user.service.AuthenticatedPrincipal;
+import com.Uqar.user.service.AuthenticatedPrincipalCache;
 import com.Uqar.utils.exception.TokenExpiredException;
 import com.Uqar.utils.restExceptionHanding.ApiException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -14,8 +16,6 @@ import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -29,7 +29,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService ;
 
-    private final UserDetailsService userDetailsService; // final
+    private final AuthenticatedPrincipalCache principalCache;
     @Override
     protected void doFilterInternal(
            @NonNull HttpServletRequest request,
@@ -47,12 +47,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             userEmail = jwtService.extractUsername(jwt);
             if(userEmail != null && SecurityContextHolder.getContext().getAuthentication()==null){
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-                if(jwtService.isTokenValid(jwt,userDetails)){
+                // Resolved once per user and cached; services read it from the Authentication
+                AuthenticatedPrincipal principal = this.principalCache.get(userEmail);
+                if(jwtService.isTokenValid(jwt,principal)){
                     UsernamePasswordAuthenticationToken authToken =  new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            principal,
                             null,
-                            userDetails.getAuthorities()
+                            principal.getAuthorities()
                     );
                     authToken.setDetails(
                             new WebAuthenticationDetailsSource().buildDetails(request)
@@ -0,0 +1,50 @@
+package com.Uqar.config;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import static com.Uqar.utils.TransactionCallbacks.afterCommit;
+
+/**
+ * ذاكرة البيانات المرجعية في الكاش من المستوى الثاني
+ * Second-level cache of the read-mostly reference data: categories, forms, types,
+ * manufacturers, languages, roles, permissions and areas (regions in ehcache.xml).
+ *
+ * Entity rows and the owning side of collections (Role.permissions) are kept in step by
+ * Hibernate itself, and cached query results are invalidated when their tables change.
+ * The translations collections are the inverse side of the association: the services
+ * replace translations through their own repositories, so they call {@link #evict} and the
+ * cached collection of the owner is dropped once the transaction commits.
+ */
+@Component
+public class ReferenceDataCache {
+
+    /** منطقة نتائج استعلامات البيانات المرجعية / Query cache region of the reference data queries */
+    public static final String QUERY_REGION = "reference-data-queries";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ReferenceDataCache(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * حذف الكيان وترجماته ونتائج الاستعلامات من الكاش بعد نجاح المعاملة
+     * Drop the entity, its translations collection and the cached reference queries
+     * once the current transaction commits
+     */
+    public void evict(Class<?> entityClass, Long id) {
+        if (id == null) {
+            return;
+        }
+        afterCommit(() -> {
+            Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+            cache.evictEntityData(entityClass, id);
+            cache.evictCollectionData(entityClass.getName() + ".translations", id);
+            cache.evictQueryRegion(QUERY_REGION);
+        });
+    }
+}
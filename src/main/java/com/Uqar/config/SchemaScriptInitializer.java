@@ -0,0 +1,93 @@
+package com.Uqar.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * تطبيق سكربتات الفهارس ودوال البحث عند بدء التشغيل
+ * Applies the migration scripts that ddl-auto cannot produce at startup.
+ *
+ * Flyway is disabled, and ddl-auto only creates the tables and columns of the entities. The search
+ * functions (uqar_search_normalize, uqar_search_rank), the pg_trgm extension and the partial,
+ * expression and keyset indexes exist only in these scripts, and the product and stock searches
+ * fail without them. Every script is written with IF NOT EXISTS / OR REPLACE, so it is run on each
+ * start, right after the schema update, under an advisory lock so instances starting together do not
+ * race on the same index. A failure stops the startup.
+ */
+@Component
+public class SchemaScriptInitializer implements HibernatePropertiesCustomizer, Integrator, SessionFactoryObserver {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaScriptInitializer.class);
+    // pg_advisory_xact_lock key of the scripts
+    private static final long LOCK_KEY = 20261017004L;
+
+    static final List<String> SCRIPTS = List.of(
+        "db/migration/V20261017_002__Add_Notification_Claim_Lease.sql",
+        "db/migration/V20261017_004__Add_Product_Search_Indexes.sql",
+        "db/migration/V20261017_005__Add_Product_Search_Keyset_Indexes.sql",
+        "db/migration/V20261017_006__Add_Stock_Expiry_Index.sql",
+        "db/migration/V20261017_007__Add_Low_Stock_Scan_Index.sql",
+        "db/migration/V20261017_009__Add_Keyset_Pagination_Indexes.sql");
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        HibernateIntegrators.add(hibernateProperties, this);
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        if (sessionFactory.getJdbcServices().getDialect() instanceof PostgreSQLDialect) {
+            // Observers run in order, so this comes after the schema update of ddl-auto
+            sessionFactory.addObserver(this);
+        }
+    }
+
+    @Override
+    public void sessionFactoryCreated(SessionFactory sessionFactory) {
+        sessionFactory.inTransaction(session -> session.doWork(this::apply));
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    private void apply(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+            for (String script : SCRIPTS) {
+                // The PostgreSQL driver splits a script into its statements, dollar-quoted bodies included
+                statement.execute(read(script));
+                logger.debug("Applied schema script {}", script);
+            }
+        }
+        logger.info("Applied {} schema scripts", SCRIPTS.size());
+    }
+
+    static String read(String script) {
+        try (InputStream in = new ClassPathResource(script).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read schema script " + script, e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.Uqar.idempotency.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * مفتاح عدم التكرار مع الاستجابة المخزنة
+ * A request handled under an Idempotency-Key: the user and key, a hash of the operation and its
+ * arguments, and the response returned to retries. The row is written in the transaction of the
+ * request itself, so it exists only when the request's changes were committed.
+ */
+@Entity
+@Table(name = "idempotency_key",
+       uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_key_owner_key",
+                                             columnNames = {"owner", "idempotency_key"}),
+       indexes = @Index(name = "idx_idempotency_key_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "owner", length = 200, nullable = false)
+    private String owner;
+
+    @Column(name = "idempotency_key", length = 100, nullable = false)
+    private String idempotencyKey;
+
+    @Column(name = "operation", length = 100, nullable = false)
+    private String operation;
+
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,47 @@
+package com.Uqar.idempotency.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.Uqar.idempotency.entity.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    /**
+     * حجز المفتاح داخل معاملة الطلب (1 = تم الحجز)
+     * Claim the key in the request's transaction; returns 1 when claimed. A concurrent request
+     * with the same key waits on the unique index until this transaction ends, then gets 0 if it
+     * committed, or claims the key itself if it rolled back.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO idempotency_key (owner, idempotency_key, operation, request_hash, created_at)
+        VALUES (:owner, :idempotencyKey, :operation, :requestHash, now())
+        ON CONFLICT (owner, idempotency_key) DO NOTHING
+        """, nativeQuery = true)
+    int claim(@Param("owner") String owner,
+              @Param("idempotencyKey") String idempotencyKey,
+              @Param("operation") String operation,
+              @Param("requestHash") String requestHash);
+
+    Optional<IdempotencyRecord> findByOwnerAndIdempotencyKey(String owner, String idempotencyKey);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseStatus = :responseStatus, r.responseBody = :responseBody, " +
+           "r.completedAt = CURRENT_TIMESTAMP WHERE r.owner = :owner AND r.idempotencyKey = :idempotencyKey")
+    int complete(@Param("owner") String owner,
+                 @Param("idempotencyKey") String idempotencyKey,
+                 @Param("responseStatus") int responseStatus,
+                 @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
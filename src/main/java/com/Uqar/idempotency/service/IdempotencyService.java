@@ -0,0 +1,219 @@
+package com.Uqar.idempotency.service;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Uqar.idempotency.entity.IdempotencyRecord;
+import com.Uqar.idempotency.repository.IdempotencyRecordRepository;
+import com.Uqar.scheduling.service.ScheduledJobCoordinator;
+import com.Uqar.utils.exception.ConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * خدمة مفاتيح عدم التكرار للطلبات المالية
+ * Runs a request at most once per user and Idempotency-Key, and answers retries with the
+ * response of the first run.
+ *
+ * The key is claimed in idempotency_key and the response stored in the same transaction as the
+ * request's own changes (the services join it), so either both are committed or neither is: a
+ * request that failed leaves no key behind and its retry runs again. A retry that arrives while
+ * the first run is still in progress waits on the key's unique index and then gets the stored
+ * response. Completed responses are also kept in a bounded in-memory map of recent keys, so a
+ * retry to the same instance is answered without touching the database; otherwise it costs the
+ * claim and one lookup. Keys are kept for idempotency.retention-hours.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ScheduledJobCoordinator jobCoordinator;
+    private final int maxCachedKeys;
+    private final long retentionHours;
+
+    // Completed responses by owner and key, least recently used first
+    private final LinkedHashMap<String, StoredResponse> recent = new LinkedHashMap<>(16, 0.75f, true);
+
+    public IdempotencyService(IdempotencyRecordRepository recordRepository,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              ScheduledJobCoordinator jobCoordinator,
+                              @Value("${idempotency.cache.max-entries:10000}") int maxCachedKeys,
+                              @Value("${idempotency.retention-hours:48}") long retentionHours) {
+        this.recordRepository = recordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.jobCoordinator = jobCoordinator;
+        this.maxCachedKeys = maxCachedKeys;
+        this.retentionHours = retentionHours;
+    }
+
+    /**
+     * تنفيذ الطلب مرة واحدة لكل مفتاح
+     * Run the call once for the owner's key and return its result; a repeated key returns the
+     * stored response as a JSON ResponseEntity. Throws ConflictException when the key was used
+     * for a different operation or different arguments.
+     */
+    public Object execute(String owner, String idempotencyKey, String operation, Object[] args, IdempotentCall call) {
+        String requestHash = hash(operation, args);
+        String cacheKey = owner + "\n" + idempotencyKey;
+
+        StoredResponse cached;
+        synchronized (recent) {
+            cached = recent.get(cacheKey);
+        }
+        if (cached != null && !cached.isExpired()) {
+            return replay(cached, idempotencyKey, requestHash);
+        }
+
+        Outcome outcome = transactionTemplate.execute(status -> {
+            if (recordRepository.claim(owner, idempotencyKey, operation, requestHash) == 0) {
+                IdempotencyRecord record = recordRepository.findByOwnerAndIdempotencyKey(owner, idempotencyKey)
+                    .orElseThrow(() -> new ConflictException("Request with idempotency key " + idempotencyKey + " is still being processed"));
+                return new Outcome(null, StoredResponse.of(record, retentionHours), false);
+            }
+            Object result = proceed(call);
+            StoredResponse response = toStoredResponse(result, requestHash);
+            recordRepository.complete(owner, idempotencyKey, response.status(), response.body());
+            return new Outcome(result, response, true);
+        });
+
+        remember(cacheKey, outcome.response());
+        if (outcome.executed()) {
+            return outcome.result();
+        }
+        logger.info("Replaying stored response of {} for idempotency key {} of {}", operation, idempotencyKey, owner);
+        return replay(outcome.response(), idempotencyKey, requestHash);
+    }
+
+    /**
+     * حذف المفاتيح القديمة
+     * Delete the keys older than the retention period, on one instance per day
+     */
+    @Scheduled(cron = "${idempotency.purge-cron:0 15 3 * * *}")
+    public void purgeExpired() {
+        jobCoordinator.run("idempotency-key-purge", LocalDate.now().toString(), shard -> {
+            Integer deleted = transactionTemplate.execute(status ->
+                recordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours)));
+            return deleted != null ? deleted : 0;
+        });
+        synchronized (recent) {
+            recent.values().removeIf(StoredResponse::isExpired);
+        }
+    }
+
+    private ResponseEntity<String> replay(StoredResponse response, String idempotencyKey, String requestHash) {
+        if (!response.requestHash().equals(requestHash)) {
+            throw new ConflictException("Idempotency key " + idempotencyKey + " was already used for a different request");
+        }
+        return ResponseEntity.status(response.status())
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(REPLAYED_HEADER, "true")
+            .body(response.body());
+    }
+
+    private void remember(String cacheKey, StoredResponse response) {
+        synchronized (recent) {
+            recent.put(cacheKey, response);
+            var eldest = recent.values().iterator();
+            while (recent.size() > maxCachedKeys && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private StoredResponse toStoredResponse(Object result, String requestHash) {
+        int status = HttpStatus.OK.value();
+        Object body = result;
+        if (result instanceof ResponseEntity<?> entity) {
+            status = entity.getStatusCode().value();
+            body = entity.getBody();
+        }
+        try {
+            String json = body != null ? objectMapper.writeValueAsString(body) : null;
+            return new StoredResponse(status, json, requestHash, expiryFromNow(retentionHours));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to store the response of an idempotent request", e);
+        }
+    }
+
+    private String hash(String operation, Object[] args) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(args));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to hash an idempotent request", e);
+        }
+    }
+
+    private static Object proceed(IdempotentCall call) {
+        try {
+            return call.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static long expiryFromNow(long retentionHours) {
+        return System.currentTimeMillis() + TimeUnit.HOURS.toMillis(retentionHours);
+    }
+
+    /**
+     * الطلب الأصلي (استدعاء الدالة المحمية)
+     * The guarded method invocation
+     */
+    @FunctionalInterface
+    public interface IdempotentCall {
+        Object proceed() throws Throwable;
+    }
+
+    private record StoredResponse(int status, String body, String requestHash, long expiresAt) {
+
+        static StoredResponse of(IdempotencyRecord record, long retentionHours) {
+            return new StoredResponse(
+                record.getResponseStatus() != null ? record.getResponseStatus() : HttpStatus.OK.value(),
+                record.getResponseBody(),
+                record.getRequestHash(),
+                record.getCreatedAt() != null
+                    ? record.getCreatedAt().plusHours(retentionHours).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : expiryFromNow(retentionHours));
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private record Outcome(Object result, StoredResponse response, boolean executed) {
+    }
+}
@@ -8,7 +8,9 @@ import com.Uqar.moneybox.dto.ExchangeRateResponseDTO;
 import com.Uqar.moneybox.service.MoneyBoxService;
 import com.Uqar.moneybox.service.ExchangeRateService;
 import com.Uqar.user.Enum.Currency;
+import com.Uqar.utils.response.CursorPageDTO;
 import com.Uqar.product.dto.PaginationDTO;
+import com.Uqar.utils.annotation.Idempotent;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -72,6 +74,7 @@ public class MoneyBoxController {
 
     @PreAuthorize("hasRole('PHARMACY_MANAGER') or hasRole('PHARMACY_EMPLOYEE') ")
     @PostMapping("/transactions")
+    @Idempotent(operation = "MONEY_BOX_TRANSACTION")
     @Operation(summary = "Add manual transaction", description = "Adds a manual transaction to the money box with automatic currency conversion to SYP")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Transaction added successfully"),
@@ -96,6 +99,7 @@ public class MoneyBoxController {
 
     @PreAuthorize("hasRole('PHARMACY_MANAGER') or hasRole('PHARMACY_EMPLOYEE')")
     @PostMapping("/transactions/syp")
+    @Idempotent(operation = "MONEY_BOX_TRANSACTION")
     @Operation(summary = "Add transaction in SYP", description = "Adds a manual transaction to the money box in SYP (legacy endpoint)")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Transaction added successfully"),
@@ -235,6 +239,37 @@ public class MoneyBoxController {
         return ResponseEntity.ok(transactions);
     }
 
+    @PreAuthorize("hasRole('PHARMACY_MANAGER') or hasRole('PHARMACY_EMPLOYEE') ")
+    @GetMapping("/transactions/cursor")
+    @Operation(summary = "Get money box transactions by cursor", description = "Retrieves transactions of the current pharmacy money box newest first, one page after the given cursor. Pass the nextCursor of the previous page to get the next one; the total is only returned on the first page when includeTotal is true")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Transactions retrieved successfully",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = CursorPageDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+        @ApiResponse(responseCode = "404", description = "Money box not found"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<CursorPageDTO<MoneyBoxTransactionResponseDTO>> getTransactionsByCursor(
+            @Parameter(description = "Cursor returned by the previous page (empty for the first page)") 
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of items per page (1-100)", example = "10") 
+            @Min(1) @Max(100) @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Count the total on the first page", example = "false") 
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @Parameter(description = "Start date", example = "2024-01-01") 
+            @RequestParam(required = false) LocalDate startDate,
+            @Parameter(description = "End date", example = "2024-01-31") 
+            @RequestParam(required = false) LocalDate endDate,
+            @Parameter(description = "Transaction type (optional)") 
+            @RequestParam(required = false) String transactionType) {
+        
+        LocalDateTime startDateTime = startDate != null ? startDate.atStartOfDay() : null;
+        LocalDateTime endDateTime = endDate != null ? endDate.atTime(23, 59, 59) : null;
+        return ResponseEntity.ok(moneyBoxService.getTransactionsByCursor(
+            startDateTime, endDateTime, transactionType, cursor, size, includeTotal));
+    }
+
     // TODO: Implement currency conversion report endpoint
     // @GetMapping("/reports/currency-conversion")
     // @Operation(summary = "Get currency conversion report", description = "Shows all invoices with their dual currency amounts and conversion details")
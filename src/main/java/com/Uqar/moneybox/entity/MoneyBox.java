@@ -25,7 +25,8 @@ public class MoneyBox {
     @Column(name = "pharmacy_id", nullable = false)
     private Long pharmacyId;
     
-    @Column(name = "current_balance", precision = 15, scale = 2, nullable = false)
+    // Changed only by MoneyBoxLedger's atomic update, never by flushing a loaded copy
+    @Column(name = "current_balance", precision = 15, scale = 2, nullable = false, updatable = false)
     private BigDecimal currentBalance;
     
     @Column(name = "initial_balance", precision = 15, scale = 2, nullable = false)
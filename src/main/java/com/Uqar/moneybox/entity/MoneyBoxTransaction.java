@@ -18,8 +18,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class MoneyBoxTransaction {
     
+    // Pooled sequence instead of IDENTITY so the ledger postings of a sale can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "money_box_transaction_id_seq")
+    @SequenceGenerator(name = "money_box_transaction_id_seq", sequenceName = "money_box_transaction_id_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -6,7 +6,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +27,22 @@ public interface MoneyBoxRepository extends JpaRepository<MoneyBox, Long> {
     
     @Query("SELECT COUNT(m) FROM MoneyBox m WHERE m.pharmacyId = :pharmacyId")
     Long countByPharmacyId(@Param("pharmacyId") Long pharmacyId);
+
+    /**
+     * إضافة مبلغ إلى الرصيد بعملية ذرية واحدة
+     * Adds delta to the balance in one atomic statement and returns the new balance.
+     * The row stays locked until the calling transaction ends.
+     */
+    @Transactional
+    @Query(value = "UPDATE money_box SET current_balance = current_balance + :delta, updated_at = NOW() " +
+                   "WHERE id = :id RETURNING current_balance", nativeQuery = true)
+    BigDecimal addToBalance(@Param("id") Long id, @Param("delta") BigDecimal delta);
+
+    /**
+     * قفل صندوق المال وقراءة رصيده
+     * Locks the money box row and returns its balance, used before setting an absolute balance
+     */
+    @Transactional
+    @Query(value = "SELECT current_balance FROM money_box WHERE id = :id FOR UPDATE", nativeQuery = true)
+    BigDecimal lockBalance(@Param("id") Long id);
 }
@@ -2,16 +2,20 @@ package com.Uqar.moneybox.repository;
 
 import com.Uqar.moneybox.entity.MoneyBoxTransaction;
 import com.Uqar.moneybox.enums.TransactionType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface MoneyBoxTransactionRepository extends JpaRepository<MoneyBoxTransaction, Long> {
@@ -92,6 +96,51 @@ public interface MoneyBoxTransactionRepository extends JpaRepository<MoneyBoxTra
             @Param("startDate") LocalDateTime startDate, 
             @Param("endDate") LocalDateTime endDate);
     
+    // Keyset pagination: transactions after the cursor within [startDate, endDate], newest first
+    @Query("SELECT t FROM MoneyBoxTransaction t WHERE t.moneyBox.id = :moneyBoxId " +
+           "AND t.createdAt BETWEEN :startDate AND :endDate " +
+           "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<MoneyBoxTransaction> findPageByMoneyBoxId(
+            @Param("moneyBoxId") Long moneyBoxId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    @Query("SELECT t FROM MoneyBoxTransaction t WHERE t.moneyBox.id = :moneyBoxId AND t.transactionType = :transactionType " +
+           "AND t.createdAt BETWEEN :startDate AND :endDate " +
+           "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<MoneyBoxTransaction> findPageByMoneyBoxIdAndTransactionType(
+            @Param("moneyBoxId") Long moneyBoxId,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    long countByMoneyBoxIdAndCreatedAtBetween(Long moneyBoxId, LocalDateTime startDate, LocalDateTime endDate);
+    
+    long countByMoneyBoxIdAndTransactionTypeAndCreatedAtBetween(
+            Long moneyBoxId, TransactionType transactionType, LocalDateTime startDate, LocalDateTime endDate);
+    
+    // Ledger export: scalar rows read through a forward-only cursor, consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t.id, t.createdAt, t.transactionType, t.description, t.amount, t.originalCurrency, t.originalAmount, " +
+           "t.exchangeRate, t.balanceBefore, t.balanceAfter, t.referenceType, t.referenceId, t.createdBy " +
+           "FROM MoneyBoxTransaction t WHERE t.moneyBox.id = :moneyBoxId AND t.createdAt BETWEEN :startDate AND :endDate " +
+           "ORDER BY t.createdAt, t.id")
+    Stream<Object[]> streamExportRows(
+            @Param("moneyBoxId") Long moneyBoxId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
     // Method to get the latest transaction for balance calculation
     @Query("SELECT t FROM MoneyBoxTransaction t WHERE t.moneyBox.id = :moneyBoxId ORDER BY t.createdAt DESC LIMIT 1")
     java.util.Optional<MoneyBoxTransaction> findTopByMoneyBoxIdOrderByCreatedAtDesc(@Param("moneyBoxId") Long moneyBoxId);
@@ -3,6 +3,7 @@ package com.Uqar.moneybox.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,7 @@ public class EnhancedMoneyBoxAuditService {
     private final MoneyBoxTransactionRepository transactionRepository;
     private final MoneyBoxRepository moneyBoxRepository;
     private final ExchangeRateService exchangeRateService;
+    private final MoneyBoxLedger moneyBoxLedger;
 
     /**
      * Record a comprehensive financial operation using existing MoneyBoxTransaction
@@ -93,17 +95,15 @@ public class EnhancedMoneyBoxAuditService {
                 }
             }
             
-            // Get current balance for balance tracking
-            BigDecimal currentBalance = getCurrentMoneyBoxBalance(moneyBoxId);
-            BigDecimal newBalance = calculateNewBalance(currentBalance, convertedAmount, transactionType);
+            // Update the balance atomically; before/after come from the updated row
+            MoneyBoxLedger.Posting posting = transactionType == TransactionType.OPENING_BALANCE
+                    ? moneyBoxLedger.setBalance(moneyBoxId, convertedAmount.abs())
+                    : moneyBoxLedger.post(moneyBoxId, balanceDelta(convertedAmount, transactionType));
             
-            // Get MoneyBox entity
+            // Get MoneyBox entity and keep the loaded copy in step with the database
             MoneyBox moneyBox = moneyBoxRepository.findById(moneyBoxId)
                     .orElseThrow(() -> new RuntimeException("MoneyBox not found with ID: " + moneyBoxId));
-            
-            // Update the moneyBox balance BEFORE creating the transaction
-            moneyBox.setCurrentBalance(newBalance);
-            moneyBox = moneyBoxRepository.save(moneyBox);
+            moneyBox.setCurrentBalance(posting.balanceAfter());
             
             // Create enhanced MoneyBoxTransaction
             MoneyBoxTransaction transaction = new MoneyBoxTransaction();
@@ -130,8 +130,8 @@ public class EnhancedMoneyBoxAuditService {
             }
             transaction.setAmount(transactionAmount);
             
-            transaction.setBalanceBefore(currentBalance);
-            transaction.setBalanceAfter(newBalance);
+            transaction.setBalanceBefore(posting.balanceBefore());
+            transaction.setBalanceAfter(posting.balanceAfter());
             transaction.setDescription(description);
             transaction.setReferenceId(referenceId);
             transaction.setReferenceType(referenceType);
@@ -193,6 +193,93 @@ public class EnhancedMoneyBoxAuditService {
         }
     }
 
+    /**
+     * عملية مالية ضمن دفعة عمليات من نفس النوع
+     * One operation of a batch recorded with {@link #recordFinancialOperations}
+     */
+    public record FinancialOperation(BigDecimal originalAmount, Currency originalCurrency, String description,
+                                     String referenceId, Map<String, Object> additionalData) {
+    }
+
+    /**
+     * Record a batch of revenue or expense operations of the same type with a single balance update.
+     * The balance moves once by the sum of the operations; each operation still gets its own
+     * MoneyBoxTransaction, with balances chained from the balance before the update, and the rows
+     * are inserted in one JDBC batch. A failure rolls the whole batch back.
+     *
+     * @param moneyBoxId The ID of the MoneyBox
+     * @param transactionType A revenue or expense transaction type
+     * @param referenceType Reference type of the related entities
+     * @param operations The operations, in the order they are chained
+     * @return The saved MoneyBoxTransactions
+     */
+    @Transactional
+    public List<MoneyBoxTransaction> recordFinancialOperations(Long moneyBoxId, TransactionType transactionType,
+                                                               String referenceType, List<FinancialOperation> operations) {
+        if (!isRevenueTransaction(transactionType) && !isExpenseTransaction(transactionType)) {
+            throw new IllegalArgumentException("Batch recording supports revenue and expense operations only, not " + transactionType);
+        }
+        if (operations.isEmpty()) {
+            return List.of();
+        }
+
+        List<MoneyBoxTransaction> transactions = new ArrayList<>(operations.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (FinancialOperation operation : operations) {
+            BigDecimal convertedAmount = operation.originalAmount();
+            Currency convertedCurrency = operation.originalCurrency();
+            BigDecimal exchangeRate = BigDecimal.ONE;
+            String conversionSource = "NO_CONVERSION";
+            if (!Currency.SYP.equals(operation.originalCurrency())) {
+                try {
+                    convertedAmount = exchangeRateService.convertToSYP(operation.originalAmount(), operation.originalCurrency());
+                    exchangeRate = exchangeRateService.getExchangeRate(operation.originalCurrency(), Currency.SYP);
+                    convertedCurrency = Currency.SYP;
+                    conversionSource = "EXCHANGE_RATE_SERVICE";
+                } catch (Exception e) {
+                    log.warn("Failed to convert currency for operation {}: {}", transactionType, e.getMessage());
+                    conversionSource = "CONVERSION_FAILED";
+                }
+            }
+            BigDecimal delta = balanceDelta(convertedAmount, transactionType);
+            total = total.add(delta);
+
+            MoneyBoxTransaction transaction = new MoneyBoxTransaction();
+            transaction.setTransactionType(transactionType);
+            transaction.setAmount(delta);
+            transaction.setDescription(operation.description());
+            transaction.setReferenceId(operation.referenceId());
+            transaction.setReferenceType(referenceType);
+            transaction.setOriginalCurrency(operation.originalCurrency());
+            transaction.setOriginalAmount(operation.originalAmount());
+            transaction.setConvertedCurrency(convertedCurrency);
+            transaction.setConvertedAmount(convertedAmount);
+            transaction.setExchangeRate(exchangeRate);
+            transaction.setConversionTimestamp(LocalDateTime.now());
+            transaction.setConversionSource(conversionSource);
+            transaction.setOperationStatus("SUCCESS");
+            transaction.setAdditionalData(operation.additionalData() != null ? operation.additionalData().toString() : null);
+            transactions.add(transaction);
+        }
+
+        MoneyBoxLedger.Posting posting = moneyBoxLedger.post(moneyBoxId, total);
+        MoneyBox moneyBox = moneyBoxRepository.findById(moneyBoxId)
+                .orElseThrow(() -> new RuntimeException("MoneyBox not found with ID: " + moneyBoxId));
+        moneyBox.setCurrentBalance(posting.balanceAfter());
+
+        BigDecimal balance = posting.balanceBefore();
+        for (MoneyBoxTransaction transaction : transactions) {
+            transaction.setMoneyBox(moneyBox);
+            transaction.setBalanceBefore(balance);
+            balance = balance.add(transaction.getAmount());
+            transaction.setBalanceAfter(balance);
+        }
+        List<MoneyBoxTransaction> saved = transactionRepository.saveAll(transactions);
+
+        log.info("Financial operations recorded: {} x {} -> {} SYP", operations.size(), transactionType, total);
+        return saved;
+    }
+
     /**
      * Get comprehensive financial summary for a Money Box
      * 
@@ -448,34 +535,23 @@ public class EnhancedMoneyBoxAuditService {
     }
 
     // Helper methods
-    private BigDecimal getCurrentMoneyBoxBalance(Long moneyBoxId) {
-        // Get the current balance directly from MoneyBox entity for accuracy
-        MoneyBox moneyBox = moneyBoxRepository.findById(moneyBoxId)
-                .orElseThrow(() -> new RuntimeException("MoneyBox not found with ID: " + moneyBoxId));
-        
-        return moneyBox.getCurrentBalance();
-    }
-    
-    private BigDecimal calculateNewBalance(BigDecimal currentBalance, BigDecimal amount, TransactionType transactionType) {
+    private BigDecimal balanceDelta(BigDecimal amount, TransactionType transactionType) {
         // For manual transactions (CASH_DEPOSIT/CASH_WITHDRAWAL), the amount already has the correct sign
         // For other transaction types, we need to determine the sign based on transaction type
-        if (transactionType == TransactionType.OPENING_BALANCE) {
-            // Opening balance: set to the amount (not add to current balance)
-            return amount.abs();
-        } else if (transactionType == TransactionType.CASH_DEPOSIT || transactionType == TransactionType.CASH_WITHDRAWAL) {
+        if (transactionType == TransactionType.CASH_DEPOSIT || transactionType == TransactionType.CASH_WITHDRAWAL) {
             // Manual transactions: amount already has correct sign
-            return currentBalance.add(amount);
+            return amount;
         } else if (transactionType == TransactionType.ADJUSTMENT) {
             // Adjustment transactions: amount already has the correct sign (positive for increase, negative for decrease)
-            return currentBalance.add(amount);
+            return amount;
         } else if (isRevenueTransaction(transactionType)) {
             // Revenue transactions: always add positive amount
-            return currentBalance.add(amount.abs());
+            return amount.abs();
         } else if (isExpenseTransaction(transactionType)) {
             // Expense transactions: always subtract positive amount
-            return currentBalance.subtract(amount.abs());
+            return amount.abs().negate();
         }
-        return currentBalance;
+        return BigDecimal.ZERO;
     }
     
     private boolean isRevenueTransaction(TransactionType transactionType) {
@@ -7,6 +7,8 @@ import com.Uqar.moneybox.dto.CurrencyConversionResponseDTO;
 import com.Uqar.moneybox.mapper.ExchangeRateMapper;
 import com.Uqar.user.Enum.Currency;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,13 +18,27 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static com.Uqar.utils.TransactionCallbacks.afterCommit;
+
+/**
+ * Exchange rate service
+ * Conversions are served from an in-memory {@link ExchangeRateSnapshot} of the rate table.
+ * The snapshot is reloaded after setExchangeRate/deactivateRate commit and periodically
+ * (for changes made by other instances), and swapped atomically.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ExchangeRateService {
     
     private final ExchangeRateRepository exchangeRateRepository;
     
+    private final AtomicReference<ExchangeRateSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong snapshotVersion = new AtomicLong();
+    
     // Default exchange rates for production fallback
     private static final BigDecimal DEFAULT_USD_TO_SYP_RATE = new BigDecimal("10000");
     private static final BigDecimal DEFAULT_EUR_TO_SYP_RATE = new BigDecimal("11000");
@@ -41,27 +57,69 @@ public class ExchangeRateService {
         return DEFAULT_EUR_TO_SYP_RATE;
     }
     
+    // ============================================================================
+    // RATE SNAPSHOT
+    // ============================================================================
+    
+    /**
+     * اللقطة الحالية لجدول أسعار الصرف
+     * Current rate snapshot. Callers that need consistent numbers across many conversions
+     * (reports) keep the returned instance and pass it to the snapshot-aware overloads.
+     */
+    public ExchangeRateSnapshot currentSnapshot() {
+        ExchangeRateSnapshot current = snapshot.get();
+        return current != null ? current : reloadSnapshot();
+    }
+    
+    /**
+     * إعادة تحميل اللقطة من قاعدة البيانات
+     * Reload the snapshot from the database and swap it in.
+     * Loads are serialized so an older read can never replace a newer one.
+     */
+    public synchronized ExchangeRateSnapshot reloadSnapshot() {
+        try {
+            ExchangeRateSnapshot loaded = new ExchangeRateSnapshot(snapshotVersion.incrementAndGet(), exchangeRateRepository.findAll());
+            snapshot.set(loaded);
+            return loaded;
+        } catch (Exception e) {
+            // Keep serving the previous snapshot (or the fallback rates) and retry later
+            log.error("Failed to load exchange rate snapshot: {}", e.getMessage(), e);
+            ExchangeRateSnapshot current = snapshot.get();
+            return current != null ? current : ExchangeRateSnapshot.EMPTY;
+        }
+    }
+    
+    /**
+     * مزامنة دورية لالتقاط التغييرات من النسخ الأخرى للتطبيق
+     * Periodic reload, to pick up rates changed by other application instances
+     */
+    @Scheduled(fixedDelayString = "${exchange-rate.snapshot.refresh-interval-ms:300000}")
+    public void refreshSnapshot() {
+        reloadSnapshot();
+    }
+    
+    private void reloadSnapshotAfterCommit() {
+        afterCommit(this::reloadSnapshot);
+    }
+    
     /**
      * Get current exchange rate for currency pair
      */
     public BigDecimal getExchangeRate(Currency fromCurrency, Currency toCurrency) {
+        return getExchangeRate(fromCurrency, toCurrency, currentSnapshot());
+    }
+    
+    /**
+     * Get exchange rate for currency pair from a pinned snapshot
+     */
+    public BigDecimal getExchangeRate(Currency fromCurrency, Currency toCurrency, ExchangeRateSnapshot rates) {
         if (fromCurrency.equals(toCurrency)) {
             return BigDecimal.ONE;
         }
         
-        // First try to get from database
-        try {
-            Optional<ExchangeRate> dbRate = exchangeRateRepository.findByFromCurrencyAndToCurrencyAndIsActiveTrue(fromCurrency, toCurrency);
-            if (dbRate.isPresent()) {
-                return dbRate.get().getRate();
-            }
-        } catch (Exception e) {
-            // Log error but continue with fallback rates for production safety
-            // In production, you might want to add proper logging here
-        }
-        
-        // Fallback to fixed rates if no database record or error occurs
-        return getFallbackRate(fromCurrency, toCurrency);
+        // Fallback to fixed rates if the snapshot has no active rate for the pair
+        return rates.getRate(fromCurrency, toCurrency)
+            .orElseGet(() -> getFallbackRate(fromCurrency, toCurrency));
     }
     
     /**
@@ -100,11 +158,18 @@ public class ExchangeRateService {
      * Convert amount from one currency to another with production safety
      */
     public BigDecimal convertAmount(BigDecimal amount, Currency fromCurrency, Currency toCurrency) {
+        return convertAmount(amount, fromCurrency, toCurrency, currentSnapshot());
+    }
+    
+    /**
+     * Convert amount from one currency to another using a pinned snapshot
+     */
+    public BigDecimal convertAmount(BigDecimal amount, Currency fromCurrency, Currency toCurrency, ExchangeRateSnapshot rates) {
         if (amount == null) {
             throw new IllegalArgumentException("Amount cannot be null");
         }
         
-        BigDecimal rate = getExchangeRate(fromCurrency, toCurrency);
+        BigDecimal rate = getExchangeRate(fromCurrency, toCurrency, rates);
         return amount.multiply(rate).setScale(2, RoundingMode.HALF_UP);
     }
     
@@ -115,6 +180,10 @@ public class ExchangeRateService {
         return convertAmount(amount, currency, Currency.SYP);
     }
     
+    public BigDecimal convertToSYP(BigDecimal amount, Currency currency, ExchangeRateSnapshot rates) {
+        return convertAmount(amount, currency, Currency.SYP, rates);
+    }
+    
     /**
      * Convert amount from SYP to target currency - Production safe
      */
@@ -122,24 +191,23 @@ public class ExchangeRateService {
         return convertAmount(amount, Currency.SYP, targetCurrency);
     }
     
+    public BigDecimal convertFromSYP(BigDecimal amount, Currency targetCurrency, ExchangeRateSnapshot rates) {
+        return convertAmount(amount, Currency.SYP, targetCurrency, rates);
+    }
+    
     /**
-     * Get effective exchange rate from database
+     * Get the exchange rate that was effective at the given date (current active rate when date is null)
      */
     public Optional<ExchangeRate> getEffectiveRate(Currency fromCurrency, Currency toCurrency, LocalDateTime date) {
-        try {
-            return exchangeRateRepository.findByFromCurrencyAndToCurrencyAndIsActiveTrue(fromCurrency, toCurrency);
-        } catch (Exception e) {
-            // Return empty for production safety
-            return Optional.empty();
-        }
+        return currentSnapshot().getEffectiveRate(fromCurrency, toCurrency, date);
     }
     
     /**
-     * Get current active exchange rate from database
+     * Get current active exchange rate
      */
     public ExchangeRateResponseDTO getCurrentRate(Currency fromCurrency, Currency toCurrency) {
         try {
-            ExchangeRate rate = exchangeRateRepository.findByFromCurrencyAndToCurrencyAndIsActiveTrue(fromCurrency, toCurrency)
+            ExchangeRate rate = currentSnapshot().getActiveRate(fromCurrency, toCurrency)
                 .orElseThrow(() -> new IllegalArgumentException("No active exchange rate found for " + fromCurrency + " to " + toCurrency));
             
             return ExchangeRateMapper.toResponse(rate);
@@ -162,7 +230,7 @@ public class ExchangeRateService {
      */
     public List<ExchangeRateResponseDTO> getExchangeRatePair(Currency currency1, Currency currency2) {
         try {
-            List<ExchangeRate> rates = exchangeRateRepository.findByIsActiveTrue();
+            List<ExchangeRate> rates = currentSnapshot().getActiveRates();
             
             return rates.stream()
                 .filter(rate -> 
@@ -223,6 +291,8 @@ public class ExchangeRateService {
             // Automatically generate reverse exchange rate
             generateReverseExchangeRate(fromCurrency, toCurrency, rate, source, notes);
             
+            reloadSnapshotAfterCommit();
+            
             return ExchangeRateMapper.toResponse(savedRate);
         } catch (Exception e) {
             throw new RuntimeException("Failed to set exchange rate: " + e.getMessage(), e);
@@ -274,7 +344,7 @@ public class ExchangeRateService {
      */
     public List<ExchangeRateResponseDTO> getAllActiveRates() {
         try {
-            List<ExchangeRate> rates = exchangeRateRepository.findByIsActiveTrue();
+            List<ExchangeRate> rates = currentSnapshot().getActiveRates();
             return rates.stream()
                 .map(ExchangeRateMapper::toResponse)
                 .collect(java.util.stream.Collectors.toList());
@@ -329,6 +399,8 @@ public class ExchangeRateService {
                 reverse.setEffectiveTo(LocalDateTime.now());
                 exchangeRateRepository.save(reverse);
             }
+            
+            reloadSnapshotAfterCommit();
         } catch (Exception e) {
             throw new RuntimeException("Failed to deactivate exchange rate: " + e.getMessage(), e);
         }
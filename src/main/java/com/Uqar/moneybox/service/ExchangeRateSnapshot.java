@@ -0,0 +1,148 @@
+package com.Uqar.moneybox.service;
+
+import com.Uqar.moneybox.entity.ExchangeRate;
+import com.Uqar.user.Enum.Currency;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * لقطة ثابتة لجدول أسعار الصرف
+ * Immutable, versioned copy of the exchange rate table.
+ *
+ * Holds the active rate of every currency pair and, per pair, an interval index of all
+ * rates ordered by effectiveFrom for historical lookups. A snapshot never changes after it
+ * is built: {@link ExchangeRateService} swaps in a new one when rates change, so a caller
+ * that keeps one instance (e.g. a report) converts every number with the same rates.
+ */
+public final class ExchangeRateSnapshot {
+
+    public static final ExchangeRateSnapshot EMPTY = new ExchangeRateSnapshot(0L, List.of());
+
+    private final long version;
+    private final LocalDateTime loadedAt;
+    private final Map<Currency, Map<Currency, ExchangeRate>> activeRates;
+    private final Map<Currency, Map<Currency, NavigableMap<LocalDateTime, ExchangeRate>>> history;
+
+    public ExchangeRateSnapshot(long version, List<ExchangeRate> rates) {
+        this.version = version;
+        this.loadedAt = LocalDateTime.now();
+
+        Map<Currency, Map<Currency, ExchangeRate>> active = new EnumMap<>(Currency.class);
+        Map<Currency, Map<Currency, NavigableMap<LocalDateTime, ExchangeRate>>> intervals = new EnumMap<>(Currency.class);
+        for (ExchangeRate source : rates) {
+            if (source.getFromCurrency() == null || source.getToCurrency() == null || source.getRate() == null) {
+                continue;
+            }
+            ExchangeRate rate = copyOf(source);
+            if (Boolean.TRUE.equals(rate.getIsActive())) {
+                active.computeIfAbsent(rate.getFromCurrency(), c -> new EnumMap<>(Currency.class))
+                    .merge(rate.getToCurrency(), rate, ExchangeRateSnapshot::newer);
+            }
+            intervals.computeIfAbsent(rate.getFromCurrency(), c -> new EnumMap<>(Currency.class))
+                .computeIfAbsent(rate.getToCurrency(), c -> new TreeMap<>())
+                .merge(startOf(rate), rate, ExchangeRateSnapshot::newer);
+        }
+        this.activeRates = active;
+        this.history = intervals;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * السعر الفعال الحالي لزوج العملات
+     * Current active rate of the pair, if one is set
+     */
+    public Optional<BigDecimal> getRate(Currency fromCurrency, Currency toCurrency) {
+        return getActiveRate(fromCurrency, toCurrency).map(ExchangeRate::getRate);
+    }
+
+    public Optional<ExchangeRate> getActiveRate(Currency fromCurrency, Currency toCurrency) {
+        Map<Currency, ExchangeRate> byTarget = activeRates.get(fromCurrency);
+        return Optional.ofNullable(byTarget != null ? byTarget.get(toCurrency) : null);
+    }
+
+    /**
+     * السعر الذي كان سارياً في تاريخ معين
+     * Rate of the pair whose [effectiveFrom, effectiveTo) interval contains the date
+     */
+    public Optional<ExchangeRate> getEffectiveRate(Currency fromCurrency, Currency toCurrency, LocalDateTime date) {
+        if (date == null) {
+            return getActiveRate(fromCurrency, toCurrency);
+        }
+        Map<Currency, NavigableMap<LocalDateTime, ExchangeRate>> byTarget = history.get(fromCurrency);
+        NavigableMap<LocalDateTime, ExchangeRate> intervals = byTarget != null ? byTarget.get(toCurrency) : null;
+        if (intervals == null) {
+            return Optional.empty();
+        }
+        Map.Entry<LocalDateTime, ExchangeRate> entry = intervals.floorEntry(date);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        ExchangeRate rate = entry.getValue();
+        if (rate.getEffectiveTo() != null && !date.isBefore(rate.getEffectiveTo())) {
+            return Optional.empty();
+        }
+        return Optional.of(rate);
+    }
+
+    /**
+     * جميع الأسعار الفعالة في اللقطة
+     * Every active rate in the snapshot
+     */
+    public List<ExchangeRate> getActiveRates() {
+        List<ExchangeRate> rates = new ArrayList<>();
+        activeRates.values().forEach(byTarget -> rates.addAll(byTarget.values()));
+        return Collections.unmodifiableList(rates);
+    }
+
+    private static LocalDateTime startOf(ExchangeRate rate) {
+        if (rate.getEffectiveFrom() != null) {
+            return rate.getEffectiveFrom();
+        }
+        return rate.getCreatedAt() != null ? rate.getCreatedAt() : LocalDateTime.MIN;
+    }
+
+    /**
+     * عند التعارض يفوز السجل الأحدث (المعرف الأكبر)
+     * On a clash the most recently inserted row (highest id) wins
+     */
+    private static ExchangeRate newer(ExchangeRate existing, ExchangeRate candidate) {
+        if (existing.getId() == null) {
+            return candidate;
+        }
+        if (candidate.getId() == null) {
+            return existing;
+        }
+        return candidate.getId() > existing.getId() ? candidate : existing;
+    }
+
+    private static ExchangeRate copyOf(ExchangeRate rate) {
+        return ExchangeRate.builder()
+            .id(rate.getId())
+            .fromCurrency(rate.getFromCurrency())
+            .toCurrency(rate.getToCurrency())
+            .rate(rate.getRate())
+            .isActive(rate.getIsActive())
+            .createdAt(rate.getCreatedAt())
+            .effectiveFrom(rate.getEffectiveFrom())
+            .effectiveTo(rate.getEffectiveTo())
+            .source(rate.getSource())
+            .notes(rate.getNotes())
+            .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.Uqar.moneybox.service;
+
+import java.math.BigDecimal;
+
+import org.springframework.stereotype.Component;
+
+import com.Uqar.moneybox.repository.MoneyBoxRepository;
+import com.Uqar.utils.exception.ResourceNotFoundException;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * دفتر رصيد صندوق المال
+ * Applies balance changes to a money box.
+ *
+ * Every change is one {@code UPDATE ... SET current_balance = current_balance + delta
+ * RETURNING current_balance}, so two tills posting at the same moment are serialized by the
+ * row lock and neither update is lost. The balance before and after each posting is derived
+ * from the returned value, never from a balance read earlier in Java. The row lock is held
+ * until the posting's transaction commits, so a rolled-back sale never leaves its amount in
+ * the balance.
+ */
+@Component
+@RequiredArgsConstructor
+public class MoneyBoxLedger {
+
+    private final MoneyBoxRepository moneyBoxRepository;
+
+    /**
+     * رصيد الصندوق قبل وبعد القيد
+     */
+    public record Posting(BigDecimal balanceBefore, BigDecimal balanceAfter) {
+    }
+
+    /**
+     * إضافة مبلغ موجب أو سالب إلى الرصيد
+     * Add a signed amount to the balance
+     */
+    public Posting post(Long moneyBoxId, BigDecimal delta) {
+        BigDecimal balanceAfter = moneyBoxRepository.addToBalance(moneyBoxId, delta);
+        if (balanceAfter == null) {
+            throw new ResourceNotFoundException("MoneyBox not found with ID: " + moneyBoxId);
+        }
+        return new Posting(balanceAfter.subtract(delta), balanceAfter);
+    }
+
+    /**
+     * تعيين رصيد مطلق (الرصيد الافتتاحي)
+     * Set an absolute balance, used for opening balances
+     */
+    public Posting setBalance(Long moneyBoxId, BigDecimal balance) {
+        BigDecimal current = moneyBoxRepository.lockBalance(moneyBoxId);
+        if (current == null) {
+            throw new ResourceNotFoundException("MoneyBox not found with ID: " + moneyBoxId);
+        }
+        // The row is locked, so nothing can change the balance between the two statements
+        return post(moneyBoxId, balance.subtract(current));
+    }
+}
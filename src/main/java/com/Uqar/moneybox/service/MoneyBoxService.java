@@ -29,7 +29,9 @@ import java.util.Map;
 import java.util.Optional;
 import com.Uqar.moneybox.mapper.ExchangeRateMapper;
 import com.Uqar.user.repository.UserRepository;
+import com.Uqar.utils.response.CursorPageDTO;
 import com.Uqar.product.dto.PaginationDTO;
+import com.Uqar.utils.request.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -293,7 +295,8 @@ public class MoneyBoxService extends BaseSecurityService {
         
         MoneyBox moneyBox = findMoneyBoxByPharmacyId(currentPharmacyId);
         
-        BigDecimal balanceBefore = moneyBox.getCurrentBalance();
+        // Lock the balance so a sale posted meanwhile cannot skew the adjustment
+        BigDecimal balanceBefore = moneyBoxRepository.lockBalance(moneyBox.getId());
         BigDecimal difference = actualCashCount.subtract(balanceBefore);
         
         // Update reconciliation fields
@@ -477,6 +480,46 @@ public class MoneyBoxService extends BaseSecurityService {
         return new PaginationDTO<>(responses, page, size, transactionPage.getTotalElements());
     }
 
+    /**
+     * حركات الصندوق بمؤشر الصفحة (الأحدث أولاً)
+     * Transactions of the pharmacy's money box after the cursor, newest first, optionally
+     * within a period and of one type. The total is only counted on the first page and when asked for.
+     */
+    public CursorPageDTO<MoneyBoxTransactionResponseDTO> getTransactionsByCursor(
+            LocalDateTime startDate, LocalDateTime endDate, String transactionType,
+            String cursor, int size, boolean includeTotal) {
+        Long currentPharmacyId = getCurrentUserPharmacyId();
+        MoneyBox moneyBox = findMoneyBoxByPharmacyId(currentPharmacyId);
+        
+        LocalDateTime from = startDate != null ? startDate : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime to = endDate != null ? endDate : KeysetCursor.START.createdAt();
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        boolean countTotal = includeTotal && position.isStart();
+        
+        List<MoneyBoxTransaction> transactions;
+        Long total = null;
+        if (transactionType != null && !transactionType.isBlank()) {
+            TransactionType type = TransactionType.valueOf(transactionType.toUpperCase());
+            transactions = transactionRepository.findPageByMoneyBoxIdAndTransactionType(
+                moneyBox.getId(), type, from, to, position.createdAt(), position.id(), KeysetCursor.limit(size));
+            if (countTotal) {
+                total = transactionRepository.countByMoneyBoxIdAndTransactionTypeAndCreatedAtBetween(moneyBox.getId(), type, from, to);
+            }
+        } else {
+            transactions = transactionRepository.findPageByMoneyBoxId(
+                moneyBox.getId(), from, to, position.createdAt(), position.id(), KeysetCursor.limit(size));
+            if (countTotal) {
+                total = transactionRepository.countByMoneyBoxIdAndCreatedAtBetween(moneyBox.getId(), from, to);
+            }
+        }
+        
+        return KeysetCursor.page(transactions, size, MoneyBoxTransaction::getCreatedAt, MoneyBoxTransaction::getId,
+            page -> page.stream()
+                .map(transaction -> MoneyBoxMapper.toTransactionResponseDTO(transaction, getUserEmailById(transaction.getCreatedBy())))
+                .toList(),
+            total);
+    }
+
     /**
      * Helper method to get user email by user ID
      */
@@ -14,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -85,6 +86,41 @@ public class SalesIntegrationService {
         }
     }
     
+    /**
+     * دفعة مبيع ضمن مزامنة دفعة مبيعات
+     * Paid amount of one sale of a batch
+     */
+    public record SalePayment(Long saleId, BigDecimal amount, Currency currency) {
+    }
+
+    /**
+     * Records the payments of a batch of sales in the money box with one balance update,
+     * one ledger row per sale. Amounts are converted to SYP like single payments.
+     * A pharmacy without a money box is skipped with a warning, so the sales are kept.
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRED)
+    public void recordSalePayments(Long pharmacyId, List<SalePayment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        MoneyBox moneyBox = moneyBoxRepository.findByPharmacyId(pharmacyId).orElse(null);
+        if (moneyBox == null) {
+            log.warn("No money box for pharmacy {}: {} sale payments not recorded", pharmacyId, payments.size());
+            return;
+        }
+        List<EnhancedMoneyBoxAuditService.FinancialOperation> operations = payments.stream()
+            .map(payment -> new EnhancedMoneyBoxAuditService.FinancialOperation(
+                payment.amount(),
+                payment.currency(),
+                "Sale payment for sale ID: " + payment.saleId() +
+                (payment.currency() != Currency.SYP ? " (Converted from " + payment.currency() + ")" : ""),
+                String.valueOf(payment.saleId()),
+                Map.of("saleId", payment.saleId(), "pharmacyId", pharmacyId)))
+            .toList();
+        enhancedAuditService.recordFinancialOperations(moneyBox.getId(), TransactionType.SALE_PAYMENT, "SALE", operations);
+        log.info("Recorded {} sale payments in Money Box of pharmacy {}", payments.size(), pharmacyId);
+    }
+
     /**
      * Records a sale refund in the money box with automatic currency conversion to SYP
      * This method is designed to be called within a transaction from the sales service
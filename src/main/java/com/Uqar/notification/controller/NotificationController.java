@@ -18,6 +18,7 @@ import com.Uqar.notification.dto.NotificationResponse;
 import com.Uqar.notification.entity.DeviceToken;
 import com.Uqar.notification.service.DeviceTokenService;
 import com.Uqar.notification.service.NotificationService;
+import com.Uqar.utils.response.CursorPageDTO;
 import com.Uqar.product.dto.PaginationDTO;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -26,6 +27,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 
 @RestController
 @RequestMapping("/api/v1/notifications")
@@ -82,6 +85,25 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
     
+    @GetMapping("/cursor")
+    @Operation(summary = "Get user notifications by cursor", description = "Get the notifications of the current user newest first, one page after the given cursor. Pass the nextCursor of the previous page to get the next one; the total is only returned on the first page when includeTotal is true")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved notifications"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<CursorPageDTO<NotificationResponse>> getUserNotificationsByCursor(
+            @Parameter(description = "Cursor returned by the previous page (empty for the first page)") 
+            @org.springframework.web.bind.annotation.RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of items per page (1-100)", example = "10") 
+            @Min(1) @Max(100) @org.springframework.web.bind.annotation.RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Only unread notifications", example = "false") 
+            @org.springframework.web.bind.annotation.RequestParam(defaultValue = "false") boolean unreadOnly,
+            @Parameter(description = "Count the total on the first page", example = "false") 
+            @org.springframework.web.bind.annotation.RequestParam(defaultValue = "false") boolean includeTotal) {
+        return ResponseEntity.ok(notificationService.getUserNotificationsByCursor(cursor, size, unreadOnly, includeTotal));
+    }
+    
     @GetMapping("/unread")
     @Operation(summary = "Get unread notifications", description = "Get all unread notifications for the current user with enhanced pagination")
     @ApiResponses(value = {
@@ -69,9 +69,20 @@ public class Notification extends AuditedEntity {
     @Column(name = "next_retry_at")
     private LocalDateTime nextRetryAt; // وقت المحاولة القادمة (exponential backoff)
     
+    @Column(name = "claimed_by", length = 100)
+    private String claimedBy; // نسخة التطبيق التي تعالج الإشعار حالياً
+    
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil; // انتهاء مهلة المعالجة، بعدها يمكن لنسخة أخرى استلامه
+    
     @Override
     protected String getSequenceName() {
         return "notification_id_seq";
     }
+
+    @Override
+    protected int getSequenceAllocationSize() {
+        return POOLED_ALLOCATION_SIZE;
+    }
 }
 
@@ -1,9 +1,11 @@
 package com.Uqar.notification.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -21,6 +23,13 @@ public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long>
     
     Optional<DeviceToken> findByDeviceTokenAndIsActiveTrue(String deviceToken);
     
+    @Query("SELECT dt FROM DeviceToken dt WHERE dt.user.id IN :userIds AND dt.isActive = true")
+    List<DeviceToken> findByUserIdInAndIsActiveTrue(@Param("userIds") Collection<Long> userIds);
+    
+    @Modifying
+    @Query("UPDATE DeviceToken dt SET dt.isActive = false WHERE dt.deviceToken IN :deviceTokens")
+    int deactivateTokens(@Param("deviceTokens") Collection<String> deviceTokens);
+    
     List<DeviceToken> findByIsActiveTrue();
 }
 
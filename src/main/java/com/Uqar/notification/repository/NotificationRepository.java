@@ -1,11 +1,13 @@
 package com.Uqar.notification.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,6 +29,25 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     
     Long countByUserIdAndReadAtIsNull(Long userId);
     
+    long countByUserId(Long userId);
+    
+    // إشعارات المستخدم بعد مؤشر الصفحة (الأحدث أولاً)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findPageByUserId(@Param("userId") Long userId,
+                                        @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        Pageable pageable);
+    
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.readAt IS NULL " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findUnreadPageByUserId(@Param("userId") Long userId,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+    
     List<Notification> findByNotificationTypeAndStatus(NotificationType type, String status);
     
     List<Notification> findByStatusAndSentAtBefore(String status, LocalDateTime before);
@@ -47,6 +68,27 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Page<Notification> findReadyForRetry(@Param("status") String status, 
                                          @Param("now") LocalDateTime now, 
                                          Pageable pageable);
+    
+    // استلام دفعة من الإشعارات الجاهزة دون انتظار الصفوف المقفلة من نسخ أخرى
+    @Query(value = """
+        SELECT n.id FROM notification n
+        WHERE n.status = 'PENDING'
+          AND (n.next_retry_at IS NULL OR n.next_retry_at <= :now)
+          AND (n.lease_until IS NULL OR n.lease_until < :now)
+        ORDER BY n.created_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<Long> findClaimableIdsForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Modifying
+    @Query("UPDATE Notification n SET n.claimedBy = :owner, n.leaseUntil = :leaseUntil WHERE n.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("owner") String owner,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+    
+    @Query("SELECT n FROM Notification n WHERE n.id IN :ids AND n.claimedBy = :owner")
+    List<Notification> findClaimedBy(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
 }
 
 
@@ -0,0 +1,260 @@
+package com.Uqar.notification.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.Uqar.notification.dto.NotificationRequest;
+import com.Uqar.notification.enums.NotificationType;
+import com.Uqar.notification.service.NotificationService;
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.MasterProduct;
+import com.Uqar.product.entity.PharmacyProduct;
+import com.Uqar.product.mapper.StockItemMapper;
+import com.Uqar.product.repo.PharmacyProductRepo;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.product.service.MasterProductCatalogue;
+import com.Uqar.scheduling.service.JobShard;
+import com.Uqar.user.entity.Employee;
+import com.Uqar.user.repository.EmployeeRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * فحص المخزون المنخفض لجميع الصيدليات
+ * Finds the products at or below their minimum stock level in every active pharmacy.
+ *
+ * The quantities and minimum levels of all the pharmacies of a job shard come from one grouped
+ * query, and the names of the flagged products from one IN query per type. Building and enqueueing each
+ * pharmacy's notifications then runs on a bounded thread pool. The run duration, the time
+ * per pharmacy and the number of low products per pharmacy are recorded as metrics.
+ */
+@Component
+public class LowStockScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LowStockScanner.class);
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
+    private final StockItemRepo stockItemRepo;
+    private final PharmacyProductRepo pharmacyProductRepo;
+    private final MasterProductCatalogue masterProductCatalogue;
+    private final StockItemMapper stockItemMapper;
+    private final EmployeeRepository employeeRepository;
+    private final NotificationService notificationService;
+    private final ExecutorService executor;
+
+    // Metrics
+    private final Timer scanDuration;
+    private final Timer pharmacyDuration;
+    private final DistributionSummary productsPerPharmacy;
+    private final Counter notificationsEnqueued;
+
+    public LowStockScanner(StockItemRepo stockItemRepo,
+                           PharmacyProductRepo pharmacyProductRepo,
+                           MasterProductCatalogue masterProductCatalogue,
+                           StockItemMapper stockItemMapper,
+                           EmployeeRepository employeeRepository,
+                           NotificationService notificationService,
+                           MeterRegistry meterRegistry,
+                           @Value("${notifications.low-stock.threads:4}") int threads) {
+        this.stockItemRepo = stockItemRepo;
+        this.pharmacyProductRepo = pharmacyProductRepo;
+        this.masterProductCatalogue = masterProductCatalogue;
+        this.stockItemMapper = stockItemMapper;
+        this.employeeRepository = employeeRepository;
+        this.notificationService = notificationService;
+        this.executor = Executors.newFixedThreadPool(threads, daemonThreads());
+
+        this.scanDuration = Timer.builder("stock.low_stock.scan.duration")
+            .description("Time taken to check the low stock of one shard of the pharmacies")
+            .register(meterRegistry);
+        this.pharmacyDuration = Timer.builder("stock.low_stock.pharmacy.duration")
+            .description("Time taken to notify one pharmacy of its low stock")
+            .register(meterRegistry);
+        this.productsPerPharmacy = DistributionSummary.builder("stock.low_stock.products")
+            .description("Products at or below their minimum level, per pharmacy with low stock")
+            .register(meterRegistry);
+        this.notificationsEnqueued = Counter.builder("stock.low_stock.notifications")
+            .description("Low stock notifications enqueued")
+            .register(meterRegistry);
+    }
+
+    /**
+     * منتج وصل للحد الأدنى في صيدلية
+     * One product of a pharmacy at or below its minimum stock level
+     */
+    record LowStockProduct(Long productId, ProductType productType, int totalQuantity, int minStockLevel) {
+    }
+
+    private record PharmacyLowStock(Long pharmacyId, String pharmacyName, List<LowStockProduct> products) {
+    }
+
+    /**
+     * فحص صيدليات الجزء وإرسال الإشعارات
+     * Check the active pharmacies of the shard and enqueue a notification for each of their
+     * employees. Returns the number of low stock products found.
+     */
+    public int scan(JobShard shard) {
+        Timer.Sample sample = Timer.start();
+        try {
+            Map<Long, PharmacyLowStock> pharmacies = new LinkedHashMap<>();
+            for (Object[] row : stockItemRepo.findLowStockProductsOfActivePharmacies(shard.index(), shard.count())) {
+                Long pharmacyId = ((Number) row[0]).longValue();
+                pharmacies.computeIfAbsent(pharmacyId, id -> new PharmacyLowStock(id, (String) row[1], new ArrayList<>()))
+                    .products().add(new LowStockProduct(
+                        ((Number) row[2]).longValue(),
+                        ProductType.values()[((Number) row[3]).intValue()],
+                        ((Number) row[4]).intValue(),
+                        ((Number) row[5]).intValue()));
+            }
+            if (pharmacies.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, String> names = loadProductNames(pharmacies.values());
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (PharmacyLowStock pharmacy : pharmacies.values()) {
+                futures.add(executor.submit(() -> notifyPharmacy(pharmacy, names)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    logger.error("Low stock notification task failed: {}",
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return pharmacies.values().stream().mapToInt(pharmacy -> pharmacy.products().size()).sum();
+        } finally {
+            long nanos = sample.stop(scanDuration);
+            logger.info("Low stock check of shard {}/{} completed in {} ms",
+                shard.index(), shard.count(), TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    private void notifyPharmacy(PharmacyLowStock pharmacy, Map<String, String> names) {
+        Timer.Sample sample = Timer.start();
+        try {
+            productsPerPharmacy.record(pharmacy.products().size());
+            List<Employee> managers = employeeRepository.findByPharmacy_Id(pharmacy.pharmacyId());
+            if (managers.isEmpty()) {
+                return;
+            }
+
+            List<String> lowStockProducts = pharmacy.products().stream()
+                .map(product -> String.format("%s (المتاح: %d، الحد الأدنى: %d)",
+                    names.getOrDefault(key(product.productId(), product.productType()), "Unknown Product"),
+                    product.totalQuantity(), product.minStockLevel()))
+                .toList();
+
+            String title = "تنبيه: مخزون منخفض";
+            String body = String.format("يوجد %d منتج بمخزون منخفض:\n%s",
+                lowStockProducts.size(),
+                String.join("\n", lowStockProducts));
+
+            Map<String, Object> data = new HashMap<>();
+            data.put("pharmacyId", pharmacy.pharmacyId());
+            data.put("pharmacyName", pharmacy.pharmacyName());
+            data.put("lowStockCount", lowStockProducts.size());
+
+            // إرسال إشعار لكل موظف
+            for (Employee manager : managers) {
+                try {
+                    NotificationRequest request = new NotificationRequest();
+                    request.setUserId(manager.getId());
+                    request.setTitle(title);
+                    request.setBody(body);
+                    request.setNotificationType(NotificationType.STOCK_LOW);
+                    request.setData(new HashMap<>(data));
+
+                    notificationService.sendNotification(request);
+                    notificationsEnqueued.increment();
+                } catch (Exception e) {
+                    logger.error("Failed to send low stock notification to user {}: {}", manager.getId(), e.getMessage());
+                }
+            }
+        } finally {
+            long nanos = sample.stop(pharmacyDuration);
+            logger.info("Low stock notification sent for pharmacy: {} - {} products in {} ms",
+                pharmacy.pharmacyId(), pharmacy.products().size(), TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    /**
+     * تحميل أسماء جميع المنتجات المنخفضة دفعة واحدة
+     * Names of every flagged product: master products from the catalogue, pharmacy products
+     * with their translations in IN-query chunks
+     */
+    private Map<String, String> loadProductNames(Iterable<PharmacyLowStock> pharmacies) {
+        Set<Long> masterIds = new LinkedHashSet<>();
+        Set<Long> pharmacyProductIds = new LinkedHashSet<>();
+        for (PharmacyLowStock pharmacy : pharmacies) {
+            for (LowStockProduct product : pharmacy.products()) {
+                (product.productType() == ProductType.MASTER ? masterIds : pharmacyProductIds).add(product.productId());
+            }
+        }
+
+        Map<String, String> names = new HashMap<>();
+        for (MasterProduct product : masterProductCatalogue.findAll(masterIds).values()) {
+            names.put(key(product.getId(), ProductType.MASTER), stockItemMapper.getProductName(product, "en"));
+        }
+        List<Long> ids = new ArrayList<>(pharmacyProductIds);
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            for (PharmacyProduct product : pharmacyProductRepo.findAllWithTranslationsByIdIn(
+                    ids.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, ids.size())))) {
+                names.put(key(product.getId(), ProductType.PHARMACY), stockItemMapper.getProductName(product, "en"));
+            }
+        }
+        return names;
+    }
+
+    private static String key(Long productId, ProductType productType) {
+        return productId + "_" + productType;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "low-stock-notify-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -22,7 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public class FirebaseMessagingService {
+public class FirebaseMessagingService implements PushNotificationClient {
     
     private static final Logger logger = LoggerFactory.getLogger(FirebaseMessagingService.class);
     private static final int MAX_MULTICAST_TOKENS = 500; // Firebase limit for multicast
@@ -209,6 +209,7 @@ public class FirebaseMessagingService {
     /**
      * إرسال إشعار لعدة أجهزة (Multicast) - Uses Firebase Batch API for efficiency
      */
+    @Override
     public Map<String, String> sendNotificationToMultipleDevices(
             List<String> deviceTokens, 
             FCMNotificationDTO notificationDTO) {
@@ -0,0 +1,213 @@
+package com.Uqar.notification.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.Uqar.notification.dto.FCMNotificationDTO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * إرسال دفعة من الإشعارات بالتوازي
+ * Sends a claimed batch of notifications over a bounded thread pool.
+ *
+ * Notifications with the same payload are merged into one multicast call (up to
+ * {@link #MAX_MULTICAST_TOKENS} tokens), so a scheduler that notifies every pharmacy with
+ * the same text costs a handful of FCM requests instead of one per user. Holds no database
+ * state: the caller claims the rows and records the returned results.
+ */
+public class NotificationDispatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    static final int MAX_MULTICAST_TOKENS = 500; // Firebase limit for multicast
+
+    private final PushNotificationClient client;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+
+    // Throughput metrics
+    private final Counter delivered;
+    private final Counter undelivered;
+    private final Counter multicastCalls;
+    private final Timer batchDuration;
+
+    public NotificationDispatcher(PushNotificationClient client, MeterRegistry meterRegistry, int threads) {
+        this.client = client;
+        this.executor = Executors.newFixedThreadPool(threads, daemonThreads());
+        this.meterRegistry = meterRegistry;
+
+        this.delivered = Counter.builder("notifications.dispatch")
+            .tag("result", "delivered")
+            .description("Notifications delivered to at least one device")
+            .register(meterRegistry);
+        this.undelivered = Counter.builder("notifications.dispatch")
+            .tag("result", "undelivered")
+            .description("Notifications not delivered to any device (retried later)")
+            .register(meterRegistry);
+        this.multicastCalls = Counter.builder("notifications.dispatch.multicast.calls")
+            .description("Multicast requests sent to the messaging client")
+            .register(meterRegistry);
+        this.batchDuration = Timer.builder("notifications.dispatch.batch.duration")
+            .description("Time taken to send one claimed batch")
+            .register(meterRegistry);
+    }
+
+    /**
+     * إشعار واحد جاهز للإرسال
+     * One notification to send: its id, the user's active device tokens and the payload
+     */
+    public record DispatchRequest(Long notificationId, List<String> deviceTokens, FCMNotificationDTO payload) {
+    }
+
+    /**
+     * نتيجة إرسال إشعار واحد
+     * Outcome of one notification: delivered to at least one device, plus tokens reported invalid
+     */
+    public record DispatchResult(Long notificationId, boolean delivered, List<String> invalidTokens) {
+    }
+
+    /**
+     * إرسال الدفعة وانتظار انتهائها
+     * Send the batch and wait for every multicast call to finish.
+     * Returns one result per request, in request order.
+     */
+    public List<DispatchResult> dispatch(List<DispatchRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<Future<Map<Long, DispatchResult>>> futures = new ArrayList<>();
+            for (List<DispatchRequest> chunk : chunks(requests)) {
+                futures.add(executor.submit(() -> send(chunk)));
+            }
+
+            Map<Long, DispatchResult> results = new HashMap<>();
+            for (Future<Map<Long, DispatchResult>> future : futures) {
+                try {
+                    results.putAll(future.get());
+                } catch (ExecutionException e) {
+                    // send() handles client errors itself, so this is unexpected; the rows are retried
+                    logger.error("Notification chunk failed: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            List<DispatchResult> ordered = new ArrayList<>(requests.size());
+            for (DispatchRequest request : requests) {
+                DispatchResult result = results.getOrDefault(request.notificationId(),
+                    new DispatchResult(request.notificationId(), false, List.of()));
+                (result.delivered() ? delivered : undelivered).increment();
+                ordered.add(result);
+            }
+            return ordered;
+        } finally {
+            sample.stop(batchDuration);
+        }
+    }
+
+    /**
+     * تجميع الإشعارات ذات المحتوى نفسه في طلبات Multicast
+     * Group requests with an equal payload into multicast chunks. A chunk never holds the same
+     * token twice, so two identical notifications for one device are still both sent.
+     */
+    static List<List<DispatchRequest>> chunks(List<DispatchRequest> requests) {
+        Map<FCMNotificationDTO, List<DispatchRequest>> byPayload = new LinkedHashMap<>();
+        for (DispatchRequest request : requests) {
+            byPayload.computeIfAbsent(request.payload(), payload -> new ArrayList<>()).add(request);
+        }
+
+        List<List<DispatchRequest>> chunks = new ArrayList<>();
+        for (List<DispatchRequest> samePayload : byPayload.values()) {
+            List<DispatchRequest> current = new ArrayList<>();
+            Set<String> currentTokens = new HashSet<>();
+            for (DispatchRequest request : samePayload) {
+                boolean overflows = currentTokens.size() + request.deviceTokens().size() > MAX_MULTICAST_TOKENS;
+                boolean repeatsToken = request.deviceTokens().stream().anyMatch(currentTokens::contains);
+                if (!current.isEmpty() && (overflows || repeatsToken)) {
+                    chunks.add(current);
+                    current = new ArrayList<>();
+                    currentTokens = new HashSet<>();
+                }
+                current.add(request);
+                currentTokens.addAll(request.deviceTokens());
+            }
+            if (!current.isEmpty()) {
+                chunks.add(current);
+            }
+        }
+        return chunks;
+    }
+
+    private Map<Long, DispatchResult> send(List<DispatchRequest> chunk) {
+        List<String> tokens = new ArrayList<>();
+        chunk.forEach(request -> tokens.addAll(request.deviceTokens()));
+
+        Map<String, String> tokenResults;
+        try {
+            multicastCalls.increment();
+            tokenResults = client.sendNotificationToMultipleDevices(tokens, chunk.get(0).payload());
+        } catch (Exception e) {
+            logger.error("Multicast of {} notifications to {} devices failed: {}", chunk.size(), tokens.size(), e.getMessage());
+            tokenResults = Map.of();
+        }
+
+        Map<Long, DispatchResult> results = new HashMap<>();
+        for (DispatchRequest request : chunk) {
+            boolean anyDelivered = false;
+            List<String> invalidTokens = new ArrayList<>();
+            for (String token : request.deviceTokens()) {
+                String result = tokenResults.get(token);
+                if ("SUCCESS".equals(result)) {
+                    anyDelivered = true;
+                } else if (result != null && result.startsWith("INVALID")) {
+                    invalidTokens.add(token);
+                }
+            }
+            results.put(request.notificationId(), new DispatchResult(request.notificationId(), anyDelivered, invalidTokens));
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "notification-dispatch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
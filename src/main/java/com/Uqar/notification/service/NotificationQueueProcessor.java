@@ -1,163 +1,235 @@
 package com.Uqar.notification.service;
 
+import java.net.InetAddress;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.DataAccessResourceFailureException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.util.Optional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.Uqar.notification.dto.FCMNotificationDTO;
 import com.Uqar.notification.entity.DeviceToken;
 import com.Uqar.notification.entity.Notification;
 import com.Uqar.notification.repository.DeviceTokenRepository;
 import com.Uqar.notification.repository.NotificationRepository;
+import com.Uqar.notification.service.NotificationDispatcher.DispatchRequest;
+import com.Uqar.notification.service.NotificationDispatcher.DispatchResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Processes pending notifications from the database queue.
- * Runs every 5 seconds to check for PENDING notifications and send them via FCM.
+ *
+ * Every cycle claims batches of ready PENDING rows with FOR UPDATE SKIP LOCKED and stamps
+ * them with this instance's id and a lease, so several application instances share the
+ * queue without sending a row twice. Claimed rows are sent in parallel by
+ * {@link NotificationDispatcher} and the outcome (SENT, or retry with per-row backoff via
+ * next_retry_at) is written back in one transaction. The cycle keeps claiming until the
+ * queue is drained, so a backlog after the morning schedulers empties in one pass.
  */
 @Component
 public class NotificationQueueProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationQueueProcessor.class);
-    
+
     private static final int MAX_RETRY_COUNT = 3;
-    private static final int BATCH_SIZE = 10; // Process 10 notifications at a time
-    
+
     // Exponential backoff delays (in minutes)
     private static final int[] RETRY_DELAYS_MINUTES = {0, 5, 15, 30}; // 0, 5, 15, 30 minutes
 
     private final NotificationRepository notificationRepository;
     private final DeviceTokenRepository deviceTokenRepository;
-    private final FirebaseMessagingService firebaseMessagingService;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationDispatcher dispatcher;
+    private final String instanceId;
+    private final int batchSize;
+    private final int maxBatchesPerCycle;
+    private final Duration lease;
 
     public NotificationQueueProcessor(NotificationRepository notificationRepository,
                                     DeviceTokenRepository deviceTokenRepository,
-                                    Optional<FirebaseMessagingService> firebaseMessagingService) {
+                                    Optional<PushNotificationClient> pushNotificationClient,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${notifications.dispatcher.batch-size:100}") int batchSize,
+                                    @Value("${notifications.dispatcher.threads:8}") int threads,
+                                    @Value("${notifications.dispatcher.max-batches-per-cycle:50}") int maxBatchesPerCycle,
+                                    @Value("${notifications.dispatcher.lease-seconds:120}") long leaseSeconds) {
         this.notificationRepository = notificationRepository;
         this.deviceTokenRepository = deviceTokenRepository;
-        this.firebaseMessagingService = firebaseMessagingService.orElse(null);
-        
-        if (this.firebaseMessagingService == null) {
-            logger.warn("FirebaseMessagingService is not available. Notifications will be queued but not sent.");
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.instanceId = resolveInstanceId();
+        this.batchSize = batchSize;
+        this.maxBatchesPerCycle = maxBatchesPerCycle;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.dispatcher = pushNotificationClient
+            .map(client -> new NotificationDispatcher(client, meterRegistry, threads))
+            .orElse(null);
+
+        if (this.dispatcher == null) {
+            logger.warn("No push notification client is available. Notifications will be queued but not sent.");
             logger.warn("Please check Firebase configuration and ensure firebase.messaging.enabled=true");
         } else {
-            logger.info("NotificationQueueProcessor initialized with FirebaseMessagingService");
+            logger.info("NotificationQueueProcessor initialized as {} ({} threads, batch size {})",
+                instanceId, threads, batchSize);
         }
     }
 
     /**
-     * Processes pending notifications every 5 seconds.
-     * Fixed delay ensures we don't overwhelm the system.
-     * Note: @Transactional removed to avoid long-running transactions.
-     * Each notification is processed in its own transaction.
-     * Includes retry logic for transient database connection errors.
+     * Drains ready notifications every cycle (5 seconds by default).
+     * A database error ends the cycle; the rows stay PENDING (or leased until the lease
+     * expires) and are picked up by the next cycle, so the scheduler thread never sleeps.
      */
-    @Scheduled(fixedDelay = 5000) // 5 seconds
+    @Scheduled(fixedDelayString = "${notifications.dispatcher.poll-interval-ms:5000}")
     public void processPendingNotifications() {
-        int maxRetries = 3;
-        int retryCount = 0;
-        
-        while (retryCount < maxRetries) {
+        if (dispatcher == null) {
+            return;
+        }
+        for (int batch = 0; batch < maxBatchesPerCycle; batch++) {
+            int claimed;
             try {
-                LocalDateTime now = LocalDateTime.now();
-                Pageable pageable = PageRequest.of(0, BATCH_SIZE);
-                
-                // Get notifications that are ready for retry (next_retry_at <= now or null)
-                // Wrap in try-catch to handle connection errors gracefully
-                Page<Notification> notificationPage;
-                try {
-                    notificationPage = notificationRepository.findReadyForRetry("PENDING", now, pageable);
-                } catch (DataAccessException e) {
-                    // Database connection error - retry with exponential backoff
-                    if (isTransientDatabaseError(e)) {
-                        retryCount++;
-                        if (retryCount < maxRetries) {
-                            long delayMs = (long) Math.pow(2, retryCount) * 1000; // Exponential backoff: 2s, 4s, 8s
-                            logger.warn("Database connection error (attempt {}/{}). Retrying in {}ms: {}", 
-                                retryCount, maxRetries, delayMs, e.getMessage());
-                            Thread.sleep(delayMs);
-                            continue;
-                        } else {
-                            logger.error("Database connection failed after {} attempts. Skipping this cycle.", maxRetries);
-                            return;
-                        }
-                    } else {
-                        // Non-transient error, don't retry
-                        logger.error("Non-transient database error in processPendingNotifications: {}", e.getMessage());
-                        return;
-                    }
+                claimed = processBatch();
+            } catch (DataAccessException e) {
+                if (isTransientDatabaseError(e)) {
+                    logger.warn("Database connection error while processing notifications. Will retry in next cycle: {}",
+                        e.getMessage());
+                } else {
+                    logger.error("Database error in processPendingNotifications: {}", e.getMessage(), e);
                 }
-                
-                List<Notification> readyNotifications = notificationPage.getContent();
+                return;
+            } catch (Exception e) {
+                logger.error("Unexpected error in processPendingNotifications: {}", e.getMessage(), e);
+                return;
+            }
+            if (claimed < batchSize) {
+                return; // Queue drained
+            }
+        }
+    }
 
-                if (readyNotifications.isEmpty()) {
-                    return; // No notifications ready for processing
-                }
+    /**
+     * Claims, sends and records one batch.
+     * @return number of notifications claimed
+     */
+    int processBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> claimedIds = transactionTemplate.execute(status -> {
+            List<Long> ids = notificationRepository.findClaimableIdsForUpdate(now, batchSize);
+            if (!ids.isEmpty()) {
+                notificationRepository.claim(ids, instanceId, now.plus(lease));
+            }
+            return ids;
+        });
+        if (claimedIds == null || claimedIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Notification> notifications = notificationRepository.findClaimedBy(claimedIds, instanceId);
+        Set<Long> userIds = notifications.stream()
+            .map(notification -> notification.getUser().getId())
+            .collect(Collectors.toSet());
+        Map<Long, List<String>> tokensByUser = deviceTokenRepository.findByUserIdInAndIsActiveTrue(userIds).stream()
+            .collect(Collectors.groupingBy(DeviceToken::getUserId,
+                Collectors.mapping(DeviceToken::getDeviceToken, Collectors.toList())));
 
-                logger.debug("Processing {} notifications ready for retry", readyNotifications.size());
+        Map<Long, Outcome> outcomes = new HashMap<>();
+        List<DispatchRequest> requests = new ArrayList<>();
+        for (Notification notification : notifications) {
+            List<String> deviceTokens = tokensByUser.getOrDefault(notification.getUser().getId(), List.of());
+            if (notification.getRetryCount() != null && notification.getRetryCount() >= MAX_RETRY_COUNT) {
+                outcomes.put(notification.getId(), Outcome.EXHAUSTED);
+            } else if (deviceTokens.isEmpty()) {
+                // No device tokens yet - user might register a device later
+                outcomes.put(notification.getId(), Outcome.NO_DEVICE);
+            } else {
+                requests.add(new DispatchRequest(notification.getId(), deviceTokens, FCMNotificationDTO.builder()
+                    .title(notification.getTitle())
+                    .body(notification.getBody())
+                    .data(notification.getData())
+                    .build()));
+            }
+        }
 
-                for (Notification notification : readyNotifications) {
-                    try {
-                        // Skip if next_retry_at is in the future
-                        if (notification.getNextRetryAt() != null && notification.getNextRetryAt().isAfter(now)) {
-                            continue;
-                        }
-                        // Process each notification in its own transaction
-                        processNotificationInTransaction(notification);
-                    } catch (DataAccessException e) {
-                        // Database connection error during processing
-                        if (isTransientDatabaseError(e)) {
-                            logger.warn("Database connection error while processing notification {}. Will retry in next cycle: {}", 
-                                notification.getId(), e.getMessage());
-                            // Don't mark as failed - let it retry in next cycle
-                        } else {
-                            logger.error("Error processing notification {}: {}", 
-                                notification.getId(), e.getMessage(), e);
-                            try {
-                                handleNotificationFailureInTransaction(notification);
-                            } catch (Exception ex) {
-                                logger.error("Failed to handle notification failure for {}: {}", 
-                                    notification.getId(), ex.getMessage());
-                            }
-                        }
-                    } catch (Exception e) {
-                        logger.error("Error processing notification {}: {}", 
-                            notification.getId(), e.getMessage(), e);
-                        try {
-                            handleNotificationFailureInTransaction(notification);
-                        } catch (Exception ex) {
-                            logger.error("Failed to handle notification failure for {}: {}", 
-                                notification.getId(), ex.getMessage());
-                        }
+        Set<String> invalidTokens = new HashSet<>();
+        for (DispatchResult result : dispatcher.dispatch(requests)) {
+            outcomes.put(result.notificationId(), result.delivered() ? Outcome.SENT : Outcome.NOT_DELIVERED);
+            invalidTokens.addAll(result.invalidTokens());
+        }
+
+        recordOutcomes(claimedIds, outcomes, invalidTokens);
+        logger.debug("Notification batch of {} processed by {}", claimedIds.size(), instanceId);
+        return claimedIds.size();
+    }
+
+    /**
+     * Writes the batch outcome and releases the claim. Rows whose lease was taken over by
+     * another instance in the meantime are left to that instance.
+     */
+    private void recordOutcomes(List<Long> claimedIds, Map<Long, Outcome> outcomes, Set<String> invalidTokens) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (Notification notification : notificationRepository.findClaimedBy(claimedIds, instanceId)) {
+                Outcome outcome = outcomes.getOrDefault(notification.getId(), Outcome.NOT_DELIVERED);
+                switch (outcome) {
+                    case SENT -> {
+                        notification.setStatus("SENT");
+                        notification.setSentAt(now);
+                        notification.setNextRetryAt(null); // Clear next retry time
                     }
+                    case EXHAUSTED -> {
+                        notification.setStatus("FAILED");
+                        notification.setNextRetryAt(null);
+                        logger.warn("Notification {} exceeded max retry count, marking as FAILED", notification.getId());
+                    }
+                    case NO_DEVICE, NOT_DELIVERED -> scheduleRetry(notification, now, outcome);
                 }
-                
-                // Success - break out of retry loop
-                break;
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("Notification processing interrupted", e);
-                return;
-            } catch (Exception e) {
-                logger.error("Unexpected error in processPendingNotifications: {}", e.getMessage(), e);
-                // Don't retry for unexpected errors
-                return;
+                notification.setClaimedBy(null);
+                notification.setLeaseUntil(null);
+            }
+            if (!invalidTokens.isEmpty()) {
+                int deactivated = deviceTokenRepository.deactivateTokens(invalidTokens);
+                logger.info("Marked {} device tokens as inactive due to invalid token", deactivated);
             }
+        });
+    }
+
+    /**
+     * Schedules the next attempt of one row with exponential backoff, or marks it FAILED.
+     */
+    private static void scheduleRetry(Notification notification, LocalDateTime now, Outcome outcome) {
+        int currentRetryCount = notification.getRetryCount() != null ? notification.getRetryCount() : 0;
+        int newRetryCount = currentRetryCount + 1;
+        notification.setRetryCount(newRetryCount);
+
+        if (newRetryCount < RETRY_DELAYS_MINUTES.length) {
+            int delayMinutes = RETRY_DELAYS_MINUTES[newRetryCount];
+            notification.setNextRetryAt(now.plusMinutes(delayMinutes));
+            logger.info("Notification {} not delivered ({}), retry count: {}, next retry in {} minutes",
+                notification.getId(), outcome, newRetryCount, delayMinutes);
+        } else {
+            notification.setStatus("FAILED");
+            notification.setNextRetryAt(null);
+            logger.warn("Notification {} not delivered ({}) after {} attempts, marking as FAILED",
+                notification.getId(), outcome, newRetryCount);
         }
     }
-    
+
     /**
      * Checks if the database error is transient (can be retried).
      * Transient errors include connection resets, timeouts, and network issues.
@@ -166,12 +238,12 @@ public class NotificationQueueProcessor {
         if (e == null) {
             return false;
         }
-        
+
         String message = e.getMessage();
         if (message == null) {
             message = "";
         }
-        
+
         // Check for transient error patterns
         return message.contains("Connection reset") ||
                message.contains("Connection is closed") ||
@@ -184,163 +256,27 @@ public class NotificationQueueProcessor {
                (e.getCause() != null && e.getCause().getClass().getSimpleName().contains("SocketException"));
     }
 
-    /**
-     * Processes a single notification by sending it via FCM.
-     * Each notification is processed in its own transaction to avoid long-running transactions.
-     * Includes error handling for database connection issues.
-     */
-    @Transactional(noRollbackFor = {DataAccessResourceFailureException.class})
-     protected void processNotificationInTransaction(Notification notification) {
-        // Check retry count
-        if (notification.getRetryCount() != null && notification.getRetryCount() >= MAX_RETRY_COUNT) {
-            notification.setStatus("FAILED");
-            notificationRepository.save(notification);
-            logger.warn("Notification {} exceeded max retry count, marking as FAILED", notification.getId());
-            return;
-        }
-
-        // Get device tokens for the user
-        List<DeviceToken> deviceTokens = deviceTokenRepository
-            .findByUserIdAndIsActiveTrue(notification.getUser().getId());
-
-        if (deviceTokens.isEmpty()) {
-            // No device tokens yet - schedule retry with exponential backoff
-            // User might register device token later
-            int currentRetryCount = notification.getRetryCount() != null ? notification.getRetryCount() : 0;
-            int newRetryCount = currentRetryCount + 1;
-            notification.setRetryCount(newRetryCount);
-            
-            // Calculate next retry time using exponential backoff
-            if (newRetryCount < RETRY_DELAYS_MINUTES.length) {
-                int delayMinutes = RETRY_DELAYS_MINUTES[newRetryCount];
-                notification.setNextRetryAt(LocalDateTime.now().plusMinutes(delayMinutes));
-                logger.info("No device tokens found for user {}. Notification {} will retry in {} minutes (attempt {})",
-                    notification.getUser().getId(), notification.getId(), delayMinutes, newRetryCount);
-            } else {
-                // Exceeded max retries - mark as failed
-                notification.setStatus("FAILED");
-                notification.setNextRetryAt(null);
-                logger.warn("No device tokens found for user {} after {} attempts. Notification {} marked as FAILED.",
-                    notification.getUser().getId(), MAX_RETRY_COUNT, notification.getId());
-            }
-            notificationRepository.save(notification);
-            return;
-        }
-
-        // Build FCM notification
-        FCMNotificationDTO fcmNotification = FCMNotificationDTO.builder()
-            .title(notification.getTitle())
-            .body(notification.getBody())
-            .data(notification.getData())
-            .build();
-
-        // Check if FirebaseMessagingService is available
-        if (firebaseMessagingService == null) {
-            logger.error("FirebaseMessagingService is not available. Cannot send notification {}.", notification.getId());
-            handleNotificationFailureInTransaction(notification);
-            return;
+    private static String resolveInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown-host";
         }
-        
-        // Send to all device tokens
-        boolean sent = false;
-        int successCount = 0;
-        int failureCount = 0;
-        
-        for (DeviceToken deviceToken : deviceTokens) {
-            try {
-                String result = firebaseMessagingService
-                    .sendNotificationToDevice(deviceToken.getDeviceToken(), fcmNotification);
-                
-                // Check if result indicates success
-                if (result != null && !result.startsWith("INVALID") && 
-                    !result.startsWith("FAILED") && !result.startsWith("UNAVAILABLE")) {
-                    sent = true;
-                    successCount++;
-                    logger.debug("Notification {} sent successfully to device {}", 
-                        notification.getId(), deviceToken.getId());
-                } else {
-                    failureCount++;
-                    logger.warn("Notification {} failed to send to device {}: {}", 
-                        notification.getId(), deviceToken.getId(), result);
-                    
-                    // If token is invalid, mark device token as inactive
-                    if (result != null && result.startsWith("INVALID")) {
-                        logger.info("Marking device token {} as inactive due to invalid token", deviceToken.getId());
-                        deviceToken.setIsActive(false);
-                        deviceTokenRepository.save(deviceToken);
-                    }
-                }
-            } catch (IllegalStateException e) {
-                // Firebase not initialized
-                logger.error("Firebase not initialized. Cannot send notification {}: {}", 
-                    notification.getId(), e.getMessage());
-                failureCount++;
-            } catch (Exception e) {
-                failureCount++;
-                logger.error("Unexpected error sending notification {} to device {}: {}", 
-                    notification.getId(), deviceToken.getId(), e.getMessage(), e);
-            }
-        }
-        
-        logger.info("Notification {} sending completed: {} success, {} failures out of {} devices", 
-            notification.getId(), successCount, failureCount, deviceTokens.size());
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
 
-        // Update notification status
-        if (sent) {
-            notification.setStatus("SENT");
-            notification.setSentAt(LocalDateTime.now());
-            notification.setNextRetryAt(null); // Clear next retry time
-            logger.info("Notification {} sent successfully via database queue processor.", notification.getId());
-        } else {
-            // Increment retry count and schedule next retry with exponential backoff
-            int currentRetryCount = notification.getRetryCount() != null ? notification.getRetryCount() : 0;
-            int newRetryCount = currentRetryCount + 1;
-            notification.setRetryCount(newRetryCount);
-            
-            // Calculate next retry time using exponential backoff
-            if (newRetryCount < RETRY_DELAYS_MINUTES.length) {
-                int delayMinutes = RETRY_DELAYS_MINUTES[newRetryCount];
-                notification.setNextRetryAt(LocalDateTime.now().plusMinutes(delayMinutes));
-                logger.warn("Notification {} failed to send, retry count: {}, next retry in {} minutes", 
-                    notification.getId(), newRetryCount, delayMinutes);
-            } else {
-                // Exceeded max retries
-                notification.setStatus("FAILED");
-                notification.setNextRetryAt(null);
-                logger.warn("Notification {} exceeded max retry count, marking as FAILED", notification.getId());
-            }
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.close();
         }
-
-        notificationRepository.save(notification);
     }
 
-    /**
-     * Handles notification processing failure.
-     * Each failure is handled in its own transaction.
-     * Includes error handling for database connection issues.
-     */
-    @Transactional(noRollbackFor = {DataAccessResourceFailureException.class})
-    protected void handleNotificationFailureInTransaction(Notification notification) {
-        int currentRetryCount = notification.getRetryCount() != null ? notification.getRetryCount() : 0;
-        int newRetryCount = currentRetryCount + 1;
-        
-        if (newRetryCount >= MAX_RETRY_COUNT) {
-            notification.setStatus("FAILED");
-            notification.setNextRetryAt(null);
-            logger.warn("Notification {} exceeded max retry count, marking as FAILED", notification.getId());
-        } else {
-            notification.setRetryCount(newRetryCount);
-            // Calculate next retry time using exponential backoff
-            if (newRetryCount < RETRY_DELAYS_MINUTES.length) {
-                int delayMinutes = RETRY_DELAYS_MINUTES[newRetryCount];
-                notification.setNextRetryAt(LocalDateTime.now().plusMinutes(delayMinutes));
-                logger.warn("Notification {} failed, retry count: {}, next retry in {} minutes", 
-                    notification.getId(), newRetryCount, delayMinutes);
-            }
-            // Keep as PENDING for retry
-        }
-        
-        notificationRepository.save(notification);
+    private enum Outcome {
+        SENT,
+        NO_DEVICE,
+        NOT_DELIVERED,
+        EXHAUSTED
     }
 }
-
@@ -17,11 +17,13 @@ import com.Uqar.notification.dto.NotificationResponse;
 import com.Uqar.notification.entity.Notification;
 import com.Uqar.notification.mapper.NotificationMapper;
 import com.Uqar.notification.repository.NotificationRepository;
+import com.Uqar.utils.response.CursorPageDTO;
 import com.Uqar.product.dto.PaginationDTO;
 import com.Uqar.user.entity.User;
 import com.Uqar.user.repository.UserRepository;
 import com.Uqar.user.service.BaseSecurityService;
 import com.Uqar.utils.exception.ResourceNotFoundException;
+import com.Uqar.utils.request.KeysetCursor;
 
 @Service
 @Transactional
@@ -72,6 +74,29 @@ public class NotificationService extends BaseSecurityService {
         return new PaginationDTO<>(responses, page, size, notifications.getTotalElements());
     }
     
+    /**
+     * الحصول على إشعارات المستخدم بمؤشر الصفحة (الأحدث أولاً)
+     * The total is only counted on the first page and when asked for
+     */
+    public CursorPageDTO<NotificationResponse> getUserNotificationsByCursor(String cursor, int size,
+                                                                           boolean unreadOnly, boolean includeTotal) {
+        Long currentUserId = getCurrentUser().getId();
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        
+        List<Notification> notifications = unreadOnly
+            ? notificationRepository.findUnreadPageByUserId(currentUserId, position.createdAt(), position.id(), KeysetCursor.limit(size))
+            : notificationRepository.findPageByUserId(currentUserId, position.createdAt(), position.id(), KeysetCursor.limit(size));
+        Long total = null;
+        if (includeTotal && position.isStart()) {
+            total = unreadOnly
+                ? notificationRepository.countByUserIdAndReadAtIsNull(currentUserId)
+                : notificationRepository.countByUserId(currentUserId);
+        }
+        
+        return KeysetCursor.page(notifications, size, Notification::getCreatedAt, Notification::getId,
+            page -> page.stream().map(notificationMapper::toResponse).toList(), total);
+    }
+    
     /**
      * الحصول على إشعارات المستخدم (للتوافق مع الكود القديم)
      */
@@ -0,0 +1,21 @@
+package com.Uqar.notification.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.Uqar.notification.dto.FCMNotificationDTO;
+
+/**
+ * عميل إرسال الإشعارات للأجهزة
+ * Push messaging client used by the notification dispatcher.
+ * Implemented by {@link FirebaseMessagingService}; tests use a stub.
+ */
+public interface PushNotificationClient {
+
+    /**
+     * إرسال إشعار واحد لعدة أجهزة (Multicast)
+     * Send one notification to several device tokens.
+     * Returns the outcome per token: SUCCESS, INVALID_TOKEN, UNAVAILABLE or FAILED[: reason].
+     */
+    Map<String, String> sendNotificationToMultipleDevices(List<String> deviceTokens, FCMNotificationDTO notificationDTO);
+}
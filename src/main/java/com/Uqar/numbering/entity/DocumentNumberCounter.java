@@ -0,0 +1,44 @@
+package com.Uqar.numbering.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+import com.Uqar.numbering.enums.DocumentType;
+
+/**
+ * عداد أرقام المستندات لكل صيدلية ونوع مستند
+ * High-water mark of the numbers of one document type of a pharmacy. next_value is the first
+ * number not yet reserved by any application instance; instances reserve blocks from it.
+ */
+@Entity
+@Table(name = "document_number_counter",
+       uniqueConstraints = @UniqueConstraint(name = "uk_document_number_counter_pharmacy_type",
+                                             columnNames = {"pharmacy_id", "document_type"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentNumberCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pharmacy_id", nullable = false)
+    private Long pharmacyId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", length = 20, nullable = false)
+    private DocumentType documentType;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,22 @@
+package com.Uqar.numbering.enums;
+
+/**
+ * أنواع المستندات المرقمة لكل صيدلية
+ * Documents numbered per pharmacy, each with its own sequence and prefix
+ */
+public enum DocumentType {
+    SALE("INV"),          // فاتورة مبيع
+    REFUND("RET"),        // مرتجع مبيع
+    PURCHASE("PUR"),      // فاتورة شراء
+    INVENTORY("ADJ");     // جرد أو تعديل مخزون
+
+    private final String prefix;
+
+    DocumentType(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+}
@@ -0,0 +1,47 @@
+package com.Uqar.numbering.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.Uqar.numbering.entity.DocumentNumberCounter;
+
+@Repository
+public interface DocumentNumberCounterRepository extends JpaRepository<DocumentNumberCounter, Long> {
+
+    /**
+     * حجز كتلة من الأرقام وإرجاع نهايتها (غير مشمولة)
+     * Reserve the next block of numbers of a pharmacy's document type and return its end
+     * (exclusive); the block is [end - blockSize, end). The counter row is created on the first
+     * reservation, so numbering starts at 1. The row lock is held only for this statement.
+     */
+    @Query(value = """
+        INSERT INTO document_number_counter (pharmacy_id, document_type, next_value, updated_at)
+        VALUES (:pharmacyId, :documentType, 1 + :blockSize, now())
+        ON CONFLICT (pharmacy_id, document_type) DO UPDATE SET
+            next_value = document_number_counter.next_value + :blockSize,
+            updated_at = now()
+        RETURNING next_value
+        """, nativeQuery = true)
+    Long reserveBlock(@Param("pharmacyId") Long pharmacyId,
+                      @Param("documentType") String documentType,
+                      @Param("blockSize") long blockSize);
+
+    /**
+     * إعادة الأرقام غير المستخدمة من آخر كتلة محجوزة
+     * Give back the unused tail of a block, only while it is still the last block reserved
+     * (no instance reserved after it); returns 1 when given back.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE document_number_counter
+        SET next_value = :unusedFrom, updated_at = now()
+        WHERE pharmacy_id = :pharmacyId AND document_type = :documentType AND next_value = :blockEnd
+        """, nativeQuery = true)
+    int releaseBlock(@Param("pharmacyId") Long pharmacyId,
+                     @Param("documentType") String documentType,
+                     @Param("unusedFrom") long unusedFrom,
+                     @Param("blockEnd") long blockEnd);
+}
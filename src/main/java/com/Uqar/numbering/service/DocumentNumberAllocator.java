@@ -0,0 +1,208 @@
+package com.Uqar.numbering.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Uqar.numbering.enums.DocumentType;
+import com.Uqar.numbering.repository.DocumentNumberCounterRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * موزع أرقام المستندات لكل صيدلية
+ * Hands out per-pharmacy, per-document-type numbers (INV-12-000042) from blocks reserved in
+ * document_number_counter (hi/lo).
+ *
+ * Each (pharmacy, document type) holds one block in memory; taking a number is an atomic
+ * increment on it, so concurrent checkouts never wait on each other or on the database. Only
+ * the thread that finds the block used up reserves the next one, in its own short transaction,
+ * so the counter row is locked for a single statement and a rolled-back caller never returns
+ * numbers another instance may already hold. That transaction takes a second pool connection
+ * while the caller's checkout still holds its own: the pool must be larger than the number of
+ * checkouts that can reserve at the same moment, which documents.numbering.min-block-size
+ * (20 by default) keeps to a fraction of the sales.
+ *
+ * A block starts at min-block-size and doubles (up to max-block-size) only while the previous
+ * one was used up within a minute; it shrinks back when a block lasts longer than ten minutes.
+ * At shutdown, once the web server has finished its in-flight requests (server.shutdown:
+ * graceful), each block is sealed and its unused tail given back when no other instance
+ * reserved after it; a number asked for after that fails instead of reusing a released one.
+ * Numbers taken by a transaction that rolls back are not reused.
+ */
+@Component
+public class DocumentNumberAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentNumberAllocator.class);
+    private static final long GROW_WITHIN_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long SHRINK_AFTER_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final DocumentNumberCounterRepository counterRepository;
+    private final TransactionTemplate ownTransaction;
+    private final int minBlockSize;
+    private final int maxBlockSize;
+
+    private final Map<SequenceKey, Sequence> sequences = new ConcurrentHashMap<>();
+    private volatile boolean released;
+
+    public DocumentNumberAllocator(DocumentNumberCounterRepository counterRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${documents.numbering.min-block-size:20}") int minBlockSize,
+                                   @Value("${documents.numbering.max-block-size:100}") int maxBlockSize) {
+        this.counterRepository = counterRepository;
+        // Reservations commit on their own, whatever the caller's transaction does
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.minBlockSize = Math.max(1, minBlockSize);
+        this.maxBlockSize = Math.max(this.minBlockSize, maxBlockSize);
+    }
+
+    /**
+     * الرقم التالي للمستند بصيغة مقروءة
+     * Next number of the document type in the pharmacy, formatted as PREFIX-pharmacyId-000042
+     */
+    public String next(Long pharmacyId, DocumentType documentType) {
+        return format(pharmacyId, documentType, nextValue(pharmacyId, documentType));
+    }
+
+    /**
+     * الرقم التالي للمستند
+     * Next value of the document type's sequence in the pharmacy, starting at 1
+     */
+    public long nextValue(Long pharmacyId, DocumentType documentType) {
+        if (pharmacyId == null || documentType == null) {
+            throw new IllegalArgumentException("Pharmacy and document type are required for a document number");
+        }
+        Sequence sequence = sequences.computeIfAbsent(new SequenceKey(pharmacyId, documentType), key -> new Sequence(minBlockSize));
+        while (true) {
+            NumberBlock block = sequence.block;
+            if (block != null) {
+                long value = block.take();
+                if (value > 0) {
+                    return value;
+                }
+            }
+            synchronized (sequence) {
+                if (released) {
+                    throw new IllegalStateException("Document numbers are no longer handed out, the application is shutting down");
+                }
+                // Another thread may have reserved while this one waited
+                if (sequence.block == block) {
+                    sequence.block = reserve(pharmacyId, documentType, sequence, block != null);
+                }
+            }
+        }
+    }
+
+    public static String format(Long pharmacyId, DocumentType documentType, long value) {
+        return String.format("%s-%d-%06d", documentType.getPrefix(), pharmacyId, value);
+    }
+
+    /**
+     * إعادة الأرقام غير المستخدمة عند الإيقاف
+     * Give back the unused numbers of every block that is still its sequence's last reservation.
+     * Runs when the beans are destroyed, after the graceful shutdown of the web server; a take()
+     * still in flight either gets its number before the block is sealed or none at all.
+     */
+    @PreDestroy
+    public void releaseUnused() {
+        released = true;
+        sequences.forEach((key, sequence) -> {
+            NumberBlock block;
+            long unusedFrom;
+            synchronized (sequence) {
+                block = sequence.block;
+                if (block == null) {
+                    return;
+                }
+                unusedFrom = block.seal();
+            }
+            if (unusedFrom >= block.end) {
+                return;
+            }
+            try {
+                Integer released = ownTransaction.execute(status -> counterRepository.releaseBlock(
+                    key.pharmacyId(), key.documentType().name(), unusedFrom, block.end));
+                if (released != null && released > 0) {
+                    logger.info("Released {} unused {} numbers of pharmacy {}",
+                        block.end - unusedFrom, key.documentType(), key.pharmacyId());
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to release unused {} numbers of pharmacy {}: {}",
+                    key.documentType(), key.pharmacyId(), e.getMessage());
+            }
+        });
+    }
+
+    // Must be called with the sequence's lock held
+    private NumberBlock reserve(Long pharmacyId, DocumentType documentType, Sequence sequence, boolean usedUp) {
+        long now = System.nanoTime();
+        if (usedUp) {
+            long lasted = now - sequence.reservedAt;
+            if (lasted < GROW_WITHIN_NANOS) {
+                sequence.blockSize = Math.min(sequence.blockSize * 2, maxBlockSize);
+            } else if (lasted > SHRINK_AFTER_NANOS) {
+                sequence.blockSize = Math.max(sequence.blockSize / 2, minBlockSize);
+            }
+        }
+        int blockSize = sequence.blockSize;
+        Long end = ownTransaction.execute(status -> counterRepository.reserveBlock(pharmacyId, documentType.name(), blockSize));
+        if (end == null) {
+            throw new IllegalStateException("Failed to reserve " + documentType + " numbers for pharmacy " + pharmacyId);
+        }
+        sequence.reservedAt = now;
+        logger.debug("Reserved {} numbers [{}, {}) of pharmacy {}", documentType, end - blockSize, end, pharmacyId);
+        return new NumberBlock(end - blockSize, end);
+    }
+
+    private record SequenceKey(Long pharmacyId, DocumentType documentType) {
+    }
+
+    private static final class Sequence {
+        private volatile NumberBlock block;
+        // Guarded by the sequence's lock
+        private int blockSize;
+        private long reservedAt;
+
+        private Sequence(int blockSize) {
+            this.blockSize = blockSize;
+        }
+    }
+
+    /**
+     * Numbers [start, end) reserved by this instance
+     */
+    private static final class NumberBlock {
+        private final AtomicLong next;
+        private final long end;
+
+        private NumberBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+
+        /**
+         * Returns the next number of the block, or 0 when it is used up
+         */
+        long take() {
+            long value = next.getAndIncrement();
+            return value < end ? value : 0;
+        }
+
+        /**
+         * Uses up the block at once and returns the first number no take() got
+         */
+        long seal() {
+            return Math.min(next.getAndSet(end), end);
+        }
+    }
+}
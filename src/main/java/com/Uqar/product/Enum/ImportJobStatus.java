@@ -0,0 +1,8 @@
+package com.Uqar.product.Enum;
+
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -2,6 +2,7 @@ package com.Uqar.product.controller;
 
 
 import com.Uqar.product.config.PharmaceuticalImportConfig;
+import com.Uqar.product.dto.ImportJobDTOResponse;
 import com.Uqar.product.dto.ImportResponse;
 import com.Uqar.product.service.PharmaceuticalImportService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Controller for handling pharmaceutical data import from Excel files
@@ -28,13 +30,14 @@ public class PharmaceuticalController {
     private PharmaceuticalImportConfig config;
 
     /**
-     * Import pharmaceutical data from Excel file to existing database tables
+     * Import pharmaceutical data from Excel file to existing database tables.
+     * The file is imported by a background job; poll /import/jobs/{id} for progress.
      *
      * @param file Excel file containing pharmaceutical data
-     * @return ImportResponse with success status and details
+     * @return the queued import job, or ImportResponse with the validation error
      */
     @PostMapping("/import")
-    public ResponseEntity<ImportResponse> importPharmaceuticalData(
+    public ResponseEntity<?> importPharmaceuticalData(
             @RequestParam("file") MultipartFile file) {
 
         try {
@@ -66,14 +69,9 @@ public class PharmaceuticalController {
                         .body(new ImportResponse(false, "خطأ في قاعدة البيانات. تأكد من وجود الجداول المطلوبة / Database error. Ensure required tables exist", 0, null));
             }
 
-            // Process the file
-            ImportResponse response = importService.processPharmaceuticalFile(file);
-
-            if (response.isSuccess()) {
-                return ResponseEntity.ok(response);
-            } else {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-            }
+            // Queue the import job
+            ImportJobDTOResponse job = importService.startImport(file);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
 
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -84,6 +82,30 @@ public class PharmaceuticalController {
         }
     }
 
+    /**
+     * Get the progress of an import job
+     */
+    @GetMapping("/import/jobs/{id}")
+    public ResponseEntity<ImportJobDTOResponse> getImportJob(@PathVariable Long id) {
+        return ResponseEntity.ok(importService.getImportJob(id));
+    }
+
+    /**
+     * Get the most recent import jobs
+     */
+    @GetMapping("/import/jobs")
+    public ResponseEntity<List<ImportJobDTOResponse>> getImportJobs() {
+        return ResponseEntity.ok(importService.getRecentImportJobs());
+    }
+
+    /**
+     * Resume a failed import job after its last committed row
+     */
+    @PostMapping("/import/jobs/{id}/resume")
+    public ResponseEntity<ImportJobDTOResponse> resumeImportJob(@PathVariable Long id) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importService.resumeImport(id));
+    }
+
     /**
      * Get import status and database statistics
      */
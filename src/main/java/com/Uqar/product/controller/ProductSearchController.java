@@ -1,6 +1,8 @@
 package com.Uqar.product.controller;
 
 import com.Uqar.product.dto.ProductSearchDTOResponse;
+import com.Uqar.product.dto.BarcodeScanDTOResponse;
+import com.Uqar.product.service.BarcodeScanService;
 import com.Uqar.product.service.ProductSearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -23,9 +25,11 @@ public class ProductSearchController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductSearchController.class);
     private final ProductSearchService ProductSearchService;
+    private final BarcodeScanService barcodeScanService;
 
-    public ProductSearchController(ProductSearchService ProductSearchService) {
+    public ProductSearchController(ProductSearchService ProductSearchService, BarcodeScanService barcodeScanService) {
         this.ProductSearchService = ProductSearchService;
+        this.barcodeScanService = barcodeScanService;
         logger.info("ProductSearchController initialized successfully");
     }
 
@@ -37,14 +41,14 @@ public class ProductSearchController {
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/products")
-    @Operation(summary = "Search products by keyword", description = "Search for products using a keyword in both master and pharmacy products with enhanced pagination")
+    @Operation(summary = "Search products by keyword", description = "Search master and pharmacy products as one list ranked by relevance, paged with a cursor")
     public ResponseEntity<?> searchProducts(
             @Parameter(description = "Search keyword", example = "باراسيتامول") 
             @RequestParam String keyword,
             @Parameter(description = "Language code", example = "ar") 
             @RequestParam(defaultValue = "ar") String lang,
-            @Parameter(description = "Page number (0-based)", example = "0") 
-            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page, empty for the first page") 
+            @RequestParam(required = false) String cursor,
             @Parameter(description = "Number of items per page", example = "10") 
             @RequestParam(defaultValue = "10") int size,
             @Parameter(description = "Sort field", example = "tradeName") 
@@ -53,7 +57,7 @@ public class ProductSearchController {
                       schema = @Schema(allowableValues = {"asc", "desc"})) 
             @RequestParam(defaultValue = "asc") String direction) {
         
-        return ResponseEntity.ok(ProductSearchService.searchProductsPaginated(keyword, lang, page, size));
+        return ResponseEntity.ok(ProductSearchService.searchProductsPaginated(keyword, lang, cursor, size));
     }
 
     @ApiResponses(value = {
@@ -64,12 +68,12 @@ public class ProductSearchController {
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/all-products")
-    @Operation(summary = "Get all products", description = "Get all products from both master and pharmacy products with enhanced pagination")
+    @Operation(summary = "Get all products", description = "Get all master products followed by the pharmacy products, paged with a cursor")
     public ResponseEntity<?> getAllProducts(
             @Parameter(description = "Language code", example = "ar") 
             @RequestParam(defaultValue = "ar") String lang,
-            @Parameter(description = "Page number (0-based)", example = "0") 
-            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page, empty for the first page") 
+            @RequestParam(required = false) String cursor,
             @Parameter(description = "Number of items per page", example = "10") 
             @RequestParam(defaultValue = "10") int size,
             @Parameter(description = "Sort field", example = "tradeName") 
@@ -78,6 +82,23 @@ public class ProductSearchController {
                       schema = @Schema(allowableValues = {"asc", "desc"})) 
             @RequestParam(defaultValue = "asc") String direction) {
         
-        return ResponseEntity.ok(ProductSearchService.getAllProductsPaginated(lang, page, size));
+        return ResponseEntity.ok(ProductSearchService.getAllProductsPaginated(lang, cursor, size));
     }
-} 
\ No newline at end of file
+
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product and sellable batches for the barcode",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = BarcodeScanDTOResponse.class))),
+        @ApiResponse(responseCode = "404", description = "No product has this barcode")
+    })
+    @GetMapping("/barcode/{barcode}")
+    @Operation(summary = "Resolve a scanned barcode", description = "Resolve a barcode to the pharmacy or master product and its sellable batches in FEFO order, for the point of sale")
+    public ResponseEntity<BarcodeScanDTOResponse> scanBarcode(
+            @Parameter(description = "Scanned barcode", example = "6251234567890")
+            @PathVariable String barcode,
+            @Parameter(description = "Language code", example = "ar")
+            @RequestParam(defaultValue = "ar") String lang) {
+
+        return ResponseEntity.ok(barcodeScanService.scan(barcode, lang));
+    }
+}
@@ -20,6 +20,7 @@ import com.Uqar.product.Enum.ProductType;
 import com.Uqar.product.dto.FullInventoryResetRequest;
 import com.Uqar.product.dto.InventoryAdjustmentRequest;
 import com.Uqar.product.dto.InventoryCountSummaryResponse;
+import com.Uqar.product.dto.PaginationDTO;
 import com.Uqar.product.dto.PartialInventoryAdjustmentRequest;
 import com.Uqar.product.dto.StockItemDTOResponse;
 import com.Uqar.product.dto.StockItemEditRequest;
@@ -179,6 +180,31 @@ public class StockManagementController {
         return ResponseEntity.ok(productsOverall);
     }
     
+    @GetMapping("/products/Overall/paginated")
+    @Operation(
+        summary = "Get paginated stock products Overall",
+        description = "Get a page of products in stock with totals computed in one grouped query. " +
+                      "Supports server-side sorting by productId, totalQuantity, totalValue, earliestExpiryDate, " +
+                      "latestExpiryDate or numberOfBatches. Batch details are only loaded when includeBatches=true."
+    )
+    public ResponseEntity<PaginationDTO<StockProductOverallDTOResponse>> getStockProductsOverallPaginated(
+            @Parameter(description = "Page number (0-based)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of items per page", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sort field", example = "earliestExpiryDate")
+            @RequestParam(defaultValue = "productId") String sortBy,
+            @Parameter(description = "Sort direction (asc or desc)", example = "asc")
+            @RequestParam(defaultValue = "asc") String direction,
+            @Parameter(description = "Include batch (stock item) details for each product", example = "false")
+            @RequestParam(defaultValue = "false") boolean includeBatches,
+            @Parameter(description = "Language code for product names", example = "ar")
+            @RequestParam(defaultValue = "en") String lang) {
+        
+        return ResponseEntity.ok(stockService.getStockProductsOverallPaginated(
+            page, size, sortBy, direction, includeBatches, lang));
+    }
+    
     @GetMapping("/product/{productId}/details")
     @Operation(summary = "Get product stock details", description = "Get detailed stock information for a specific product.")
     public ResponseEntity<Map<String, Object>> getProductStockDetails(
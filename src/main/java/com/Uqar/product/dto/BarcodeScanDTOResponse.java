@@ -0,0 +1,40 @@
+package com.Uqar.product.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * نتيجة مسح الباركود في نقطة البيع: المنتج ودفعاته القابلة للبيع
+ * Result of a barcode scan at the point of sale: the product and its sellable batches in FEFO order
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BarcodeScanDTOResponse {
+    private String barcode;
+    private ProductSearchDTOResponse product;
+    private Integer availableQuantity;
+    private List<SellableBatchDTO> batches;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SellableBatchDTO {
+        private Long stockItemId;
+        private String batchNo;
+
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate expiryDate;
+        private Integer quantity;
+        private Integer remainingParts;
+    }
+}
@@ -0,0 +1,30 @@
+package com.Uqar.product.dto;
+
+import com.Uqar.product.Enum.ImportJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDTOResponse {
+    private Long id;
+    private String fileName;
+    private ImportJobStatus status;
+    private Integer lastRow;
+    private Integer processedRows;
+    private Integer insertedCount;
+    private Integer updatedCount;
+    private Integer skippedCount;
+    private Integer failedCount;
+    private String errors;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime updatedAt;
+}
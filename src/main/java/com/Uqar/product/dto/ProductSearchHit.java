@@ -0,0 +1,17 @@
+package com.Uqar.product.dto;
+
+/**
+ * نتيجة بحث موحدة لمنتج مركزي أو منتج صيدلية
+ * One row of the unified product search: the product, its relevance and its stock in the pharmacy.
+ * kind is the ProductType ordinal (0 = MASTER, 1 = PHARMACY) and is the second sort key after score.
+ */
+public interface ProductSearchHit {
+
+    Integer getKind();
+
+    Long getId();
+
+    Float getScore();
+
+    Long getQuantity();
+}
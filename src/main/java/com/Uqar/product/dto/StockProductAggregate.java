@@ -0,0 +1,38 @@
+package com.Uqar.product.dto;
+
+import java.time.LocalDate;
+
+import com.Uqar.product.Enum.ProductType;
+
+/**
+ * إجمالي المخزون لكل منتج محسوب في قاعدة البيانات
+ * Per-product stock totals computed by one grouped query
+ */
+public interface StockProductAggregate {
+
+    Long getProductId();
+
+    ProductType getProductType();
+
+    Long getFirstStockItemId();
+
+    Long getTotalQuantity();
+
+    Long getTotalBonusQuantity();
+
+    Double getTotalValue();
+
+    Double getFallbackPurchasePrice();
+
+    Long getRemainingParts();
+
+    LocalDate getEarliestExpiryDate();
+
+    LocalDate getLatestExpiryDate();
+
+    Long getNumberOfBatches();
+
+    Long getExpiredBatches();
+
+    Long getExpiringSoonBatches();
+}
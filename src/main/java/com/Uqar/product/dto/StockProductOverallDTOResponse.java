@@ -64,6 +64,9 @@ public class StockProductOverallDTOResponse {
     private Integer numberOfPartsPerBox;
     private Integer remainingParts;
     
+    // Batch details (only filled when explicitly requested)
+    private List<StockItemDTOResponse> batches;
+    
     /**
      * Check if dual currency display is enabled
      */
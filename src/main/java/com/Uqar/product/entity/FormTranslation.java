@@ -3,6 +3,8 @@ package com.Uqar.product.entity;
 import com.Uqar.language.Language;
 import com.Uqar.utils.entity.AuditedEntity;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +12,7 @@ import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @EqualsAndHashCode(callSuper=false)
 @Table(name = "form_translation")
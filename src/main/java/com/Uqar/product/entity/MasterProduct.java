@@ -1,6 +1,7 @@
 package com.Uqar.product.entity;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import com.Uqar.utils.entity.AuditedEntity;
@@ -80,6 +81,35 @@ public class MasterProduct extends AuditedEntity {
     @ToString.Exclude
     private Set<MasterProductTranslation> translations = new HashSet<>();
 
+    /**
+     * نسخة مستقلة من المنتج وترجماته
+     * Detached copy of the product and its translations, pointing at the same reference data
+     * (categories, type, form, manufacturer), so changes to the copy never reach the source
+     */
+    public MasterProduct(MasterProduct source) {
+        super(source);
+        this.tradeName = source.tradeName;
+        this.scientificName = source.scientificName;
+        this.concentration = source.concentration;
+        this.size = source.size;
+        this.refPurchasePrice = source.refPurchasePrice;
+        this.refSellingPrice = source.refSellingPrice;
+        this.minStockLevel = source.minStockLevel;
+        this.notes = source.notes;
+        this.tax = source.tax;
+        this.barcode = source.barcode;
+        this.requiresPrescription = source.requiresPrescription;
+        this.numberOfPartsPerBox = source.numberOfPartsPerBox;
+        this.categories = new LinkedHashSet<>(source.categories);
+        this.type = source.type;
+        this.form = source.form;
+        this.manufacturer = source.manufacturer;
+        this.translations = new LinkedHashSet<>();
+        for (MasterProductTranslation translation : source.translations) {
+            this.translations.add(new MasterProductTranslation(translation, this));
+        }
+    }
+
     @Override
     protected String getSequenceName() {
         return "master_product_id_seq";
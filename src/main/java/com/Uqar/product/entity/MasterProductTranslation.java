@@ -30,6 +30,17 @@ public class MasterProductTranslation extends AuditedEntity {
     @JoinColumn(name = "language_id")
     private Language language;
 
+    /**
+     * Copy of the translation attached to a copy of its product
+     */
+    public MasterProductTranslation(MasterProductTranslation source, MasterProduct product) {
+        super(source);
+        this.tradeName = source.tradeName;
+        this.scientificName = source.scientificName;
+        this.language = source.language;
+        this.product = product;
+    }
+
     @Override
     protected String getSequenceName() {
         return "master_product_translation_id_seq";
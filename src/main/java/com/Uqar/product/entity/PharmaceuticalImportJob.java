@@ -0,0 +1,82 @@
+package com.Uqar.product.entity;
+
+import com.Uqar.product.Enum.ImportJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * مهمة استيراد ملف الأدوية في الخلفية
+ * Background import of a pharmaceutical Excel file.
+ * lastRow is committed together with the products of that row, so the job resumes after it.
+ */
+@Entity
+@Table(name = "pharmaceutical_import_job")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PharmaceuticalImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "file_path", nullable = false, length = 1024)
+    private String filePath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ImportJobStatus status;
+
+    @Column(name = "last_row", nullable = false)
+    @Builder.Default
+    private int lastRow = 0;
+
+    @Column(name = "processed_rows", nullable = false)
+    @Builder.Default
+    private int processedRows = 0;
+
+    @Column(name = "inserted_count", nullable = false)
+    @Builder.Default
+    private int insertedCount = 0;
+
+    @Column(name = "updated_count", nullable = false)
+    @Builder.Default
+    private int updatedCount = 0;
+
+    @Column(name = "skipped_count", nullable = false)
+    @Builder.Default
+    private int skippedCount = 0;
+
+    @Column(name = "failed_count", nullable = false)
+    @Builder.Default
+    private int failedCount = 0;
+
+    @Column(name = "errors", columnDefinition = "TEXT")
+    private String errors;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,35 @@
+package com.Uqar.product.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * آخر تمرير يومي لتنبيهات انتهاء الصلاحية لكل صيدلية
+ * The last expiry rollover of a pharmacy whose notifications went out: the day it covered, and
+ * the time from which received or re-dated batches are looked at by the next rollover.
+ * Kept in the database so any instance can run the next rollover.
+ */
+@Entity
+@Table(name = "stock_expiry_rollover")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockExpiryRollover {
+
+    @Id
+    @Column(name = "pharmacy_id")
+    private Long pharmacyId;
+
+    @Column(name = "rollover_date", nullable = false)
+    private LocalDate rolloverDate;
+
+    @Column(name = "checked_at", nullable = false)
+    private LocalDateTime checkedAt;
+}
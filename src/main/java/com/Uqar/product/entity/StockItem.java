@@ -89,4 +89,9 @@ public class StockItem extends AuditedEntity {
     protected String getSequenceName() {
         return "stock_item_id_seq";
     }
+
+    @Override
+    protected int getSequenceAllocationSize() {
+        return POOLED_ALLOCATION_SIZE;
+    }
 } 
\ No newline at end of file
@@ -9,7 +9,6 @@ import com.Uqar.product.Enum.ProductType;
 import com.Uqar.product.dto.ProductSearchDTOResponse;
 import com.Uqar.product.entity.MasterProduct;
 import com.Uqar.product.entity.PharmacyProduct;
-import com.Uqar.product.repo.StockItemRepo;
 import com.Uqar.product.service.CurrencyConversionService;
 import com.Uqar.user.Enum.Currency;
 
@@ -19,14 +18,13 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ProductSearchMapper {
     
-    private final StockItemRepo stockItemRepo;
     private final CurrencyConversionService currencyConversionService;
     
-    public ProductSearchDTOResponse convertMasterProductToUnifiedDTO(MasterProduct product, String lang, Long pharmacyId) {
-        return convertMasterProductToUnifiedDTO(product, lang, pharmacyId, true); // Always enable dual currency
+    public ProductSearchDTOResponse convertMasterProductToUnifiedDTO(MasterProduct product, String lang, Long pharmacyId, Integer quantity) {
+        return convertMasterProductToUnifiedDTO(product, lang, pharmacyId, true, quantity); // Always enable dual currency
     }
     
-    public ProductSearchDTOResponse convertMasterProductToUnifiedDTO(MasterProduct product, String lang, Long pharmacyId, boolean dualCurrency) {
+    public ProductSearchDTOResponse convertMasterProductToUnifiedDTO(MasterProduct product, String lang, Long pharmacyId, boolean dualCurrency, Integer quantity) {
         // الحصول على الترجمة حسب اللغة المطلوبة
         String translatedTradeName = product.getTranslations() != null
                 ? product.getTranslations().stream()
@@ -84,8 +82,6 @@ public class ProductSearchMapper {
                 : product.getScientificName();
 
         String translatedNotes = product.getNotes();
-        
-        Integer quantity = getProductQuantity(product.getId(), ProductType.MASTER, pharmacyId);
 
         return ProductSearchDTOResponse.builder()
                 .id(product.getId())
@@ -112,7 +108,7 @@ public class ProductSearchMapper {
                     currencyConversionService.convertPriceFromSYP(1.0f, Currency.USD).getExchangeRate().doubleValue() : null)
                 .notes(translatedNotes)
                 .tax(product.getTax())
-                .quantity(quantity)
+                .quantity(quantity != null ? quantity : 0)
                 .pharmacyId(pharmacyId)
                 .pharmacyName(null) 
                 .typeId(product.getType() != null ? product.getType().getId() : null)
@@ -152,11 +148,11 @@ public class ProductSearchMapper {
                 .build();
     }
     
-    public ProductSearchDTOResponse convertPharmacyProductToUnifiedDTO(PharmacyProduct product, String lang, Long pharmacyId) {
-        return convertPharmacyProductToUnifiedDTO(product, lang, pharmacyId, true); // Always enable dual currency
+    public ProductSearchDTOResponse convertPharmacyProductToUnifiedDTO(PharmacyProduct product, String lang, Long pharmacyId, Integer quantity) {
+        return convertPharmacyProductToUnifiedDTO(product, lang, pharmacyId, true, quantity); // Always enable dual currency
     }
     
-    public ProductSearchDTOResponse convertPharmacyProductToUnifiedDTO(PharmacyProduct product, String lang, Long pharmacyId, boolean dualCurrency) {
+    public ProductSearchDTOResponse convertPharmacyProductToUnifiedDTO(PharmacyProduct product, String lang, Long pharmacyId, boolean dualCurrency, Integer quantity) {
         // الحصول على الترجمة حسب اللغة المطلوبة
         String translatedTradeName = product.getTranslations() != null
                 ? product.getTranslations().stream()
@@ -214,8 +210,6 @@ public class ProductSearchMapper {
                 : product.getScientificName();
 
         String translatedNotes = product.getNotes();
-        
-        Integer quantity = getProductQuantity(product.getId(), ProductType.PHARMACY, pharmacyId);
 
         return ProductSearchDTOResponse.builder()
                 .id(product.getId())
@@ -246,7 +240,7 @@ public class ProductSearchMapper {
                     currencyConversionService.convertPriceFromSYP(1.0f, Currency.USD).getExchangeRate().doubleValue() : null)
                 .notes(translatedNotes)
                 .tax(product.getTax())
-                .quantity(quantity)
+                .quantity(quantity != null ? quantity : 0)
                 .pharmacyId(product.getPharmacy() != null ? product.getPharmacy().getId() : null)
                 .pharmacyName(product.getPharmacy() != null ? product.getPharmacy().getName() : null)
                 .typeId(product.getType() != null ? product.getType().getId() : null)
@@ -285,14 +279,4 @@ public class ProductSearchMapper {
                     : new HashSet<>())
                 .build();
     }
-    
-    
-    private Integer getProductQuantity(Long productId, ProductType productType, Long pharmacyId) {
-        try {
-            Integer totalQuantity = stockItemRepo.getTotalQuantity(productId, pharmacyId, productType);
-            return totalQuantity != null ? totalQuantity : 0;
-        } catch (Exception e) {
-            return 0;
-        }
-    }
 }
@@ -18,6 +18,7 @@ import com.Uqar.product.dto.FullInventoryResetRequest;
 import com.Uqar.product.dto.StockItemDTOResponse;
 import com.Uqar.product.dto.StockItemDetailDTOResponse;
 import com.Uqar.product.dto.StockItemWithProductInfoDTOResponse;
+import com.Uqar.product.dto.StockProductAggregate;
 import com.Uqar.product.dto.StockProductOverallDTOResponse;
 import com.Uqar.product.dto.StockReportDTOResponse;
 import com.Uqar.product.entity.Category;
@@ -25,11 +26,8 @@ import com.Uqar.product.entity.MasterProduct;
 import com.Uqar.product.entity.PharmacyProduct;
 import com.Uqar.product.entity.PharmacyProductBarcode;
 import com.Uqar.product.entity.StockItem;
-import com.Uqar.product.repo.MasterProductRepo;
-import com.Uqar.product.repo.PharmacyProductRepo;
-import com.Uqar.product.repo.StockItemRepo;
 import com.Uqar.product.service.CurrencyConversionService;
-import com.Uqar.purchase.repository.PurchaseOrderItemRepo;
+import com.Uqar.product.service.ProductMetadataResolver;
 import com.Uqar.user.Enum.Currency;
 import com.Uqar.user.entity.Pharmacy;
 
@@ -39,10 +37,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class StockItemMapper {
     
-    private final PharmacyProductRepo pharmacyProductRepo;
-    private final MasterProductRepo masterProductRepo;
-    private final PurchaseOrderItemRepo purchaseOrderItemRepo;
-    private final StockItemRepo stockItemRepo;
+    private final ProductMetadataResolver productMetadataResolver;
     private final CurrencyConversionService currencyConversionService;
     
     public StockItemDTOResponse toResponse(StockItem stockItem) {
@@ -148,6 +143,8 @@ public class StockItemMapper {
     }
     
     public List<StockItemDTOResponse> toResponseList(List<StockItem> stockItems) {
+        productMetadataResolver.preload(stockItems);
+        productMetadataResolver.preloadPurchaseOrderTotals(stockItems);
         return stockItems.stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
@@ -208,6 +205,7 @@ public class StockItemMapper {
     }
     
     public List<StockItemWithProductInfoDTOResponse> toStockItemWithProductInfoDTOList(List<StockItem> stockItems) {
+        productMetadataResolver.preload(stockItems);
         return stockItems.stream()
                 .map(this::toStockItemWithProductInfoDTO)
                 .collect(Collectors.toList());
@@ -258,14 +256,14 @@ public class StockItemMapper {
     private List<String> getCategories(Long productId, ProductType productType) {
         try {
             if (productType == ProductType.PHARMACY) {
-                Optional<PharmacyProduct> pharmacyProduct = pharmacyProductRepo.findById(productId);
+                Optional<PharmacyProduct> pharmacyProduct = productMetadataResolver.findPharmacyProduct(productId);
                 if (pharmacyProduct.isPresent() && pharmacyProduct.get().getCategories() != null) {
                     return pharmacyProduct.get().getCategories().stream()
                             .map(Category::getName)
                             .collect(Collectors.toList());
                 }
             } else if (productType == ProductType.MASTER) {
-                Optional<MasterProduct> masterProduct = masterProductRepo.findById(productId);
+                Optional<MasterProduct> masterProduct = productMetadataResolver.findMasterProduct(productId);
                 if (masterProduct.isPresent() && masterProduct.get().getCategories() != null) {
                     return masterProduct.get().getCategories().stream()
                             .map(Category::getName)
@@ -277,23 +275,20 @@ public class StockItemMapper {
         return List.of();
     }
     
-    public Integer getMinStockLevel(Long productId, ProductType productType) {
+    public Integer getMinStockLevel(Long pharmacyId, Long productId, ProductType productType) {
         try {
-            List<StockItem> stockItems = stockItemRepo.findByProductIdAndProductTypeOrderByDateAddedDesc(productId, productType);
-            if (!stockItems.isEmpty()) {
-                Integer stockItemMinLevel = stockItems.get(0).getMinStockLevel();
-                if (stockItemMinLevel != null) {
-                    return stockItemMinLevel; // Return from StockItem if available
-                }
+            Integer stockItemMinLevel = productMetadataResolver.findLatestStockItemMinLevel(pharmacyId, productId, productType);
+            if (stockItemMinLevel != null) {
+                return stockItemMinLevel; // Return from StockItem if available
             }
             
             if (productType == ProductType.PHARMACY) {
-                Optional<PharmacyProduct> pharmacyProduct = pharmacyProductRepo.findById(productId);
+                Optional<PharmacyProduct> pharmacyProduct = productMetadataResolver.findPharmacyProduct(productId);
                 if (pharmacyProduct.isPresent()) {
                     return pharmacyProduct.get().getMinStockLevel();
                 }
             } else if (productType == ProductType.MASTER) {
-                Optional<MasterProduct> masterProduct = masterProductRepo.findById(productId);
+                Optional<MasterProduct> masterProduct = productMetadataResolver.findMasterProduct(productId);
                 if (masterProduct.isPresent()) {
                     return masterProduct.get().getMinStockLevel();
                 }
@@ -310,26 +305,34 @@ public class StockItemMapper {
     public String getProductName(Long productId, ProductType productType, String lang) {
         try {
             if (productType == ProductType.PHARMACY) {
-                Optional<PharmacyProduct> pharmacyProduct = pharmacyProductRepo.findById(productId);
+                Optional<PharmacyProduct> pharmacyProduct = productMetadataResolver.findPharmacyProduct(productId);
                 if (pharmacyProduct.isPresent()) {
-                    PharmacyProduct product = pharmacyProduct.get();
-                    // Try to get translated name first
-                    String translatedName = getTranslatedPharmacyProductName(product, lang);
-                    return translatedName != null ? translatedName : product.getTradeName();
+                    return getProductName(pharmacyProduct.get(), lang);
                 }
             } else if (productType == ProductType.MASTER) {
-                Optional<MasterProduct> masterProduct = masterProductRepo.findById(productId);
+                Optional<MasterProduct> masterProduct = productMetadataResolver.findMasterProduct(productId);
                 if (masterProduct.isPresent()) {
-                    MasterProduct product = masterProduct.get();
-                    // Try to get translated name first
-                    String translatedName = getTranslatedMasterProductName(product, lang);
-                    return translatedName != null ? translatedName : product.getTradeName();
+                    return getProductName(masterProduct.get(), lang);
                 }
             }
         } catch (Exception e) {
         }
         return "Unknown Product";
     }
+
+    /**
+     * اسم المنتج المحمل مسبقاً (الترجمة أولاً ثم الاسم التجاري)
+     * Name of an already loaded product: the translation first, then the trade name
+     */
+    public String getProductName(PharmacyProduct product, String lang) {
+        String translatedName = getTranslatedPharmacyProductName(product, lang);
+        return translatedName != null ? translatedName : product.getTradeName();
+    }
+
+    public String getProductName(MasterProduct product, String lang) {
+        String translatedName = getTranslatedMasterProductName(product, lang);
+        return translatedName != null ? translatedName : product.getTradeName();
+    }
     
     private String getTranslatedPharmacyProductName(PharmacyProduct product, String lang) {
         return product.getTranslations().stream()
@@ -357,7 +360,7 @@ public class StockItemMapper {
         
         try {
             if (productType == ProductType.PHARMACY) {
-                Optional<PharmacyProduct> pharmacyProduct = pharmacyProductRepo.findById(productId);
+                Optional<PharmacyProduct> pharmacyProduct = productMetadataResolver.findPharmacyProduct(productId);
                 if (pharmacyProduct.isPresent()) {
                     PharmacyProduct product = pharmacyProduct.get();
                     String arabicName = getTranslatedPharmacyProductName(product, "ar");
@@ -366,7 +369,7 @@ public class StockItemMapper {
                     names.put("en", englishName != null ? englishName : product.getTradeName());
                 }
             } else if (productType == ProductType.MASTER) {
-                Optional<MasterProduct> masterProduct = masterProductRepo.findById(productId);
+                Optional<MasterProduct> masterProduct = productMetadataResolver.findMasterProduct(productId);
                 if (masterProduct.isPresent()) {
                     MasterProduct product = masterProduct.get();
                     String arabicName = getTranslatedMasterProductName(product, "ar");
@@ -385,12 +388,12 @@ public class StockItemMapper {
     public boolean isProductRequiresPrescription(Long productId, ProductType productType) {
         try {
             if (productType == ProductType.PHARMACY) {
-                Optional<PharmacyProduct> pharmacyProduct = pharmacyProductRepo.findById(productId);
+                Optional<PharmacyProduct> pharmacyProduct = productMetadataResolver.findPharmacyProduct(productId);
                 if (pharmacyProduct.isPresent()) {
                     return pharmacyProduct.get().getRequiresPrescription();
                 }
             } else if (productType == ProductType.MASTER) {
-                Optional<MasterProduct> masterProduct = masterProductRepo.findById(productId);
+                Optional<MasterProduct> masterProduct = productMetadataResolver.findMasterProduct(productId);
                 if (masterProduct.isPresent()) {
                     return masterProduct.get().getRequiresPrescription();
                 }
@@ -403,12 +406,12 @@ public class StockItemMapper {
     public Float getProductSellingPrice(Long productId, ProductType productType) {
         try {
             if (productType == ProductType.PHARMACY) {
-                Optional<PharmacyProduct> pharmacyProduct = pharmacyProductRepo.findById(productId);
+                Optional<PharmacyProduct> pharmacyProduct = productMetadataResolver.findPharmacyProduct(productId);
                 if (pharmacyProduct.isPresent()) {
                     return pharmacyProduct.get().getRefSellingPrice();
                 }
             } else if (productType == ProductType.MASTER) {
-                Optional<MasterProduct> masterProduct = masterProductRepo.findById(productId);
+                Optional<MasterProduct> masterProduct = productMetadataResolver.findMasterProduct(productId);
                 if (masterProduct.isPresent()) {
                     return masterProduct.get().getRefSellingPrice();
                 }
@@ -425,12 +428,12 @@ public class StockItemMapper {
     public Integer getNumberOfPartsPerBox(Long productId, ProductType productType) {
         try {
             if (productType == ProductType.PHARMACY) {
-                Optional<PharmacyProduct> pharmacyProduct = pharmacyProductRepo.findById(productId);
+                Optional<PharmacyProduct> pharmacyProduct = productMetadataResolver.findPharmacyProduct(productId);
                 if (pharmacyProduct.isPresent()) {
                     return pharmacyProduct.get().getNumberOfPartsPerBox();
                 }
             } else if (productType == ProductType.MASTER) {
-                Optional<MasterProduct> masterProduct = masterProductRepo.findById(productId);
+                Optional<MasterProduct> masterProduct = productMetadataResolver.findMasterProduct(productId);
                 if (masterProduct.isPresent()) {
                     return masterProduct.get().getNumberOfPartsPerBox();
                 }
@@ -463,17 +466,7 @@ public class StockItemMapper {
 
     private Integer getTotalFromPurchaseOrder(StockItem stockItem) {
         try {
-            List<com.Uqar.purchase.entity.PurchaseOrderItem> orderItems = 
-                purchaseOrderItemRepo.findByProductIdAndProductType(stockItem.getProductId(), stockItem.getProductType());
-            
-            if (!orderItems.isEmpty()) {
-                com.Uqar.purchase.entity.PurchaseOrderItem orderItem = orderItems.get(0);
-                
-                if (orderItem.getPurchaseOrder() != null) {
-                    return orderItem.getPurchaseOrder().getTotal() != null ? 
-                           orderItem.getPurchaseOrder().getTotal().intValue() : 0;
-                }
-            }
+            return productMetadataResolver.findPurchaseOrderTotal(stockItem.getProductId(), stockItem.getProductType());
         } catch (Exception e) {
         }
         return 0;
@@ -484,14 +477,14 @@ public class StockItemMapper {
         
         try {
             if (productType == ProductType.PHARMACY) {
-                Optional<PharmacyProduct> pharmacyProduct = pharmacyProductRepo.findById(productId);
+                Optional<PharmacyProduct> pharmacyProduct = productMetadataResolver.findPharmacyProduct(productId);
                 if (pharmacyProduct.isPresent()) {
                     barcodes = pharmacyProduct.get().getBarcodes().stream()
                             .map(PharmacyProductBarcode::getBarcode)
                             .collect(Collectors.toList());
                 }
             } else if (productType == ProductType.MASTER) {
-                Optional<MasterProduct> masterProduct = masterProductRepo.findById(productId);
+                Optional<MasterProduct> masterProduct = productMetadataResolver.findMasterProduct(productId);
                 if (masterProduct.isPresent() && masterProduct.get().getBarcode() != null) {
                     barcodes.add(masterProduct.get().getBarcode());
                 }
@@ -553,7 +546,7 @@ public class StockItemMapper {
         
         List<String> categories = getCategories(productId, productType);
         Float sellingPrice = getProductSellingPrice(productId, productType);
-        Integer minStockLevel = getMinStockLevel(productId, productType);
+        Integer minStockLevel = getMinStockLevel(pharmacyId, productId, productType);
         List<String> barcodes = getBarcodes(productId, productType);
         
         LocalDate today = LocalDate.now();
@@ -611,6 +604,62 @@ public class StockItemMapper {
         return builder.build();
     }
     
+    /**
+     * تحويل ملخص المخزون المجمّع من قاعدة البيانات إلى DTO
+     * Convert a per-product aggregate row to the overall summary DTO
+     */
+    public StockProductOverallDTOResponse toProductSummary(StockProductAggregate aggregate, Long pharmacyId, boolean dualCurrency, String lang) {
+        Long productId = aggregate.getProductId();
+        ProductType productType = aggregate.getProductType();
+        
+        Integer totalQuantity = aggregate.getTotalQuantity() != null ? aggregate.getTotalQuantity().intValue() : 0;
+        Integer totalBonusQuantity = aggregate.getTotalBonusQuantity() != null ? aggregate.getTotalBonusQuantity().intValue() : 0;
+        
+        // نفس حساب المتوسط المرجح المستخدم في toProductSummaryWithLang
+        Double actualPurchasePrice;
+        if (totalQuantity > 0) {
+            double totalWeightedPrice = aggregate.getTotalValue() != null ? aggregate.getTotalValue() : 0.0;
+            actualPurchasePrice = Math.round((totalWeightedPrice / totalQuantity) * 100.0) / 100.0;
+        } else {
+            actualPurchasePrice = aggregate.getFallbackPurchasePrice() != null ? aggregate.getFallbackPurchasePrice() : 0.0;
+        }
+        
+        Double totalValue = Math.round(totalQuantity * actualPurchasePrice * 100.0) / 100.0;
+        
+        Map<String, String> productNames = getProductNames(productId, productType);
+        Float sellingPrice = getProductSellingPrice(productId, productType);
+        
+        StockProductOverallDTOResponse.StockProductOverallDTOResponseBuilder builder = StockProductOverallDTOResponse.builder()
+            .id(aggregate.getFirstStockItemId())
+            .productId(productId)
+            .productName(getProductName(productId, productType, lang))
+            .productNameAr(productNames.get("ar"))
+            .productNameEn(productNames.get("en"))
+            .productType(productType)
+            .barcodes(getBarcodes(productId, productType))
+            .totalQuantity(totalQuantity)
+            .totalBonusQuantity(totalBonusQuantity)
+            .actualPurchasePrice(actualPurchasePrice)
+            .totalValue(totalValue)
+            .categories(getCategories(productId, productType))
+            .sellingPrice(sellingPrice)
+            .minStockLevel(getMinStockLevel(pharmacyId, productId, productType))
+            .hasExpiredItems(aggregate.getExpiredBatches() != null && aggregate.getExpiredBatches() > 0)
+            .hasExpiringSoonItems(aggregate.getExpiringSoonBatches() != null && aggregate.getExpiringSoonBatches() > 0)
+            .earliestExpiryDate(aggregate.getEarliestExpiryDate())
+            .latestExpiryDate(aggregate.getLatestExpiryDate())
+            .numberOfBatches(aggregate.getNumberOfBatches() != null ? aggregate.getNumberOfBatches().intValue() : 0)
+            .pharmacyId(pharmacyId)
+            .numberOfPartsPerBox(getNumberOfPartsPerBox(productId, productType))
+            .remainingParts(aggregate.getRemainingParts() != null ? aggregate.getRemainingParts().intValue() : 0);
+        
+        if (dualCurrency) {
+            applyDualCurrencyConversion(builder, sellingPrice, actualPurchasePrice, totalValue);
+        }
+        
+        return builder.build();
+    }
+    
     private void applyDualCurrencyConversion(StockProductOverallDTOResponse.StockProductOverallDTOResponseBuilder builder,
                                            Float sellingPrice, Double actualPurchasePrice, Double totalValue) {
         builder.dualCurrencyDisplay(true);
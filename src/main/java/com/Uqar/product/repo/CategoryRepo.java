@@ -1,8 +1,12 @@
 package com.Uqar.product.repo;
 
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.product.entity.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
@@ -11,9 +15,17 @@ import java.util.Optional;
 public interface CategoryRepo extends JpaRepository<Category, Long> {
     boolean existsByName(String name);
     
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     @Query("SELECT DISTINCT c FROM Category c LEFT JOIN FETCH c.translations tr LEFT JOIN FETCH tr.language")
     List<Category> findAllWithTranslations();
     
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     @Query("SELECT DISTINCT c FROM Category c LEFT JOIN FETCH c.translations tr LEFT JOIN FETCH tr.language WHERE c.id = :id")
     Optional<Category> findByIdWithTranslations(@Param("id") Long id);
 }
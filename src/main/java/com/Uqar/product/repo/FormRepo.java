@@ -1,8 +1,12 @@
 package com.Uqar.product.repo;
 
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.product.entity.Form;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
@@ -10,10 +14,21 @@ import java.util.Optional;
 
 public interface FormRepo extends JpaRepository<Form, Long> {
     boolean existsByName(String name);
-    
+
+    @Query("SELECT f.id, f.name FROM Form f")
+    List<Object[]> findAllIdAndName();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     @Query("SELECT DISTINCT f FROM Form f LEFT JOIN FETCH f.translations tr LEFT JOIN FETCH tr.language")
     List<Form> findAllWithTranslations();
     
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     @Query("SELECT DISTINCT f FROM Form f LEFT JOIN FETCH f.translations tr LEFT JOIN FETCH tr.language WHERE f.id = :id")
     Optional<Form> findByIdWithTranslations(@Param("id") Long id);
 }
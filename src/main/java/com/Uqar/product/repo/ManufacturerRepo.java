@@ -1,8 +1,12 @@
 package com.Uqar.product.repo;
 
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.product.entity.Manufacturer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
@@ -10,10 +14,21 @@ import java.util.Optional;
 
 public interface ManufacturerRepo extends JpaRepository<Manufacturer, Long> {
     boolean existsByName(String name);
-    
+
+    @Query("SELECT m.id, m.name FROM Manufacturer m")
+    List<Object[]> findAllIdAndName();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     @Query("SELECT DISTINCT m FROM Manufacturer m LEFT JOIN FETCH m.translations tr LEFT JOIN FETCH tr.language")
     List<Manufacturer> findAllWithTranslations();
     
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     @Query("SELECT DISTINCT m FROM Manufacturer m LEFT JOIN FETCH m.translations tr LEFT JOIN FETCH tr.language WHERE m.id = :id")
     Optional<Manufacturer> findByIdWithTranslations(@Param("id") Long id);
 }
@@ -7,30 +7,41 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface MasterProductRepo extends JpaRepository<MasterProduct, Long> {
-    @Query("""
-SELECT DISTINCT p FROM MasterProduct p
-LEFT JOIN p.translations pt
-WHERE (
-    LOWER(p.tradeName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR
-    LOWER(p.scientificName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR
-    LOWER(p.barcode) LIKE LOWER(CONCAT('%', :keyword, '%')) OR
-    (pt.language.code = :lang AND (
-        LOWER(pt.tradeName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR
-        LOWER(pt.scientificName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-    ))
-)
-""")
-    Page<MasterProduct> search(
-            @Param("keyword") String keyword,
-            @Param("lang") String lang,
+    /**
+     * البحث بترتيب الصلة باستخدام فهارس trigram
+     * Ids of the products matching a normalized search term, best match first
+     */
+    @Query(value = "SELECT h.id FROM (" + ProductSearchSql.MASTER_PRODUCT_HITS + ") h "
+            + "GROUP BY h.id ORDER BY MAX(h.score) DESC, h.id",
+           countQuery = "SELECT COUNT(DISTINCT h.id) FROM (" + ProductSearchSql.MASTER_PRODUCT_HITS + ") h",
+           nativeQuery = true)
+    Page<Long> searchRankedIds(
+            @Param("term") String term,
+            @Param("contains") String contains,
             Pageable pageable);
 
 
     Optional<MasterProduct> findByBarcode(@Param("barcode") String barcode);
 
+    List<MasterProduct> findByBarcodeIn(Collection<String> barcodes);
+
+    @Query("SELECT p.barcode, p.id FROM MasterProduct p WHERE p.barcode IS NOT NULL")
+    List<Object[]> findAllBarcodeAndId();
+
+    @Query("SELECT p.id FROM MasterProduct p WHERE p.barcode = :barcode")
+    Optional<Long> findIdByBarcode(@Param("barcode") String barcode);
+
+    @Query("SELECT p.barcode FROM MasterProduct p WHERE p.id = :id")
+    Optional<String> findBarcodeById(@Param("id") Long id);
+
     @Query("SELECT DISTINCT p FROM MasterProduct p LEFT JOIN FETCH p.translations tr LEFT JOIN FETCH tr.language LEFT JOIN FETCH p.categories WHERE p.id = :id")
     Optional<MasterProduct> findByIdWithTranslations(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT p FROM MasterProduct p LEFT JOIN FETCH p.translations tr LEFT JOIN FETCH tr.language LEFT JOIN FETCH p.categories WHERE p.id IN :ids")
+    List<MasterProduct> findAllWithTranslationsByIdIn(@Param("ids") Collection<Long> ids);
 }
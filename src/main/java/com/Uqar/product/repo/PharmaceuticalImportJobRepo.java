@@ -0,0 +1,15 @@
+package com.Uqar.product.repo;
+
+import com.Uqar.product.Enum.ImportJobStatus;
+import com.Uqar.product.entity.PharmaceuticalImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PharmaceuticalImportJobRepo extends JpaRepository<PharmaceuticalImportJob, Long> {
+
+    List<PharmaceuticalImportJob> findByStatusInOrderByIdAsc(Collection<ImportJobStatus> statuses);
+
+    List<PharmaceuticalImportJob> findTop20ByOrderByIdDesc();
+}
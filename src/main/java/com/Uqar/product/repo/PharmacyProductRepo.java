@@ -7,8 +7,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.Uqar.product.dto.ProductSearchHit;
 import com.Uqar.product.entity.PharmacyProduct;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +24,9 @@ public interface PharmacyProductRepo extends JpaRepository<PharmacyProduct, Long
     @Query("SELECT DISTINCT p FROM PharmacyProduct p LEFT JOIN FETCH p.translations tr LEFT JOIN FETCH tr.language WHERE p.id = :id")
     Optional<PharmacyProduct> findByIdWithTranslations(@Param("id") Long id);
     
+    @Query("SELECT DISTINCT p FROM PharmacyProduct p LEFT JOIN FETCH p.translations tr LEFT JOIN FETCH tr.language LEFT JOIN FETCH p.categories LEFT JOIN FETCH p.barcodes WHERE p.id IN :ids")
+    List<PharmacyProduct> findAllWithTranslationsByIdIn(@Param("ids") Collection<Long> ids);
+    
     @Query("""
     SELECT DISTINCT p FROM PharmacyProduct p
     LEFT JOIN p.translations pt
@@ -41,26 +46,90 @@ public interface PharmacyProductRepo extends JpaRepository<PharmacyProduct, Long
             @Param("lang") String lang,
             Pageable pageable);
     
-    @Query("""
-    SELECT DISTINCT p FROM PharmacyProduct p
-    LEFT JOIN p.translations pt
-    LEFT JOIN p.barcodes pb
-    WHERE p.pharmacy.id = :pharmacyId AND (
-        LOWER(p.tradeName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR
-        LOWER(p.scientificName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR
-        LOWER(pb.barcode) LIKE LOWER(CONCAT('%', :keyword, '%')) OR
-        (pt.language.code = :lang AND (
-            LOWER(pt.tradeName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR
-            LOWER(pt.scientificName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-        ))
-    )
-    """)
-    Page<PharmacyProduct> searchByPharmacyId(
-            @Param("keyword") String keyword,
-            @Param("lang") String lang,
+    /**
+     * البحث الموحد في المنتجات المركزية ومنتجات الصيدلية مع الكمية المتوفرة
+     * One keyset page of the merged master and pharmacy product search, ordered by
+     * (score DESC, kind, id), starting strictly after the given cursor. Only the rows of the
+     * page get their stock quantity summed, so every page costs the same.
+     */
+    @Query(value = """
+        SELECT page.kind AS kind, page.id AS id, page.score AS score, COALESCE(stock.quantity, 0) AS quantity
+        FROM (
+            SELECT hits.kind, hits.id, hits.score
+            FROM (
+                SELECT 0 AS kind, h.id, MAX(h.score) AS score FROM (
+        """ + ProductSearchSql.MASTER_PRODUCT_HITS + """
+                ) h GROUP BY h.id
+                UNION ALL
+                SELECT 1 AS kind, h.id, MAX(h.score) AS score FROM (
+        """ + ProductSearchSql.PHARMACY_PRODUCT_HITS + """
+                ) h GROUP BY h.id
+            ) hits
+            WHERE hits.score < :afterScore
+               OR (hits.score = :afterScore
+                   AND (hits.kind > :afterKind OR (hits.kind = :afterKind AND hits.id > :afterId)))
+            ORDER BY hits.score DESC, hits.kind, hits.id
+            LIMIT :limit
+        ) page
+        LEFT JOIN LATERAL (
+            SELECT SUM(si.quantity) AS quantity FROM stock_item si
+            WHERE si.pharmacy_id = :pharmacyId AND si.product_type = page.kind
+              AND si.product_id = page.id AND si.quantity > 0
+        ) stock ON TRUE
+        ORDER BY page.score DESC, page.kind, page.id
+        """, nativeQuery = true)
+    List<ProductSearchHit> searchUnifiedAfter(
+            @Param("term") String term,
+            @Param("contains") String contains,
             @Param("pharmacyId") Long pharmacyId,
-            Pageable pageable);
-    
+            @Param("afterScore") float afterScore,
+            @Param("afterKind") int afterKind,
+            @Param("afterId") long afterId,
+            @Param("limit") int limit);
+
+    /**
+     * تصفح كل المنتجات بدون كلمة بحث
+     * One keyset page of all master products followed by the pharmacy's products, ordered by
+     * (kind, id). Each branch is a primary key range scan that stops after :limit rows.
+     */
+    @Query(value = """
+        SELECT page.kind AS kind, page.id AS id, CAST(0 AS REAL) AS score, COALESCE(stock.quantity, 0) AS quantity
+        FROM (
+            SELECT u.kind, u.id
+            FROM (
+                (SELECT 0 AS kind, p.id FROM master_product p
+                 WHERE p.id > :masterAfterId
+                 ORDER BY p.id LIMIT :limit)
+                UNION ALL
+                (SELECT 1 AS kind, p.id FROM pharmacy_product p
+                 WHERE p.pharmacy_id = :pharmacyId AND p.id > :pharmacyAfterId
+                 ORDER BY p.id LIMIT :limit)
+            ) u
+            ORDER BY u.kind, u.id
+            LIMIT :limit
+        ) page
+        LEFT JOIN LATERAL (
+            SELECT SUM(si.quantity) AS quantity FROM stock_item si
+            WHERE si.pharmacy_id = :pharmacyId AND si.product_type = page.kind
+              AND si.product_id = page.id AND si.quantity > 0
+        ) stock ON TRUE
+        ORDER BY page.kind, page.id
+        """, nativeQuery = true)
+    List<ProductSearchHit> browseUnifiedAfter(
+            @Param("pharmacyId") Long pharmacyId,
+            @Param("masterAfterId") long masterAfterId,
+            @Param("pharmacyAfterId") long pharmacyAfterId,
+            @Param("limit") int limit);
+
+    @Query("SELECT pb.barcode, p.id FROM PharmacyProductBarcode pb JOIN pb.product p WHERE p.pharmacy.id = :pharmacyId")
+    List<Object[]> findBarcodesByPharmacyId(@Param("pharmacyId") Long pharmacyId);
+
+    @Query("SELECT pb.barcode FROM PharmacyProductBarcode pb WHERE pb.product.id = :productId")
+    List<String> findBarcodesByProductId(@Param("productId") Long productId);
+
+    @Query("SELECT p.id FROM PharmacyProductBarcode pb JOIN pb.product p WHERE pb.barcode = :barcode AND p.pharmacy.id = :pharmacyId")
+    Optional<Long> findIdByBarcodeAndPharmacyId(@Param("barcode") String barcode, @Param("pharmacyId") Long pharmacyId);
+
     @Query("SELECT COUNT(pb) > 0 FROM PharmacyProductBarcode pb WHERE pb.barcode = :barcode")
     boolean existsByBarcode(@Param("barcode") String barcode);
     
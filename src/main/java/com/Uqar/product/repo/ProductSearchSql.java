@@ -0,0 +1,65 @@
+package com.Uqar.product.repo;
+
+/**
+ * استعلامات البحث المشتركة بين مستودعات المنتجات والمخزون
+ * Native SQL shared by the product and stock item search queries.
+ *
+ * Every predicate is written against uqar_search_normalize(column) or a raw barcode, the exact
+ * expressions of the trigram GIN indexes, so PostgreSQL can answer each branch from an index.
+ * The hit lists return one row per matching product and name with its relevance score;
+ * callers group by id and keep the best score. Parameters are {@code :term} and
+ * {@code :contains} from ProductSearchTerm, plus {@code :pharmacyId} for pharmacy products.
+ */
+final class ProductSearchSql {
+
+    private ProductSearchSql() {
+    }
+
+    static final String MASTER_PRODUCT_HITS = """
+        SELECT p.id AS id,
+               GREATEST(uqar_search_rank(:term, uqar_search_normalize(p.trade_name)),
+                        uqar_search_rank(:term, uqar_search_normalize(p.scientific_name)),
+                        CASE WHEN p.barcode = :term THEN 4 ELSE 0 END) AS score
+        FROM master_product p
+        WHERE uqar_search_normalize(p.trade_name) LIKE :contains
+           OR uqar_search_normalize(p.scientific_name) LIKE :contains
+           OR :term <% uqar_search_normalize(p.trade_name)
+           OR p.barcode LIKE :contains
+        UNION ALL
+        SELECT t.product_id AS id,
+               GREATEST(uqar_search_rank(:term, uqar_search_normalize(t.trade_name)),
+                        uqar_search_rank(:term, uqar_search_normalize(t.scientific_name))) AS score
+        FROM master_product_translation t
+        WHERE uqar_search_normalize(t.trade_name) LIKE :contains
+           OR uqar_search_normalize(t.scientific_name) LIKE :contains
+           OR :term <% uqar_search_normalize(t.trade_name)
+        """;
+
+    static final String PHARMACY_PRODUCT_HITS = """
+        SELECT p.id AS id,
+               GREATEST(uqar_search_rank(:term, uqar_search_normalize(p.trade_name)),
+                        uqar_search_rank(:term, uqar_search_normalize(p.scientific_name))) AS score
+        FROM pharmacy_product p
+        WHERE p.pharmacy_id = :pharmacyId
+          AND (uqar_search_normalize(p.trade_name) LIKE :contains
+               OR uqar_search_normalize(p.scientific_name) LIKE :contains
+               OR :term <% uqar_search_normalize(p.trade_name))
+        UNION ALL
+        SELECT t.product_id AS id,
+               GREATEST(uqar_search_rank(:term, uqar_search_normalize(t.trade_name)),
+                        uqar_search_rank(:term, uqar_search_normalize(t.scientific_name))) AS score
+        FROM pharmacy_product_translation t
+        JOIN pharmacy_product p ON p.id = t.product_id
+        WHERE p.pharmacy_id = :pharmacyId
+          AND (uqar_search_normalize(t.trade_name) LIKE :contains
+               OR uqar_search_normalize(t.scientific_name) LIKE :contains
+               OR :term <% uqar_search_normalize(t.trade_name))
+        UNION ALL
+        SELECT b.product_id AS id,
+               CASE WHEN b.barcode = :term THEN 4 ELSE 1 END AS score
+        FROM pharmacy_product_barcode b
+        JOIN pharmacy_product p ON p.id = b.product_id
+        WHERE p.pharmacy_id = :pharmacyId
+          AND b.barcode LIKE :contains
+        """;
+}
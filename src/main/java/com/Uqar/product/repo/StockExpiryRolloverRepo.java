@@ -0,0 +1,10 @@
+package com.Uqar.product.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.Uqar.product.entity.StockExpiryRollover;
+
+@Repository
+public interface StockExpiryRolloverRepo extends JpaRepository<StockExpiryRollover, Long> {
+}
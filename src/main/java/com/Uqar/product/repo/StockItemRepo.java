@@ -1,20 +1,35 @@
 package com.Uqar.product.repo;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.dto.StockProductAggregate;
 import com.Uqar.product.entity.StockItem;
 
+import jakarta.persistence.LockModeType;
+
 public interface StockItemRepo extends JpaRepository<StockItem, Long> {
     
     List<StockItem> findByProductId(Long productId);
     
     List<StockItem> findByPharmacyId(Long pharmacyId);
+
+    /**
+     * قفل دفعات المخزون للتعديل بترتيب المعرف لتجنب الـ deadlock
+     * Lock the stock items for update, always in id order so concurrent sales cannot deadlock
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StockItem s WHERE s.id IN :ids ORDER BY s.id")
+    List<StockItem> findAllByIdInOrderByIdForUpdate(@Param("ids") Collection<Long> ids);
     
     List<StockItem> findByProductIdAndPharmacyId(Long productId, Long pharmacyId);
     
@@ -27,7 +42,20 @@ public interface StockItemRepo extends JpaRepository<StockItem, Long> {
     
     @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM StockItem s WHERE s.productId = :productId AND s.pharmacy.id = :pharmacyId AND s.quantity > 0 AND s.productType = :productType")
     Integer getTotalQuantity(@Param("productId") Long productId, @Param("pharmacyId") Long pharmacyId, @Param("productType") ProductType productType);
+
+    @Query("SELECT s.productId, s.productType, SUM(s.quantity) FROM StockItem s WHERE s.pharmacy.id = :pharmacyId AND s.quantity > 0 GROUP BY s.productId, s.productType")
+    List<Object[]> sumAvailableQuantitiesByPharmacyId(@Param("pharmacyId") Long pharmacyId);
     
+    @Query("SELECT DISTINCT s.barcode, s.productId, s.productType FROM StockItem s WHERE s.pharmacy.id = :pharmacyId AND s.barcode IS NOT NULL")
+    List<Object[]> findBarcodesByPharmacyId(@Param("pharmacyId") Long pharmacyId);
+
+    @Query("SELECT s.id, s.expiryDate FROM StockItem s WHERE s.pharmacy.id = :pharmacyId AND s.quantity > 0 AND s.expiryDate IS NOT NULL")
+    List<Object[]> findExpiryDatesByPharmacyId(@Param("pharmacyId") Long pharmacyId);
+
+    @Query("SELECT s.id, s.expiryDate FROM StockItem s WHERE s.pharmacy.id = :pharmacyId AND s.quantity > 0 AND s.expiryDate IS NOT NULL " +
+           "AND (s.createdAt >= :since OR s.updatedAt >= :since)")
+    List<Object[]> findExpiryDatesChangedSince(@Param("pharmacyId") Long pharmacyId, @Param("since") LocalDateTime since);
+
     @Query("SELECT s FROM StockItem s WHERE s.expiryDate < :date AND s.pharmacy.id = :pharmacyId AND s.quantity > 0")
     List<StockItem> findExpiredItems(@Param("date") LocalDate date, @Param("pharmacyId") Long pharmacyId);
     
@@ -40,56 +68,44 @@ public interface StockItemRepo extends JpaRepository<StockItem, Long> {
         @Param("pharmacyId") Long pharmacyId, 
         @Param("minQuantity") Integer minQuantity, 
         @Param("date") LocalDate date);
-    
+
+    /**
+     * جميع الدفعات المتاحة للمنتج مرتبة حسب تاريخ الانتهاء (FEFO)
+     * All batches of the product with stock left, earliest expiry first (FEFO)
+     */
     @Query("""
-        SELECT si FROM StockItem si
-        LEFT JOIN si.purchaseInvoice pi
-        WHERE si.pharmacy.id = :pharmacyId
+        SELECT s FROM StockItem s
+        WHERE s.pharmacy.id = :pharmacyId AND s.productId = :productId AND s.productType = :productType AND s.quantity > 0
+        ORDER BY s.expiryDate ASC NULLS LAST, s.id ASC
+        """)
+    List<StockItem> findSellableBatchesOrderByExpiry(
+        @Param("pharmacyId") Long pharmacyId,
+        @Param("productId") Long productId,
+        @Param("productType") ProductType productType);
+    
+    /**
+     * البحث في دفعات المخزون حسب اسم المنتج أو الباركود أو أسماء المنتج وترجماته
+     * Stock items whose product matches a normalized search term, best name match first.
+     * product_type holds the ProductType ordinal: 0 = MASTER, 1 = PHARMACY.
+     */
+    @Query(value = """
+        SELECT si.* FROM stock_item si
+        WHERE si.pharmacy_id = :pharmacyId
           AND (
-            LOWER(si.productName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-            OR LOWER(si.barcode) LIKE LOWER(CONCAT('%', :keyword, '%'))
-            OR EXISTS (
-                SELECT 1 FROM PharmacyProduct pp 
-                WHERE pp.id = si.productId 
-                AND si.productType = com.Uqar.product.Enum.ProductType.PHARMACY
-                AND (
-                    LOWER(pp.tradeName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-                    OR EXISTS (
-                        SELECT 1 FROM PharmacyProductBarcode ppb 
-                        WHERE ppb.product.id = pp.id 
-                        AND LOWER(ppb.barcode) LIKE LOWER(CONCAT('%', :keyword, '%'))
-                    )
-                    OR EXISTS (
-                        SELECT 1 FROM PharmacyProductTranslation ppt 
-                        WHERE ppt.product.id = pp.id 
-                        AND (
-                            LOWER(ppt.tradeName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-                            OR LOWER(ppt.scientificName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-                        )
-                    )
-                )
-            )
-            OR EXISTS (
-                SELECT 1 FROM MasterProduct mp 
-                WHERE mp.id = si.productId 
-                AND si.productType = com.Uqar.product.Enum.ProductType.MASTER
-                AND (
-                    LOWER(mp.tradeName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-                    OR LOWER(mp.barcode) LIKE LOWER(CONCAT('%', :keyword, '%'))
-                    OR EXISTS (
-                        SELECT 1 FROM MasterProductTranslation mpt 
-                        WHERE mpt.product.id = mp.id 
-                        AND (
-                            LOWER(mpt.tradeName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-                            OR LOWER(mpt.scientificName) LIKE LOWER(CONCAT('%', :keyword, '%'))
-                        )
-                    )
-                )
-            )
+            uqar_search_normalize(si.product_name) LIKE :contains
+            OR si.barcode LIKE :contains
+            OR (si.product_type = 0 AND si.product_id IN (SELECT h.id FROM (
+        """ + ProductSearchSql.MASTER_PRODUCT_HITS + """
+            ) h))
+            OR (si.product_type = 1 AND si.product_id IN (SELECT h.id FROM (
+        """ + ProductSearchSql.PHARMACY_PRODUCT_HITS + """
+            ) h))
           )
-        """)
+        ORDER BY uqar_search_rank(:term, uqar_search_normalize(si.product_name)) DESC, si.id
+        """, nativeQuery = true)
         List<StockItem> searchStockItems(
-            @Param("keyword") String keyword,
+            @Param("term") String term,
+            @Param("contains") String contains,
             @Param("pharmacyId") Long pharmacyId);
     
     List<StockItem> findByBarcodeAndPharmacyId(String barcode, Long pharmacyId);
@@ -98,6 +114,47 @@ public interface StockItemRepo extends JpaRepository<StockItem, Long> {
     
 
     
+    /**
+     * المنتجات التي وصلت للحد الأدنى في جميع الصيدليات النشطة باستعلام واحد
+     * Products at or below their minimum stock level in every active pharmacy of the shard
+     * (pharmacy_id mod shardCount = shardIndex), in one pass.
+     * The minimum is the minStockLevel of the product's most recent stock item, falling back to
+     * the product's own. Columns: pharmacy_id, pharmacy_name, product_id, product_type (ordinal),
+     * total_quantity, min_stock_level.
+     */
+    @Query(value = """
+        WITH totals AS (
+            SELECT si.pharmacy_id, si.product_id, si.product_type,
+                   COALESCE(SUM(si.quantity) FILTER (WHERE si.quantity > 0), 0) AS total_quantity
+            FROM stock_item si
+            WHERE si.pharmacy_id IN (SELECT p.id FROM pharmacy p WHERE p.is_active = true)
+              AND mod(si.pharmacy_id, :shardCount) = :shardIndex
+            GROUP BY si.pharmacy_id, si.product_id, si.product_type
+        ),
+        latest AS (
+            SELECT DISTINCT ON (si.product_id, si.product_type) si.product_id, si.product_type, si.min_stock_level
+            FROM stock_item si
+            WHERE (si.product_id, si.product_type) IN (SELECT t.product_id, t.product_type FROM totals t)
+            ORDER BY si.product_id, si.product_type, si.created_at DESC
+        ),
+        levels AS (
+            SELECT t.pharmacy_id, t.product_id, t.product_type, t.total_quantity,
+                   COALESCE(l.min_stock_level,
+                            CASE WHEN t.product_type = 0 THEN mp.min_stock_level ELSE pp.min_stock_level END) AS min_stock_level
+            FROM totals t
+            JOIN latest l ON l.product_id = t.product_id AND l.product_type = t.product_type
+            LEFT JOIN master_product mp ON t.product_type = 0 AND mp.id = t.product_id
+            LEFT JOIN pharmacy_product pp ON t.product_type = 1 AND pp.id = t.product_id
+        )
+        SELECT lv.pharmacy_id, p.name, lv.product_id, lv.product_type, lv.total_quantity, lv.min_stock_level
+        FROM levels lv
+        JOIN pharmacy p ON p.id = lv.pharmacy_id
+        WHERE lv.min_stock_level IS NOT NULL AND lv.total_quantity <= lv.min_stock_level
+        ORDER BY lv.pharmacy_id, lv.product_type, lv.product_id
+        """, nativeQuery = true)
+    List<Object[]> findLowStockProductsOfActivePharmacies(@Param("shardIndex") int shardIndex,
+                                                          @Param("shardCount") int shardCount);
+
     @Query("""
         SELECT DISTINCT si.productId, si.productType
         FROM StockItem si
@@ -114,10 +171,75 @@ public interface StockItemRepo extends JpaRepository<StockItem, Long> {
         """)
     List<Object[]> findUniqueProductsCombined(@Param("pharmacyId") Long pharmacyId);
     
+    /**
+     * ملخص المخزون لكل منتج في استعلام واحد مجمّع
+     * One grouped query returning per-product totals; sorting and paging come from the Pageable
+     * and may use any of the select aliases
+     */
+    @Query("""
+        SELECT si.productId AS productId,
+               si.productType AS productType,
+               MIN(si.id) AS firstStockItemId,
+               SUM(si.quantity) AS totalQuantity,
+               SUM(COALESCE(si.bonusQty, 0)) AS totalBonusQuantity,
+               SUM(CASE WHEN si.quantity > 0 AND si.actualPurchasePrice IS NOT NULL
+                        THEN si.quantity * si.actualPurchasePrice ELSE 0.0 END) AS totalValue,
+               MAX(si.actualPurchasePrice) AS fallbackPurchasePrice,
+               SUM(CASE WHEN si.quantity > 0 THEN COALESCE(si.remainingParts, 0) ELSE 0 END) AS remainingParts,
+               MIN(si.expiryDate) AS earliestExpiryDate,
+               MAX(si.expiryDate) AS latestExpiryDate,
+               COUNT(si) AS numberOfBatches,
+               SUM(CASE WHEN si.expiryDate < :today THEN 1 ELSE 0 END) AS expiredBatches,
+               SUM(CASE WHEN si.expiryDate > :today AND si.expiryDate < :expiringSoonDate THEN 1 ELSE 0 END) AS expiringSoonBatches
+        FROM StockItem si
+        WHERE si.pharmacy.id = :pharmacyId
+        GROUP BY si.productId, si.productType
+        """)
+    List<StockProductAggregate> findStockProductAggregates(
+        @Param("pharmacyId") Long pharmacyId,
+        @Param("today") LocalDate today,
+        @Param("expiringSoonDate") LocalDate expiringSoonDate,
+        Pageable pageable);
+    
+    @Query("SELECT COUNT(DISTINCT si.productId) FROM StockItem si WHERE si.pharmacy.id = :pharmacyId AND si.productType = :productType")
+    Long countDistinctProductsByPharmacyIdAndProductType(@Param("pharmacyId") Long pharmacyId, @Param("productType") ProductType productType);
+    
+    @Query("SELECT si FROM StockItem si WHERE si.pharmacy.id = :pharmacyId AND si.productId IN :productIds")
+    List<StockItem> findByPharmacyIdAndProductIdIn(@Param("pharmacyId") Long pharmacyId, @Param("productIds") Collection<Long> productIds);
+    
     @Query("SELECT COUNT(si) > 0 FROM StockItem si WHERE si.productId = :productId AND si.productType = :productType")
     Boolean existsByProductIdAndProductType(@Param("productId") Long productId, @Param("productType") ProductType productType);
     
     @Query("SELECT si FROM StockItem si WHERE si.productId = :productId AND si.productType = :productType ORDER BY si.createdAt DESC")
     List<StockItem> findByProductIdAndProductTypeOrderByDateAddedDesc(@Param("productId") Long productId, @Param("productType") ProductType productType);
+    
+    /**
+     * الحد الأدنى للمخزون من أحدث دفعة لكل منتج في الصيدلية
+     * minStockLevel of the most recently added stock item of each product in the pharmacy, one
+     * row per product. productType is the ProductType ordinal. Columns: product_id, min_stock_level.
+     */
+    @Query(value = """
+        SELECT DISTINCT ON (si.product_id) si.product_id, si.min_stock_level
+        FROM stock_item si
+        WHERE si.pharmacy_id = :pharmacyId
+          AND si.product_type = :productType
+          AND si.product_id IN (:productIds)
+        ORDER BY si.product_id, si.created_at DESC, si.id DESC
+        """, nativeQuery = true)
+    List<Object[]> findLatestMinStockLevels(@Param("pharmacyId") Long pharmacyId,
+                                            @Param("productIds") Collection<Long> productIds,
+                                            @Param("productType") int productType);
+
+    /**
+     * المنتجات الأكثر تخزيناً في الصيدليات
+     * Ids of the products in stock in the most pharmacies, then with the largest quantity
+     */
+    @Query("""
+        SELECT si.productId FROM StockItem si
+        WHERE si.productType = :productType AND si.quantity > 0
+        GROUP BY si.productId
+        ORDER BY COUNT(DISTINCT si.pharmacy.id) DESC, SUM(si.quantity) DESC
+        """)
+    List<Long> findMostStockedProductIds(@Param("productType") ProductType productType, Pageable pageable);
 }
             
\ No newline at end of file
@@ -1,8 +1,12 @@
 package com.Uqar.product.repo;
 
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.product.entity.Type;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
@@ -11,9 +15,17 @@ import java.util.Optional;
 public interface TypeRepo extends JpaRepository<Type, Long> {
     boolean existsByName(String name);
     
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     @Query("SELECT DISTINCT t FROM Type t LEFT JOIN FETCH t.translations tr LEFT JOIN FETCH tr.language")
     List<Type> findAllWithTranslations();
     
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     @Query("SELECT DISTINCT t FROM Type t LEFT JOIN FETCH t.translations tr LEFT JOIN FETCH tr.language WHERE t.id = :id")
     Optional<Type> findByIdWithTranslations(@Param("id") Long id);
 }
@@ -0,0 +1,218 @@
+package com.Uqar.product.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.repo.MasterProductRepo;
+import com.Uqar.product.repo.PharmacyProductRepo;
+import com.Uqar.product.repo.StockItemRepo;
+
+import lombok.RequiredArgsConstructor;
+
+import static com.Uqar.utils.TransactionCallbacks.afterCommit;
+
+/**
+ * فهرس الباركود لنقطة البيع
+ * In-memory barcode index used to resolve a scanned barcode to a product without a query.
+ *
+ * Master product barcodes are shared by every pharmacy and loaded once. Each pharmacy's own
+ * product barcodes and the barcodes recorded on its stock items are loaded on the first scan
+ * in that pharmacy. A pharmacy product barcode wins over a master barcode, which wins over a
+ * stock item barcode. The product services report changes through the reindex / remove
+ * methods, applied after their transaction commits; a barcode the index does not know is
+ * looked up in the database once, and a periodic reload corrects anything missed.
+ */
+@Component
+@RequiredArgsConstructor
+public class BarcodeIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BarcodeIndex.class);
+
+    private final MasterProductRepo masterProductRepo;
+    private final PharmacyProductRepo pharmacyProductRepo;
+    private final StockItemRepo stockItemRepo;
+
+    private volatile Map<String, Long> masterBarcodes;
+    private final Map<Long, PharmacyBarcodes> pharmacies = new ConcurrentHashMap<>();
+
+    /**
+     * المنتج المطابق للباركود في الصيدلية
+     * Product of the pharmacy for the scanned barcode
+     */
+    Optional<StockKey> resolve(Long pharmacyId, String barcode) {
+        if (barcode == null || barcode.isBlank()) {
+            return Optional.empty();
+        }
+        String code = barcode.trim();
+        PharmacyBarcodes pharmacy = pharmacy(pharmacyId);
+
+        Long productId = pharmacy.products.get(code);
+        if (productId != null) {
+            return Optional.of(new StockKey(productId, ProductType.PHARMACY));
+        }
+        productId = masterBarcodes().get(code);
+        if (productId != null) {
+            return Optional.of(new StockKey(productId, ProductType.MASTER));
+        }
+        StockKey stockKey = pharmacy.stockItems.get(code);
+        if (stockKey != null) {
+            return Optional.of(stockKey);
+        }
+
+        // Not indexed yet, e.g. created on another node since the last reload
+        Optional<Long> pharmacyProductId = pharmacyProductRepo.findIdByBarcodeAndPharmacyId(code, pharmacyId);
+        if (pharmacyProductId.isPresent()) {
+            pharmacy.products.put(code, pharmacyProductId.get());
+            return Optional.of(new StockKey(pharmacyProductId.get(), ProductType.PHARMACY));
+        }
+        Optional<Long> masterProductId = masterProductRepo.findIdByBarcode(code);
+        if (masterProductId.isPresent()) {
+            masterBarcodes().put(code, masterProductId.get());
+            return Optional.of(new StockKey(masterProductId.get(), ProductType.MASTER));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * إعادة فهرسة باركودات منتج صيدلية بعد نجاح المعاملة
+     * Re-read the barcodes of a pharmacy product once the transaction commits
+     */
+    public void reindexPharmacyProduct(Long pharmacyId, Long productId) {
+        afterCommit(() -> {
+            PharmacyBarcodes pharmacy = pharmacies.get(pharmacyId);
+            if (pharmacy != null) {
+                pharmacy.products.values().removeIf(productId::equals);
+                pharmacyProductRepo.findBarcodesByProductId(productId)
+                    .forEach(code -> pharmacy.products.put(code, productId));
+            }
+        });
+    }
+
+    /**
+     * حذف باركودات منتج صيدلية محذوف بعد نجاح المعاملة
+     * Drop the barcodes of a deleted pharmacy product once the transaction commits
+     */
+    public void removePharmacyProduct(Long pharmacyId, Long productId) {
+        afterCommit(() -> {
+            PharmacyBarcodes pharmacy = pharmacies.get(pharmacyId);
+            if (pharmacy != null) {
+                pharmacy.products.values().removeIf(productId::equals);
+            }
+        });
+    }
+
+    /**
+     * إعادة فهرسة باركود منتج مركزي بعد نجاح المعاملة
+     * Re-read the barcode of a master product once the transaction commits
+     */
+    public void reindexMasterProduct(Long productId) {
+        afterCommit(() -> {
+            Map<String, Long> barcodes = masterBarcodes;
+            if (barcodes != null) {
+                barcodes.values().removeIf(productId::equals);
+                masterProductRepo.findBarcodeById(productId).ifPresent(code -> barcodes.put(code, productId));
+            }
+        });
+    }
+
+    /**
+     * حذف باركود منتج مركزي محذوف بعد نجاح المعاملة
+     * Drop the barcode of a deleted master product once the transaction commits
+     */
+    public void removeMasterProduct(Long productId) {
+        afterCommit(() -> {
+            Map<String, Long> barcodes = masterBarcodes;
+            if (barcodes != null) {
+                barcodes.values().removeIf(productId::equals);
+            }
+        });
+    }
+
+    /**
+     * حذف منتج من الفهرس فوراً
+     * Drop a product right away, used when a scan found it no longer exists
+     */
+    void evict(Long pharmacyId, StockKey key) {
+        Map<String, Long> barcodes = masterBarcodes;
+        if (key.productType() == ProductType.MASTER && barcodes != null) {
+            barcodes.values().removeIf(key.productId()::equals);
+        }
+        PharmacyBarcodes pharmacy = pharmacies.get(pharmacyId);
+        if (pharmacy != null) {
+            if (key.productType() == ProductType.PHARMACY) {
+                pharmacy.products.values().removeIf(key.productId()::equals);
+            }
+            pharmacy.stockItems.values().removeIf(key::equals);
+        }
+    }
+
+    /**
+     * إعادة تحميل الفهرس من قاعدة البيانات بشكل دوري
+     * Periodically rebuild the loaded parts of the index from the database
+     */
+    @Scheduled(fixedDelayString = "${stock.barcode-index.reload-interval-ms:600000}",
+               initialDelayString = "${stock.barcode-index.reload-interval-ms:600000}")
+    public void reload() {
+        try {
+            if (masterBarcodes != null) {
+                masterBarcodes = loadMasterBarcodes();
+            }
+            for (Long pharmacyId : List.copyOf(pharmacies.keySet())) {
+                pharmacies.put(pharmacyId, loadPharmacy(pharmacyId));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to reload barcode index: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Long> masterBarcodes() {
+        Map<String, Long> barcodes = masterBarcodes;
+        if (barcodes == null) {
+            synchronized (this) {
+                barcodes = masterBarcodes;
+                if (barcodes == null) {
+                    barcodes = loadMasterBarcodes();
+                    masterBarcodes = barcodes;
+                }
+            }
+        }
+        return barcodes;
+    }
+
+    private PharmacyBarcodes pharmacy(Long pharmacyId) {
+        return pharmacies.computeIfAbsent(pharmacyId, this::loadPharmacy);
+    }
+
+    private Map<String, Long> loadMasterBarcodes() {
+        Map<String, Long> barcodes = new ConcurrentHashMap<>();
+        for (Object[] row : masterProductRepo.findAllBarcodeAndId()) {
+            barcodes.put((String) row[0], (Long) row[1]);
+        }
+        logger.info("Barcode index loaded {} master product barcodes", barcodes.size());
+        return barcodes;
+    }
+
+    private PharmacyBarcodes loadPharmacy(Long pharmacyId) {
+        PharmacyBarcodes pharmacy = new PharmacyBarcodes();
+        for (Object[] row : pharmacyProductRepo.findBarcodesByPharmacyId(pharmacyId)) {
+            pharmacy.products.put((String) row[0], (Long) row[1]);
+        }
+        for (Object[] row : stockItemRepo.findBarcodesByPharmacyId(pharmacyId)) {
+            pharmacy.stockItems.putIfAbsent((String) row[0], new StockKey((Long) row[1], (ProductType) row[2]));
+        }
+        return pharmacy;
+    }
+
+    private static class PharmacyBarcodes {
+        private final Map<String, Long> products = new ConcurrentHashMap<>();
+        private final Map<String, StockKey> stockItems = new ConcurrentHashMap<>();
+    }
+}
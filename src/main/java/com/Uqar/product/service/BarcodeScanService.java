@@ -0,0 +1,108 @@
+package com.Uqar.product.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.dto.BarcodeScanDTOResponse;
+import com.Uqar.product.dto.ProductSearchDTOResponse;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.mapper.ProductSearchMapper;
+import com.Uqar.product.repo.PharmacyProductRepo;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.user.repository.UserRepository;
+import com.Uqar.user.service.BaseSecurityService;
+import com.Uqar.utils.exception.ResourceNotFoundException;
+
+/**
+ * خدمة مسح الباركود في نقطة البيع
+ * Resolves a scanned barcode to the product and its sellable batches in one call.
+ *
+ * The barcode and the batch ids come from the in-memory {@link BarcodeIndex} and
+ * {@link StockBatchIndex} and a master product from {@link MasterProductCatalogue}; the database
+ * is read only for a pharmacy product with its translations and for the rows of the sellable batches.
+ */
+@Service
+@Transactional(readOnly = true)
+public class BarcodeScanService extends BaseSecurityService {
+
+    private final BarcodeIndex barcodeIndex;
+    private final StockBatchIndex stockBatchIndex;
+    private final StockAvailabilityCache stockAvailabilityCache;
+    private final StockItemRepo stockItemRepo;
+    private final MasterProductCatalogue masterProductCatalogue;
+    private final PharmacyProductRepo pharmacyProductRepo;
+    private final ProductSearchMapper productSearchMapper;
+
+    public BarcodeScanService(UserRepository userRepository,
+                              BarcodeIndex barcodeIndex,
+                              StockBatchIndex stockBatchIndex,
+                              StockAvailabilityCache stockAvailabilityCache,
+                              StockItemRepo stockItemRepo,
+                              MasterProductCatalogue masterProductCatalogue,
+                              PharmacyProductRepo pharmacyProductRepo,
+                              ProductSearchMapper productSearchMapper) {
+        super(userRepository);
+        this.barcodeIndex = barcodeIndex;
+        this.stockBatchIndex = stockBatchIndex;
+        this.stockAvailabilityCache = stockAvailabilityCache;
+        this.stockItemRepo = stockItemRepo;
+        this.masterProductCatalogue = masterProductCatalogue;
+        this.pharmacyProductRepo = pharmacyProductRepo;
+        this.productSearchMapper = productSearchMapper;
+    }
+
+    public BarcodeScanDTOResponse scan(String barcode, String lang) {
+        Long pharmacyId = getCurrentUserPharmacyId();
+        StockKey key = barcodeIndex.resolve(pharmacyId, barcode)
+            .orElseThrow(() -> new ResourceNotFoundException("No product found for barcode " + barcode));
+
+        int availableQuantity = stockAvailabilityCache.getAvailableQuantity(pharmacyId, key.productId(), key.productType());
+        ProductSearchDTOResponse product = loadProduct(key, pharmacyId, lang, availableQuantity);
+
+        List<Long> batchIds = stockBatchIndex.findSellableBatchIds(pharmacyId, key.productId(), key.productType(), LocalDate.now());
+        List<BarcodeScanDTOResponse.SellableBatchDTO> batches = batchIds.isEmpty() ? List.of()
+            : stockItemRepo.findAllById(batchIds).stream()
+                .filter(stockItem -> stockItem.getQuantity() != null && stockItem.getQuantity() > 0)
+                .sorted(StockBatchIndex.FEFO_ORDER)
+                .map(BarcodeScanService::toBatch)
+                .toList();
+
+        return BarcodeScanDTOResponse.builder()
+            .barcode(barcode.trim())
+            .product(product)
+            .availableQuantity(availableQuantity)
+            .batches(batches)
+            .build();
+    }
+
+    private ProductSearchDTOResponse loadProduct(StockKey key, Long pharmacyId, String lang, int quantity) {
+        if (key.productType() == ProductType.MASTER) {
+            return masterProductCatalogue.find(key.productId())
+                .map(product -> productSearchMapper.convertMasterProductToUnifiedDTO(product, lang, pharmacyId, quantity))
+                .orElseThrow(() -> staleEntry(pharmacyId, key));
+        }
+        return pharmacyProductRepo.findByIdAndPharmacyIdWithTranslations(key.productId(), pharmacyId)
+            .map(product -> productSearchMapper.convertPharmacyProductToUnifiedDTO(product, lang, pharmacyId, quantity))
+            .orElseThrow(() -> staleEntry(pharmacyId, key));
+    }
+
+    // The product was deleted after the index was loaded; drop it so the next scan looks again
+    private ResourceNotFoundException staleEntry(Long pharmacyId, StockKey key) {
+        barcodeIndex.evict(pharmacyId, key);
+        return new ResourceNotFoundException("Product with ID " + key.productId() + " not found");
+    }
+
+    private static BarcodeScanDTOResponse.SellableBatchDTO toBatch(StockItem stockItem) {
+        return BarcodeScanDTOResponse.SellableBatchDTO.builder()
+            .stockItemId(stockItem.getId())
+            .batchNo(stockItem.getBatchNo())
+            .expiryDate(stockItem.getExpiryDate())
+            .quantity(stockItem.getQuantity())
+            .remainingParts(stockItem.getRemainingParts())
+            .build();
+    }
+}
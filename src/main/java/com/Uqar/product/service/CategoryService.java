@@ -8,6 +8,7 @@ import com.Uqar.product.entity.CategoryTranslation;
 import com.Uqar.product.mapper.CategoryMapper;
 import com.Uqar.product.repo.CategoryRepo;
 import com.Uqar.product.repo.CategoryTranslationRepo;
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.language.Language;
 import com.Uqar.language.LanguageRepo;
 import com.Uqar.utils.exception.ConflictException;
@@ -29,13 +30,19 @@ public class CategoryService {
     private final CategoryMapper categoryMapper;
     private final LanguageRepo languageRepo;
     private final CategoryTranslationRepo categoryTranslationRepo;
+    private final ReferenceDataCache referenceDataCache;
+    private final MasterProductCatalogue masterProductCatalogue;
 
     public CategoryService(CategoryRepo categoryRepo, CategoryMapper categoryMapper, 
-                         LanguageRepo languageRepo, CategoryTranslationRepo categoryTranslationRepo) {
+                         LanguageRepo languageRepo, CategoryTranslationRepo categoryTranslationRepo,
+                         ReferenceDataCache referenceDataCache,
+                         MasterProductCatalogue masterProductCatalogue) {
         this.categoryRepo = categoryRepo;
         this.categoryMapper = categoryMapper;
         this.languageRepo = languageRepo;
         this.categoryTranslationRepo = categoryTranslationRepo;
+        this.referenceDataCache = referenceDataCache;
+        this.masterProductCatalogue = masterProductCatalogue;
     }
 
     public List<CategoryDTOResponse> getCategories(String lang) {
@@ -77,6 +84,7 @@ public class CategoryService {
 
         categoryTranslationRepo.saveAll(translations);
         savedCategory.setTranslations(new HashSet<>(translations));
+        referenceDataCache.evict(Category.class, savedCategory.getId());
 
         return categoryMapper.toResponse(savedCategory, lang);
     }
@@ -104,6 +112,10 @@ public class CategoryService {
                 categoryTranslationRepo.saveAll(translations);
             }
 
+            referenceDataCache.evict(Category.class, saved.getId());
+            // Cached master products carry the category with its translations
+            masterProductCatalogue.invalidateAll();
+
             // 🔁 إعادة تحميل الكائن من قاعدة البيانات بعد الحفظ والتحديث
             Category updated = categoryRepo.findByIdWithTranslations(saved.getId())
                     .orElseThrow(() -> new EntityNotFoundException("Updated category not found"));
@@ -118,6 +130,8 @@ public class CategoryService {
             throw new EntityNotFoundException("Category with ID " + id + " not found");
         }
         categoryRepo.deleteById(id);
+        referenceDataCache.evict(Category.class, id);
+        masterProductCatalogue.invalidateAll();
     }
 
     public List<MultiLangDTOResponse> getCategoriesMultiLang() {
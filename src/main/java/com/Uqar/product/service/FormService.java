@@ -9,6 +9,7 @@ import com.Uqar.product.entity.FormTranslation;
 import com.Uqar.product.mapper.FormMapper;
 import com.Uqar.product.repo.FormRepo;
 import com.Uqar.product.repo.FormTranslationRepo;
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.language.Language;
 import com.Uqar.language.LanguageRepo;
 import com.Uqar.utils.exception.ConflictException;
@@ -30,13 +31,19 @@ public class FormService {
     private final FormMapper formMapper;
     private final LanguageRepo languageRepo;
     private final FormTranslationRepo formTranslationRepo;
+    private final ReferenceDataCache referenceDataCache;
+    private final MasterProductCatalogue masterProductCatalogue;
 
     public FormService(FormRepo formRepo, FormMapper formMapper, 
-                      LanguageRepo languageRepo, FormTranslationRepo formTranslationRepo) {
+                      LanguageRepo languageRepo, FormTranslationRepo formTranslationRepo,
+                      ReferenceDataCache referenceDataCache,
+                      MasterProductCatalogue masterProductCatalogue) {
         this.formRepo = formRepo;
         this.formMapper = formMapper;
         this.languageRepo = languageRepo;
         this.formTranslationRepo = formTranslationRepo;
+        this.referenceDataCache = referenceDataCache;
+        this.masterProductCatalogue = masterProductCatalogue;
     }
 
     public List<FormDTOResponse> getForms(String lang) {
@@ -78,6 +85,7 @@ public class FormService {
 
         formTranslationRepo.saveAll(translations);
         savedForm.setTranslations(new HashSet<>(translations));
+        referenceDataCache.evict(Form.class, savedForm.getId());
 
         return formMapper.toResponse(savedForm, lang);
     }
@@ -105,6 +113,10 @@ public class FormService {
                 formTranslationRepo.saveAll(translations);
             }
 
+            referenceDataCache.evict(Form.class, saved.getId());
+            // Cached master products carry the form with its translations
+            masterProductCatalogue.invalidateAll();
+
             // 🔁 إعادة تحميل الكائن من قاعدة البيانات بعد الحفظ والتحديث
             Form updated = formRepo.findByIdWithTranslations(saved.getId())
                     .orElseThrow(() -> new EntityNotFoundException("Updated form not found"));
@@ -119,6 +131,8 @@ public class FormService {
             throw new EntityNotFoundException("Form with ID " + id + " not found");
         }
         formRepo.deleteById(id);
+        referenceDataCache.evict(Form.class, id);
+        masterProductCatalogue.invalidateAll();
     }
 
     
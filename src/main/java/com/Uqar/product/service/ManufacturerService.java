@@ -9,6 +9,7 @@ import com.Uqar.product.entity.ManufacturerTranslation;
 import com.Uqar.product.mapper.ManufacturerMapper;
 import com.Uqar.product.repo.ManufacturerRepo;
 import com.Uqar.product.repo.ManufacturerTranslationRepo;
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.language.Language;
 import com.Uqar.language.LanguageRepo;
 import com.Uqar.utils.exception.ConflictException;
@@ -30,15 +31,21 @@ public class ManufacturerService {
     private final ManufacturerMapper manufacturerMapper;
     private final LanguageRepo languageRepo;
     private final ManufacturerTranslationRepo manufacturerTranslationRepo;
+    private final ReferenceDataCache referenceDataCache;
+    private final MasterProductCatalogue masterProductCatalogue;
 
     public ManufacturerService(ManufacturerRepo manufacturerRepo,
                                ManufacturerMapper manufacturerMapper,
                                LanguageRepo languageRepo,
-                               ManufacturerTranslationRepo manufacturerTranslationRepo) {
+                               ManufacturerTranslationRepo manufacturerTranslationRepo,
+                               ReferenceDataCache referenceDataCache,
+                               MasterProductCatalogue masterProductCatalogue) {
         this.manufacturerRepo = manufacturerRepo;
         this.manufacturerMapper = manufacturerMapper;
         this.languageRepo = languageRepo;
         this.manufacturerTranslationRepo = manufacturerTranslationRepo;
+        this.referenceDataCache = referenceDataCache;
+        this.masterProductCatalogue = masterProductCatalogue;
     }
 
     public List<ManufacturerDTOResponse> getManufacturers(String lang) {
@@ -81,6 +88,7 @@ public class ManufacturerService {
 
         manufacturerTranslationRepo.saveAll(translations);
         savedManufacturer.setTranslations(new HashSet<>(translations));
+        referenceDataCache.evict(Manufacturer.class, savedManufacturer.getId());
 
         return manufacturerMapper.toResponse(savedManufacturer, lang);
     }
@@ -109,6 +117,10 @@ public class ManufacturerService {
                 manufacturerTranslationRepo.saveAll(translations);
             }
 
+            referenceDataCache.evict(Manufacturer.class, saved.getId());
+            // Cached master products carry the manufacturer with its translations
+            masterProductCatalogue.invalidateAll();
+
             // 🔁 إعادة تحميل الكائن من قاعدة البيانات بعد الحفظ والتحديث
             Manufacturer updated = manufacturerRepo.findByIdWithTranslations(saved.getId())
                     .orElseThrow(() -> new EntityNotFoundException("Updated manufacturer not found"));
@@ -123,6 +135,8 @@ public class ManufacturerService {
             throw new EntityNotFoundException("Manufacturer with ID " + id + " not found");
         }
         manufacturerRepo.deleteById(id);
+        referenceDataCache.evict(Manufacturer.class, id);
+        masterProductCatalogue.invalidateAll();
     }
 
     
@@ -0,0 +1,272 @@
+package com.Uqar.product.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.Category;
+import com.Uqar.product.entity.MasterProduct;
+import com.Uqar.product.entity.MasterProductTranslation;
+import com.Uqar.product.repo.MasterProductRepo;
+import com.Uqar.product.repo.StockItemRepo;
+
+import jakarta.persistence.EntityManager;
+
+import static com.Uqar.utils.TransactionCallbacks.afterCommit;
+
+/**
+ * كتالوج المنتجات المركزية في الذاكرة
+ * Read-through, size-bounded cache of the shared master product catalogue.
+ *
+ * Products are cached fully hydrated: translations with their language, categories,
+ * type, form and manufacturer with their translations, so the mappers never go back to
+ * the database. Callers get their own copy of the product and its translations, with
+ * unmodifiable collections; the categories, type, form, manufacturer and languages are
+ * shared reference data and must be treated as read-only. Code that changes a master
+ * product loads it from {@link MasterProductRepo} and reports the change through
+ * {@link #invalidate}, applied after its transaction commits. The least recently used
+ * products are dropped once the estimated size of the cache passes
+ * catalogue.master-product-cache.max-size-mb. The most stocked products are loaded at startup.
+ *
+ * Misses are loaded in a child session on the caller's connection, so a sale or purchase
+ * never holds a second pooled connection, and the loaded instances are never managed by the
+ * caller's persistence context. What a read-write transaction loads is only cached once it
+ * commits, since it may see the transaction's own uncommitted changes.
+ */
+@Component
+public class MasterProductCatalogue {
+
+    private static final Logger logger = LoggerFactory.getLogger(MasterProductCatalogue.class);
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+    // Same fetch as MasterProductRepo.findAllWithTranslationsByIdIn, run in the child session
+    private static final String LOAD_QUERY = "SELECT DISTINCT p FROM MasterProduct p LEFT JOIN FETCH p.translations tr"
+        + " LEFT JOIN FETCH tr.language LEFT JOIN FETCH p.categories WHERE p.id IN :ids";
+
+    private final EntityManager entityManager;
+    private final StockItemRepo stockItemRepo;
+    private final TransactionTemplate loadTransaction;
+    private final long maxWeight;
+    private final int warmUpSize;
+
+    private final LinkedHashMap<Long, CachedProduct> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    // Incremented on every invalidation, so a load that raced with a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public MasterProductCatalogue(EntityManager entityManager,
+                                  StockItemRepo stockItemRepo,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${catalogue.master-product-cache.max-size-mb:64}") long maxSizeMb,
+                                  @Value("${catalogue.master-product-cache.warm-up-size:2000}") int warmUpSize) {
+        this.entityManager = entityManager;
+        this.stockItemRepo = stockItemRepo;
+        // Joins the caller's transaction and connection, or opens a read-only one outside of it
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+        this.loadTransaction.setReadOnly(true);
+        this.maxWeight = maxSizeMb * 1024 * 1024;
+        this.warmUpSize = warmUpSize;
+    }
+
+    /**
+     * المنتج المركزي مع ترجماته
+     * Master product with its translations, loaded from the database on a miss
+     */
+    public Optional<MasterProduct> find(Long productId) {
+        if (productId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(findAll(List.of(productId)).get(productId));
+    }
+
+    /**
+     * المنتجات المركزية حسب المعرفات
+     * Master products by id; ids that do not exist are absent from the map
+     */
+    public Map<Long, MasterProduct> findAll(Collection<Long> productIds) {
+        Map<Long, MasterProduct> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (Long id : new LinkedHashSet<>(productIds)) {
+                if (id == null) {
+                    continue;
+                }
+                CachedProduct cached = entries.get(id);
+                if (cached != null) {
+                    found.put(id, new MasterProduct(cached.product()));
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+        for (int i = 0; i < missing.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            for (MasterProduct product : load(missing.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, missing.size())))) {
+                found.put(product.getId(), product);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * حذف منتج من الكتالوج بعد نجاح المعاملة
+     * Drop the product once the current transaction commits
+     */
+    public void invalidate(Long productId) {
+        if (productId != null) {
+            invalidate(List.of(productId));
+        }
+    }
+
+    public void invalidate(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = Set.copyOf(productIds);
+        afterCommit(() -> {
+            synchronized (entries) {
+                generation.incrementAndGet();
+                ids.forEach(this::remove);
+            }
+        });
+    }
+
+    /**
+     * إفراغ الكتالوج بعد نجاح المعاملة (عند تعديل التصنيفات أو الأشكال أو الأنواع أو الشركات)
+     * Drop every product once the current transaction commits, used when the categories,
+     * forms, types or manufacturers the cached products point to change
+     */
+    public void invalidateAll() {
+        afterCommit(() -> {
+            synchronized (entries) {
+                generation.incrementAndGet();
+                entries.clear();
+                totalWeight = 0;
+            }
+        });
+    }
+
+    /**
+     * تحميل المنتجات الأكثر تخزيناً عند بدء التشغيل
+     * Load the master products stocked by the most pharmacies at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (warmUpSize <= 0) {
+            return;
+        }
+        try {
+            List<Long> productIds = stockItemRepo.findMostStockedProductIds(ProductType.MASTER, PageRequest.of(0, warmUpSize));
+            int loaded = findAll(productIds).size();
+            synchronized (entries) {
+                logger.info("Master product catalogue warmed up with {} products (~{} KB)", loaded, totalWeight / 1024);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to warm up master product catalogue: {}", e.getMessage());
+        }
+    }
+
+    private List<MasterProduct> load(List<Long> productIds) {
+        long loadGeneration = generation.get();
+        List<CachedProduct> loaded = loadTransaction.execute(status -> {
+            try (Session session = entityManager.unwrap(Session.class).sessionWithOptions()
+                    .connection()
+                    .flushMode(FlushMode.MANUAL)
+                    .openSession()) {
+                session.setDefaultReadOnly(true);
+                return session.createQuery(LOAD_QUERY, MasterProduct.class)
+                    .setParameter("ids", productIds)
+                    .getResultList().stream()
+                    .map(product -> new CachedProduct(product, hydrate(product)))
+                    .toList();
+            }
+        });
+
+        // Outside a transaction this runs at once, inside one only if it commits
+        afterCommit(() -> {
+            synchronized (entries) {
+                if (generation.get() == loadGeneration) {
+                    loaded.forEach(this::put);
+                }
+            }
+        });
+        return loaded.stream().map(cached -> new MasterProduct(cached.product())).toList();
+    }
+
+    // Must be called with the lock held
+    private void put(CachedProduct cached) {
+        remove(cached.product().getId());
+        entries.put(cached.product().getId(), cached);
+        totalWeight += cached.weight();
+        var eldest = entries.values().iterator();
+        while (totalWeight > maxWeight && eldest.hasNext()) {
+            totalWeight -= eldest.next().weight();
+            eldest.remove();
+        }
+    }
+
+    // Must be called with the lock held
+    private void remove(Long productId) {
+        CachedProduct removed = entries.remove(productId);
+        if (removed != null) {
+            totalWeight -= removed.weight();
+        }
+    }
+
+    /**
+     * Initializes every association the mappers read and returns the estimated size in bytes
+     * of the product and its translations (the shared reference data is not counted)
+     */
+    private static long hydrate(MasterProduct product) {
+        long weight = 512 + sizeOf(product.getTradeName()) + sizeOf(product.getScientificName())
+            + sizeOf(product.getConcentration()) + sizeOf(product.getSize())
+            + sizeOf(product.getNotes()) + sizeOf(product.getBarcode());
+        for (MasterProductTranslation translation : product.getTranslations()) {
+            weight += 128 + sizeOf(translation.getTradeName()) + sizeOf(translation.getScientificName());
+            Hibernate.initialize(translation.getLanguage());
+        }
+        for (Category category : product.getCategories()) {
+            weight += 32;
+            category.getTranslations().forEach(t -> Hibernate.initialize(t.getLanguage()));
+        }
+        if (product.getType() != null) {
+            product.getType().getTranslations().forEach(t -> Hibernate.initialize(t.getLanguage()));
+        }
+        if (product.getForm() != null) {
+            product.getForm().getTranslations().forEach(t -> Hibernate.initialize(t.getLanguage()));
+        }
+        if (product.getManufacturer() != null) {
+            product.getManufacturer().getTranslations().forEach(t -> Hibernate.initialize(t.getLanguage()));
+        }
+        return weight;
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    private record CachedProduct(MasterProduct product, long weight) {
+    }
+}
@@ -39,6 +39,9 @@ public class MasterProductService extends BaseSecurityService {
     private final MasterProductTranslationRepo masterProductTranslationRepo;
     private final LanguageRepo languageRepo;
     private final StockItemRepo stockItemRepo;
+    private final ProductSearchEngine productSearchEngine;
+    private final BarcodeIndex barcodeIndex;
+    private final MasterProductCatalogue masterProductCatalogue;
 
     public MasterProductService(MasterProductRepo masterProductRepo,
                                MasterProductMapper masterProductMapper,
@@ -46,6 +49,9 @@ public class MasterProductService extends BaseSecurityService {
                                MasterProductTranslationRepo masterProductTranslationRepo,
                                LanguageRepo languageRepo,
                                StockItemRepo stockItemRepo,
+                               ProductSearchEngine productSearchEngine,
+                               BarcodeIndex barcodeIndex,
+                               MasterProductCatalogue masterProductCatalogue,
                                UserRepository userRepository) {
         super(userRepository);
         this.masterProductRepo = masterProductRepo;
@@ -54,6 +60,9 @@ public class MasterProductService extends BaseSecurityService {
         this.masterProductTranslationRepo = masterProductTranslationRepo;
         this.languageRepo = languageRepo;
         this.stockItemRepo = stockItemRepo;
+        this.productSearchEngine = productSearchEngine;
+        this.barcodeIndex = barcodeIndex;
+        this.masterProductCatalogue = masterProductCatalogue;
     }
 
 
@@ -75,7 +84,7 @@ public class MasterProductService extends BaseSecurityService {
     }
 
     public MProductDTOResponse getByID(long id, String lang) {
-        MasterProduct product = masterProductRepo.findByIdWithTranslations(id)
+        MasterProduct product = masterProductCatalogue.find(id)
                 .orElseThrow(() -> new EntityNotFoundException("Master Product with ID " + id + " not found"));
         return masterProductMapper.toResponse(product, lang);
     }
@@ -83,9 +92,8 @@ public class MasterProductService extends BaseSecurityService {
 
     public PaginationDTO<MProductDTOResponse> searchPaginated(SearchDTORequest requestDTO, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<MasterProduct> productPage = masterProductRepo.search(
+        Page<MasterProduct> productPage = productSearchEngine.searchMasterProducts(
                 requestDTO.getKeyword(),
-                requestDTO.getLang(),
                 pageable
         );
         
@@ -97,9 +105,8 @@ public class MasterProductService extends BaseSecurityService {
     }
     
     public Page<MProductDTOResponse> search(SearchDTORequest requestDTO , Pageable pageable) {
-        Page<MasterProduct> products = masterProductRepo.search(
+        Page<MasterProduct> products = productSearchEngine.searchMasterProducts(
                 requestDTO.getKeyword(),
-                requestDTO.getLang(),
                 pageable
         );
         return products.map(product -> masterProductMapper.toResponse(product, requestDTO.getLang()));
@@ -111,6 +118,7 @@ public class MasterProductService extends BaseSecurityService {
         }
         MasterProduct product = masterProductMapper.toEntity(requestDTO);
         MasterProduct saved = masterProductRepo.save(product);
+        barcodeIndex.reindexMasterProduct(saved.getId());
 
         // حفظ الترجمات إذا وجدت
         if (requestDTO.getTranslations() != null && !requestDTO.getTranslations().isEmpty()) {
@@ -142,6 +150,7 @@ public class MasterProductService extends BaseSecurityService {
         }
         MasterProduct product = masterProductMapper.toEntity(requestDTO);
         MasterProduct saved = masterProductRepo.save(product);
+        barcodeIndex.reindexMasterProduct(saved.getId());
 
         // حفظ الترجمات إذا وجدت
         if (requestDTO.getTranslations() != null && !requestDTO.getTranslations().isEmpty()) {
@@ -173,6 +182,8 @@ public class MasterProductService extends BaseSecurityService {
             MasterProduct updated = masterProductMapper.updateRequestToEntity(requestDTO);
             updated.setId(existing.getId());
             MasterProduct saved = masterProductRepo.save(updated);
+            barcodeIndex.reindexMasterProduct(saved.getId());
+            masterProductCatalogue.invalidate(saved.getId());
             return masterProductMapper.toResponse(saved, lang);
         }).orElseThrow(() -> new EntityNotFoundException("Master Product with ID " + id + " not found"));
     }
@@ -196,6 +207,8 @@ public class MasterProductService extends BaseSecurityService {
         }
         
         masterProductRepo.deleteById(id);
+        barcodeIndex.removeMasterProduct(id);
+        masterProductCatalogue.invalidate(id);
     }
 
     public List<ProductMultiLangDTOResponse> getMasterProductsMultiLang() {
@@ -207,7 +220,7 @@ public class MasterProductService extends BaseSecurityService {
     }
 
     public ProductMultiLangDTOResponse getMasterProductByIdMultiLang(Long id) {
-        MasterProduct product = masterProductRepo.findById(id)
+        MasterProduct product = masterProductCatalogue.find(id)
                 .orElseThrow(() -> new EntityNotFoundException("Master Product with ID " + id + " not found"));
         return masterProductMapper.toMultiLangResponse(product);
     }
@@ -231,6 +244,7 @@ public class MasterProductService extends BaseSecurityService {
         product.setUpdatedAt(java.time.LocalDateTime.now());
 
         MasterProduct saved = masterProductRepo.save(product);
+        masterProductCatalogue.invalidate(saved.getId());
         return masterProductMapper.toResponse(saved, lang);
     }
     
@@ -246,6 +260,7 @@ public class MasterProductService extends BaseSecurityService {
         product.setUpdatedAt(java.time.LocalDateTime.now());
         
         masterProductRepo.save(product);
+        masterProductCatalogue.invalidate(masterProductId);
     }
 
     /**
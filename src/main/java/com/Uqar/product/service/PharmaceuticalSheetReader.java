@@ -0,0 +1,150 @@
+package com.Uqar.product.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * قارئ ملف الأدوية سطراً بسطر
+ * Streams the first sheet of a pharmaceutical Excel file row by row.
+ *
+ * .xlsx files are parsed with the POI SAX event model, so only the current row (and the
+ * shared strings table) is held in memory whatever the file size. Legacy .xls files are
+ * limited to 65,536 rows and are read with the regular workbook model.
+ * The first non-empty row is the header; each data row is passed to the handler as
+ * trimmed header name -> formatted cell value, with its 1-based sheet row number.
+ */
+public final class PharmaceuticalSheetReader {
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(int rowNumber, Map<String, String> values);
+    }
+
+    private PharmaceuticalSheetReader() {
+    }
+
+    public static void read(Path file, RowHandler handler) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".xls")) {
+            readWorkbook(file, handler);
+        } else {
+            readXlsx(file, handler);
+        }
+    }
+
+    private static void readXlsx(Path file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IOException("Workbook has no sheets");
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, null, strings, new HeaderMappingHandler(handler), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Invalid Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    private static void readWorkbook(Path file, RowHandler handler) throws IOException {
+        DataFormatter formatter = new DataFormatter();
+        HeaderMappingHandler mapping = new HeaderMappingHandler(handler);
+        try (Workbook workbook = WorkbookFactory.create(file.toFile(), null, true)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            for (Row row : sheet) {
+                mapping.startRow(row.getRowNum());
+                for (Cell cell : row) {
+                    mapping.cell(cell.getAddress().formatAsString(), formatter.formatCellValue(cell), null);
+                }
+                mapping.endRow(row.getRowNum());
+            }
+        }
+    }
+
+    /**
+     * Collects the cells of the current row and maps them to the header names.
+     */
+    private static final class HeaderMappingHandler implements SheetContentsHandler {
+
+        private final RowHandler handler;
+        private final Map<Integer, String> cells = new HashMap<>();
+        private List<String> header;
+        private int nextColumn;
+
+        private HeaderMappingHandler(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+            nextColumn = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Some writers omit the reference; cells then come in column order
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+            if (formattedValue != null && !formattedValue.isBlank()) {
+                cells.put(column, formattedValue.trim());
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (cells.isEmpty()) {
+                return;
+            }
+            if (header == null) {
+                int width = cells.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+                header = new ArrayList<>(width);
+                for (int column = 0; column < width; column++) {
+                    header.add(cells.getOrDefault(column, ""));
+                }
+                return;
+            }
+            Map<String, String> values = new HashMap<>();
+            cells.forEach((column, value) -> {
+                if (column < header.size() && !header.get(column).isEmpty()) {
+                    values.put(header.get(column), value);
+                }
+            });
+            handler.row(rowNum + 1, values);
+        }
+    }
+}
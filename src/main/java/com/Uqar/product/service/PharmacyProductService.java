@@ -48,6 +48,7 @@ public class PharmacyProductService extends BaseSecurityService {
     private final PharmacyProductTranslationRepo pharmacyProductTranslationRepo;
     private final MasterProductRepo masterProductRepo;
     private final StockItemRepo stockItemRepo;
+    private final BarcodeIndex barcodeIndex;
 
     public PharmacyProductService(PharmacyProductRepo pharmacyProductRepo,
                                 PharmacyProductBarcodeRepo pharmacyProductBarcodeRepo,
@@ -56,6 +57,7 @@ public class PharmacyProductService extends BaseSecurityService {
                                 PharmacyProductTranslationRepo pharmacyProductTranslationRepo,
                                 MasterProductRepo masterProductRepo,
                                 StockItemRepo stockItemRepo,
+                                BarcodeIndex barcodeIndex,
                                 UserRepository userRepository) {
         super(userRepository);
         this.pharmacyProductRepo = pharmacyProductRepo;
@@ -65,6 +67,7 @@ public class PharmacyProductService extends BaseSecurityService {
         this.pharmacyProductTranslationRepo = pharmacyProductTranslationRepo;
         this.masterProductRepo = masterProductRepo;
         this.stockItemRepo = stockItemRepo;
+        this.barcodeIndex = barcodeIndex;
     }
 
 //    public Page<PharmacyProductListDTO> getPharmacyProduct(String lang, Pageable pageable) {
@@ -207,6 +210,7 @@ public class PharmacyProductService extends BaseSecurityService {
         
         PharmacyProduct product = pharmacyProductMapper.toEntity(requestDTO, currentPharmacyId);
         PharmacyProduct saved = pharmacyProductRepo.save(product);
+        barcodeIndex.reindexPharmacyProduct(currentPharmacyId, saved.getId());
 
         if (requestDTO.getTranslations() != null && !requestDTO.getTranslations().isEmpty()) {
             List<PharmacyProductTranslation> translations = requestDTO.getTranslations().stream()
@@ -273,6 +277,7 @@ public class PharmacyProductService extends BaseSecurityService {
             existing.setUpdatedAt(java.time.LocalDateTime.now());
             
             PharmacyProduct saved = pharmacyProductRepo.save(existing);
+            barcodeIndex.reindexPharmacyProduct(currentPharmacyId, id);
             
             System.out.println("🔍 DEBUG: After save - tradeName: " + saved.getTradeName() + ", scientificName: " + saved.getScientificName());
             
@@ -369,6 +374,7 @@ public class PharmacyProductService extends BaseSecurityService {
         }
         
         pharmacyProductRepo.deleteById(id);
+        barcodeIndex.removePharmacyProduct(currentPharmacyId, id);
     }
 
     public List<ProductMultiLangDTOResponse> getPharmacyProductsMultiLang() {
@@ -0,0 +1,244 @@
+package com.Uqar.product.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.MasterProduct;
+import com.Uqar.product.entity.PharmacyProduct;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.repo.PharmacyProductRepo;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.purchase.repository.PurchaseOrderItemRepo;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * محلل بيانات المنتجات على مستوى الطلب
+ * Request-scoped resolver for product metadata used by the stock mappers.
+ *
+ * Callers preload every (productId, ProductType) pair they are about to map, which loads
+ * pharmacy products, the latest minStockLevel in the pharmacy and the purchase order totals
+ * with one query per kind. Later lookups in the same HTTP request are served from memory. Outside of a web request (schedulers, async tasks) nothing is cached and
+ * every lookup goes straight to the repository, as before. Master products always come
+ * from the shared {@link MasterProductCatalogue}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductMetadataResolver {
+
+    private static final String CACHE_ATTRIBUTE = ProductMetadataResolver.class.getName() + ".CACHE";
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
+    private final PharmacyProductRepo pharmacyProductRepo;
+    private final MasterProductCatalogue masterProductCatalogue;
+    private final StockItemRepo stockItemRepo;
+    private final PurchaseOrderItemRepo purchaseOrderItemRepo;
+
+    /**
+     * تحميل بيانات المنتجات لجميع عناصر المخزون دفعة واحدة
+     * Preload product metadata for the given stock items
+     */
+    public void preload(Collection<StockItem> stockItems) {
+        preload(stockItems, false);
+    }
+
+    /**
+     * تحميل بيانات المنتجات مع الحد الأدنى للمخزون (إن طُلب)
+     * Preload product metadata and, optionally, the latest minStockLevel of each product
+     */
+    public void preload(Collection<StockItem> stockItems, boolean includeMinStockLevels) {
+        Set<Long> pharmacyProductIds = new LinkedHashSet<>();
+        Set<Long> masterProductIds = new LinkedHashSet<>();
+        for (StockItem stockItem : stockItems) {
+            if (stockItem.getProductType() == ProductType.PHARMACY) {
+                pharmacyProductIds.add(stockItem.getProductId());
+            } else if (stockItem.getProductType() == ProductType.MASTER) {
+                masterProductIds.add(stockItem.getProductId());
+            }
+        }
+        preloadProducts(pharmacyProductIds, masterProductIds);
+
+        if (includeMinStockLevels) {
+            Map<Long, List<StockItem>> byPharmacy = stockItems.stream()
+                .collect(Collectors.groupingBy(stockItem -> stockItem.getPharmacy().getId()));
+            byPharmacy.forEach((pharmacyId, items) -> preloadMinStockLevels(pharmacyId,
+                productIds(items, ProductType.PHARMACY), productIds(items, ProductType.MASTER)));
+        }
+    }
+
+    /**
+     * تحميل بيانات المنتجات حسب المعرفات مباشرة
+     * Preload product metadata by product ids
+     */
+    public void preloadProducts(Collection<Long> pharmacyProductIds, Collection<Long> masterProductIds) {
+        MetadataCache cache = currentCache();
+        if (cache == null) {
+            return;
+        }
+
+        List<Long> missingPharmacyIds = pharmacyProductIds.stream()
+            .filter(id -> id != null && !cache.pharmacyProducts.containsKey(id))
+            .distinct()
+            .toList();
+        for (List<Long> chunk : chunk(missingPharmacyIds)) {
+            for (PharmacyProduct product : pharmacyProductRepo.findAllWithTranslationsByIdIn(chunk)) {
+                cache.pharmacyProducts.put(product.getId(), Optional.of(product));
+            }
+            chunk.forEach(id -> cache.pharmacyProducts.putIfAbsent(id, Optional.empty()));
+        }
+
+        // Loads the missing master products into the shared catalogue in IN-query chunks
+        masterProductCatalogue.findAll(masterProductIds);
+    }
+
+    /**
+     * تحميل الحد الأدنى للمخزون من أحدث دفعة لكل منتج في الصيدلية
+     * Preload the latest minStockLevel of each product among the pharmacy's stock items
+     */
+    public void preloadMinStockLevels(Long pharmacyId, Collection<Long> pharmacyProductIds, Collection<Long> masterProductIds) {
+        MetadataCache cache = currentCache();
+        if (cache == null) {
+            return;
+        }
+        preloadMinStockLevels(cache, pharmacyId, ProductType.PHARMACY, pharmacyProductIds);
+        preloadMinStockLevels(cache, pharmacyId, ProductType.MASTER, masterProductIds);
+    }
+
+    /**
+     * تحميل إجمالي طلب الشراء لمنتجات عناصر المخزون دفعة واحدة
+     * Preload the purchase order total shown on each of the given stock items
+     */
+    public void preloadPurchaseOrderTotals(Collection<StockItem> stockItems) {
+        MetadataCache cache = currentCache();
+        if (cache == null) {
+            return;
+        }
+        for (ProductType productType : List.of(ProductType.PHARMACY, ProductType.MASTER)) {
+            List<Long> missingIds = productIds(stockItems, productType).stream()
+                .filter(id -> !cache.purchaseOrderTotals.containsKey(id + "_" + productType))
+                .toList();
+            for (List<Long> chunk : chunk(missingIds)) {
+                for (Object[] row : purchaseOrderItemRepo.findFirstPurchaseOrderTotals(chunk, productType.ordinal())) {
+                    cache.purchaseOrderTotals.put(row[0] + "_" + productType, totalOf(row));
+                }
+                chunk.forEach(id -> cache.purchaseOrderTotals.putIfAbsent(id + "_" + productType, 0));
+            }
+        }
+    }
+
+    public Optional<PharmacyProduct> findPharmacyProduct(Long productId) {
+        MetadataCache cache = currentCache();
+        if (cache == null) {
+            return pharmacyProductRepo.findById(productId);
+        }
+        return cache.pharmacyProducts.computeIfAbsent(productId, pharmacyProductRepo::findById);
+    }
+
+    public Optional<MasterProduct> findMasterProduct(Long productId) {
+        return masterProductCatalogue.find(productId);
+    }
+
+    /**
+     * الحد الأدنى للمخزون من أحدث دفعة للمنتج في الصيدلية (قد يكون null)
+     * minStockLevel of the pharmacy's most recently added stock item of the product, or null
+     */
+    public Integer findLatestStockItemMinLevel(Long pharmacyId, Long productId, ProductType productType) {
+        MetadataCache cache = currentCache();
+        String key = pharmacyId + "_" + productId + "_" + productType;
+        if (cache != null && cache.latestMinStockLevels.containsKey(key)) {
+            return cache.latestMinStockLevels.get(key);
+        }
+
+        List<Object[]> rows = stockItemRepo.findLatestMinStockLevels(pharmacyId, List.of(productId), productType.ordinal());
+        Integer minStockLevel = rows.isEmpty() ? null : (Integer) rows.get(0)[1];
+        if (cache != null) {
+            cache.latestMinStockLevels.put(key, minStockLevel);
+        }
+        return minStockLevel;
+    }
+
+    /**
+     * إجمالي أول طلب شراء يحتوي المنتج (0 إن لم يوجد)
+     * Total of the first purchase order containing the product, 0 when there is none
+     */
+    public Integer findPurchaseOrderTotal(Long productId, ProductType productType) {
+        MetadataCache cache = currentCache();
+        String key = productId + "_" + productType;
+        if (cache != null && cache.purchaseOrderTotals.containsKey(key)) {
+            return cache.purchaseOrderTotals.get(key);
+        }
+
+        List<Object[]> rows = purchaseOrderItemRepo.findFirstPurchaseOrderTotals(List.of(productId), productType.ordinal());
+        Integer total = rows.isEmpty() ? 0 : totalOf(rows.get(0));
+        if (cache != null) {
+            cache.purchaseOrderTotals.put(key, total);
+        }
+        return total;
+    }
+
+    private void preloadMinStockLevels(MetadataCache cache, Long pharmacyId, ProductType productType, Collection<Long> productIds) {
+        String prefix = pharmacyId + "_";
+        List<Long> missingIds = productIds.stream()
+            .filter(id -> id != null && !cache.latestMinStockLevels.containsKey(prefix + id + "_" + productType))
+            .distinct()
+            .toList();
+        for (List<Long> chunk : chunk(missingIds)) {
+            // One row per product: its latest stock item in the pharmacy (DISTINCT ON)
+            for (Object[] row : stockItemRepo.findLatestMinStockLevels(pharmacyId, chunk, productType.ordinal())) {
+                cache.latestMinStockLevels.put(prefix + row[0] + "_" + productType, (Integer) row[1]);
+            }
+            chunk.forEach(id -> cache.latestMinStockLevels.putIfAbsent(prefix + id + "_" + productType, null));
+        }
+    }
+
+    private static List<Long> productIds(Collection<StockItem> stockItems, ProductType productType) {
+        return stockItems.stream()
+            .filter(stockItem -> stockItem.getProductType() == productType && stockItem.getProductId() != null)
+            .map(StockItem::getProductId)
+            .distinct()
+            .toList();
+    }
+
+    private static Integer totalOf(Object[] row) {
+        return row[1] != null ? ((Number) row[1]).intValue() : 0;
+    }
+
+    private MetadataCache currentCache() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        MetadataCache cache = (MetadataCache) attributes.getAttribute(CACHE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cache == null) {
+            cache = new MetadataCache();
+            attributes.setAttribute(CACHE_ATTRIBUTE, cache, RequestAttributes.SCOPE_REQUEST);
+        }
+        return cache;
+    }
+
+    private static List<List<Long>> chunk(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    private static class MetadataCache {
+        private final Map<Long, Optional<PharmacyProduct>> pharmacyProducts = new HashMap<>();
+        private final Map<String, Integer> latestMinStockLevels = new HashMap<>();
+        private final Map<String, Integer> purchaseOrderTotals = new HashMap<>();
+    }
+}
@@ -0,0 +1,55 @@
+package com.Uqar.product.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.Uqar.product.dto.ProductSearchHit;
+import com.Uqar.utils.exception.RequestNotValidException;
+
+/**
+ * مؤشر الصفحة في البحث الموحد
+ * Position of the last returned row in the unified search order (score DESC, kind, id).
+ * The next page starts strictly after it, so no row is skipped or repeated between pages.
+ */
+record ProductSearchCursor(float score, int kind, long id) {
+
+    // Sorts before every real row: scores are at most 4, kinds and ids are not negative
+    static final ProductSearchCursor START = new ProductSearchCursor(Float.MAX_VALUE, -1, -1L);
+
+    static ProductSearchCursor after(ProductSearchHit hit) {
+        return new ProductSearchCursor(hit.getScore(), hit.getKind(), hit.getId());
+    }
+
+    static ProductSearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            return new ProductSearchCursor(Float.parseFloat(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new RequestNotValidException("Invalid search cursor");
+        }
+    }
+
+    String encode() {
+        String value = score + ":" + kind + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * آخر معرف منتج مركزي ومنتج صيدلية تم عرضه عند التصفح بدون كلمة بحث
+     * For browsing without a keyword (score is always 0): the master id to continue after,
+     * or Long.MAX_VALUE once the master products are exhausted
+     */
+    long masterAfterId() {
+        if (kind < 0) {
+            return 0L;
+        }
+        return kind == 0 ? id : Long.MAX_VALUE;
+    }
+
+    long pharmacyAfterId() {
+        return kind < 1 ? 0L : id;
+    }
+}
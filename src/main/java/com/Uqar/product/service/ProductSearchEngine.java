@@ -0,0 +1,100 @@
+package com.Uqar.product.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.Uqar.product.dto.ProductSearchHit;
+import com.Uqar.product.entity.MasterProduct;
+import com.Uqar.product.entity.PharmacyProduct;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.repo.MasterProductRepo;
+import com.Uqar.product.repo.PharmacyProductRepo;
+import com.Uqar.product.repo.StockItemRepo;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * محرك البحث في المنتجات والمخزون
+ * Product and stock search backed by the trigram indexes on normalized names.
+ *
+ * Keywords are folded with {@link ProductSearchTerm} so "أموكسيسيلين" finds "اموكسيسيلين" and
+ * "PANADOL" finds "Panadol". The ranked queries return one page of ids, best match first
+ * (exact name or barcode, then prefix, then substring, then fuzzy); the entities of that page
+ * are then loaded with their translations (master products from {@link MasterProductCatalogue})
+ * and put back in rank order.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchEngine {
+
+    private final MasterProductRepo masterProductRepo;
+    private final PharmacyProductRepo pharmacyProductRepo;
+    private final StockItemRepo stockItemRepo;
+    private final MasterProductCatalogue masterProductCatalogue;
+
+    public Page<MasterProduct> searchMasterProducts(String keyword, Pageable pageable) {
+        ProductSearchTerm term = ProductSearchTerm.of(keyword);
+        if (term.isBlank()) {
+            return masterProductRepo.findAll(pageable);
+        }
+        Page<Long> ids = masterProductRepo.searchRankedIds(term.term(), term.contains(), unsorted(pageable));
+        List<MasterProduct> products = ids.isEmpty() ? List.of()
+                : inRankOrder(ids.getContent(), masterProductCatalogue.findAll(ids.getContent()).values(), MasterProduct::getId);
+        return new PageImpl<>(products, pageable, ids.getTotalElements());
+    }
+
+    public List<StockItem> searchStockItems(String keyword, Long pharmacyId) {
+        ProductSearchTerm term = ProductSearchTerm.of(keyword);
+        if (term.isBlank()) {
+            return stockItemRepo.findByPharmacyId(pharmacyId);
+        }
+        return stockItemRepo.searchStockItems(term.term(), term.contains(), pharmacyId);
+    }
+
+    /**
+     * صفحة من البحث الموحد بعد المؤشر المعطى
+     * One keyset page of master and pharmacy products merged in SQL, with their stock quantity.
+     * Without a keyword all products are listed by (kind, id).
+     */
+    List<ProductSearchHit> searchUnified(String keyword, Long pharmacyId, ProductSearchCursor after, int limit) {
+        ProductSearchTerm term = ProductSearchTerm.of(keyword);
+        if (term.isBlank()) {
+            return pharmacyProductRepo.browseUnifiedAfter(pharmacyId, after.masterAfterId(), after.pharmacyAfterId(), limit);
+        }
+        return pharmacyProductRepo.searchUnifiedAfter(term.term(), term.contains(), pharmacyId,
+                after.score(), after.kind(), after.id(), limit);
+    }
+
+    public Map<Long, MasterProduct> masterProductsById(Collection<Long> ids) {
+        return masterProductCatalogue.findAll(ids);
+    }
+
+    public Map<Long, PharmacyProduct> pharmacyProductsById(Collection<Long> ids) {
+        return ids.isEmpty() ? Map.of()
+                : byId(pharmacyProductRepo.findAllWithTranslationsByIdIn(ids), PharmacyProduct::getId);
+    }
+
+    // Relevance decides the order, so a sort on the request would only break the ranked SQL
+    private static Pageable unsorted(Pageable pageable) {
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()) : pageable;
+    }
+
+    private static <T> List<T> inRankOrder(List<Long> rankedIds, Collection<T> entities, Function<T, Long> idOf) {
+        Map<Long, T> byId = byId(entities, idOf);
+        return rankedIds.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static <T> Map<Long, T> byId(Collection<T> entities, Function<T, Long> idOf) {
+        return entities.stream().collect(Collectors.toMap(idOf, Function.identity(), (a, b) -> a));
+    }
+}
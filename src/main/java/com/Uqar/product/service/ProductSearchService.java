@@ -1,105 +1,85 @@
 package com.Uqar.product.service;
 
+import com.Uqar.product.Enum.ProductType;
 import com.Uqar.product.dto.ProductSearchDTOResponse;
+import com.Uqar.product.dto.ProductSearchHit;
 import com.Uqar.product.entity.MasterProduct;
 import com.Uqar.product.entity.PharmacyProduct;
 import com.Uqar.product.mapper.ProductSearchMapper;
-import com.Uqar.product.repo.MasterProductRepo;
-import com.Uqar.product.repo.PharmacyProductRepo;
 import com.Uqar.user.repository.UserRepository;
 import com.Uqar.user.service.BaseSecurityService;
+import com.Uqar.utils.exception.RequestNotValidException;
+import com.Uqar.utils.response.CursorPageDTO;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import com.Uqar.product.dto.PaginationDTO;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductSearchService extends BaseSecurityService {
 
-    private final MasterProductRepo masterProductRepo;
-    private final PharmacyProductRepo pharmacyProductRepo;
+    private final ProductSearchEngine productSearchEngine;
     private final ProductSearchMapper productSearchMapper;
 
-    protected ProductSearchService(UserRepository userRepository, 
-                                 MasterProductRepo masterProductRepo, 
-                                 PharmacyProductRepo pharmacyProductRepo,
+    protected ProductSearchService(UserRepository userRepository,
+                                 ProductSearchEngine productSearchEngine,
                                  ProductSearchMapper productSearchMapper) {
         super(userRepository);
-        this.masterProductRepo = masterProductRepo;
-        this.pharmacyProductRepo = pharmacyProductRepo;
+        this.productSearchEngine = productSearchEngine;
         this.productSearchMapper = productSearchMapper;
     }
 
-    public PaginationDTO<ProductSearchDTOResponse> searchProductsPaginated(String keyword, String lang, int page, int size) {
+    /**
+     * البحث الموحد في المنتجات المركزية ومنتجات الصيدلية
+     * Search master and pharmacy products as one list, best match first.
+     * Pass the nextCursor of the previous page to get the following page.
+     */
+    public CursorPageDTO<ProductSearchDTOResponse> searchProductsPaginated(String keyword, String lang, String cursor, int size) {
+        if (size < 1) {
+            throw new RequestNotValidException("Page size must be at least 1");
+        }
         Long currentPharmacyId = getCurrentUserPharmacyId();
-        
-        Pageable pageable = PageRequest.of(page, size);
-        Page<MasterProduct> masterProductsPage = masterProductRepo.search(keyword, lang, pageable);
-        Page<PharmacyProduct> pharmacyProductsPage = pharmacyProductRepo.searchByPharmacyId(keyword, lang, currentPharmacyId, pageable);
-        
-        List<ProductSearchDTOResponse> masterResults = masterProductsPage.getContent().stream()
-                .map(product -> productSearchMapper.convertMasterProductToUnifiedDTO(product, lang, currentPharmacyId))
-                .collect(Collectors.toList());
-                
-        List<ProductSearchDTOResponse> pharmacyResults = pharmacyProductsPage.getContent().stream()
-                .map(product -> productSearchMapper.convertPharmacyProductToUnifiedDTO(product, lang, currentPharmacyId))
-                .collect(Collectors.toList());
-        
-        List<ProductSearchDTOResponse> combinedResults = new ArrayList<>();
-        combinedResults.addAll(masterResults);
-        combinedResults.addAll(pharmacyResults);
-        
-        long totalElements = masterProductsPage.getTotalElements() + pharmacyProductsPage.getTotalElements();
-        
-        return new PaginationDTO<>(combinedResults, page, size, totalElements);
-    }
-    
-    public Page<ProductSearchDTOResponse> searchProducts(String keyword, String lang, Pageable pageable) {
-        Long currentPharmacyId = getCurrentUserPharmacyId();
-        
-        Page<MasterProduct> masterProductsPage = masterProductRepo.search(keyword, lang, pageable);
-        Page<PharmacyProduct> pharmacyProductsPage = pharmacyProductRepo.searchByPharmacyId(keyword, lang, currentPharmacyId, pageable);
-        
-        List<ProductSearchDTOResponse> masterResults = masterProductsPage.getContent().stream()
-                .map(product -> productSearchMapper.convertMasterProductToUnifiedDTO(product, lang, currentPharmacyId))
-                .collect(Collectors.toList());
-                
-        List<ProductSearchDTOResponse> pharmacyResults = pharmacyProductsPage.getContent().stream()
-                .map(product -> productSearchMapper.convertPharmacyProductToUnifiedDTO(product, lang, currentPharmacyId))
-                .collect(Collectors.toList());
-        
-        List<ProductSearchDTOResponse> combinedResults = new ArrayList<>();
-        combinedResults.addAll(masterResults);
-        combinedResults.addAll(pharmacyResults);
-        
-        return new org.springframework.data.domain.PageImpl<>(
-            combinedResults,
-            pageable,
-            masterProductsPage.getTotalElements() + pharmacyProductsPage.getTotalElements()
-        );
-    }
 
-    public PaginationDTO<ProductSearchDTOResponse> getAllProductsPaginated(String lang, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<ProductSearchDTOResponse> productPage = searchProducts("", lang, pageable);
-        
-        return new PaginationDTO<>(
-            productPage.getContent(),
-            page,
-            size,
-            productPage.getTotalElements()
-        );
-    }
-    
-    public Page<ProductSearchDTOResponse> getAllProducts(String lang, Pageable pageable) {
-        return searchProducts("", lang, pageable);
+        // One extra row tells whether another page exists
+        List<ProductSearchHit> hits = productSearchEngine.searchUnified(
+                keyword, currentPharmacyId, ProductSearchCursor.decode(cursor), size + 1);
+        boolean hasNext = hits.size() > size;
+        List<ProductSearchHit> pageHits = hasNext ? hits.subList(0, size) : hits;
+
+        Map<Long, MasterProduct> masterProducts = productSearchEngine.masterProductsById(idsOfKind(pageHits, ProductType.MASTER));
+        Map<Long, PharmacyProduct> pharmacyProducts = productSearchEngine.pharmacyProductsById(idsOfKind(pageHits, ProductType.PHARMACY));
+
+        List<ProductSearchDTOResponse> results = new ArrayList<>(pageHits.size());
+        for (ProductSearchHit hit : pageHits) {
+            Integer quantity = hit.getQuantity() != null ? hit.getQuantity().intValue() : 0;
+            if (hit.getKind() == ProductType.MASTER.ordinal()) {
+                MasterProduct product = masterProducts.get(hit.getId());
+                if (product != null) {
+                    results.add(productSearchMapper.convertMasterProductToUnifiedDTO(product, lang, currentPharmacyId, quantity));
+                }
+            } else {
+                PharmacyProduct product = pharmacyProducts.get(hit.getId());
+                if (product != null) {
+                    results.add(productSearchMapper.convertPharmacyProductToUnifiedDTO(product, lang, currentPharmacyId, quantity));
+                }
+            }
+        }
+
+        String nextCursor = hasNext ? ProductSearchCursor.after(pageHits.get(pageHits.size() - 1)).encode() : null;
+        return new CursorPageDTO<>(results, size, nextCursor, hasNext);
     }
 
+    public CursorPageDTO<ProductSearchDTOResponse> getAllProductsPaginated(String lang, String cursor, int size) {
+        return searchProductsPaginated("", lang, cursor, size);
+    }
 
-} 
\ No newline at end of file
+    private static List<Long> idsOfKind(List<ProductSearchHit> hits, ProductType productType) {
+        return hits.stream()
+                .filter(hit -> hit.getKind() == productType.ordinal())
+                .map(ProductSearchHit::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,61 @@
+package com.Uqar.product.service;
+
+import java.util.Locale;
+
+/**
+ * كلمة البحث بعد التطبيع
+ * A search keyword folded to the same form as the uqar_search_normalize() SQL function,
+ * so it can be matched against the trigram indexes on product and stock item names.
+ *
+ * @param term     normalized keyword, used for exact, prefix and fuzzy matching
+ * @param contains LIKE pattern for substring matching, with wildcards in the keyword escaped
+ */
+public record ProductSearchTerm(String term, String contains) {
+
+    private static final String FROM = "أإآٱىئؤة٠١٢٣٤٥٦٧٨٩۰۱۲۳۴۵۶۷۸۹";
+    private static final String TO = "ااااييوه01234567890123456789";
+
+    public static ProductSearchTerm of(String keyword) {
+        String term = normalize(keyword);
+        return new ProductSearchTerm(term, "%" + escapeLike(term) + "%");
+    }
+
+    public boolean isBlank() {
+        return term.isEmpty();
+    }
+
+    /**
+     * نفس قواعد الدالة uqar_search_normalize في قاعدة البيانات
+     * Same rules as uqar_search_normalize(): lower case, strip tashkeel and tatweel,
+     * unify alef / yaa / waw hamza forms, ة as ه, Arabic-Indic digits as western digits
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(lower.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if ((c >= '\u064B' && c <= '\u065F') || c == '\u0670' || c == '\u0640') {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            int mapped = FROM.indexOf(c);
+            normalized.append(mapped >= 0 ? TO.charAt(mapped) : c);
+        }
+        return normalized.toString();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,211 @@
+package com.Uqar.product.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.repo.StockItemRepo;
+
+import lombok.RequiredArgsConstructor;
+
+import static com.Uqar.utils.TransactionCallbacks.afterCommit;
+
+/**
+ * كاش الكميات المتاحة في المخزون مقسم حسب الصيدلية
+ * In-memory cache of available stock quantities, partitioned by pharmacy.
+ *
+ * The cached value of (pharmacyId, productId, ProductType) is the same figure as
+ * {@link StockItemRepo#getTotalQuantity}: the sum of all positive batch quantities.
+ * Entries are loaded lazily on first use and kept up to date by the services that
+ * change stock, which report deltas through {@link #adjust}. Deltas are applied only
+ * after the surrounding transaction commits, so a rolled back sale never touches the
+ * cache. A scheduled reconciliation reloads every cached pharmacy from the database
+ * to correct any drift (direct SQL, other nodes, lost updates).
+ *
+ * Only committed quantities are stored: a miss inside a read-write transaction is answered
+ * from that transaction's view (which may include its own uncommitted deductions) but not
+ * cached, and a loaded value is dropped when a delta of the same pharmacy was applied while
+ * it was being read, since the delta may or may not be part of it.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockAvailabilityCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockAvailabilityCache.class);
+
+    private final StockItemRepo stockItemRepo;
+
+    private final Map<Long, PharmacyQuantities> pharmacies = new ConcurrentHashMap<>();
+
+    /**
+     * الكمية المتاحة للمنتج في الصيدلية
+     * Available quantity of the product in the pharmacy, loaded from the database on a miss
+     */
+    public int getAvailableQuantity(Long pharmacyId, Long productId, ProductType productType) {
+        PharmacyQuantities pharmacy = pharmacies.computeIfAbsent(pharmacyId, id -> new PharmacyQuantities());
+        StockKey key = new StockKey(productId, productType);
+        Integer cached = pharmacy.quantities.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return load(pharmacy, pharmacyId, key);
+    }
+
+    /**
+     * قراءة الكمية من قاعدة البيانات وتحديث الكاش بها
+     * Reload the quantity from the database, bypassing the cached value
+     */
+    public int refresh(Long pharmacyId, Long productId, ProductType productType) {
+        PharmacyQuantities pharmacy = pharmacies.computeIfAbsent(pharmacyId, id -> new PharmacyQuantities());
+        return load(pharmacy, pharmacyId, new StockKey(productId, productType));
+    }
+
+    /**
+     * تعديل الكمية المخزنة بمقدار معين بعد نجاح المعاملة
+     * Apply a quantity delta once the current transaction commits.
+     * Products that are not cached yet are left alone and will be loaded on next use.
+     */
+    public void adjust(Long pharmacyId, Long productId, ProductType productType, int delta) {
+        if (pharmacyId == null || productId == null || productType == null || delta == 0) {
+            return;
+        }
+        afterCommit(() -> change(pharmacyId, quantities ->
+            quantities.computeIfPresent(new StockKey(productId, productType),
+                (key, quantity) -> Math.max(0, quantity + delta))));
+    }
+
+    /**
+     * فرق الكمية المتاحة عند تغيير كمية دفعة من oldQuantity إلى newQuantity
+     * Delta in available quantity when a batch goes from oldQuantity to newQuantity.
+     * Batches at or below zero do not count towards availability.
+     */
+    public static int availableDelta(Integer oldQuantity, Integer newQuantity) {
+        int before = oldQuantity != null ? Math.max(0, oldQuantity) : 0;
+        int after = newQuantity != null ? Math.max(0, newQuantity) : 0;
+        return after - before;
+    }
+
+    /**
+     * حذف منتج من الكاش بعد نجاح المعاملة
+     * Drop a single product once the current transaction commits
+     */
+    public void evict(Long pharmacyId, Long productId, ProductType productType) {
+        afterCommit(() -> change(pharmacyId, quantities -> quantities.remove(new StockKey(productId, productType))));
+    }
+
+    /**
+     * حذف جميع منتجات الصيدلية من الكاش بعد نجاح المعاملة
+     * Drop every cached product of the pharmacy once the current transaction commits
+     */
+    public void evictPharmacy(Long pharmacyId) {
+        afterCommit(() -> pharmacies.remove(pharmacyId));
+    }
+
+    /**
+     * مطابقة الكاش مع قاعدة البيانات بشكل دوري
+     * Periodically reconcile every cached pharmacy with the database
+     */
+    @Scheduled(fixedDelayString = "${stock.availability-cache.reconcile-interval-ms:300000}",
+               initialDelayString = "${stock.availability-cache.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        for (Long pharmacyId : List.copyOf(pharmacies.keySet())) {
+            try {
+                reconcilePharmacy(pharmacyId);
+            } catch (Exception e) {
+                logger.error("Failed to reconcile stock availability cache for pharmacy {}: {}", pharmacyId, e.getMessage());
+            }
+        }
+    }
+
+    private void reconcilePharmacy(Long pharmacyId) {
+        PharmacyQuantities pharmacy = pharmacies.get(pharmacyId);
+        if (pharmacy == null) {
+            return;
+        }
+
+        long version = pharmacy.version();
+        Map<StockKey, Integer> actual = new HashMap<>();
+        for (Object[] row : stockItemRepo.sumAvailableQuantitiesByPharmacyId(pharmacyId)) {
+            actual.put(new StockKey((Long) row[0], (ProductType) row[1]), ((Number) row[2]).intValue());
+        }
+
+        int drifted = 0;
+        synchronized (pharmacy) {
+            if (pharmacy.changes != version) {
+                // A sale committed while the sums were read; try again next round
+                logger.debug("Skipped reconciling stock availability cache for pharmacy {}: changed while loading", pharmacyId);
+                return;
+            }
+            for (Map.Entry<StockKey, Integer> entry : pharmacy.quantities.entrySet()) {
+                int expected = actual.getOrDefault(entry.getKey(), 0);
+                if (entry.getValue() != expected) {
+                    drifted++;
+                    pharmacy.quantities.put(entry.getKey(), expected);
+                }
+            }
+        }
+
+        if (drifted > 0) {
+            logger.warn("Stock availability cache for pharmacy {} had {} drifted products, corrected from database",
+                       pharmacyId, drifted);
+        }
+    }
+
+    /**
+     * Load one quantity and store it when it is known to be committed and no delta of the
+     * pharmacy was applied meanwhile
+     */
+    private int load(PharmacyQuantities pharmacy, Long pharmacyId, StockKey key) {
+        long version = pharmacy.version();
+        Integer quantity = stockItemRepo.getTotalQuantity(key.productId(), pharmacyId, key.productType());
+        int loaded = quantity != null ? quantity : 0;
+        if (readsCommittedState()) {
+            synchronized (pharmacy) {
+                if (pharmacy.changes == version) {
+                    pharmacy.quantities.put(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private void change(Long pharmacyId, Consumer<Map<StockKey, Integer>> update) {
+        PharmacyQuantities pharmacy = pharmacies.get(pharmacyId);
+        if (pharmacy == null) {
+            return;
+        }
+        synchronized (pharmacy) {
+            pharmacy.changes++;
+            update.accept(pharmacy.quantities);
+        }
+    }
+
+    /**
+     * خارج معاملة كتابة لا توجد تعديلات غير مؤكدة في القراءة
+     * Outside a read-write transaction a read cannot see uncommitted stock changes
+     */
+    private static boolean readsCommittedState() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+            || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+
+    private static final class PharmacyQuantities {
+        private final Map<StockKey, Integer> quantities = new ConcurrentHashMap<>();
+        // Committed deltas and evictions applied so far; guarded by this object's lock
+        private long changes;
+
+        synchronized long version() {
+            return changes;
+        }
+    }
+}
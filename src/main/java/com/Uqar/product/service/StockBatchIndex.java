@@ -0,0 +1,205 @@
+package com.Uqar.product.service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.repo.StockItemRepo;
+
+import lombok.RequiredArgsConstructor;
+
+import static com.Uqar.utils.TransactionCallbacks.afterCommit;
+
+/**
+ * فهرس الدفعات المتاحة لكل منتج مرتب حسب تاريخ الانتهاء (FEFO)
+ * Per-pharmacy in-memory index of sellable batches, ordered first-expiry-first-out.
+ *
+ * Each product is loaded once with one query and then kept current by the services that
+ * change stock: they report touched batches through {@link #update} and {@link #remove},
+ * which are applied after the transaction commits, and a periodic reload corrects anything
+ * missed. The index only proposes candidate batches; the sale still locks and re-checks the
+ * real rows before deducting.
+ * The same events are forwarded to {@link StockExpiryIndex}.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockBatchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockBatchIndex.class);
+
+    /**
+     * ترتيب FEFO: الأقرب انتهاءً أولاً، الدفعات بدون تاريخ انتهاء في النهاية، ثم حسب المعرف
+     * FEFO order: earliest expiry first, batches without expiry last, then by id
+     */
+    public static final Comparator<StockItem> FEFO_ORDER = Comparator
+        .comparing(StockItem::getExpiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(StockItem::getId);
+
+    private static final Comparator<BatchEntry> ENTRY_ORDER = Comparator
+        .comparing(BatchEntry::expiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(BatchEntry::stockItemId);
+
+    private final StockItemRepo stockItemRepo;
+    private final StockExpiryIndex stockExpiryIndex;
+
+    private final Map<Long, Map<StockKey, ProductBatches>> pharmacies = new ConcurrentHashMap<>();
+
+    /**
+     * معرفات الدفعات الصالحة للبيع بترتيب FEFO
+     * Ids of the batches of the product that can be sold today, in FEFO order
+     */
+    public List<Long> findSellableBatchIds(Long pharmacyId, Long productId, ProductType productType, LocalDate today) {
+        ProductBatches batches = pharmacies.computeIfAbsent(pharmacyId, id -> new ConcurrentHashMap<>())
+            .computeIfAbsent(new StockKey(productId, productType),
+                key -> new ProductBatches(stockItemRepo.findSellableBatchesOrderByExpiry(pharmacyId, productId, productType)));
+        return batches.sellableIds(today);
+    }
+
+    /**
+     * تحديث الدفعات في الفهرس بعد نجاح المعاملة
+     * Record the current state of the given batches once the transaction commits.
+     * Products that are not indexed yet are left alone and will be loaded on next use.
+     */
+    public void update(Collection<StockItem> stockItems) {
+        List<BatchEntry> entries = stockItems.stream()
+            .filter(stockItem -> stockItem.getId() != null && stockItem.getPharmacy() != null)
+            .map(BatchEntry::of)
+            .toList();
+        if (entries.isEmpty()) {
+            return;
+        }
+        stockExpiryIndex.update(stockItems);
+        afterCommit(() -> entries.forEach(entry -> {
+            ProductBatches batches = find(entry.pharmacyId(), entry.key());
+            if (batches != null) {
+                batches.put(entry);
+            }
+        }));
+    }
+
+    public void update(StockItem stockItem) {
+        update(List.of(stockItem));
+    }
+
+    /**
+     * حذف دفعة من الفهرس بعد نجاح المعاملة
+     * Drop a deleted batch once the transaction commits
+     */
+    public void remove(StockItem stockItem) {
+        if (stockItem.getId() == null || stockItem.getPharmacy() == null) {
+            return;
+        }
+        BatchEntry entry = BatchEntry.of(stockItem);
+        stockExpiryIndex.remove(stockItem);
+        afterCommit(() -> {
+            ProductBatches batches = find(entry.pharmacyId(), entry.key());
+            if (batches != null) {
+                batches.remove(entry.stockItemId());
+            }
+        });
+    }
+
+    /**
+     * حذف منتج من الفهرس ليعاد تحميله عند الاستخدام التالي
+     * Drop a product so it is reloaded on next use. Applied immediately, since it only
+     * costs one reload and is used when the index turned out to be stale.
+     */
+    public void evict(Long pharmacyId, Long productId, ProductType productType) {
+        Map<StockKey, ProductBatches> products = pharmacies.get(pharmacyId);
+        if (products != null) {
+            products.remove(new StockKey(productId, productType));
+        }
+    }
+
+    /**
+     * حذف جميع منتجات الصيدلية من الفهرس بعد نجاح المعاملة
+     * Drop every indexed product of the pharmacy once the transaction commits
+     */
+    public void evictPharmacy(Long pharmacyId) {
+        stockExpiryIndex.evictPharmacy(pharmacyId);
+        afterCommit(() -> pharmacies.remove(pharmacyId));
+    }
+
+    /**
+     * إعادة تحميل المنتجات المحملة من قاعدة البيانات بشكل دوري
+     * Periodically reload every indexed product to correct any drift (direct SQL, other nodes).
+     * Products evicted while their reload runs are not put back.
+     */
+    @Scheduled(fixedDelayString = "${stock.batch-index.reload-interval-ms:600000}",
+               initialDelayString = "${stock.batch-index.reload-interval-ms:600000}")
+    public void reload() {
+        for (Map.Entry<Long, Map<StockKey, ProductBatches>> pharmacy : List.copyOf(pharmacies.entrySet())) {
+            Long pharmacyId = pharmacy.getKey();
+            Map<StockKey, ProductBatches> products = pharmacy.getValue();
+            for (StockKey key : List.copyOf(products.keySet())) {
+                try {
+                    products.replace(key, new ProductBatches(
+                        stockItemRepo.findSellableBatchesOrderByExpiry(pharmacyId, key.productId(), key.productType())));
+                } catch (Exception e) {
+                    logger.error("Failed to reload batch index for pharmacy {} product {}: {}",
+                        pharmacyId, key.productId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private ProductBatches find(Long pharmacyId, StockKey key) {
+        Map<StockKey, ProductBatches> products = pharmacies.get(pharmacyId);
+        return products != null ? products.get(key) : null;
+    }
+
+    private record BatchEntry(Long pharmacyId, StockKey key, Long stockItemId, LocalDate expiryDate, int quantity) {
+
+        static BatchEntry of(StockItem stockItem) {
+            return new BatchEntry(
+                stockItem.getPharmacy().getId(),
+                new StockKey(stockItem.getProductId(), stockItem.getProductType()),
+                stockItem.getId(),
+                stockItem.getExpiryDate(),
+                stockItem.getQuantity() != null ? stockItem.getQuantity() : 0);
+        }
+    }
+
+    private static class ProductBatches {
+        private final TreeSet<BatchEntry> ordered = new TreeSet<>(ENTRY_ORDER);
+        private final Map<Long, BatchEntry> byId = new HashMap<>();
+
+        ProductBatches(List<StockItem> stockItems) {
+            stockItems.forEach(stockItem -> put(BatchEntry.of(stockItem)));
+        }
+
+        synchronized void put(BatchEntry entry) {
+            remove(entry.stockItemId());
+            if (entry.quantity() > 0) {
+                ordered.add(entry);
+                byId.put(entry.stockItemId(), entry);
+            }
+        }
+
+        synchronized void remove(Long stockItemId) {
+            BatchEntry previous = byId.remove(stockItemId);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+        }
+
+        synchronized List<Long> sellableIds(LocalDate today) {
+            return ordered.stream()
+                .filter(entry -> entry.expiryDate() == null || !entry.expiryDate().isBefore(today))
+                .map(BatchEntry::stockItemId)
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.Uqar.product.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.utils.exception.InsufficientStockException;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * محرك خصم المخزون لفواتير البيع
+ * Stock deduction engine for multi-line sale invoices.
+ *
+ * All batches touched by an invoice are locked with one SELECT ... FOR UPDATE in
+ * ascending id order, so two tills selling overlapping batches wait for each other
+ * instead of overselling or deadlocking. Deductions are applied to the locked entities
+ * in memory and written back together with {@link #flush}, which Hibernate sends as
+ * one JDBC batch.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockDeductionEngine {
+
+    private final StockItemRepo stockItemRepo;
+
+    /**
+     * قفل الدفعات المطلوبة بترتيب ثابت
+     * Lock the requested stock items, in id order
+     */
+    public List<StockItem> lockStockItems(Collection<Long> stockItemIds) {
+        return lockStockItems(stockItemIds, stockItemIds);
+    }
+
+    /**
+     * قفل الدفعات، مع اشتراط وجود الدفعات المطلوبة صراحة فقط
+     * Lock the stock items; only the ids in requiredIds must exist, the others
+     * (e.g. FEFO candidates from an index) are skipped when they are gone
+     */
+    public List<StockItem> lockStockItems(Collection<Long> stockItemIds, Collection<Long> requiredIds) {
+        List<Long> orderedIds = lockOrder(stockItemIds);
+        if (orderedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<StockItem> stockItems = stockItemRepo.findAllByIdInOrderByIdForUpdate(orderedIds);
+
+        Set<Long> foundIds = stockItems.stream().map(StockItem::getId).collect(Collectors.toSet());
+        List<Long> missingIds = lockOrder(requiredIds).stream()
+            .filter(id -> !foundIds.contains(id))
+            .toList();
+        if (!missingIds.isEmpty()) {
+            throw new EntityNotFoundException("Stock items not found with IDs: " + missingIds);
+        }
+        return stockItems;
+    }
+
+    /**
+     * حفظ جميع الدفعات المعدلة دفعة واحدة
+     * Write every deducted stock item back in one batch
+     */
+    public void flush(Collection<StockItem> stockItems) {
+        stockItemRepo.saveAll(stockItems);
+        stockItemRepo.flush();
+    }
+
+    /**
+     * ترتيب القفل: معرفات فريدة بترتيب تصاعدي
+     * Lock order: distinct ids, ascending
+     */
+    public static List<Long> lockOrder(Collection<Long> stockItemIds) {
+        return stockItemIds.stream()
+            .filter(Objects::nonNull)
+            .distinct()
+            .sorted()
+            .toList();
+    }
+
+    /**
+     * بيع علب كاملة من الدفعة
+     * Deduct whole boxes from the batch.
+     * Returns the number of boxes deducted.
+     */
+    public static int deductBoxes(StockItem stockItem, int boxes, Integer numberOfPartsPerBox) {
+        if (boxes > stockItem.getQuantity()) {
+            throw new InsufficientStockException("Insufficient quantity in stock item " + stockItem.getId() +
+                ". Available: " + stockItem.getQuantity() + ", Requested: " + boxes);
+        }
+
+        stockItem.setQuantity(stockItem.getQuantity() - boxes);
+
+        // إذا كان المنتج قابل للبيع الجزئي: تعيين remainingParts للعلبة الجديدة
+        if (numberOfPartsPerBox != null && numberOfPartsPerBox > 1 && stockItem.getQuantity() > 0) {
+            stockItem.setRemainingParts(numberOfPartsPerBox);
+        } else if (stockItem.getQuantity() == 0) {
+            stockItem.setRemainingParts(null);
+        }
+        return boxes;
+    }
+
+    /**
+     * بيع أجزاء من العلبة المفتوحة في الدفعة
+     * Deduct parts from the open box of the batch.
+     * Returns the number of boxes deducted (0 or 1).
+     */
+    public static int deductParts(StockItem stockItem, int partsToSell, int numberOfPartsPerBox) {
+        // إذا لم يكن هناك remainingParts، نبدأ من numberOfPartsPerBox
+        int currentRemainingParts = stockItem.getRemainingParts() != null
+            ? stockItem.getRemainingParts()
+            : numberOfPartsPerBox;
+
+        int availableParts = currentRemainingParts + (stockItem.getQuantity() - 1) * numberOfPartsPerBox;
+        if (stockItem.getQuantity() <= 0 || partsToSell > availableParts) {
+            throw new InsufficientStockException("Insufficient parts in stock item " + stockItem.getId() +
+                ". Available parts: " + Math.max(0, availableParts) + ", Requested: " + partsToSell);
+        }
+
+        int newRemainingParts = currentRemainingParts - partsToSell;
+        if (newRemainingParts > 0) {
+            // لا تزال هناك أجزاء متبقية: تحديث remainingParts فقط
+            stockItem.setRemainingParts(newRemainingParts);
+            return 0;
+        }
+
+        // استنفدت العلبة الحالية: خصم علبة واحدة
+        stockItem.setQuantity(stockItem.getQuantity() - 1);
+
+        // إذا كانت هناك علبات أخرى، نبدأ علبة جديدة
+        if (stockItem.getQuantity() > 0) {
+            stockItem.setRemainingParts(numberOfPartsPerBox + newRemainingParts);
+        } else {
+            stockItem.setRemainingParts(null);
+        }
+        return 1;
+    }
+}
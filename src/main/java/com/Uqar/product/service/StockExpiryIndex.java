@@ -0,0 +1,294 @@
+package com.Uqar.product.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.Uqar.product.entity.StockExpiryRollover;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.repo.StockExpiryRolloverRepo;
+import com.Uqar.product.repo.StockItemRepo;
+
+import static com.Uqar.utils.TransactionCallbacks.afterCommit;
+
+/**
+ * فهرس تواريخ انتهاء الصلاحية لكل صيدلية مقسم حسب اليوم
+ * Per-pharmacy in-memory index of the batches in stock, bucketed by expiry day.
+ *
+ * Answers "expired" and "expiring within N days" with a range over the day buckets instead
+ * of a query over the pharmacy's stock. A pharmacy is loaded with one query on first use and
+ * then kept current by the stock events reported to {@link StockBatchIndex} (receive, sale,
+ * adjustment, delete), applied after the transaction commits.
+ *
+ * {@link #rollover} is called once a day per pharmacy and returns only the batches that
+ * crossed a threshold since the previous rollover (expired, or entered the expiring-soon
+ * window), together with batches received or changed since then that are past a threshold.
+ * The previous rollover is read from stock_expiry_rollover, and the rollover is worked out
+ * from the database, so whichever instance runs it sees the changes made on the others.
+ * {@link #completeRollover} stores it once its notifications went out.
+ */
+@Component
+public class StockExpiryIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockExpiryIndex.class);
+    // A batch stamped just before a rollover may commit after its query: look that far back again
+    private static final Duration CHANGE_OVERLAP = Duration.ofMinutes(10);
+
+    private final StockItemRepo stockItemRepo;
+    private final StockExpiryRolloverRepo rolloverRepo;
+    private final int expiringSoonDays;
+
+    private final Map<Long, PharmacyExpiry> pharmacies = new ConcurrentHashMap<>();
+
+    public StockExpiryIndex(StockItemRepo stockItemRepo,
+                            StockExpiryRolloverRepo rolloverRepo,
+                            @Value("${stock.expiry-index.expiring-soon-days:30}") int expiringSoonDays) {
+        this.stockItemRepo = stockItemRepo;
+        this.rolloverRepo = rolloverRepo;
+        this.expiringSoonDays = expiringSoonDays;
+    }
+
+    public int getExpiringSoonDays() {
+        return expiringSoonDays;
+    }
+
+    /**
+     * معرفات الدفعات المنتهية الصلاحية (قبل اليوم)
+     * Ids of the batches in stock that expired before today
+     */
+    public List<Long> findExpiredIds(Long pharmacyId, LocalDate today) {
+        PharmacyExpiry expiry = pharmacy(pharmacyId);
+        return expiry.ids(expiry.days.headMap(today, false));
+    }
+
+    /**
+     * معرفات الدفعات التي تنتهي خلال عدد من الأيام (بعد اليوم)
+     * Ids of the batches in stock expiring after today and at most the given days ahead
+     */
+    public List<Long> findExpiringIds(Long pharmacyId, LocalDate today, int days) {
+        PharmacyExpiry expiry = pharmacy(pharmacyId);
+        return expiry.ids(expiry.days.subMap(today, false, today.plusDays(days), true));
+    }
+
+    public List<Long> findExpiringSoonIds(Long pharmacyId, LocalDate today) {
+        return findExpiringIds(pharmacyId, today, expiringSoonDays);
+    }
+
+    public int countExpired(Long pharmacyId, LocalDate today) {
+        PharmacyExpiry expiry = pharmacy(pharmacyId);
+        return expiry.count(expiry.days.headMap(today, false));
+    }
+
+    public int countExpiringSoon(Long pharmacyId, LocalDate today) {
+        PharmacyExpiry expiry = pharmacy(pharmacyId);
+        return expiry.count(expiry.days.subMap(today, false, today.plusDays(expiringSoonDays), true));
+    }
+
+    /**
+     * تحديث الدفعات في الفهرس بعد نجاح المعاملة
+     * Record the current expiry date and quantity of the given batches once the transaction commits
+     */
+    public void update(Collection<StockItem> stockItems) {
+        List<BatchExpiry> batches = stockItems.stream()
+            .filter(stockItem -> stockItem.getId() != null && stockItem.getPharmacy() != null)
+            .map(BatchExpiry::of)
+            .toList();
+        if (batches.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> batches.forEach(this::apply));
+    }
+
+    /**
+     * حذف دفعة من الفهرس بعد نجاح المعاملة
+     * Drop a deleted batch once the transaction commits
+     */
+    public void remove(StockItem stockItem) {
+        if (stockItem.getId() == null || stockItem.getPharmacy() == null) {
+            return;
+        }
+        Long pharmacyId = stockItem.getPharmacy().getId();
+        Long stockItemId = stockItem.getId();
+        afterCommit(() -> {
+            PharmacyExpiry expiry = pharmacies.get(pharmacyId);
+            if (expiry != null) {
+                expiry.remove(stockItemId);
+            }
+        });
+    }
+
+    /**
+     * حذف الصيدلية من الفهرس بعد نجاح المعاملة ليعاد تحميلها عند الاستخدام التالي
+     * Drop the pharmacy once the transaction commits, it is reloaded on next use
+     */
+    public void evictPharmacy(Long pharmacyId) {
+        afterCommit(() -> pharmacies.remove(pharmacyId));
+    }
+
+    /**
+     * الدفعات التي تجاوزت حداً منذ آخر تمرير يومي
+     * Batches of the pharmacy that crossed a threshold since the previous completed rollover, and
+     * batches received or changed since then that are past a threshold. A batch changed by a sale
+     * or an adjustment may be reported again; none is missed. Returns nothing when the rollover
+     * of today is already complete.
+     */
+    public ExpiryRollover rollover(Long pharmacyId, LocalDate today) {
+        LocalDateTime checkedAt = LocalDateTime.now();
+        StockExpiryRollover last = rolloverRepo.findById(pharmacyId).orElse(null);
+        LocalDate previous = last != null ? last.getRolloverDate() : today.minusDays(1);
+        if (!previous.isBefore(today)) {
+            return ExpiryRollover.notDue(pharmacyId);
+        }
+        LocalDateTime changedSince = last != null ? last.getCheckedAt().minus(CHANGE_OVERLAP) : previous.atStartOfDay();
+        // Loaded fresh: the index of this instance may not have seen the changes made on the others
+        PharmacyExpiry expiry = load(pharmacyId);
+        LocalDate soonLimit = today.plusDays(expiringSoonDays);
+
+        Set<Long> expired = new LinkedHashSet<>(expiry.ids(expiry.days.subMap(previous, true, today, false)));
+        // Days that were beyond the window at the previous rollover and are inside it now
+        LocalDate soonFrom = previous.plusDays(expiringSoonDays);
+        if (soonFrom.isBefore(today)) {
+            soonFrom = today;
+        }
+        Set<Long> expiringSoon = new LinkedHashSet<>(expiry.ids(expiry.days.subMap(soonFrom, false, soonLimit, true)));
+
+        for (Object[] row : stockItemRepo.findExpiryDatesChangedSince(pharmacyId, changedSince)) {
+            Long stockItemId = (Long) row[0];
+            LocalDate day = (LocalDate) row[1];
+            if (day.isBefore(today)) {
+                expired.add(stockItemId);
+            } else if (day.isAfter(today) && !day.isAfter(soonLimit)) {
+                expiringSoon.add(stockItemId);
+            }
+        }
+        return new ExpiryRollover(pharmacyId, today, checkedAt, new ArrayList<>(expired), new ArrayList<>(expiringSoon));
+    }
+
+    /**
+     * تسجيل التمرير بعد إرسال إشعاراته
+     * Store the rollover once its notifications went out; until then the next rollover
+     * covers its days and changes again
+     */
+    public void completeRollover(ExpiryRollover rollover) {
+        if (rollover.day() == null) {
+            return;
+        }
+        rolloverRepo.save(new StockExpiryRollover(rollover.pharmacyId(), rollover.day(), rollover.checkedAt()));
+    }
+
+    /**
+     * إعادة تحميل الصيدليات المحملة من قاعدة البيانات بشكل دوري
+     * Periodically reload every loaded pharmacy to correct any drift (direct SQL, other nodes)
+     */
+    @Scheduled(fixedDelayString = "${stock.expiry-index.reload-interval-ms:21600000}",
+               initialDelayString = "${stock.expiry-index.reload-interval-ms:21600000}")
+    public void reload() {
+        for (Long pharmacyId : List.copyOf(pharmacies.keySet())) {
+            try {
+                pharmacies.put(pharmacyId, load(pharmacyId));
+            } catch (Exception e) {
+                logger.error("Failed to reload expiry index for pharmacy {}: {}", pharmacyId, e.getMessage());
+            }
+        }
+    }
+
+    private void apply(BatchExpiry batch) {
+        PharmacyExpiry expiry = pharmacies.get(batch.pharmacyId());
+        if (expiry != null) {
+            expiry.put(batch.stockItemId(), batch.expiryDate(), batch.quantity());
+        }
+    }
+
+    private PharmacyExpiry pharmacy(Long pharmacyId) {
+        return pharmacies.computeIfAbsent(pharmacyId, this::load);
+    }
+
+    private PharmacyExpiry load(Long pharmacyId) {
+        PharmacyExpiry expiry = new PharmacyExpiry();
+        for (Object[] row : stockItemRepo.findExpiryDatesByPharmacyId(pharmacyId)) {
+            expiry.put((Long) row[0], (LocalDate) row[1], 1);
+        }
+        return expiry;
+    }
+
+    /**
+     * نتيجة التمرير اليومي: الدفعات التي انتهت والتي دخلت فترة قرب الانتهاء
+     * Ids of the batches that expired and of those that entered the expiring-soon window.
+     * day is null when the rollover of the day was already complete.
+     */
+    public record ExpiryRollover(Long pharmacyId, LocalDate day, LocalDateTime checkedAt,
+                                 List<Long> newlyExpired, List<Long> newlyExpiringSoon) {
+
+        static ExpiryRollover notDue(Long pharmacyId) {
+            return new ExpiryRollover(pharmacyId, null, null, List.of(), List.of());
+        }
+
+        public boolean isEmpty() {
+            return newlyExpired.isEmpty() && newlyExpiringSoon.isEmpty();
+        }
+    }
+
+    private record BatchExpiry(Long pharmacyId, Long stockItemId, LocalDate expiryDate, int quantity) {
+
+        static BatchExpiry of(StockItem stockItem) {
+            return new BatchExpiry(
+                stockItem.getPharmacy().getId(),
+                stockItem.getId(),
+                stockItem.getExpiryDate(),
+                stockItem.getQuantity() != null ? stockItem.getQuantity() : 0);
+        }
+    }
+
+    private static class PharmacyExpiry {
+        private final TreeMap<LocalDate, Set<Long>> days = new TreeMap<>();
+        private final Map<Long, LocalDate> dayOf = new HashMap<>();
+
+        synchronized void put(Long stockItemId, LocalDate expiryDate, int quantity) {
+            remove(stockItemId);
+            if (expiryDate == null || quantity <= 0) {
+                return;
+            }
+            days.computeIfAbsent(expiryDate, day -> new HashSet<>()).add(stockItemId);
+            dayOf.put(stockItemId, expiryDate);
+        }
+
+        synchronized LocalDate remove(Long stockItemId) {
+            LocalDate previous = dayOf.remove(stockItemId);
+            if (previous != null) {
+                Set<Long> ids = days.get(previous);
+                ids.remove(stockItemId);
+                if (ids.isEmpty()) {
+                    days.remove(previous);
+                }
+            }
+            return previous;
+        }
+
+        synchronized List<Long> ids(NavigableMap<LocalDate, Set<Long>> range) {
+            List<Long> ids = new ArrayList<>();
+            range.values().forEach(ids::addAll);
+            return ids;
+        }
+
+        synchronized int count(NavigableMap<LocalDate, Set<Long>> range) {
+            return range.values().stream().mapToInt(Set::size).sum();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.Uqar.product.service;
+
+import com.Uqar.product.Enum.ProductType;
+
+/**
+ * مفتاح المنتج داخل الصيدلية في كاشات المخزون
+ * Product key used by the in-memory stock caches of a pharmacy
+ */
+record StockKey(Long productId, ProductType productType) {
+}
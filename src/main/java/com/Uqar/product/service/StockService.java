@@ -4,25 +4,35 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.Uqar.moneybox.service.ExchangeRateService;
+import com.Uqar.numbering.enums.DocumentType;
+import com.Uqar.numbering.service.DocumentNumberAllocator;
 import com.Uqar.product.Enum.InventoryAdjustmentReason;
 import com.Uqar.product.Enum.ProductType;
 import com.Uqar.product.dto.FullInventoryResetRequest;
 import com.Uqar.product.dto.InventoryAdjustmentRequest;
 import com.Uqar.product.dto.InventoryCountSummaryResponse;
+import com.Uqar.product.dto.PaginationDTO;
 import com.Uqar.product.dto.StockItemDTOResponse;
 import com.Uqar.product.dto.StockItemDetailDTOResponse;
+import com.Uqar.product.dto.StockProductAggregate;
 import com.Uqar.product.dto.StockProductOverallDTOResponse;
 import com.Uqar.product.entity.MasterProduct;
 import com.Uqar.product.entity.PharmacyProduct;
@@ -39,6 +49,7 @@ import com.Uqar.user.entity.User;
 import com.Uqar.user.repository.UserRepository;
 import com.Uqar.user.service.BaseSecurityService;
 import com.Uqar.utils.exception.ConflictException;
+import com.Uqar.utils.exception.RequestNotValidException;
 import com.Uqar.utils.exception.ResourceNotFoundException;
 import com.Uqar.utils.exception.UnAuthorizedException;
 
@@ -48,6 +59,8 @@ import jakarta.persistence.EntityNotFoundException;
 @Transactional
 public class StockService extends BaseSecurityService {
     private static final Logger logger = LoggerFactory.getLogger(StockService.class);
+    private static final Set<String> OVERVIEW_SORT_FIELDS = Set.of(
+        "productId", "totalQuantity", "totalValue", "earliestExpiryDate", "latestExpiryDate", "numberOfBatches");
 
     private final StockItemRepo stockItemRepo;
     private final StockItemMapper stockItemMapper;
@@ -55,6 +68,12 @@ public class StockService extends BaseSecurityService {
     private final PharmacyProductRepo pharmacyProductRepo;
     private final ExchangeRateService exchangeRateService;
     private final SaleInvoiceItemRepository saleInvoiceItemRepository;
+    private final ProductMetadataResolver productMetadataResolver;
+    private final StockAvailabilityCache stockAvailabilityCache;
+    private final StockBatchIndex stockBatchIndex;
+    private final StockExpiryIndex stockExpiryIndex;
+    private final ProductSearchEngine productSearchEngine;
+    private final DocumentNumberAllocator documentNumberAllocator;
 
     public StockService(StockItemRepo stockItemRepo,
                                 @Lazy StockItemMapper stockItemMapper,
@@ -62,7 +81,13 @@ public class StockService extends BaseSecurityService {
                                 MasterProductRepo masterProductRepo,
                                 PharmacyProductRepo pharmacyProductRepo,
                                 ExchangeRateService exchangeRateService,
-                                SaleInvoiceItemRepository saleInvoiceItemRepository) {
+                                SaleInvoiceItemRepository saleInvoiceItemRepository,
+                                ProductMetadataResolver productMetadataResolver,
+                                StockAvailabilityCache stockAvailabilityCache,
+                                StockBatchIndex stockBatchIndex,
+                                StockExpiryIndex stockExpiryIndex,
+                                ProductSearchEngine productSearchEngine,
+                                DocumentNumberAllocator documentNumberAllocator) {
         super(userRepository);
         this.stockItemRepo = stockItemRepo; 
         this.stockItemMapper = stockItemMapper;
@@ -70,6 +95,12 @@ public class StockService extends BaseSecurityService {
         this.pharmacyProductRepo = pharmacyProductRepo;
         this.exchangeRateService = exchangeRateService;
         this.saleInvoiceItemRepository = saleInvoiceItemRepository;
+        this.productMetadataResolver = productMetadataResolver;
+        this.stockAvailabilityCache = stockAvailabilityCache;
+        this.stockBatchIndex = stockBatchIndex;
+        this.stockExpiryIndex = stockExpiryIndex;
+        this.productSearchEngine = productSearchEngine;
+        this.documentNumberAllocator = documentNumberAllocator;
     }
 
     public StockItemDTOResponse editStockQuantity(Long stockItemId, Integer newQuantity, 
@@ -96,10 +127,13 @@ public class StockService extends BaseSecurityService {
             throw new IllegalArgumentException("the quantity can't be negative");
         }
         
+        stockAvailabilityCache.adjust(stockItem.getPharmacy().getId(), stockItem.getProductId(), stockItem.getProductType(),
+            StockAvailabilityCache.availableDelta(stockItem.getQuantity(), newQuantity));
         stockItem.setQuantity(newQuantity);
         
         if (newQuantity == 0) {
             stockItemRepo.delete(stockItem);
+            stockBatchIndex.remove(stockItem);
             return null;
         }
         
@@ -107,6 +141,7 @@ public class StockService extends BaseSecurityService {
         stockItem.setUpdatedAt(LocalDateTime.now());
         
         StockItem savedStockItem = stockItemRepo.save(stockItem);
+        stockBatchIndex.update(savedStockItem);
         
         StockItemDTOResponse response = stockItemMapper.toResponse(savedStockItem);
         
@@ -152,10 +187,13 @@ public class StockService extends BaseSecurityService {
         }
         
         if (newQuantity != null) {
+            stockAvailabilityCache.adjust(stockItem.getPharmacy().getId(), stockItem.getProductId(), stockItem.getProductType(),
+                StockAvailabilityCache.availableDelta(stockItem.getQuantity(), newQuantity));
             stockItem.setQuantity(newQuantity);
             
             if (newQuantity == 0) {
                 stockItemRepo.delete(stockItem);
+                stockBatchIndex.remove(stockItem);
                 return null;
             }
         }
@@ -172,6 +210,7 @@ public class StockService extends BaseSecurityService {
         stockItem.setUpdatedAt(LocalDateTime.now());
         
         StockItem savedStockItem = stockItemRepo.save(stockItem);
+        stockBatchIndex.update(savedStockItem);
         
         StockItemDTOResponse response = stockItemMapper.toResponse(savedStockItem);
         
@@ -191,15 +230,18 @@ public class StockService extends BaseSecurityService {
     public List<StockProductOverallDTOResponse> stockItemSearch(String keyword, String lang) {
         Long currentPharmacyId = getCurrentUserPharmacyId();
         
-        List<StockItem> matchingStockItems = stockItemRepo.searchStockItems(keyword, currentPharmacyId);
+        List<StockItem> matchingStockItems = productSearchEngine.searchStockItems(keyword, currentPharmacyId);
         
         if (matchingStockItems.isEmpty()) {
             return new ArrayList<>();
         }
         
+        productMetadataResolver.preload(matchingStockItems, true);
+        
+        // LinkedHashMap keeps the products in the relevance order of the search
         Map<String, List<StockItem>> groupedByProduct = matchingStockItems.stream()
             .collect(Collectors.groupingBy(item -> 
-                item.getProductId() + "_" + item.getProductType()));
+                item.getProductId() + "_" + item.getProductType(), LinkedHashMap::new, Collectors.toList()));
         
         return groupedByProduct.values().stream()
             .map(stockItems -> {
@@ -217,14 +259,29 @@ public class StockService extends BaseSecurityService {
     
     public List<StockItem> getExpiredItems() {
         Long currentPharmacyId = getCurrentUserPharmacyId();
-        return stockItemRepo.findExpiredItems(LocalDate.now(), currentPharmacyId);
+        LocalDate today = LocalDate.now();
+        return loadIndexedBatches(stockExpiryIndex.findExpiredIds(currentPharmacyId, today),
+            expiryDate -> expiryDate.isBefore(today));
     }
    
     public List<StockItem> getItemsExpiringSoon() {
         Long currentPharmacyId = getCurrentUserPharmacyId();
         LocalDate today = LocalDate.now();
-        LocalDate thirtyDaysFromNow = today.plusDays(30);
-        return stockItemRepo.findItemsExpiringSoon(today, thirtyDaysFromNow, currentPharmacyId);
+        LocalDate limit = today.plusDays(stockExpiryIndex.getExpiringSoonDays());
+        return loadIndexedBatches(stockExpiryIndex.findExpiringSoonIds(currentPharmacyId, today),
+            expiryDate -> expiryDate.isAfter(today) && !expiryDate.isAfter(limit));
+    }
+
+    // The index only proposes ids; the rows are re-checked in case it is behind the database
+    private List<StockItem> loadIndexedBatches(List<Long> stockItemIds, Predicate<LocalDate> expiryMatches) {
+        if (stockItemIds.isEmpty()) {
+            return List.of();
+        }
+        return stockItemRepo.findAllById(stockItemIds).stream()
+            .filter(item -> item.getQuantity() != null && item.getQuantity() > 0)
+            .filter(item -> item.getExpiryDate() != null && expiryMatches.test(item.getExpiryDate()))
+            .sorted(StockBatchIndex.FEFO_ORDER)
+            .collect(Collectors.toList());
     }
     
     public Map<String, Object> getStockReportByProductType(ProductType productType) {
@@ -279,6 +336,8 @@ public class StockService extends BaseSecurityService {
     public List<StockItemDTOResponse> getAllStockItems(Currency currency) {
         Long currentPharmacyId = getCurrentUserPharmacyId();
         List<StockItem> stockItems = stockItemRepo.findByPharmacyId(currentPharmacyId);
+        productMetadataResolver.preload(stockItems);
+        productMetadataResolver.preloadPurchaseOrderTotals(stockItems);
         return stockItems.stream()
             .map(stockItem -> stockItemMapper.toResponse(stockItem, currency))
             .collect(Collectors.toList());
@@ -286,26 +345,114 @@ public class StockService extends BaseSecurityService {
     
     public List<StockProductOverallDTOResponse> getAllStockProductsOverall() {
         Long currentPharmacyId = getCurrentUserPharmacyId();
-        List<Object[]> uniqueProducts = stockItemRepo.findUniqueProductsCombined(currentPharmacyId);
+        LocalDate today = LocalDate.now();
         
-        return uniqueProducts.stream()
-            .map(productData -> {
-                Long productId = (Long) productData[0];
-                ProductType productType = (ProductType) productData[1];
-                
-                List<StockItem> stockItems = stockItemRepo.findByProductIdAndProductTypeAndPharmacyId(productId, productType, currentPharmacyId);
-                
-                return stockItemMapper.toProductSummary(productId, productType, stockItems, currentPharmacyId, true); 
-            })
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList());
+        List<StockProductAggregate> aggregates = stockItemRepo.findStockProductAggregates(
+            currentPharmacyId, today, today.plusDays(30),
+            Pageable.unpaged(Sort.by(Sort.Direction.ASC, "productType", "productId")));
+        
+        return toProductSummaries(aggregates, currentPharmacyId, false, "en");
+    }
+    
+    /**
+     * ملخص المخزون لكل منتج مع ترقيم الصفحات والترتيب من جهة الخادم
+     * Paginated stock overview: totals come from one grouped query, batches are loaded only on request
+     */
+    public PaginationDTO<StockProductOverallDTOResponse> getStockProductsOverallPaginated(
+            int page, int size, String sortBy, String direction, boolean includeBatches, String lang) {
+        if (page < 0 || size < 1) {
+            throw new RequestNotValidException("page must be >= 0 and size must be >= 1");
+        }
+        String sortField = sortBy != null ? sortBy : "productId";
+        if (!OVERVIEW_SORT_FIELDS.contains(sortField)) {
+            throw new RequestNotValidException("Unsupported sort field: " + sortBy + 
+                ". Supported fields are: " + OVERVIEW_SORT_FIELDS);
+        }
+        Sort.Direction sortDirection = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(sortDirection, sortField)
+            .and(Sort.by(Sort.Direction.ASC, "productType", "productId"));
+        
+        Long currentPharmacyId = getCurrentUserPharmacyId();
+        LocalDate today = LocalDate.now();
+        
+        List<StockProductAggregate> aggregates = stockItemRepo.findStockProductAggregates(
+            currentPharmacyId, today, today.plusDays(30), PageRequest.of(page, size, sort));
+        long totalElements = stockItemRepo.countDistinctProductsByPharmacyIdAndProductType(currentPharmacyId, ProductType.MASTER)
+            + stockItemRepo.countDistinctProductsByPharmacyIdAndProductType(currentPharmacyId, ProductType.PHARMACY);
+        
+        return new PaginationDTO<>(
+            toProductSummaries(aggregates, currentPharmacyId, includeBatches, lang), page, size, totalElements);
+    }
+    
+    private List<StockProductOverallDTOResponse> toProductSummaries(List<StockProductAggregate> aggregates, Long pharmacyId,
+                                                                   boolean includeBatches, String lang) {
+        if (aggregates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        List<Long> pharmacyProductIds = new ArrayList<>();
+        List<Long> masterProductIds = new ArrayList<>();
+        for (StockProductAggregate aggregate : aggregates) {
+            if (aggregate.getProductType() == ProductType.PHARMACY) {
+                pharmacyProductIds.add(aggregate.getProductId());
+            } else if (aggregate.getProductType() == ProductType.MASTER) {
+                masterProductIds.add(aggregate.getProductId());
+            }
+        }
+        productMetadataResolver.preloadProducts(pharmacyProductIds, masterProductIds);
+        productMetadataResolver.preloadMinStockLevels(pharmacyId, pharmacyProductIds, masterProductIds);
+        
+        Map<String, List<StockItem>> batchesByProduct = new HashMap<>();
+        if (includeBatches) {
+            List<Long> productIds = aggregates.stream()
+                .map(StockProductAggregate::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+            List<StockItem> batches = stockItemRepo.findByPharmacyIdAndProductIdIn(pharmacyId, productIds);
+            productMetadataResolver.preloadPurchaseOrderTotals(batches);
+            batchesByProduct = batches.stream()
+                .collect(Collectors.groupingBy(item -> item.getProductId() + "_" + item.getProductType()));
+        }
+        
+        List<StockProductOverallDTOResponse> summaries = new ArrayList<>();
+        for (StockProductAggregate aggregate : aggregates) {
+            StockProductOverallDTOResponse summary = stockItemMapper.toProductSummary(aggregate, pharmacyId, true, lang);
+            if (includeBatches) {
+                summary.setBatches(batchesByProduct
+                    .getOrDefault(aggregate.getProductId() + "_" + aggregate.getProductType(), List.of())
+                    .stream()
+                    .map(item -> stockItemMapper.toResponse(item, Currency.USD))
+                    .collect(Collectors.toList()));
+            }
+            summaries.add(summary);
+        }
+        return summaries;
     }
 
 
 
     public boolean isQuantityAvailable(Long productId, Integer requiredQuantity, ProductType productType) {
-        Integer availableQuantity = stockItemRepo.getTotalQuantity(productId, getCurrentUserPharmacyId(), productType);
-        return availableQuantity >= requiredQuantity;
+        return isQuantityAvailable(getCurrentUserPharmacyId(), productId, requiredQuantity, productType);
+    }
+
+    /**
+     * التحقق من توفر الكمية باستخدام كاش المخزون
+     * Check availability against the stock availability cache. A negative answer is
+     * confirmed against the database so a stale entry never blocks a sale.
+     */
+    public boolean isQuantityAvailable(Long pharmacyId, Long productId, Integer requiredQuantity, ProductType productType) {
+        if (stockAvailabilityCache.getAvailableQuantity(pharmacyId, productId, productType) >= requiredQuantity) {
+            return true;
+        }
+        return stockAvailabilityCache.refresh(pharmacyId, productId, productType) >= requiredQuantity;
+    }
+
+    /**
+     * الكمية المتاحة للمنتج في الصيدلية (من الكاش)
+     * Available quantity of the product in the pharmacy, served from the availability cache
+     */
+    public int getAvailableQuantity(Long pharmacyId, Long productId, ProductType productType) {
+        return stockAvailabilityCache.getAvailableQuantity(pharmacyId, productId, productType);
     }
     
     
@@ -323,6 +470,9 @@ public class StockService extends BaseSecurityService {
             .findFirst()
             .orElse(null);
 
+        productMetadataResolver.preload(stockItems, true);
+        productMetadataResolver.preloadPurchaseOrderTotals(stockItems);
+
         Map<String, Object> details = new HashMap<>();
         details.put("productId", productId);
         details.put("productType", productType);
@@ -330,7 +480,7 @@ public class StockService extends BaseSecurityService {
         details.put("stockItems", stockItems.stream()
             .map(item -> stockItemMapper.toResponse(item, Currency.USD)) // Always use USD for dual currency
             .collect(Collectors.toList()));
-        details.put("minStockLevel", stockItem != null ? stockItemMapper.getMinStockLevel(stockItem.getProductId(), stockItem.getProductType()) : null);
+        details.put("minStockLevel", stockItem != null ? stockItemMapper.getMinStockLevel(currentPharmacyId, stockItem.getProductId(), stockItem.getProductType()) : null);
         
         return details;
     }
@@ -357,8 +507,8 @@ public class StockService extends BaseSecurityService {
         Map<String, Object> summary = new HashMap<>();
         summary.put("totalProducts", stockItems.size());
         summary.put("totalQuantity", stockItems.stream().mapToInt(StockItem::getQuantity).sum());
-        summary.put("expiredProducts", getExpiredItems().size());
-        summary.put("expiringSoonProducts", getItemsExpiringSoon().size());
+        summary.put("expiredProducts", stockExpiryIndex.countExpired(currentPharmacyId, LocalDate.now()));
+        summary.put("expiringSoonProducts", stockExpiryIndex.countExpiringSoon(currentPharmacyId, LocalDate.now()));
         summary.put("totalValue", stockItems.stream()
             .mapToDouble(item -> item.getQuantity() * item.getActualPurchasePrice()).sum());
         
@@ -368,6 +518,7 @@ public class StockService extends BaseSecurityService {
     public Map<String, Object> getStockValue() {
         Long currentPharmacyId = getCurrentUserPharmacyId();
         List<StockItem> stockItems = stockItemRepo.findByPharmacyId(currentPharmacyId);
+        productMetadataResolver.preload(stockItems);
         
         Map<String, Object> stockValue = new HashMap<>();
         double totalPurchaseValue = stockItems.stream()
@@ -389,6 +540,9 @@ public class StockService extends BaseSecurityService {
             .orElseThrow(() -> new EntityNotFoundException("stock item not found"));
         
         stockItemRepo.delete(stockItem);
+        stockBatchIndex.remove(stockItem);
+        stockAvailabilityCache.adjust(stockItem.getPharmacy().getId(), stockItem.getProductId(), stockItem.getProductType(),
+            StockAvailabilityCache.availableDelta(stockItem.getQuantity(), 0));
         return stockItemMapper.toResponse(stockItem);
     }
 
@@ -453,7 +607,10 @@ public class StockService extends BaseSecurityService {
         // معلومات الدفعة والصلاحية
         stockItem.setExpiryDate(request.getExpiryDate());
         stockItem.setBatchNo(request.getBatchNo());
-        stockItem.setInvoiceNumber(request.getInvoiceNumber());
+        // رقم الفاتورة الخارجية إن وجد، وإلا رقم مستند تعديل من تسلسل الصيدلية
+        stockItem.setInvoiceNumber(request.getInvoiceNumber() != null && !request.getInvoiceNumber().isBlank()
+            ? request.getInvoiceNumber()
+            : documentNumberAllocator.next(pharmacy.getId(), DocumentType.INVENTORY));
         
         // الحد الأدنى للمخزون
         if (request.getMinStockLevel() != null) {
@@ -470,6 +627,8 @@ public class StockService extends BaseSecurityService {
         
         // 8. حفظ في قاعدة البيانات
         StockItem savedStockItem = stockItemRepo.save(stockItem);
+        stockAvailabilityCache.adjust(pharmacy.getId(), request.getProductId(), request.getProductType(), totalQuantity);
+        stockBatchIndex.update(savedStockItem);
         
         // 9. تحديث معلومات المنتج (refPurchasePrice و refSellingPrice) إذا لزم الأمر
         updateProductInformationIfNeeded(request, product, actualPurchasePriceInSYP, requestCurrency);
@@ -699,6 +858,8 @@ public class StockService extends BaseSecurityService {
         // 4. إعادة إدخال المخزون من الصفر
         List<StockItemDTOResponse> createdItems = new ArrayList<>();
         String batchPrefix = generateBatchNumberPrefix();
+        // رقم مستند واحد للجرد الكامل
+        String inventoryNumber = documentNumberAllocator.next(pharmacyId, DocumentType.INVENTORY);
         
         for (FullInventoryResetRequest.InventoryItemDTO itemDTO : request.getItems()) {
             // التحقق من صحة البيانات
@@ -744,6 +905,7 @@ public class StockService extends BaseSecurityService {
                 InventoryAdjustmentReason.INVENTORY_COUNT,
                 "Full inventory reset - " + LocalDateTime.now()
             );
+            stockItem.setInvoiceNumber(inventoryNumber);
             
             // حفظ StockItem
             StockItem savedStockItem = stockItemRepo.save(stockItem);
@@ -754,6 +916,9 @@ public class StockService extends BaseSecurityService {
             createdItems.add(response);
         }
         
+        stockAvailabilityCache.evictPharmacy(pharmacyId);
+        stockBatchIndex.evictPharmacy(pharmacyId);
+        
         logger.info("Full inventory reset completed for pharmacy {}. Created {} stock items.", 
                    pharmacyId, createdItems.size());
         
@@ -837,11 +1002,13 @@ public class StockService extends BaseSecurityService {
             existingStockItem.setQuantity(0);
             existingStockItem.setNotes("Inventory adjusted - quantity set to 0 (referenced in sales) - " + LocalDateTime.now());
             stockItemRepo.save(existingStockItem);
+            stockBatchIndex.update(existingStockItem);
             logger.info("Updated referenced stock item {} (set quantity to 0) during partial inventory adjustment", 
                        request.getStockItemId());
         } else {
             // إذا لم يكن مرتبط: حذفه
             stockItemRepo.delete(existingStockItem);
+            stockBatchIndex.remove(existingStockItem);
             logger.info("Deleted stock item {} during partial inventory adjustment", request.getStockItemId());
         }
         
@@ -859,9 +1026,12 @@ public class StockService extends BaseSecurityService {
             "Partial inventory adjustment - " + LocalDateTime.now(),
             request.getMinStockLevel()
         );
+        newStockItem.setInvoiceNumber(documentNumberAllocator.next(pharmacyId, DocumentType.INVENTORY));
         
         // حفظ StockItem الجديد
         StockItem savedStockItem = stockItemRepo.save(newStockItem);
+        stockAvailabilityCache.evict(pharmacyId, productId, productType);
+        stockBatchIndex.update(savedStockItem);
         
         // إرجاع الاستجابة مع تحويل العملة (USD للعرض المزدوج)
         StockItemDTOResponse response = stockItemMapper.toResponse(savedStockItem, Currency.USD);
@@ -8,6 +8,7 @@ import com.Uqar.product.entity.Type;
 import com.Uqar.product.mapper.TypeMapper;
 import com.Uqar.product.repo.TypeRepo;
 import com.Uqar.product.repo.TypeTranslationRepo;
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.language.Language;
 import com.Uqar.language.LanguageRepo;
 import com.Uqar.utils.exception.ConflictException;
@@ -30,12 +31,18 @@ public class TypeService {
     private final TypeMapper typeMapper;
     private final LanguageRepo languageRepo;
     private final TypeTranslationRepo typeTranslationRepo;
+    private final ReferenceDataCache referenceDataCache;
+    private final MasterProductCatalogue masterProductCatalogue;
 
-    public TypeService(TypeRepo typeRepo, TypeMapper typeMapper, LanguageRepo languageRepo, TypeTranslationRepo typeTranslationRepo) {
+    public TypeService(TypeRepo typeRepo, TypeMapper typeMapper, LanguageRepo languageRepo, TypeTranslationRepo typeTranslationRepo,
+                       ReferenceDataCache referenceDataCache,
+                       MasterProductCatalogue masterProductCatalogue) {
         this.typeRepo = typeRepo;
         this.typeMapper = typeMapper;
         this.languageRepo = languageRepo;
         this.typeTranslationRepo = typeTranslationRepo;
+        this.referenceDataCache = referenceDataCache;
+        this.masterProductCatalogue = masterProductCatalogue;
     }
 
     public List<TypeDTOResponse> getTypes(String lang) {
@@ -81,6 +88,7 @@ public class TypeService {
             typeTranslationRepo.saveAll(translations);
     
             savedType.setTranslations(new HashSet<>(translations));
+            referenceDataCache.evict(Type.class, savedType.getId());
     
             return typeMapper.toResponse(savedType, lang);
             
@@ -111,6 +119,10 @@ public class TypeService {
             typeTranslationRepo.saveAll(translations);
         }
 
+        referenceDataCache.evict(Type.class, saved.getId());
+        // Cached master products carry the type with its translations
+        masterProductCatalogue.invalidateAll();
+
         // 🔁 إعادة تحميل الكائن من قاعدة البيانات بعد الحفظ والتحديث
         Type updated = typeRepo.findByIdWithTranslations(saved.getId())
                 .orElseThrow(() -> new EntityNotFoundException("Updated type not found"));
@@ -127,6 +139,8 @@ public class TypeService {
             throw new EntityNotFoundException("Type with ID " + id + " not found");
         }
         typeRepo.deleteById(id);
+        referenceDataCache.evict(Type.class, id);
+        masterProductCatalogue.invalidateAll();
     }
 
     
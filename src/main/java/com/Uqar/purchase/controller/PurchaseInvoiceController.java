@@ -2,6 +2,7 @@ package com.Uqar.purchase.controller;
 
 import com.Uqar.purchase.dto.PurchaseInvoiceDTORequest;
 import com.Uqar.purchase.dto.PurchaseInvoiceDTOResponse;
+import com.Uqar.utils.response.CursorPageDTO;
 import com.Uqar.product.dto.PaginationDTO;
 import com.Uqar.purchase.service.PurchaseInvoiceService;
 import lombok.RequiredArgsConstructor;
@@ -116,6 +117,31 @@ public class PurchaseInvoiceController {
         return ResponseEntity.ok(purchaseInvoiceService.listAllPaginated(page, size, language));
     }
 
+    @GetMapping("/cursor")
+    @Operation(
+        summary = "Get purchase invoices by cursor",
+        description = "Retrieves purchase invoices newest first, one page after the given cursor. " +
+                      "Pass the nextCursor of the previous page to get the next one; the total is only returned on the first page when includeTotal is true"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved purchase invoices",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = CursorPageDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<CursorPageDTO<PurchaseInvoiceDTOResponse>> listAllByCursor(
+            @Parameter(description = "Cursor returned by the previous page (empty for the first page)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of items per page (1-100)", example = "10")
+            @Min(1) @Max(100) @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Count the total on the first page", example = "false")
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @Parameter(description = "Language code", example = "ar")
+            @RequestParam(defaultValue = "ar") String language) {
+        return ResponseEntity.ok(purchaseInvoiceService.listAllByCursor(cursor, size, includeTotal, language));
+    }
+
     @GetMapping("/time-range")
     @Operation(
         summary = "Get paginated purchase invoices by time range",
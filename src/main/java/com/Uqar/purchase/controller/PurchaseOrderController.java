@@ -2,6 +2,7 @@ package com.Uqar.purchase.controller;
 
 import com.Uqar.purchase.dto.PurchaseOrderDTORequest;
 import com.Uqar.purchase.dto.PurchaseOrderDTOResponse;
+import com.Uqar.utils.response.CursorPageDTO;
 import com.Uqar.product.dto.PaginationDTO;
 import com.Uqar.purchase.service.PurchaseOrderService;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +19,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -142,6 +145,34 @@ public class PurchaseOrderController {
         return ResponseEntity.ok(purchaseOrderService.getByStatusPaginated(status, page, size, language));
     }
 
+    @GetMapping("/status/{status}/cursor")
+    @Operation(
+        summary = "Get purchase orders by status by cursor",
+        description = "Retrieves purchase orders in the status newest first, one page after the given cursor. " +
+                      "Pass the nextCursor of the previous page to get the next one; the total is only returned on the first page when includeTotal is true"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved purchase orders by status",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = CursorPageDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid status, cursor or page size"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<CursorPageDTO<PurchaseOrderDTOResponse>> getByStatusByCursor(
+            @Parameter(description = "Order status", example = "PENDING", 
+                      schema = @Schema(allowableValues = {"PENDING", "APPROVED", "REJECTED", "CANCELLED"})) 
+            @PathVariable OrderStatus status,
+            @Parameter(description = "Cursor returned by the previous page (empty for the first page)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of items per page (1-100)", example = "10")
+            @Min(1) @Max(100) @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Count the total on the first page", example = "false")
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @Parameter(description = "Language code", example = "ar") 
+            @RequestParam(defaultValue = "ar") String language) {
+        return ResponseEntity.ok(purchaseOrderService.getByStatusByCursor(status, cursor, size, includeTotal, language));
+    }
+
     @GetMapping("/time-range")
     @Operation(
         summary = "Get paginated purchase orders by time range",
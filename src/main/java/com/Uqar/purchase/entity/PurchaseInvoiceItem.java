@@ -61,4 +61,9 @@ public class PurchaseInvoiceItem extends AuditedEntity {
     protected String getSequenceName() {
         return "purchase_invoice_item_id_seq";
     }
+
+    @Override
+    protected int getSequenceAllocationSize() {
+        return POOLED_ALLOCATION_SIZE;
+    }
 } 
\ No newline at end of file
@@ -1,13 +1,17 @@
 package com.Uqar.purchase.repository;
 
 import com.Uqar.purchase.entity.PurchaseInvoice;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface PurchaseInvoiceRepo extends JpaRepository<PurchaseInvoice, Long> {
     
@@ -42,4 +46,40 @@ public interface PurchaseInvoiceRepo extends JpaRepository<PurchaseInvoice, Long
      * Count purchase invoices by pharmacy ID and supplier ID
      */
     long countByPharmacyIdAndSupplierId(Long pharmacyId, Long supplierId);
+
+    /**
+     * Count purchase invoices by pharmacy ID
+     */
+    long countByPharmacyId(Long pharmacyId);
+
+    /**
+     * Purchase invoices of the pharmacy after the keyset cursor, newest first
+     */
+    @Query("SELECT pi FROM PurchaseInvoice pi WHERE pi.pharmacy.id = :pharmacyId " +
+           "AND (pi.createdAt < :createdAt OR (pi.createdAt = :createdAt AND pi.id < :id)) " +
+           "ORDER BY pi.createdAt DESC, pi.id DESC")
+    List<PurchaseInvoice> findPageByPharmacyId(
+        @Param("pharmacyId") Long pharmacyId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+
+    /**
+     * Purchase invoices of the period as scalar rows for the export, read through a forward-only
+     * cursor. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT pi.id, pi.invoiceNumber, pi.createdAt, s.name, po.id, pi.currency, pi.total " +
+           "FROM PurchaseInvoice pi JOIN pi.supplier s LEFT JOIN pi.purchaseOrder po " +
+           "WHERE pi.pharmacy.id = :pharmacyId AND pi.createdAt BETWEEN :startDate AND :endDate " +
+           "ORDER BY pi.createdAt, pi.id")
+    Stream<Object[]> streamExportRows(
+        @Param("pharmacyId") Long pharmacyId,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
 } 
\ No newline at end of file
@@ -2,10 +2,29 @@ package com.Uqar.purchase.repository;
 
 import com.Uqar.purchase.entity.PurchaseOrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import com.Uqar.product.Enum.ProductType;
+import java.util.Collection;
 import java.util.List;
 
 public interface PurchaseOrderItemRepo extends JpaRepository<PurchaseOrderItem, Long> {
 
     List<PurchaseOrderItem> findByProductIdAndProductType(Long productId, ProductType productType);
-} 
\ No newline at end of file
+
+    /**
+     * إجمالي أول طلب شراء لكل منتج
+     * Total of the first purchase order each product appears in, one row per product.
+     * productType is the ProductType ordinal. Columns: product_id, total.
+     */
+    @Query(value = """
+        SELECT DISTINCT ON (poi.product_id) poi.product_id, po.total
+        FROM purchase_order_item poi
+        JOIN purchase_order po ON po.id = poi.purchase_order_id
+        WHERE poi.product_type = :productType
+          AND poi.product_id IN (:productIds)
+        ORDER BY poi.product_id, poi.id
+        """, nativeQuery = true)
+    List<Object[]> findFirstPurchaseOrderTotals(@Param("productIds") Collection<Long> productIds,
+                                                @Param("productType") int productType);
+}
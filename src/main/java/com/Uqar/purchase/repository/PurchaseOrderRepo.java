@@ -36,4 +36,20 @@ public interface PurchaseOrderRepo extends JpaRepository<PurchaseOrder, Long> {
      */
     long countByPharmacyIdAndSupplierId(Long pharmacyId, Long supplierId);
 
+    long countByPharmacyIdAndStatus(Long pharmacyId, OrderStatus status);
+
+    /**
+     * Purchase orders of the pharmacy in a status after the keyset cursor, newest first
+     */
+    @Query("SELECT po FROM PurchaseOrder po WHERE po.pharmacy.id = :pharmacyId AND po.status = :status " +
+           "AND (po.createdAt < :createdAt OR (po.createdAt = :createdAt AND po.id < :id)) " +
+           "ORDER BY po.createdAt DESC, po.id DESC")
+    List<PurchaseOrder> findPageByPharmacyIdAndStatus(
+        @Param("pharmacyId") Long pharmacyId,
+        @Param("status") OrderStatus status,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+
 } 
\ No newline at end of file
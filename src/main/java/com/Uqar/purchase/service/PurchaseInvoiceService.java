@@ -27,6 +27,7 @@ import com.Uqar.notification.enums.NotificationType;
 import com.Uqar.notification.service.NotificationService;
 import com.Uqar.product.Enum.OrderStatus;
 import com.Uqar.product.Enum.ProductType;
+import com.Uqar.utils.response.CursorPageDTO;
 import com.Uqar.product.dto.PaginationDTO;
 import com.Uqar.product.entity.MasterProduct;
 import com.Uqar.product.entity.PharmacyProduct;
@@ -34,6 +35,11 @@ import com.Uqar.product.entity.StockItem;
 import com.Uqar.product.repo.MasterProductRepo;
 import com.Uqar.product.repo.PharmacyProductRepo;
 import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.product.service.MasterProductCatalogue;
+import com.Uqar.product.service.StockAvailabilityCache;
+import com.Uqar.numbering.enums.DocumentType;
+import com.Uqar.numbering.service.DocumentNumberAllocator;
+import com.Uqar.product.service.StockBatchIndex;
 import com.Uqar.purchase.dto.PurchaseInvoiceDTORequest;
 import com.Uqar.purchase.dto.PurchaseInvoiceDTOResponse;
 import com.Uqar.purchase.dto.PurchaseInvoiceItemDTORequest;
@@ -55,6 +61,7 @@ import com.Uqar.user.service.BaseSecurityService;
 import com.Uqar.utils.exception.ConflictException;
 import com.Uqar.utils.exception.RequestNotValidException;
 import com.Uqar.utils.exception.ResourceNotFoundException;
+import com.Uqar.utils.request.KeysetCursor;
 
 import jakarta.transaction.Transactional;
 
@@ -68,13 +75,17 @@ public class PurchaseInvoiceService extends BaseSecurityService {
     private final SupplierRepository supplierRepository;
     private final PurchaseInvoiceMapper purchaseInvoiceMapper;
     private final StockItemRepo stockItemRepo;
+    private final StockAvailabilityCache stockAvailabilityCache;
+    private final StockBatchIndex stockBatchIndex;
     private final MasterProductRepo masterProductRepo;
+    private final MasterProductCatalogue masterProductCatalogue;
     private final PurchaseIntegrationService purchaseIntegrationService;
     private final ExchangeRateService exchangeRateService;
     private final EnhancedMoneyBoxAuditService enhancedAuditService;
     private final MoneyBoxRepository moneyBoxRepository;
     private final NotificationService notificationService;
     private final EmployeeRepository employeeRepository;
+    private final DocumentNumberAllocator documentNumberAllocator;
     private final double purchaseLimit;
 
     public PurchaseInvoiceService(PurchaseInvoiceRepo purchaseInvoiceRepo,
@@ -84,12 +95,16 @@ public class PurchaseInvoiceService extends BaseSecurityService {
                                   SupplierRepository supplierRepository,
                                   PurchaseInvoiceMapper purchaseInvoiceMapper,
                                   StockItemRepo stockItemRepo,
+                                  StockAvailabilityCache stockAvailabilityCache,
+                                  StockBatchIndex stockBatchIndex,
                                   MasterProductRepo masterProductRepo,
+                                  MasterProductCatalogue masterProductCatalogue,
                                   PurchaseIntegrationService purchaseIntegrationService,
                                   ExchangeRateService exchangeRateService,
                                   EnhancedMoneyBoxAuditService enhancedAuditService,
                                   NotificationService notificationService,
                                   EmployeeRepository employeeRepository,
+                                  DocumentNumberAllocator documentNumberAllocator,
                                   @Value("${notifications.purchase.financial-limit:100000}") double purchaseLimit,
                                   com.Uqar.user.repository.UserRepository userRepository, MoneyBoxRepository moneyBoxRepository) {
         super(userRepository);
@@ -100,13 +115,17 @@ public class PurchaseInvoiceService extends BaseSecurityService {
         this.supplierRepository = supplierRepository;
         this.purchaseInvoiceMapper = purchaseInvoiceMapper;
         this.stockItemRepo = stockItemRepo;
+        this.stockAvailabilityCache = stockAvailabilityCache;
+        this.stockBatchIndex = stockBatchIndex;
         this.masterProductRepo = masterProductRepo;
+        this.masterProductCatalogue = masterProductCatalogue;
         this.purchaseIntegrationService = purchaseIntegrationService;
         this.exchangeRateService = exchangeRateService;
         this.enhancedAuditService = enhancedAuditService;
         this.moneyBoxRepository = moneyBoxRepository;
         this.notificationService = notificationService;
         this.employeeRepository = employeeRepository;
+        this.documentNumberAllocator = documentNumberAllocator;
         this.purchaseLimit = purchaseLimit;
     }
 
@@ -188,7 +207,10 @@ public class PurchaseInvoiceService extends BaseSecurityService {
         invoice.setPurchaseOrder(order);
         invoice.setSupplier(supplier);
         invoice.setCurrency(request.getCurrency());
-        invoice.setInvoiceNumber(request.getInvoiceNumber());
+        // بدون رقم فاتورة المورد يبقى الرقم المولد
+        if (request.getInvoiceNumber() != null && !request.getInvoiceNumber().isBlank()) {
+            invoice.setInvoiceNumber(request.getInvoiceNumber());
+        }
         
         // Properly manage the items collection to avoid Hibernate cascade issues
         invoice.getItems().clear();
@@ -261,6 +283,27 @@ public class PurchaseInvoiceService extends BaseSecurityService {
         return listAllPaginated(page, size, "ar");
     }
 
+    /**
+     * فواتير الشراء بمؤشر الصفحة (الأحدث أولاً)
+     * Purchase invoices of the pharmacy after the cursor, newest first. The total is only
+     * counted on the first page and when asked for.
+     */
+    public CursorPageDTO<PurchaseInvoiceDTOResponse> listAllByCursor(String cursor, int size, boolean includeTotal, String language) {
+        Long currentPharmacyId = getCurrentUserPharmacyId();
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        List<PurchaseInvoice> invoices = purchaseInvoiceRepo.findPageByPharmacyId(
+            currentPharmacyId, position.createdAt(), position.id(), KeysetCursor.limit(size));
+        Long total = includeTotal && position.isStart() ? purchaseInvoiceRepo.countByPharmacyId(currentPharmacyId) : null;
+
+        return KeysetCursor.page(invoices, size, PurchaseInvoice::getCreatedAt, PurchaseInvoice::getId, page -> {
+            List<PharmacyProduct> allPharmacyProducts = getAllPharmacyProducts(page);
+            List<MasterProduct> allMasterProducts = getAllMasterProducts(page);
+            return page.stream()
+                .map(invoice -> purchaseInvoiceMapper.toResponse(invoice, allPharmacyProducts, allMasterProducts, language))
+                .toList();
+        }, total);
+    }
+
     // New method for filtering by time range
     public PaginationDTO<PurchaseInvoiceDTOResponse> getByTimeRangePaginated(
             LocalDateTime startDate, LocalDateTime endDate, int page, int size, String language) {
@@ -428,6 +471,10 @@ public class PurchaseInvoiceService extends BaseSecurityService {
         PurchaseInvoice invoice = purchaseInvoiceMapper.toEntity(request, supplier, items);
         invoice.setPurchaseOrder(order);
         invoice.setPharmacy(currentPharmacy);
+        // رقم فاتورة المورد إن وجد، وإلا الرقم التالي في تسلسل الصيدلية
+        if (invoice.getInvoiceNumber() == null || invoice.getInvoiceNumber().isBlank()) {
+            invoice.setInvoiceNumber(documentNumberAllocator.next(currentPharmacy.getId(), DocumentType.PURCHASE));
+        }
         
         setInvoiceItemPrices(invoice);
         calculateInvoiceTotal(invoice);
@@ -584,6 +631,9 @@ public class PurchaseInvoiceService extends BaseSecurityService {
             
             // Save the stock item
             stockItemRepo.save(stockItem);
+            stockAvailabilityCache.adjust(invoice.getPharmacy().getId(), stockItem.getProductId(),
+                stockItem.getProductType(), totalQuantity);
+            stockBatchIndex.update(stockItem);
             
             // Update product information if changed (prices, minStockLevel)
             updateProductInformationIfChanged(item, actualPurchasePrice, request);
@@ -711,6 +761,7 @@ public class PurchaseInvoiceService extends BaseSecurityService {
         // Save the product if any field was updated
         if (updated) {
             masterProductRepo.save(product);
+            masterProductCatalogue.invalidate(product.getId());
         }
     }
 
@@ -27,6 +27,8 @@ import com.Uqar.utils.annotation.Audited;
 import com.Uqar.utils.exception.ConflictException;
 import com.Uqar.utils.exception.ResourceNotFoundException;
 import com.Uqar.utils.exception.UnAuthorizedException;
+import com.Uqar.utils.request.KeysetCursor;
+import com.Uqar.utils.response.CursorPageDTO;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
@@ -194,6 +196,30 @@ public class PurchaseOrderService extends BaseSecurityService {
         return getByStatusPaginated(status, page, size, "ar");
     }
 
+    /**
+     * طلبات الشراء حسب الحالة بمؤشر الصفحة (الأحدث أولاً)
+     * Purchase orders in the status after the cursor, newest first. The total is only
+     * counted on the first page and when asked for.
+     */
+    public CursorPageDTO<PurchaseOrderDTOResponse> getByStatusByCursor(OrderStatus status, String cursor, int size,
+                                                                      boolean includeTotal, String language) {
+        Employee employee = validateAndGetEmployee();
+        Long pharmacyId = employee.getPharmacy().getId();
+
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        List<PurchaseOrder> orders = purchaseOrderRepo.findPageByPharmacyIdAndStatus(
+            pharmacyId, status, position.createdAt(), position.id(), KeysetCursor.limit(size));
+        Long total = includeTotal && position.isStart() ? purchaseOrderRepo.countByPharmacyIdAndStatus(pharmacyId, status) : null;
+
+        return KeysetCursor.page(orders, size, PurchaseOrder::getCreatedAt, PurchaseOrder::getId, page -> {
+            List<PharmacyProduct> allPharmacyProducts = getAllPharmacyProducts(page);
+            List<MasterProduct> allMasterProducts = getAllMasterProducts(page);
+            return page.stream()
+                .map(order -> purchaseOrderMapper.toResponse(order, allPharmacyProducts, allMasterProducts, language))
+                .toList();
+        }, total);
+    }
+
     // New method for filtering by time range
     public PaginationDTO<PurchaseOrderDTOResponse> getByTimeRangePaginated(
             LocalDateTime startDate, LocalDateTime endDate, int page, int size, String language) {
@@ -2,6 +2,7 @@ package com.Uqar.reports.controller;
 
 import com.Uqar.reports.dto.response.TopSoldProductsResponse;
 import com.Uqar.reports.service.AdminReportService;
+import com.Uqar.reports.service.SalesRollupService;
 import com.Uqar.utils.controller.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -21,6 +22,9 @@ public class AdminReportController extends BaseController {
     @Autowired
     private AdminReportService adminReportService;
 
+    @Autowired
+    private SalesRollupService salesRollupService;
+
     /**
      * Get top 10 sold products in a specific area
      * @param areaId The area ID to filter by
@@ -122,4 +126,36 @@ public class AdminReportController extends BaseController {
             return sendResponse("Failed to retrieve total active users count: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
+
+    /**
+     * Rebuild the daily sales rollup used by the profit reports (backfill)
+     * @param startDate First day to rebuild
+     * @param endDate Last day to rebuild
+     * @param pharmacyId Pharmacy to rebuild (optional, all pharmacies with sales when omitted)
+     * @return Number of pharmacies rebuilt
+     */
+    @PostMapping("/sales-rollup/rebuild")
+    @PreAuthorize("hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<?> rebuildSalesRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long pharmacyId) {
+        
+        try {
+            if (startDate.isAfter(endDate)) {
+                return sendResponse("Start date cannot be after end date", HttpStatus.BAD_REQUEST);
+            }
+            
+            int rebuilt;
+            if (pharmacyId != null) {
+                salesRollupService.rebuild(pharmacyId, startDate, endDate);
+                rebuilt = 1;
+            } else {
+                rebuilt = salesRollupService.rebuildAll(startDate, endDate);
+            }
+            return sendResponse(rebuilt, "Sales rollup rebuilt successfully", HttpStatus.OK);
+        } catch (Exception e) {
+            return sendResponse("Failed to rebuild sales rollup: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package com.Uqar.reports.controller;
+
+import com.Uqar.reports.enums.ExportFormat;
+import com.Uqar.reports.service.LedgerExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * Ledger Export Controller
+ * Downloads the sales, purchases and money box ledgers of a period as CSV or XLSX.
+ * The files are streamed while the rows are read, whatever the length of the period.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/reports/export")
+@RequiredArgsConstructor
+@CrossOrigin("*")
+@Tag(name = "Ledger Export", description = "Streaming CSV/XLSX export of the sales, purchases and money box ledgers")
+public class LedgerExportController {
+
+    private final LedgerExportService ledgerExportService;
+
+    @PreAuthorize("hasRole('PHARMACY_MANAGER')")
+    @GetMapping("/sales")
+    @Operation(summary = "Export sales", description = "Download the sale invoices of the period as CSV or XLSX")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export file streamed"),
+        @ApiResponse(responseCode = "400", description = "Invalid period")
+    })
+    public ResponseEntity<StreamingResponseBody> exportSales(
+            @Parameter(description = "Start date (YYYY-MM-DD)", example = "2024-01-01")
+            @RequestParam LocalDate startDate,
+            @Parameter(description = "End date (YYYY-MM-DD)", example = "2024-12-31")
+            @RequestParam LocalDate endDate,
+            @Parameter(description = "File format", example = "CSV")
+            @RequestParam(defaultValue = "CSV") ExportFormat format) {
+        log.info("Exporting sales from {} to {} as {}", startDate, endDate, format);
+        StreamingResponseBody body = ledgerExportService.exportSales(startDate, endDate, format);
+        return download(body, LedgerExportService.fileName("sales", startDate, endDate, format), format);
+    }
+
+    @PreAuthorize("hasRole('PHARMACY_MANAGER')")
+    @GetMapping("/purchases")
+    @Operation(summary = "Export purchases", description = "Download the purchase invoices of the period as CSV or XLSX")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export file streamed"),
+        @ApiResponse(responseCode = "400", description = "Invalid period")
+    })
+    public ResponseEntity<StreamingResponseBody> exportPurchases(
+            @Parameter(description = "Start date (YYYY-MM-DD)", example = "2024-01-01")
+            @RequestParam LocalDate startDate,
+            @Parameter(description = "End date (YYYY-MM-DD)", example = "2024-12-31")
+            @RequestParam LocalDate endDate,
+            @Parameter(description = "File format", example = "CSV")
+            @RequestParam(defaultValue = "CSV") ExportFormat format) {
+        log.info("Exporting purchases from {} to {} as {}", startDate, endDate, format);
+        StreamingResponseBody body = ledgerExportService.exportPurchases(startDate, endDate, format);
+        return download(body, LedgerExportService.fileName("purchases", startDate, endDate, format), format);
+    }
+
+    @PreAuthorize("hasRole('PHARMACY_MANAGER')")
+    @GetMapping("/money-box")
+    @Operation(summary = "Export money box ledger", description = "Download the money box transactions of the period as CSV or XLSX")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export file streamed"),
+        @ApiResponse(responseCode = "400", description = "Invalid period"),
+        @ApiResponse(responseCode = "404", description = "Money box not found")
+    })
+    public ResponseEntity<StreamingResponseBody> exportMoneyBox(
+            @Parameter(description = "Start date (YYYY-MM-DD)", example = "2024-01-01")
+            @RequestParam LocalDate startDate,
+            @Parameter(description = "End date (YYYY-MM-DD)", example = "2024-12-31")
+            @RequestParam LocalDate endDate,
+            @Parameter(description = "File format", example = "CSV")
+            @RequestParam(defaultValue = "CSV") ExportFormat format) {
+        log.info("Exporting money box ledger from {} to {} as {}", startDate, endDate, format);
+        StreamingResponseBody body = ledgerExportService.exportMoneyBox(startDate, endDate, format);
+        return download(body, LedgerExportService.fileName("money_box", startDate, endDate, format), format);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(StreamingResponseBody body, String fileName, ExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,63 @@
+package com.Uqar.reports.entity;
+
+import com.Uqar.user.Enum.Currency;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * ملخص يومي للمبيعات والأرباح لكل صيدلية وعملة
+ * Daily sales/profit rollup per (pharmacy, day, currency).
+ * Amounts are in the invoice currency and net of refunds.
+ */
+@Entity
+@Table(name = "daily_sales_rollup",
+       uniqueConstraints = @UniqueConstraint(name = "uk_daily_sales_rollup_pharmacy_date_currency",
+                                             columnNames = {"pharmacy_id", "sales_date", "currency"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailySalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pharmacy_id", nullable = false)
+    private Long pharmacyId;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "currency", length = 3, nullable = false)
+    private Currency currency;
+
+    @Builder.Default
+    @Column(name = "total_revenue", precision = 19, scale = 4, nullable = false)
+    private BigDecimal totalRevenue = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(name = "total_cost", precision = 19, scale = 4, nullable = false)
+    private BigDecimal totalCost = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(name = "total_profit", precision = 19, scale = 4, nullable = false)
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(name = "invoice_count", nullable = false)
+    private Long invoiceCount = 0L;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,166 @@
+package com.Uqar.reports.repository;
+
+import com.Uqar.reports.entity.DailySalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily sales rollup repository
+ * Reads the pre-aggregated (pharmacy, day, currency) rows used by the profit reports,
+ * applies incremental deltas, and aggregates the raw sale tables for rebuilds.
+ */
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, Long> {
+
+    // ============================================================================
+    // INCREMENTAL UPDATES
+    // ============================================================================
+
+    /**
+     * Add a delta to the rollup row of (pharmacy, day, currency), creating it if needed.
+     * Runs as one atomic statement so concurrent sales of the same day never lose an update.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_sales_rollup (pharmacy_id, sales_date, currency, total_revenue, total_cost, total_profit, invoice_count, updated_at)
+        VALUES (:pharmacyId, :salesDate, :currency, :revenue, :cost, :profit, :invoiceCount, now())
+        ON CONFLICT (pharmacy_id, sales_date, currency) DO UPDATE SET
+            total_revenue = daily_sales_rollup.total_revenue + EXCLUDED.total_revenue,
+            total_cost = daily_sales_rollup.total_cost + EXCLUDED.total_cost,
+            total_profit = daily_sales_rollup.total_profit + EXCLUDED.total_profit,
+            invoice_count = daily_sales_rollup.invoice_count + EXCLUDED.invoice_count,
+            updated_at = now()
+        """, nativeQuery = true)
+    void applyDelta(@Param("pharmacyId") Long pharmacyId,
+                    @Param("salesDate") LocalDate salesDate,
+                    @Param("currency") String currency,
+                    @Param("revenue") BigDecimal revenue,
+                    @Param("cost") BigDecimal cost,
+                    @Param("profit") BigDecimal profit,
+                    @Param("invoiceCount") long invoiceCount);
+
+    @Modifying
+    @Query("DELETE FROM DailySalesRollup r WHERE r.pharmacyId = :pharmacyId AND r.salesDate BETWEEN :startDate AND :endDate")
+    void deleteByPharmacyIdAndSalesDateBetween(@Param("pharmacyId") Long pharmacyId,
+                                               @Param("startDate") LocalDate startDate,
+                                               @Param("endDate") LocalDate endDate);
+
+    // ============================================================================
+    // REPORT QUERIES (same keys as the raw ReportRepository profit queries)
+    // ============================================================================
+
+    @Query("SELECT " +
+           "r.salesDate as date, " +
+           "r.invoiceCount as totalInvoices, " +
+           "r.totalRevenue as totalRevenue, " +
+           "r.totalProfit as totalProfit, " +
+           "CASE WHEN r.invoiceCount > 0 THEN r.totalRevenue / r.invoiceCount ELSE 0 END as averageRevenue, " +
+           "r.currency as currency " +
+           "FROM DailySalesRollup r " +
+           "WHERE r.pharmacyId = :pharmacyId " +
+           "AND r.salesDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY r.salesDate")
+    List<Map<String, Object>> getDailyBreakdown(@Param("pharmacyId") Long pharmacyId,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT " +
+           "SUM(r.invoiceCount) as totalInvoices, " +
+           "SUM(r.totalRevenue) as totalRevenue, " +
+           "SUM(r.totalProfit) as totalProfit, " +
+           "r.currency as currency " +
+           "FROM DailySalesRollup r " +
+           "WHERE r.pharmacyId = :pharmacyId " +
+           "AND r.salesDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.currency")
+    List<Map<String, Object>> getSummary(@Param("pharmacyId") Long pharmacyId,
+                                         @Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate);
+
+    // ============================================================================
+    // SOURCE AGGREGATES FOR REBUILD
+    // ============================================================================
+
+    @Query("SELECT MIN(si.invoiceDate) FROM SaleInvoice si")
+    LocalDateTime findFirstInvoiceDate();
+
+    @Query("SELECT DISTINCT si.pharmacy.id FROM SaleInvoice si " +
+           "WHERE DATE(si.invoiceDate) BETWEEN :startDate AND :endDate")
+    List<Long> findPharmacyIdsWithSales(@Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT " +
+           "DATE(si.invoiceDate) as date, " +
+           "si.currency as currency, " +
+           "COUNT(si) as invoiceCount, " +
+           "SUM(si.totalAmount) as revenue " +
+           "FROM SaleInvoice si " +
+           "WHERE si.pharmacy.id = :pharmacyId " +
+           "AND DATE(si.invoiceDate) BETWEEN :startDate AND :endDate " +
+           "AND si.status = 'SOLD' " +
+           "GROUP BY DATE(si.invoiceDate), si.currency")
+    List<Map<String, Object>> aggregateInvoices(@Param("pharmacyId") Long pharmacyId,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT " +
+           "DATE(si.invoiceDate) as date, " +
+           "si.currency as currency, " +
+           "SUM(COALESCE(sii.quantity * sii.stockItem.actualPurchasePrice, 0)) as cost, " +
+           "SUM(CASE " +
+           "  WHEN sii.stockItem.actualPurchasePrice IS NULL THEN sii.subTotal " +
+           "  ELSE (sii.subTotal - (sii.quantity * sii.stockItem.actualPurchasePrice)) " +
+           "END) as profit " +
+           "FROM SaleInvoiceItem sii " +
+           "JOIN sii.saleInvoice si " +
+           "WHERE si.pharmacy.id = :pharmacyId " +
+           "AND DATE(si.invoiceDate) BETWEEN :startDate AND :endDate " +
+           "AND si.status = 'SOLD' " +
+           "GROUP BY DATE(si.invoiceDate), si.currency")
+    List<Map<String, Object>> aggregateInvoiceItems(@Param("pharmacyId") Long pharmacyId,
+                                                    @Param("startDate") LocalDate startDate,
+                                                    @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT " +
+           "DATE(si.invoiceDate) as date, " +
+           "si.currency as currency, " +
+           "SUM(sr.totalRefundAmount) as revenue " +
+           "FROM SaleRefund sr " +
+           "JOIN sr.saleInvoice si " +
+           "WHERE si.pharmacy.id = :pharmacyId " +
+           "AND DATE(si.invoiceDate) BETWEEN :startDate AND :endDate " +
+           "AND si.status = 'SOLD' " +
+           "GROUP BY DATE(si.invoiceDate), si.currency")
+    List<Map<String, Object>> aggregateRefunds(@Param("pharmacyId") Long pharmacyId,
+                                               @Param("startDate") LocalDate startDate,
+                                               @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT " +
+           "DATE(si.invoiceDate) as date, " +
+           "si.currency as currency, " +
+           "SUM(COALESCE(sri.refundQuantity * sii.stockItem.actualPurchasePrice, 0)) as cost, " +
+           "SUM(CASE " +
+           "  WHEN sii.stockItem.actualPurchasePrice IS NULL THEN sri.subtotal " +
+           "  ELSE (sri.subtotal - (sri.refundQuantity * sii.stockItem.actualPurchasePrice)) " +
+           "END) as profit " +
+           "FROM SaleRefundItem sri " +
+           "JOIN sri.saleRefund sr " +
+           "JOIN sr.saleInvoice si " +
+           "JOIN sri.saleInvoiceItem sii " +
+           "WHERE si.pharmacy.id = :pharmacyId " +
+           "AND DATE(si.invoiceDate) BETWEEN :startDate AND :endDate " +
+           "AND si.status = 'SOLD' " +
+           "GROUP BY DATE(si.invoiceDate), si.currency")
+    List<Map<String, Object>> aggregateRefundItems(@Param("pharmacyId") Long pharmacyId,
+                                                   @Param("startDate") LocalDate startDate,
+                                                   @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,77 @@
+package com.Uqar.reports.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * كتابة الصفوف بصيغة CSV
+ * RFC 4180 CSV in UTF-8 with a byte order mark, so spreadsheet programs read the Arabic text
+ * correctly. The output is flushed every {@value #FLUSH_EVERY_ROWS} rows, so the client starts
+ * receiving the file while the query is still running.
+ *
+ * Text that a spreadsheet would read as a formula (starting with =, +, -, @, tab or carriage
+ * return) is prefixed with an apostrophe, so a customer name or a transaction description cannot
+ * run as a formula when the export is opened. Numbers are written as they are.
+ */
+final class CsvRowWriter implements RowWriter {
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final Writer writer;
+    private int rows;
+
+    CsvRowWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            writer.write('\uFEFF');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values[i]));
+        }
+        writer.write("\r\n");
+        if (++rows % FLUSH_EVERY_ROWS == 0) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Number ? value.toString() : neutralizeFormula(value.toString());
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static String neutralizeFormula(String text) {
+        if (text.isEmpty()) {
+            return text;
+        }
+        char first = text.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+            return "'" + text;
+        }
+        return text;
+    }
+}
@@ -0,0 +1,163 @@
+package com.Uqar.reports.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.Uqar.moneybox.entity.MoneyBox;
+import com.Uqar.moneybox.repository.MoneyBoxRepository;
+import com.Uqar.moneybox.repository.MoneyBoxTransactionRepository;
+import com.Uqar.purchase.repository.PurchaseInvoiceRepo;
+import com.Uqar.reports.enums.ExportFormat;
+import com.Uqar.sale.repo.SaleInvoiceRepository;
+import com.Uqar.user.repository.UserRepository;
+import com.Uqar.user.service.BaseSecurityService;
+import com.Uqar.utils.exception.RequestNotValidException;
+import com.Uqar.utils.exception.ResourceNotFoundException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * خدمة تصدير سجلات المبيعات والمشتريات والصندوق
+ * Streams the sales, purchases and money box ledgers of a period as CSV or XLSX.
+ *
+ * The rows are read as scalar values through a forward-only cursor with a fetch size, so
+ * no entity is loaded into the persistence context and only one fetch of rows is in memory at
+ * a time, and each row is written to the response as soon as it is read. The body runs on the
+ * async request thread, so the pharmacy is resolved beforehand and the read-only transaction
+ * that keeps the cursor open is started inside the body.
+ */
+@Slf4j
+@Service
+public class LedgerExportService extends BaseSecurityService {
+
+    private static final String[] SALES_HEADER = {
+        "Invoice ID", "Invoice Number", "Invoice Date", "Customer", "Payment Type", "Payment Method", "Currency",
+        "Total Amount", "Discount", "Discount Type", "Paid Amount", "Remaining Amount",
+        "Status", "Payment Status", "Refund Status"
+    };
+    private static final String[] PURCHASES_HEADER = {
+        "Invoice ID", "Invoice Number", "Created At", "Supplier", "Purchase Order ID", "Currency", "Total"
+    };
+    private static final String[] MONEY_BOX_HEADER = {
+        "Transaction ID", "Created At", "Type", "Description", "Amount (SYP)", "Original Currency", "Original Amount",
+        "Exchange Rate", "Balance Before", "Balance After", "Reference Type", "Reference ID", "Created By"
+    };
+
+    private final SaleInvoiceRepository saleInvoiceRepository;
+    private final PurchaseInvoiceRepo purchaseInvoiceRepo;
+    private final MoneyBoxRepository moneyBoxRepository;
+    private final MoneyBoxTransactionRepository transactionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public LedgerExportService(UserRepository userRepository,
+                               SaleInvoiceRepository saleInvoiceRepository,
+                               PurchaseInvoiceRepo purchaseInvoiceRepo,
+                               MoneyBoxRepository moneyBoxRepository,
+                               MoneyBoxTransactionRepository transactionRepository,
+                               PlatformTransactionManager transactionManager) {
+        super(userRepository);
+        this.saleInvoiceRepository = saleInvoiceRepository;
+        this.purchaseInvoiceRepo = purchaseInvoiceRepo;
+        this.moneyBoxRepository = moneyBoxRepository;
+        this.transactionRepository = transactionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * تصدير فواتير المبيعات للفترة
+     * Sale invoices of the current pharmacy between the two dates (inclusive)
+     */
+    public StreamingResponseBody exportSales(LocalDate startDate, LocalDate endDate, ExportFormat format) {
+        validatePeriod(startDate, endDate);
+        Long pharmacyId = getCurrentUserPharmacyId();
+        return export(format, "Sales", SALES_HEADER, () -> saleInvoiceRepository.streamExportRows(
+            pharmacyId, startDate.atStartOfDay(), endDate.atTime(23, 59, 59)));
+    }
+
+    /**
+     * تصدير فواتير الشراء للفترة
+     * Purchase invoices of the current pharmacy between the two dates (inclusive)
+     */
+    public StreamingResponseBody exportPurchases(LocalDate startDate, LocalDate endDate, ExportFormat format) {
+        validatePeriod(startDate, endDate);
+        Long pharmacyId = getCurrentUserPharmacyId();
+        return export(format, "Purchases", PURCHASES_HEADER, () -> purchaseInvoiceRepo.streamExportRows(
+            pharmacyId, startDate.atStartOfDay(), endDate.atTime(23, 59, 59)));
+    }
+
+    /**
+     * تصدير حركات الصندوق للفترة
+     * Money box transactions of the current pharmacy between the two dates (inclusive)
+     */
+    public StreamingResponseBody exportMoneyBox(LocalDate startDate, LocalDate endDate, ExportFormat format) {
+        validatePeriod(startDate, endDate);
+        Long pharmacyId = getCurrentUserPharmacyId();
+        MoneyBox moneyBox = moneyBoxRepository.findByPharmacyId(pharmacyId)
+            .orElseThrow(() -> new ResourceNotFoundException("Money box not found for pharmacy: " + pharmacyId));
+        Long moneyBoxId = moneyBox.getId();
+        return export(format, "Money Box", MONEY_BOX_HEADER, () -> transactionRepository.streamExportRows(
+            moneyBoxId, startDate.atStartOfDay(), endDate.atTime(23, 59, 59)));
+    }
+
+    private StreamingResponseBody export(ExportFormat format, String sheetName, String[] header,
+                                         Supplier<Stream<Object[]>> query) {
+        return out -> {
+            long startedAt = System.currentTimeMillis();
+            long rows = readOnlyTransaction.execute(status -> {
+                try (Stream<Object[]> stream = query.get()) {
+                    return write(format, sheetName, header, stream, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("{} export of {} rows completed in {} ms", sheetName, rows, System.currentTimeMillis() - startedAt);
+        };
+    }
+
+    private static long write(ExportFormat format, String sheetName, String[] header,
+                              Stream<Object[]> stream, OutputStream out) throws IOException {
+        long rows = 0;
+        try (RowWriter writer = RowWriter.open(format, sheetName, out)) {
+            writer.writeRow(header);
+            Iterator<Object[]> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                writer.writeRow(toCells(iterator.next()));
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    // Enums are written by name, the rest as they are
+    private static Object[] toCells(Object[] row) {
+        Object[] cells = new Object[row.length];
+        for (int i = 0; i < row.length; i++) {
+            cells[i] = row[i] instanceof Enum<?> value ? value.name() : row[i];
+        }
+        return cells;
+    }
+
+    private static void validatePeriod(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new RequestNotValidException("Start date and end date are required");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new RequestNotValidException("Start date must be before or equal to end date");
+        }
+    }
+
+    public static String fileName(String ledger, LocalDate startDate, LocalDate endDate, ExportFormat format) {
+        return ledger + "_" + startDate + "_" + endDate + "." + format.getExtension();
+    }
+}
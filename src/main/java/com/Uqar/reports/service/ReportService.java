@@ -3,11 +3,13 @@ package com.Uqar.reports.service;
 import com.Uqar.reports.dto.response.*;
 import com.Uqar.reports.enums.Language;
 import com.Uqar.reports.mapper.ReportMapper;
+import com.Uqar.reports.repository.DailySalesRollupRepository;
 import com.Uqar.reports.repository.ReportRepository;
 import com.Uqar.user.Enum.Currency;
 import com.Uqar.user.repository.UserRepository;
 import com.Uqar.user.service.BaseSecurityService;
 import com.Uqar.moneybox.service.ExchangeRateService;
+import com.Uqar.moneybox.service.ExchangeRateSnapshot;
 import com.Uqar.product.entity.PharmacyProduct;
 import com.Uqar.product.entity.MasterProduct;
 import com.Uqar.product.repo.PharmacyProductRepo;
@@ -46,10 +48,12 @@ public class ReportService extends BaseSecurityService {
     private final PharmacyProductRepo pharmacyProductRepo;
     private final MasterProductRepo masterProductRepo;
     private final LanguageRepo languageRepo;
+    private final DailySalesRollupRepository dailySalesRollupRepository;
     
     public ReportService(UserRepository userRepository, ReportRepository reportRepository, ReportMapper reportMapper, 
                         ExchangeRateService exchangeRateService, PharmacyProductRepo pharmacyProductRepo, 
-                        MasterProductRepo masterProductRepo, LanguageRepo languageRepo) {
+                        MasterProductRepo masterProductRepo, LanguageRepo languageRepo,
+                        DailySalesRollupRepository dailySalesRollupRepository) {
         super(userRepository);
         this.reportRepository = reportRepository;
         this.reportMapper = reportMapper;
@@ -57,6 +61,7 @@ public class ReportService extends BaseSecurityService {
         this.pharmacyProductRepo = pharmacyProductRepo;
         this.masterProductRepo = masterProductRepo;
         this.languageRepo = languageRepo;
+        this.dailySalesRollupRepository = dailySalesRollupRepository;
     }
     
     // ============================================================================
@@ -64,39 +69,40 @@ public class ReportService extends BaseSecurityService {
     // ============================================================================
     
     /**
-     * Convert amount to SYP (base currency) for consistent calculations
+     * Convert amount to SYP (base currency) for consistent calculations.
+     * Each report pins one rate snapshot and passes it to every conversion.
      */
-    private BigDecimal convertToSYP(BigDecimal amount, Currency currency) {
+    private BigDecimal convertToSYP(BigDecimal amount, Currency currency, ExchangeRateSnapshot rates) {
         if (currency == Currency.SYP) {
             return amount;
         }
-        return exchangeRateService.convertToSYP(amount, currency);
+        return exchangeRateService.convertToSYP(amount, currency, rates);
     }
     
     /**
      * Convert amount from SYP to target currency for display
      */
-    private BigDecimal convertFromSYP(BigDecimal amount, Currency targetCurrency) {
+    private BigDecimal convertFromSYP(BigDecimal amount, Currency targetCurrency, ExchangeRateSnapshot rates) {
         if (targetCurrency == Currency.SYP) {
             return amount;
         }
         Currency userCurrency = Currency.valueOf(targetCurrency.name());
-        return exchangeRateService.convertFromSYP(amount, userCurrency);
+        return exchangeRateService.convertFromSYP(amount, userCurrency, rates);
     }
     
     /**
      * Process currency-aware profit data and convert to target currency
      * This method is specifically designed for profit reports
      */
-    private Map<String, Object> processCurrencyAwareProfitData(List<Map<String, Object>> rawData, Currency targetCurrency) {
-        return processCurrencyAwareProfitData(rawData, targetCurrency, null);
+    private Map<String, Object> processCurrencyAwareProfitData(List<Map<String, Object>> rawData, Currency targetCurrency, ExchangeRateSnapshot rates) {
+        return processCurrencyAwareProfitData(rawData, targetCurrency, null, rates);
     }
     
     /**
      * Process currency-aware profit data and convert to target currency
      * This method is specifically designed for profit reports
      */
-    private Map<String, Object> processCurrencyAwareProfitData(List<Map<String, Object>> rawData, Currency targetCurrency, LocalDate date) {
+    private Map<String, Object> processCurrencyAwareProfitData(List<Map<String, Object>> rawData, Currency targetCurrency, LocalDate date, ExchangeRateSnapshot rates) {
         BigDecimal totalRevenue = BigDecimal.ZERO;
         BigDecimal totalProfit = BigDecimal.ZERO;
         int totalInvoices = 0;
@@ -122,8 +128,8 @@ public class ReportService extends BaseSecurityService {
             int invoices = ((Number) invoicesObj).intValue();
             
             // Convert to SYP for consistent calculation
-            BigDecimal revenueInSYP = convertToSYP(revenue, currency);
-            BigDecimal profitInSYP = convertToSYP(profit, currency);
+            BigDecimal revenueInSYP = convertToSYP(revenue, currency, rates);
+            BigDecimal profitInSYP = convertToSYP(profit, currency, rates);
             
             totalRevenue = totalRevenue.add(revenueInSYP);
             totalProfit = totalProfit.add(profitInSYP);
@@ -132,10 +138,10 @@ public class ReportService extends BaseSecurityService {
         }
         
         // Convert final totals to target currency for display
-        BigDecimal finalTotalRevenue = convertFromSYP(totalRevenue, targetCurrency);
-        BigDecimal finalTotalProfit = convertFromSYP(totalProfit, targetCurrency);
+        BigDecimal finalTotalRevenue = convertFromSYP(totalRevenue, targetCurrency, rates);
+        BigDecimal finalTotalProfit = convertFromSYP(totalProfit, targetCurrency, rates);
         BigDecimal finalTotalCost = finalTotalRevenue.subtract(finalTotalProfit);
-        BigDecimal averageRevenue = totalInvoices > 0 ? convertFromSYP(sumForAverage.divide(BigDecimal.valueOf(totalInvoices), 2, BigDecimal.ROUND_HALF_UP), targetCurrency) : BigDecimal.ZERO;
+        BigDecimal averageRevenue = totalInvoices > 0 ? convertFromSYP(sumForAverage.divide(BigDecimal.valueOf(totalInvoices), 2, BigDecimal.ROUND_HALF_UP), targetCurrency, rates) : BigDecimal.ZERO;
         
         // Calculate profit margin
         Double profitMargin = finalTotalRevenue.compareTo(BigDecimal.ZERO) > 0 ? 
@@ -169,7 +175,7 @@ public class ReportService extends BaseSecurityService {
     /**
      * Process currency-aware data and convert to target currency
      */
-    private Map<String, Object> processCurrencyAwareData(List<Map<String, Object>> rawData, Currency targetCurrency) {
+    private Map<String, Object> processCurrencyAwareData(List<Map<String, Object>> rawData, Currency targetCurrency, ExchangeRateSnapshot rates) {
         BigDecimal totalAmount = BigDecimal.ZERO;
         BigDecimal totalPaid = BigDecimal.ZERO;
         BigDecimal totalProfit = BigDecimal.ZERO;
@@ -196,8 +202,8 @@ public class ReportService extends BaseSecurityService {
             int invoices = ((Number) invoicesObj).intValue();
             
             // Convert to SYP for consistent calculation
-            BigDecimal amountInSYP = convertToSYP(amount, currency);
-            BigDecimal paidInSYP = convertToSYP(paid, currency);
+            BigDecimal amountInSYP = convertToSYP(amount, currency, rates);
+            BigDecimal paidInSYP = convertToSYP(paid, currency, rates);
             
             totalAmount = totalAmount.add(amountInSYP);
             totalPaid = totalPaid.add(paidInSYP);
@@ -208,24 +214,24 @@ public class ReportService extends BaseSecurityService {
             Object profitObj = data.get("totalProfit");
             if (profitObj != null) {
                 BigDecimal profit = new BigDecimal(profitObj.toString());
-                BigDecimal profitInSYP = convertToSYP(profit, currency);
+                BigDecimal profitInSYP = convertToSYP(profit, currency, rates);
                 totalProfit = totalProfit.add(profitInSYP);
             }
             
             Object revenueObj = data.get("totalRevenue");
             if (revenueObj != null) {
                 BigDecimal revenue = new BigDecimal(revenueObj.toString());
-                BigDecimal revenueInSYP = convertToSYP(revenue, currency);
+                BigDecimal revenueInSYP = convertToSYP(revenue, currency, rates);
                 totalRevenue = totalRevenue.add(revenueInSYP);
             }
         }
         
         // Convert final totals to target currency for display
-        BigDecimal finalTotalAmount = convertFromSYP(totalAmount, targetCurrency);
-        BigDecimal finalTotalPaid = convertFromSYP(totalPaid, targetCurrency);
-        BigDecimal finalTotalProfit = convertFromSYP(totalProfit, targetCurrency);
-        BigDecimal finalTotalRevenue = convertFromSYP(totalRevenue, targetCurrency);
-        BigDecimal averageAmount = totalInvoices > 0 ? convertFromSYP(sumForAverage.divide(BigDecimal.valueOf(totalInvoices), 2, BigDecimal.ROUND_HALF_UP), targetCurrency) : BigDecimal.ZERO;
+        BigDecimal finalTotalAmount = convertFromSYP(totalAmount, targetCurrency, rates);
+        BigDecimal finalTotalPaid = convertFromSYP(totalPaid, targetCurrency, rates);
+        BigDecimal finalTotalProfit = convertFromSYP(totalProfit, targetCurrency, rates);
+        BigDecimal finalTotalRevenue = convertFromSYP(totalRevenue, targetCurrency, rates);
+        BigDecimal averageAmount = totalInvoices > 0 ? convertFromSYP(sumForAverage.divide(BigDecimal.valueOf(totalInvoices), 2, BigDecimal.ROUND_HALF_UP), targetCurrency, rates) : BigDecimal.ZERO;
         
         Map<String, Object> result;
         if (totalProfit.compareTo(BigDecimal.ZERO) > 0) {
@@ -253,7 +259,7 @@ public class ReportService extends BaseSecurityService {
      * Process currency-aware daily data and convert to target currency
      * This method processes daily breakdown data (not summary data)
      */
-    private List<Map<String, Object>> processCurrencyAwareDailyData(List<Map<String, Object>> rawData, Currency targetCurrency) {
+    private List<Map<String, Object>> processCurrencyAwareDailyData(List<Map<String, Object>> rawData, Currency targetCurrency, ExchangeRateSnapshot rates) {
         return rawData.stream()
             .map(data -> {
                 // Handle null values safely
@@ -277,14 +283,14 @@ public class ReportService extends BaseSecurityService {
                 int invoices = ((Number) invoicesObj).intValue();
                 
                 // Convert to SYP for consistent calculation
-                BigDecimal amountInSYP = convertToSYP(amount, currency);
-                BigDecimal paidInSYP = convertToSYP(paid, currency);
-                BigDecimal averageInSYP = convertToSYP(average, currency);
+                BigDecimal amountInSYP = convertToSYP(amount, currency, rates);
+                BigDecimal paidInSYP = convertToSYP(paid, currency, rates);
+                BigDecimal averageInSYP = convertToSYP(average, currency, rates);
                 
                 // Convert from SYP to target currency for display
-                BigDecimal finalAmount = convertFromSYP(amountInSYP, targetCurrency);
-                BigDecimal finalPaid = convertFromSYP(paidInSYP, targetCurrency);
-                BigDecimal finalAverage = convertFromSYP(averageInSYP, targetCurrency);
+                BigDecimal finalAmount = convertFromSYP(amountInSYP, targetCurrency, rates);
+                BigDecimal finalPaid = convertFromSYP(paidInSYP, targetCurrency, rates);
+                BigDecimal finalAverage = convertFromSYP(averageInSYP, targetCurrency, rates);
                 
                 return Map.of(
                     "date", dateObj,
@@ -303,7 +309,7 @@ public class ReportService extends BaseSecurityService {
      * Process currency-aware daily profit data and convert to target currency
      * This method processes daily profit breakdown data (not summary data)
      */
-    private List<Map<String, Object>> processCurrencyAwareDailyProfitData(List<Map<String, Object>> rawData, Currency targetCurrency) {
+    private List<Map<String, Object>> processCurrencyAwareDailyProfitData(List<Map<String, Object>> rawData, Currency targetCurrency, ExchangeRateSnapshot rates) {
         return rawData.stream()
             .map(data -> {
                 // Handle null values safely
@@ -327,14 +333,14 @@ public class ReportService extends BaseSecurityService {
                 int invoices = ((Number) invoicesObj).intValue();
                 
                 // Convert to SYP for consistent calculation
-                BigDecimal revenueInSYP = convertToSYP(revenue, currency);
-                BigDecimal profitInSYP = convertToSYP(profit, currency);
-                BigDecimal averageInSYP = convertToSYP(average, currency);
+                BigDecimal revenueInSYP = convertToSYP(revenue, currency, rates);
+                BigDecimal profitInSYP = convertToSYP(profit, currency, rates);
+                BigDecimal averageInSYP = convertToSYP(average, currency, rates);
                 
                 // Convert from SYP to target currency for display
-                BigDecimal finalRevenue = convertFromSYP(revenueInSYP, targetCurrency);
-                BigDecimal finalProfit = convertFromSYP(profitInSYP, targetCurrency);
-                BigDecimal finalAverage = convertFromSYP(averageInSYP, targetCurrency);
+                BigDecimal finalRevenue = convertFromSYP(revenueInSYP, targetCurrency, rates);
+                BigDecimal finalProfit = convertFromSYP(profitInSYP, targetCurrency, rates);
+                BigDecimal finalAverage = convertFromSYP(averageInSYP, targetCurrency, rates);
                 
                 return Map.of(
                     "date", dateObj,
@@ -353,7 +359,7 @@ public class ReportService extends BaseSecurityService {
      * Process currency-aware items and convert to target currency
      * Note: Prices from database are already in SYP, so we only convert from SYP to target currency
      */
-    private List<Map<String, Object>> processCurrencyAwareItems(List<Map<String, Object>> rawItems, Currency targetCurrency) {
+    private List<Map<String, Object>> processCurrencyAwareItems(List<Map<String, Object>> rawItems, Currency targetCurrency, ExchangeRateSnapshot rates) {
         return rawItems.stream()
             .map(item -> {
                 // Handle null values safely
@@ -370,8 +376,8 @@ public class ReportService extends BaseSecurityService {
                     new BigDecimal(subTotalObj.toString()) : BigDecimal.ZERO;
                 
                 // Convert from SYP to target currency
-                BigDecimal finalUnitPrice = convertFromSYP(unitPriceInSYP, targetCurrency);
-                BigDecimal finalSubTotal = convertFromSYP(subTotalInSYP, targetCurrency);
+                BigDecimal finalUnitPrice = convertFromSYP(unitPriceInSYP, targetCurrency, rates);
+                BigDecimal finalSubTotal = convertFromSYP(subTotalInSYP, targetCurrency, rates);
                 
                 // Get actual product name instead of product ID
                 String productName = productNameObj != null ? 
@@ -393,7 +399,7 @@ public class ReportService extends BaseSecurityService {
      * Process currency-aware profit items and convert to target currency
      * Note: Prices from database are already in SYP, so we only convert from SYP to target currency
      */
-    private List<Map<String, Object>> processCurrencyAwareProfitItems(List<Map<String, Object>> rawItems, Currency targetCurrency) {
+    private List<Map<String, Object>> processCurrencyAwareProfitItems(List<Map<String, Object>> rawItems, Currency targetCurrency, ExchangeRateSnapshot rates) {
         return rawItems.stream()
             .map(item -> {
                 // Handle null values safely
@@ -409,8 +415,8 @@ public class ReportService extends BaseSecurityService {
                     new BigDecimal(profitObj.toString()) : BigDecimal.ZERO;
                 
                 // Convert from SYP to target currency
-                BigDecimal finalRevenue = convertFromSYP(revenueInSYP, targetCurrency);
-                BigDecimal finalProfit = convertFromSYP(profitInSYP, targetCurrency);
+                BigDecimal finalRevenue = convertFromSYP(revenueInSYP, targetCurrency, rates);
+                BigDecimal finalProfit = convertFromSYP(profitInSYP, targetCurrency, rates);
                 
                 // Calculate cost (revenue - profit)
                 BigDecimal finalCost = finalRevenue.subtract(finalProfit);
@@ -439,7 +445,7 @@ public class ReportService extends BaseSecurityService {
      * Process currency-aware product data and convert to target currency
      * Handles product report data with profit calculations
      */
-    private List<Map<String, Object>> processCurrencyAwareProductData(List<Map<String, Object>> rawProducts, Currency targetCurrency) {
+    private List<Map<String, Object>> processCurrencyAwareProductData(List<Map<String, Object>> rawProducts, Currency targetCurrency, ExchangeRateSnapshot rates) {
         return rawProducts.stream()
             .map(product -> {
                 // Handle null values safely
@@ -465,14 +471,14 @@ public class ReportService extends BaseSecurityService {
                 BigDecimal averagePriceInSYP = averagePriceObj != null ? new BigDecimal(averagePriceObj.toString()) : BigDecimal.ZERO;
                 
                 // Convert to SYP for consistent calculation
-                BigDecimal revenueConverted = convertToSYP(revenueInSYP, currency);
-                BigDecimal profitConverted = convertToSYP(profitInSYP, currency);
-                BigDecimal averagePriceConverted = convertToSYP(averagePriceInSYP, currency);
+                BigDecimal revenueConverted = convertToSYP(revenueInSYP, currency, rates);
+                BigDecimal profitConverted = convertToSYP(profitInSYP, currency, rates);
+                BigDecimal averagePriceConverted = convertToSYP(averagePriceInSYP, currency, rates);
                 
                 // Convert from SYP to target currency for display
-                BigDecimal finalRevenue = convertFromSYP(revenueConverted, targetCurrency);
-                BigDecimal finalProfit = convertFromSYP(profitConverted, targetCurrency);
-                BigDecimal finalAveragePrice = convertFromSYP(averagePriceConverted, targetCurrency);
+                BigDecimal finalRevenue = convertFromSYP(revenueConverted, targetCurrency, rates);
+                BigDecimal finalProfit = convertFromSYP(profitConverted, targetCurrency, rates);
+                BigDecimal finalAveragePrice = convertFromSYP(averagePriceConverted, targetCurrency, rates);
                 
                 // Calculate profit margin
                 Double profitMargin = finalRevenue.compareTo(BigDecimal.ZERO) > 0 ? 
@@ -508,6 +514,7 @@ public class ReportService extends BaseSecurityService {
      */
     public PurchaseReportResponse getMonthlyPurchaseReport(LocalDate startDate, LocalDate endDate, Currency currency, Language language) {
         Long pharmacyId = getCurrentUserPharmacyId();
+        ExchangeRateSnapshot rates = exchangeRateService.currentSnapshot();
         log.info("Generating monthly purchase report for pharmacy: {}, period: {} to {}", pharmacyId, startDate, endDate);
         
         try {
@@ -518,8 +525,8 @@ public class ReportService extends BaseSecurityService {
             List<Map<String, Object>> summaryRawList = reportRepository.getMonthlyPurchaseSummary(pharmacyId, startDate, endDate);
             
             // Process currency-aware data for both daily and summary
-            Map<String, Object> summaryRaw = processCurrencyAwareData(summaryRawList, currency);
-            List<Map<String, Object>> processedDailyData = processCurrencyAwareDailyData(dailyDataRawList, currency);
+            Map<String, Object> summaryRaw = processCurrencyAwareData(summaryRawList, currency, rates);
+            List<Map<String, Object>> processedDailyData = processCurrencyAwareDailyData(dailyDataRawList, currency, rates);
             
             // Convert to DTOs using mapper
             List<PurchaseReportResponse.DailyPurchaseData> dailyData = reportMapper.toDailyPurchaseDataList(processedDailyData);
@@ -554,6 +561,7 @@ public class ReportService extends BaseSecurityService {
      */
     public DailyPurchaseReportResponse getDailyPurchaseReport(LocalDate date, Currency currency, Language language) {
         Long pharmacyId = getCurrentUserPharmacyId();
+        ExchangeRateSnapshot rates = exchangeRateService.currentSnapshot();
         log.info("Generating daily purchase report for pharmacy: {}, date: {}", pharmacyId, date);
         
         try {
@@ -561,13 +569,13 @@ public class ReportService extends BaseSecurityService {
             List<Map<String, Object>> dailyDataRawList = reportRepository.getDailyPurchaseSummary(pharmacyId, date);
             
             // Process currency-aware data
-            Map<String, Object> dailyDataRaw = processCurrencyAwareData(dailyDataRawList, currency);
+            Map<String, Object> dailyDataRaw = processCurrencyAwareData(dailyDataRawList, currency, rates);
             
             // Get purchase items for the day with currency information
             List<Map<String, Object>> purchaseItemsRaw = reportRepository.getDailyPurchaseItems(pharmacyId, date);
             
             // Process currency-aware items
-            List<Map<String, Object>> processedItems = processCurrencyAwareItems(purchaseItemsRaw, currency);
+            List<Map<String, Object>> processedItems = processCurrencyAwareItems(purchaseItemsRaw, currency, rates);
             
             // Convert to DTOs using mapper
             DailyPurchaseReportResponse.DailyPurchaseData dailyData = reportMapper.toDailyPurchaseDataForDaily(dailyDataRaw);
@@ -605,18 +613,19 @@ public class ReportService extends BaseSecurityService {
      */
     public ProfitReportResponse getMonthlyProfitReport(LocalDate startDate, LocalDate endDate, Currency currency, Language language) {
         Long pharmacyId = getCurrentUserPharmacyId();
+        ExchangeRateSnapshot rates = exchangeRateService.currentSnapshot();
         log.info("Generating monthly profit report for pharmacy: {}, period: {} to {}", pharmacyId, startDate, endDate);
         
         try {
-            // Get daily breakdown with currency information
-            List<Map<String, Object>> dailyDataRawList = reportRepository.getMonthlyProfitDailyBreakdown(pharmacyId, startDate, endDate);
+            // Get daily breakdown with currency information (from the daily sales rollup)
+            List<Map<String, Object>> dailyDataRawList = dailySalesRollupRepository.getDailyBreakdown(pharmacyId, startDate, endDate);
             
-            // Get summary data with currency information
-            List<Map<String, Object>> summaryRawList = reportRepository.getMonthlyProfitSummary(pharmacyId, startDate, endDate);
+            // Get summary data with currency information (from the daily sales rollup)
+            List<Map<String, Object>> summaryRawList = dailySalesRollupRepository.getSummary(pharmacyId, startDate, endDate);
             
             // Process currency-aware data for both daily and summary
-            Map<String, Object> summaryRaw = processCurrencyAwareProfitData(summaryRawList, currency);
-            List<Map<String, Object>> processedDailyData = processCurrencyAwareDailyProfitData(dailyDataRawList, currency);
+            Map<String, Object> summaryRaw = processCurrencyAwareProfitData(summaryRawList, currency, rates);
+            List<Map<String, Object>> processedDailyData = processCurrencyAwareDailyProfitData(dailyDataRawList, currency, rates);
             
             // Convert to DTOs using mapper
             List<ProfitReportResponse.DailyProfitData> dailyData = reportMapper.toDailyProfitDataList(processedDailyData);
@@ -651,20 +660,21 @@ public class ReportService extends BaseSecurityService {
      */
     public ProfitReportResponse getDailyProfitReport(LocalDate date, Currency currency, Language language) {
         Long pharmacyId = getCurrentUserPharmacyId();
+        ExchangeRateSnapshot rates = exchangeRateService.currentSnapshot();
         log.info("Generating daily profit report for pharmacy: {}, date: {}", pharmacyId, date);
         
         try {
-            // Get daily profit data with currency information
-            List<Map<String, Object>> dailyDataRawList = reportRepository.getDailyProfitSummary(pharmacyId, date);
+            // Get daily profit data with currency information (from the daily sales rollup)
+            List<Map<String, Object>> dailyDataRawList = dailySalesRollupRepository.getSummary(pharmacyId, date, date);
             
             // Process currency-aware profit data
-            Map<String, Object> dailyDataRaw = processCurrencyAwareProfitData(dailyDataRawList, currency, date);
+            Map<String, Object> dailyDataRaw = processCurrencyAwareProfitData(dailyDataRawList, currency, date, rates);
             
             // Get profit items for the day with currency information
             List<Map<String, Object>> profitItemsRaw = reportRepository.getDailyProfitItems(pharmacyId, date);
             
             // Process currency-aware profit items
-            List<Map<String, Object>> processedItems = processCurrencyAwareProfitItems(profitItemsRaw, currency);
+            List<Map<String, Object>> processedItems = processCurrencyAwareProfitItems(profitItemsRaw, currency, rates);
             
             // Convert to DTOs using mapper
             ProfitReportResponse.DailyProfitData dailyData = reportMapper.toDailyProfitData(dailyDataRaw);
@@ -783,6 +793,7 @@ public class ReportService extends BaseSecurityService {
      */
     public ProductReportResponse getTop10Products( LocalDate startDate, LocalDate endDate, Currency currency, Language language) {
         Long pharmacyId = getCurrentUserPharmacyId();
+        ExchangeRateSnapshot rates = exchangeRateService.currentSnapshot();
         log.info("Generating top 10 products report for pharmacy: {}, period: {} to {}", pharmacyId, startDate, endDate);
 
         try {
@@ -790,7 +801,7 @@ public class ReportService extends BaseSecurityService {
             List<Map<String, Object>> productsRaw = reportRepository.getTop10Products(pharmacyId, startDate, endDate);
             
             // Process currency-aware product data
-            List<Map<String, Object>> processedProducts = processCurrencyAwareProductData(productsRaw, currency);
+            List<Map<String, Object>> processedProducts = processCurrencyAwareProductData(productsRaw, currency, rates);
             
             // Limit to top 10 and convert to DTOs using mapper
             List<ProductReportResponse.ProductData> products = reportMapper.toProductDataList(
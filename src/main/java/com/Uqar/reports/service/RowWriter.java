@@ -0,0 +1,27 @@
+package com.Uqar.reports.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.Uqar.reports.enums.ExportFormat;
+
+/**
+ * كاتب صفوف التصدير
+ * Writes the rows of an export one at a time to the response stream; nothing but the current
+ * row (CSV) or a small window of rows (XLSX) is kept in memory.
+ */
+interface RowWriter extends Closeable {
+
+    void writeRow(Object[] values) throws IOException;
+
+    /**
+     * Completes the document. The stream itself is left open for the container to close.
+     */
+    @Override
+    void close() throws IOException;
+
+    static RowWriter open(ExportFormat format, String sheetName, OutputStream out) {
+        return format == ExportFormat.XLSX ? new XlsxRowWriter(sheetName, out) : new CsvRowWriter(out);
+    }
+}
@@ -0,0 +1,309 @@
+package com.Uqar.reports.service;
+
+import com.Uqar.reports.repository.DailySalesRollupRepository;
+import com.Uqar.sale.entity.SaleInvoice;
+import com.Uqar.sale.entity.SaleInvoiceItem;
+import com.Uqar.sale.entity.SaleRefund;
+import com.Uqar.sale.entity.SaleRefundItem;
+import com.Uqar.sale.enums.InvoiceStatus;
+import com.Uqar.scheduling.service.JobShard;
+import com.Uqar.scheduling.service.ScheduledJobCoordinator;
+import com.Uqar.user.Enum.Currency;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * خدمة الملخص اليومي للمبيعات والأرباح
+ * Keeps the daily (pharmacy, day, currency) sales rollup up to date.
+ *
+ * Sales, refunds and cancellations add their delta inside the same transaction that
+ * changes the invoice, so the rollup commits or rolls back together with the sale.
+ * Refunds are booked on the day of the original invoice, like the rest of its figures.
+ * {@link #rebuild} recomputes a date range from the raw sale tables for backfill; the whole
+ * sales history is filled in once, on the first start after the rollup was introduced.
+ */
+@Slf4j
+@Service
+public class SalesRollupService {
+
+    private final DailySalesRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledJobCoordinator jobCoordinator;
+
+    public SalesRollupService(DailySalesRollupRepository rollupRepository, PlatformTransactionManager transactionManager,
+                              ScheduledJobCoordinator jobCoordinator) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    // ============================================================================
+    // INCREMENTAL UPDATES
+    // ============================================================================
+
+    /**
+     * تسجيل فاتورة بيع جديدة
+     * Add a newly created sale invoice to the rollup
+     */
+    public void recordSale(SaleInvoice invoice) {
+        applyInvoice(invoice, 1);
+    }
+
+    /**
+     * تسجيل دفعة من فواتير البيع الجديدة
+     * Add a batch of newly created sale invoices to the rollup, with one update per
+     * (pharmacy, day, currency) instead of one per invoice
+     */
+    public void recordSales(Collection<SaleInvoice> invoices) {
+        Map<Long, Map<String, RollupRow>> rowsByPharmacy = new HashMap<>();
+        for (SaleInvoice invoice : invoices) {
+            if (invoice.getStatus() != InvoiceStatus.SOLD) {
+                continue;
+            }
+            if (invoice.getPharmacy() == null || invoice.getInvoiceDate() == null) {
+                log.warn("Skipping sales rollup update for invoice {} without pharmacy or date", invoice.getId());
+                continue;
+            }
+            LocalDate date = invoice.getInvoiceDate().toLocalDate();
+            Currency currency = invoice.getCurrency() != null ? invoice.getCurrency() : Currency.SYP;
+            RollupRow row = rowsByPharmacy.computeIfAbsent(invoice.getPharmacy().getId(), id -> new HashMap<>())
+                .computeIfAbsent(date + "_" + currency, key -> new RollupRow(date, currency));
+            BigDecimal[] costAndProfit = invoiceCostAndProfit(invoice);
+            row.revenue = row.revenue.add(amount(invoice.getTotalAmount()));
+            row.cost = row.cost.add(costAndProfit[0]);
+            row.profit = row.profit.add(costAndProfit[1]);
+            row.invoiceCount++;
+        }
+        rowsByPharmacy.forEach((pharmacyId, rows) -> rows.values().forEach(row ->
+            rollupRepository.applyDelta(pharmacyId, row.date, row.currency.name(),
+                row.revenue, row.cost, row.profit, row.invoiceCount)));
+    }
+
+    /**
+     * إزالة فاتورة ملغاة من الملخص
+     * Remove a cancelled sale invoice from the rollup
+     */
+    public void recordCancellation(SaleInvoice invoice) {
+        applyInvoice(invoice, -1);
+    }
+
+    /**
+     * خصم المرتجع من ملخص يوم الفاتورة الأصلية
+     * Subtract a refund from the rollup of the original invoice's day
+     */
+    public void recordRefund(SaleRefund refund, List<SaleRefundItem> refundItems) {
+        SaleInvoice invoice = refund.getSaleInvoice();
+        if (invoice == null || invoice.getStatus() != InvoiceStatus.SOLD) {
+            return;
+        }
+        BigDecimal cost = BigDecimal.ZERO;
+        BigDecimal profit = BigDecimal.ZERO;
+        for (SaleRefundItem refundItem : refundItems) {
+            SaleInvoiceItem originalItem = refundItem.getSaleInvoiceItem();
+            Double purchasePrice = originalItem != null && originalItem.getStockItem() != null
+                ? originalItem.getStockItem().getActualPurchasePrice() : null;
+            BigDecimal[] costAndProfit = costAndProfit(refundItem.getSubtotal(), refundItem.getRefundQuantity(), purchasePrice);
+            cost = cost.add(costAndProfit[0]);
+            profit = profit.add(costAndProfit[1]);
+        }
+        apply(invoice, amount(refund.getTotalRefundAmount()).negate(), cost.negate(), profit.negate(), 0);
+    }
+
+    // ============================================================================
+    // REBUILD
+    // ============================================================================
+
+    /**
+     * إعادة بناء الملخص لصيدلية وفترة محددة من جداول المبيعات
+     * Recompute the rollup of one pharmacy for [startDate, endDate] from the raw sale tables
+     */
+    public void rebuild(Long pharmacyId, LocalDate startDate, LocalDate endDate) {
+        transactionTemplate.executeWithoutResult(status -> {
+            rollupRepository.deleteByPharmacyIdAndSalesDateBetween(pharmacyId, startDate, endDate);
+
+            Map<String, RollupRow> rows = new HashMap<>();
+            for (Map<String, Object> data : rollupRepository.aggregateInvoices(pharmacyId, startDate, endDate)) {
+                RollupRow row = row(rows, data);
+                row.invoiceCount += ((Number) data.get("invoiceCount")).longValue();
+                row.revenue = row.revenue.add(decimal(data.get("revenue")));
+            }
+            for (Map<String, Object> data : rollupRepository.aggregateInvoiceItems(pharmacyId, startDate, endDate)) {
+                RollupRow row = row(rows, data);
+                row.cost = row.cost.add(decimal(data.get("cost")));
+                row.profit = row.profit.add(decimal(data.get("profit")));
+            }
+            for (Map<String, Object> data : rollupRepository.aggregateRefunds(pharmacyId, startDate, endDate)) {
+                RollupRow row = row(rows, data);
+                row.revenue = row.revenue.subtract(decimal(data.get("revenue")));
+            }
+            for (Map<String, Object> data : rollupRepository.aggregateRefundItems(pharmacyId, startDate, endDate)) {
+                RollupRow row = row(rows, data);
+                row.cost = row.cost.subtract(decimal(data.get("cost")));
+                row.profit = row.profit.subtract(decimal(data.get("profit")));
+            }
+
+            for (RollupRow row : rows.values()) {
+                rollupRepository.applyDelta(pharmacyId, row.date, row.currency.name(),
+                    row.revenue, row.cost, row.profit, row.invoiceCount);
+            }
+        });
+    }
+
+    /**
+     * إعادة بناء الملخص لجميع الصيدليات (للتعبئة الأولية)
+     * Rebuild every pharmacy with sales in [startDate, endDate], one transaction per pharmacy.
+     * Returns the number of pharmacies rebuilt.
+     */
+    public int rebuildAll(LocalDate startDate, LocalDate endDate) {
+        return rebuildAll(startDate, endDate, JobShard.ALL);
+    }
+
+    private int rebuildAll(LocalDate startDate, LocalDate endDate, JobShard shard) {
+        List<Long> pharmacyIds = rollupRepository.findPharmacyIdsWithSales(startDate, endDate).stream()
+            .filter(shard::owns)
+            .toList();
+        int rebuilt = 0;
+        for (Long pharmacyId : pharmacyIds) {
+            try {
+                rebuild(pharmacyId, startDate, endDate);
+                rebuilt++;
+            } catch (Exception e) {
+                log.error("Failed to rebuild sales rollup for pharmacy {} ({} to {}): {}",
+                         pharmacyId, startDate, endDate, e.getMessage(), e);
+            }
+        }
+        log.info("Rebuilt sales rollup for {} of {} pharmacies, period: {} to {}",
+                rebuilt, pharmacyIds.size(), startDate, endDate);
+        return rebuilt;
+    }
+
+    /**
+     * تعبئة الملخص من كامل سجل المبيعات عند أول تشغيل
+     * Fill the rollup from the whole sales history, month by month, on the first start after
+     * it was introduced (Flyway is disabled, so a migration cannot do it). The firing key never
+     * changes, so it runs once across all instances; the profit reports read only the rollup.
+     * It stops at yesterday: a rebuild of today could miss or count twice a sale committing
+     * while it runs. Today is rebuilt by the nightly rebuild of yesterday.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnFirstStart() {
+        jobCoordinator.runSharded("sales-rollup-backfill", "initial", this::backfill);
+    }
+
+    private int backfill(JobShard shard) {
+        LocalDateTime firstSale = rollupRepository.findFirstInvoiceDate();
+        if (firstSale == null) {
+            return 0;
+        }
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        int rebuilt = 0;
+        for (LocalDate month = firstSale.toLocalDate().withDayOfMonth(1); !month.isAfter(yesterday); month = month.plusMonths(1)) {
+            LocalDate monthEnd = month.plusMonths(1).minusDays(1);
+            rebuilt += rebuildAll(month, monthEnd.isAfter(yesterday) ? yesterday : monthEnd, shard);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * إعادة بناء ملخص الأمس كل ليلة لتصحيح أي انحراف
+     * Nightly rebuild of yesterday, to correct any drift from direct data fixes
+     */
+    @Scheduled(cron = "${reports.sales-rollup.rebuild-cron:0 30 2 * * *}")
+    public void rebuildYesterday() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        jobCoordinator.runSharded("sales-rollup-rebuild", yesterday.toString(),
+            shard -> rebuildAll(yesterday, yesterday, shard));
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private void applyInvoice(SaleInvoice invoice, int sign) {
+        if (invoice.getStatus() != InvoiceStatus.SOLD) {
+            return;
+        }
+        BigDecimal[] costAndProfit = invoiceCostAndProfit(invoice);
+        BigDecimal multiplier = BigDecimal.valueOf(sign);
+        apply(invoice, amount(invoice.getTotalAmount()).multiply(multiplier),
+            costAndProfit[0].multiply(multiplier), costAndProfit[1].multiply(multiplier), sign);
+    }
+
+    private static BigDecimal[] invoiceCostAndProfit(SaleInvoice invoice) {
+        BigDecimal cost = BigDecimal.ZERO;
+        BigDecimal profit = BigDecimal.ZERO;
+        for (SaleInvoiceItem item : invoice.getItems()) {
+            Double purchasePrice = item.getStockItem() != null ? item.getStockItem().getActualPurchasePrice() : null;
+            BigDecimal[] costAndProfit = costAndProfit(item.getSubTotal(), item.getQuantity(), purchasePrice);
+            cost = cost.add(costAndProfit[0]);
+            profit = profit.add(costAndProfit[1]);
+        }
+        return new BigDecimal[] {cost, profit};
+    }
+
+    private void apply(SaleInvoice invoice, BigDecimal revenue, BigDecimal cost, BigDecimal profit, long invoiceCount) {
+        if (invoice.getPharmacy() == null || invoice.getInvoiceDate() == null) {
+            log.warn("Skipping sales rollup update for invoice {} without pharmacy or date", invoice.getId());
+            return;
+        }
+        Currency currency = invoice.getCurrency() != null ? invoice.getCurrency() : Currency.SYP;
+        rollupRepository.applyDelta(invoice.getPharmacy().getId(), invoice.getInvoiceDate().toLocalDate(),
+            currency.name(), revenue, cost, profit, invoiceCount);
+    }
+
+    /**
+     * التكلفة والربح لبند واحد بنفس معادلة تقارير الأرباح
+     * Cost and profit of one line, using the same formula as the profit report queries
+     */
+    private static BigDecimal[] costAndProfit(Float subTotal, Integer quantity, Double purchasePrice) {
+        BigDecimal revenue = amount(subTotal);
+        if (purchasePrice == null) {
+            return new BigDecimal[] {BigDecimal.ZERO, revenue};
+        }
+        BigDecimal cost = BigDecimal.valueOf(purchasePrice).multiply(BigDecimal.valueOf(quantity != null ? quantity : 0));
+        return new BigDecimal[] {cost, revenue.subtract(cost)};
+    }
+
+    private static BigDecimal amount(Float value) {
+        return value != null ? BigDecimal.valueOf(value.doubleValue()) : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+
+    private static RollupRow row(Map<String, RollupRow> rows, Map<String, Object> data) {
+        LocalDate date = data.get("date") instanceof java.sql.Date sqlDate
+            ? sqlDate.toLocalDate()
+            : LocalDate.parse(data.get("date").toString());
+        Currency currency = Currency.valueOf(data.get("currency").toString());
+        return rows.computeIfAbsent(date + "_" + currency, key -> new RollupRow(date, currency));
+    }
+
+    private static class RollupRow {
+        private final LocalDate date;
+        private final Currency currency;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal cost = BigDecimal.ZERO;
+        private BigDecimal profit = BigDecimal.ZERO;
+        private long invoiceCount;
+
+        RollupRow(LocalDate date, Currency currency) {
+            this.date = date;
+            this.currency = currency;
+        }
+    }
+}
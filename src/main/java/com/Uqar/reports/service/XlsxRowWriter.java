@@ -0,0 +1,82 @@
+package com.Uqar.reports.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * كتابة الصفوف بصيغة XLSX
+ * Streaming XLSX through POI's SXSSF: only the last {@value #ROW_WINDOW} rows are kept in
+ * memory, older rows go to a compressed temporary file. An XLSX file is a zip whose sheet must
+ * be complete before it is written, so the bytes are sent once the last row has been read.
+ *
+ * Text is always written as a string cell and never through setCellFormula, so a customer name
+ * or a description starting with = is not evaluated when the file is opened.
+ */
+final class XlsxRowWriter implements RowWriter {
+
+    private static final int ROW_WINDOW = 100;
+
+    private final SXSSFWorkbook workbook;
+    private final SXSSFSheet sheet;
+    private final OutputStream out;
+    private final CellStyle dateTimeStyle;
+    private final CellStyle dateStyle;
+    private int rowIndex;
+
+    XlsxRowWriter(String sheetName, OutputStream out) {
+        this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+        this.workbook.setCompressTempFiles(true);
+        this.sheet = workbook.createSheet(sheetName);
+        this.out = out;
+        this.dateTimeStyle = workbook.createCellStyle();
+        this.dateTimeStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+        this.dateStyle = workbook.createCellStyle();
+        this.dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+    }
+
+    @Override
+    public void writeRow(Object[] values) {
+        Row row = sheet.createRow(rowIndex++);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            Cell cell = row.createCell(i);
+            if (value instanceof Number number) {
+                cell.setCellValue(value instanceof BigDecimal decimal ? decimal.doubleValue() : number.doubleValue());
+            } else if (value instanceof LocalDateTime dateTime) {
+                cell.setCellValue(dateTime);
+                cell.setCellStyle(dateTimeStyle);
+            } else if (value instanceof LocalDate date) {
+                cell.setCellValue(date);
+                cell.setCellStyle(dateStyle);
+            } else if (value instanceof Boolean bool) {
+                cell.setCellValue(bool);
+            } else {
+                // A string cell: Excel shows text starting with = as it is and never evaluates it
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.Uqar.sale.controller;
 
+import com.Uqar.sale.dto.OfflineSaleBatchRequest;
+import com.Uqar.sale.dto.OfflineSaleBatchResponse;
 import com.Uqar.sale.dto.SaleInvoiceDTORequest;
 import com.Uqar.sale.dto.SaleInvoiceDTOResponse;
+import com.Uqar.sale.service.OfflineSaleSyncService;
 import com.Uqar.sale.service.SaleService;
+import com.Uqar.utils.annotation.Idempotent;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -32,6 +36,7 @@ import com.Uqar.sale.dto.SaleRefundDTOResponse;
 public class SaleController {
     
     private final SaleService saleService;
+    private final OfflineSaleSyncService offlineSaleSyncService;
    
     @PreAuthorize("hasRole('PHARMACY_MANAGER') or hasRole('PHARMACY_EMPLOYEE') or hasRole('PHARMACY_TRAINEE') ")
     @Operation(
@@ -49,6 +54,7 @@ public class SaleController {
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping
+    @Idempotent(operation = "CREATE_SALE")
     public ResponseEntity<SaleInvoiceDTOResponse> createSale(
             @Parameter(description = "Sale invoice request data", required = true)
             @Valid @RequestBody SaleInvoiceDTORequest request) {
@@ -131,6 +137,7 @@ public class SaleController {
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/{id}/refund")
+    @Idempotent(operation = "SALE_REFUND")
     public ResponseEntity<SaleRefundDTOResponse> processRefund(
             @Parameter(description = "Sale invoice ID", example = "1") 
             @Min(1) @PathVariable Long id,
@@ -140,6 +147,28 @@ public class SaleController {
         return ResponseEntity.ok(response);
     }
 
+    @PreAuthorize("hasRole('PHARMACY_MANAGER') or hasRole('PHARMACY_EMPLOYEE') or hasRole('PHARMACY_TRAINEE') ")
+    @Operation(
+        summary = "Sync offline sales",
+        description = "Applies the sales a point-of-sale device queued while offline, in order, in one transaction. " +
+                      "Returns the outcome of each sale: ACCEPTED, DUPLICATE (already synced), CONFLICT (stock has run out) or REJECTED."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed; see the outcome of each sale",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = OfflineSaleBatchResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid batch or batch too large"),
+        @ApiResponse(responseCode = "403", description = "Access denied - insufficient permissions"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/sync")
+    public ResponseEntity<OfflineSaleBatchResponse> syncOfflineSales(
+            @Parameter(description = "Queued sales of the device", required = true)
+            @Valid @RequestBody OfflineSaleBatchRequest request) {
+        OfflineSaleBatchResponse response = offlineSaleSyncService.syncSales(request);
+        return ResponseEntity.ok(response);
+    }
+
     @PreAuthorize("hasRole('PHARMACY_MANAGER') or hasRole('PHARMACY_EMPLOYEE') or hasRole('PHARMACY_TRAINEE') ")
     @Operation(
         summary = "Get refunds by sale invoice ID", 
@@ -0,0 +1,45 @@
+package com.Uqar.sale.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Offline Sale Sync Request", example = """
+{
+    "deviceId": "till-1",
+    "sales": [
+      {
+        "clientReference": "till-1-20261017-0042",
+        "soldAt": "2026-10-17T09:15:00",
+        "sale": {
+          "paymentType": "CASH",
+          "paymentMethod": "CASH",
+          "currency": "SYP",
+          "items": [
+            { "stockItemId": 1, "quantity": 2, "unitPrice": 800.0 }
+          ]
+        }
+      }
+    ]
+}
+""")
+public class OfflineSaleBatchRequest {
+
+    @Schema(description = "Point-of-sale device that queued the sales", example = "till-1")
+    @Size(max = 100, message = "Device ID cannot exceed 100 characters")
+    private String deviceId;
+
+    // كل عملية بيع يتم التحقق منها على حدة حتى لا ترفض الدفعة كاملة بسبب عملية واحدة
+    @Schema(description = "Queued sales, in the order they were made", example = "[]")
+    @NotNull(message = "Sales list is required")
+    @Size(min = 1, message = "At least one sale is required")
+    private List<OfflineSaleDTORequest> sales;
+}
@@ -0,0 +1,32 @@
+package com.Uqar.sale.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Offline Sale Sync Response")
+public class OfflineSaleBatchResponse {
+
+    @Schema(description = "Sales saved as new invoices", example = "48")
+    private int accepted;
+
+    @Schema(description = "Sales already synced by an earlier request", example = "0")
+    private int duplicates;
+
+    @Schema(description = "Sales whose stock has run out since they were made", example = "1")
+    private int conflicts;
+
+    @Schema(description = "Invalid sales", example = "1")
+    private int rejected;
+
+    @Schema(description = "Outcome of each sale, in request order")
+    private List<OfflineSaleResultDTO> results;
+}
@@ -0,0 +1,32 @@
+package com.Uqar.sale.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Sale queued on a point-of-sale device while offline")
+public class OfflineSaleDTORequest {
+
+    @NotBlank(message = "Client reference is required")
+    @Size(max = 100, message = "Client reference cannot exceed 100 characters")
+    @Schema(description = "Unique reference of the sale on the device", example = "till-1-20261017-0042")
+    private String clientReference;
+
+    @Schema(description = "Time of the sale on the device", example = "2026-10-17T09:15:00")
+    private LocalDateTime soldAt;
+
+    @NotNull(message = "Sale is required")
+    @Schema(description = "The sale invoice")
+    private SaleInvoiceDTORequest sale;
+}
@@ -0,0 +1,34 @@
+package com.Uqar.sale.dto;
+
+import com.Uqar.sale.enums.OfflineSaleStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Outcome of one synced sale")
+public class OfflineSaleResultDTO {
+
+    @Schema(description = "Reference of the sale on the device", example = "till-1-20261017-0042")
+    private String clientReference;
+
+    @Schema(description = "Outcome", example = "ACCEPTED", allowableValues = {"ACCEPTED", "DUPLICATE", "CONFLICT", "REJECTED"})
+    private OfflineSaleStatus status;
+
+    @Schema(description = "Invoice ID (accepted and duplicate sales)", example = "1024")
+    private Long invoiceId;
+
+    @Schema(description = "Invoice number (accepted and duplicate sales)", example = "INV-7-000042")
+    private String invoiceNumber;
+
+    @Schema(description = "Invoice total (accepted and duplicate sales)", example = "1600.0")
+    private Float totalAmount;
+
+    @Schema(description = "Reason of a conflict or rejection", example = "Insufficient stock for product: Panadol (ID: 5). Available: 1, Requested: 2")
+    private String message;
+}
@@ -1,6 +1,7 @@
 package com.Uqar.sale.dto;
 
 //import com.Uqar.product.Enum.DiscountType;
+import com.Uqar.product.Enum.ProductType;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -24,11 +25,17 @@ import lombok.NoArgsConstructor;
 }
 """)
 public class SaleInvoiceItemDTORequest {
-    @NotNull(message = "Stock item ID is required")
     @Min(value = 1, message = "Stock item ID must be positive")
-    @Schema(description = "Stock Item ID", example = "1")
+    @Schema(description = "Stock Item ID (optional - when omitted, productId and productType are required and batches are allocated automatically, first expiry first out)", example = "1")
     private Long stockItemId;
     
+    @Min(value = 1, message = "Product ID must be positive")
+    @Schema(description = "Product ID (used for automatic batch allocation when stockItemId is not provided)", example = "10")
+    private Long productId;
+    
+    @Schema(description = "Product Type (used for automatic batch allocation when stockItemId is not provided)", example = "PHARMACY", allowableValues = {"PHARMACY", "MASTER"})
+    private ProductType productType;
+    
     @NotNull(message = "Quantity is required")
     @Min(value = 1, message = "Quantity must be at least 1")
     @Max(value = 10000, message = "Quantity cannot exceed 10000")
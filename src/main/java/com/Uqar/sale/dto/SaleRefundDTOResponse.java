@@ -21,6 +21,9 @@ public class SaleRefundDTOResponse {
     
     @Schema(description = "Refund ID", example = "1")
     private Long refundId;
+
+    @Schema(description = "Refund number", example = "RET-1-000001")
+    private String refundNumber;
     
     @Schema(description = "Sale invoice ID", example = "1")
     private Long saleInvoiceId;
@@ -25,12 +25,18 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 @EqualsAndHashCode(callSuper=false)
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "sale_invoices")
+@Table(name = "sale_invoices",
+       uniqueConstraints = @UniqueConstraint(name = "uk_sale_invoices_pharmacy_client_reference",
+                                             columnNames = {"pharmacy_id", "client_reference"}))
 public class SaleInvoice extends AuditedEntity{
 
     @Column(unique = true)
     private String invoiceNumber;
 
+    // مرجع الفاتورة على جهاز نقطة البيع عند المزامنة بدون اتصال (فريد لكل صيدلية)
+    @Column(length = 100)
+    private String clientReference;
+
     @ManyToOne
     @JoinColumn(name = "customer_id")
     private Customer customer;
@@ -86,5 +92,10 @@ public class SaleInvoice extends AuditedEntity{
         return "sale_invoice_id_seq";
     }
 
+    @Override
+    protected int getSequenceAllocationSize() {
+        return POOLED_ALLOCATION_SIZE;
+    }
+
 
 } 
\ No newline at end of file
@@ -53,4 +53,9 @@ public class SaleInvoiceItem extends AuditedEntity{
     protected String getSequenceName() {
         return "sale_invoice_item_id_seq";
     }
+
+    @Override
+    protected int getSequenceAllocationSize() {
+        return POOLED_ALLOCATION_SIZE;
+    }
 } 
\ No newline at end of file
@@ -26,6 +26,9 @@ public class SaleRefund extends AuditedEntity {
     @JoinColumn(name = "sale_invoice_id", nullable = false)
     private SaleInvoice saleInvoice;
 
+    @Column(unique = true, length = 50)
+    private String refundNumber;
+
     @Column(nullable = false)
     private Float totalRefundAmount;
 
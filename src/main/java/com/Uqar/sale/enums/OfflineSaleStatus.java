@@ -0,0 +1,8 @@
+package com.Uqar.sale.enums;
+
+public enum OfflineSaleStatus {
+    ACCEPTED,               // تم إنشاء الفاتورة
+    DUPLICATE,              // تمت مزامنتها مسبقاً
+    CONFLICT,               // المخزون نفد منذ البيع
+    REJECTED                // بيانات غير صالحة
+}
@@ -45,6 +45,7 @@ public class SaleRefundMapper {
         SaleInvoice saleInvoice = refund.getSaleInvoice();
         return SaleRefundDTOResponse.builder()
                 .refundId(refund.getId())
+                .refundNumber(refund.getRefundNumber())
                 .saleInvoiceId(saleInvoice.getId())
                 .totalRefundAmount(refund.getTotalRefundAmount())
                 .refundReason(refund.getRefundReason())
@@ -72,6 +73,7 @@ public class SaleRefundMapper {
         SaleInvoice saleInvoice = refund.getSaleInvoice();
         return SaleRefundDTOResponse.builder()
                 .refundId(refund.getId())
+                .refundNumber(refund.getRefundNumber())
                 .saleInvoiceId(saleInvoice.getId())
                 .totalRefundAmount(refund.getTotalRefundAmount())
                 .refundReason(refund.getRefundReason())
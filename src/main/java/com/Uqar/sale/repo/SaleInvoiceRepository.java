@@ -1,14 +1,21 @@
 package com.Uqar.sale.repo;
 
 import com.Uqar.sale.entity.SaleInvoice;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SaleInvoiceRepository extends JpaRepository<SaleInvoice, Long> {
@@ -26,4 +33,33 @@ public interface SaleInvoiceRepository extends JpaRepository<SaleInvoice, Long>
     Optional<SaleInvoice> findByIdAndPharmacyId(Long id, Long pharmacyId);
     
     List<SaleInvoice> findByPharmacyIdAndInvoiceDateBetween(Long pharmacyId, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * الفواتير المزامنة مسبقاً بمراجع أجهزة نقطة البيع
+     * Invoices of the pharmacy already synced under the given client references,
+     * as rows of (clientReference, id, invoiceNumber, totalAmount)
+     */
+    @Query("SELECT si.clientReference, si.id, si.invoiceNumber, si.totalAmount FROM SaleInvoice si " +
+           "WHERE si.pharmacy.id = :pharmacyId AND si.clientReference IN :clientReferences")
+    List<Object[]> findSyncedByClientReferences(@Param("pharmacyId") Long pharmacyId,
+                                                @Param("clientReferences") Collection<String> clientReferences);
+
+    /**
+     * صفوف تصدير المبيعات كقيم فقط بدون كيانات
+     * Sale invoices of the period as scalar rows for the export, read through a forward-only
+     * cursor. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT si.id, si.invoiceNumber, si.invoiceDate, c.name, si.paymentType, si.paymentMethod, si.currency, " +
+           "si.totalAmount, si.discount, si.discountType, si.paidAmount, si.remainingAmount, " +
+           "si.status, si.paymentStatus, si.refundStatus " +
+           "FROM SaleInvoice si LEFT JOIN si.customer c " +
+           "WHERE si.pharmacy.id = :pharmacyId AND si.invoiceDate BETWEEN :start AND :end " +
+           "ORDER BY si.invoiceDate, si.id")
+    Stream<Object[]> streamExportRows(@Param("pharmacyId") Long pharmacyId,
+                                      @Param("start") LocalDateTime start,
+                                      @Param("end") LocalDateTime end);
 }
@@ -0,0 +1,186 @@
+package com.Uqar.sale.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.mapper.StockItemMapper;
+import com.Uqar.product.service.StockBatchIndex;
+import com.Uqar.product.service.StockDeductionEngine;
+import com.Uqar.sale.dto.SaleInvoiceItemDTORequest;
+import com.Uqar.utils.exception.InsufficientStockException;
+import com.Uqar.utils.exception.RequestNotValidException;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * توزيع بنود البيع على الدفعات تلقائياً حسب تاريخ الانتهاء (FEFO)
+ * Splits sale lines given as (productId, ProductType, quantity or parts) across batches,
+ * first expiry first out.
+ *
+ * Candidate batches come from {@link StockBatchIndex}, so no query is run per line. The
+ * actual split is computed against the locked stock items, so two tills never get the
+ * same boxes even when the index is a moment behind.
+ */
+@Service
+@RequiredArgsConstructor
+public class FefoBatchAllocator {
+
+    private final StockBatchIndex stockBatchIndex;
+    private final StockItemMapper stockItemMapper;
+
+    /**
+     * جميع الدفعات التي يجب قفلها: الدفعات المحددة صراحة والدفعات المرشحة للتوزيع التلقائي
+     * Every stock item id the sale has to lock: explicit batches plus FEFO candidates
+     */
+    public Set<Long> collectStockItemIds(List<SaleInvoiceItemDTORequest> items, Long pharmacyId) {
+        LocalDate today = LocalDate.now();
+        Set<Long> stockItemIds = new LinkedHashSet<>();
+        for (SaleInvoiceItemDTORequest item : items) {
+            if (item.getStockItemId() != null) {
+                stockItemIds.add(item.getStockItemId());
+            } else if (item.getProductId() != null && item.getProductType() != null) {
+                stockItemIds.addAll(stockBatchIndex.findSellableBatchIds(
+                    pharmacyId, item.getProductId(), item.getProductType(), today));
+            } else {
+                throw new RequestNotValidException("Each sale item requires either stockItemId or productId and productType");
+            }
+        }
+        return stockItemIds;
+    }
+
+    /**
+     * تحويل البنود المعتمدة على المنتج إلى بنود على دفعات محددة
+     * Resolve product lines into one line per batch, using the locked stock items.
+     * Lines that already name a stock item are kept as they are.
+     */
+    public List<SaleInvoiceItemDTORequest> allocate(List<SaleInvoiceItemDTORequest> items, List<StockItem> lockedStockItems,
+                                                    Long pharmacyId) {
+        if (items.stream().allMatch(item -> item.getStockItemId() != null)) {
+            return items;
+        }
+
+        // نسخة عمل من الدفعات المقفلة لمحاكاة الخصم أثناء التوزيع
+        Map<Long, StockItem> workingCopies = new HashMap<>();
+        for (StockItem stockItem : lockedStockItems) {
+            workingCopies.put(stockItem.getId(), workingCopy(stockItem));
+        }
+
+        // البنود المحددة صراحة تحجز كمياتها أولاً
+        for (SaleInvoiceItemDTORequest item : items) {
+            if (item.getStockItemId() != null) {
+                reserveExplicitLine(item, workingCopies.get(item.getStockItemId()));
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        List<SaleInvoiceItemDTORequest> allocated = new ArrayList<>();
+        for (SaleInvoiceItemDTORequest item : items) {
+            if (item.getStockItemId() != null) {
+                allocated.add(item);
+                continue;
+            }
+
+            List<StockItem> candidates = workingCopies.values().stream()
+                .filter(stockItem -> stockItem.getProductId().equals(item.getProductId())
+                    && stockItem.getProductType() == item.getProductType()
+                    && stockItem.getQuantity() > 0
+                    && (stockItem.getExpiryDate() == null || !stockItem.getExpiryDate().isBefore(today)))
+                .sorted(StockBatchIndex.FEFO_ORDER)
+                .toList();
+
+            Integer numberOfPartsPerBox = stockItemMapper.getNumberOfPartsPerBox(item.getProductId(), item.getProductType());
+            boolean isPartialSale = item.getPartsToSell() != null &&
+                                   numberOfPartsPerBox != null &&
+                                   numberOfPartsPerBox > 1;
+
+            int remaining = isPartialSale ? item.getPartsToSell() : item.getQuantity();
+            for (StockItem batch : candidates) {
+                if (remaining <= 0) {
+                    break;
+                }
+                int taken;
+                if (isPartialSale) {
+                    taken = Math.min(remaining, availableParts(batch, numberOfPartsPerBox));
+                    StockDeductionEngine.deductParts(batch, taken, numberOfPartsPerBox);
+                } else {
+                    taken = Math.min(remaining, batch.getQuantity());
+                    StockDeductionEngine.deductBoxes(batch, taken, numberOfPartsPerBox);
+                }
+                allocated.add(batchLine(item, batch.getId(), isPartialSale, taken));
+                remaining -= taken;
+            }
+
+            if (remaining > 0) {
+                // الفهرس قد يكون متأخراً عن قاعدة البيانات: يعاد تحميله في المحاولة التالية
+                stockBatchIndex.evict(pharmacyId, item.getProductId(), item.getProductType());
+                String productName = stockItemMapper.getProductName(item.getProductId(), item.getProductType());
+                int requested = isPartialSale ? item.getPartsToSell() : item.getQuantity();
+                throw new InsufficientStockException("Insufficient stock for product: " + productName +
+                    " (ID: " + item.getProductId() + "). Available: " + (requested - remaining) +
+                    (isPartialSale ? " parts" : "") + ", Requested: " + requested);
+            }
+        }
+        return allocated;
+    }
+
+    private void reserveExplicitLine(SaleInvoiceItemDTORequest item, StockItem batch) {
+        if (batch == null) {
+            return;
+        }
+        Integer numberOfPartsPerBox = stockItemMapper.getNumberOfPartsPerBox(batch.getProductId(), batch.getProductType());
+        boolean isPartialSale = item.getPartsToSell() != null &&
+                               numberOfPartsPerBox != null &&
+                               numberOfPartsPerBox > 1;
+        // البند الصريح سيتم التحقق منه لاحقاً، هنا نحجز ما يمكن حجزه فقط
+        if (isPartialSale) {
+            int parts = Math.min(item.getPartsToSell(), availableParts(batch, numberOfPartsPerBox));
+            if (parts > 0) {
+                StockDeductionEngine.deductParts(batch, parts, numberOfPartsPerBox);
+            }
+        } else if (item.getQuantity() != null) {
+            int boxes = Math.min(item.getQuantity(), batch.getQuantity());
+            if (boxes > 0) {
+                StockDeductionEngine.deductBoxes(batch, boxes, numberOfPartsPerBox);
+            }
+        }
+    }
+
+    private static int availableParts(StockItem batch, int numberOfPartsPerBox) {
+        if (batch.getQuantity() <= 0) {
+            return 0;
+        }
+        int currentRemainingParts = batch.getRemainingParts() != null ? batch.getRemainingParts() : numberOfPartsPerBox;
+        return currentRemainingParts + (batch.getQuantity() - 1) * numberOfPartsPerBox;
+    }
+
+    private static SaleInvoiceItemDTORequest batchLine(SaleInvoiceItemDTORequest item, Long stockItemId,
+                                                       boolean isPartialSale, int taken) {
+        return SaleInvoiceItemDTORequest.builder()
+            .stockItemId(stockItemId)
+            .productId(item.getProductId())
+            .productType(item.getProductType())
+            .quantity(isPartialSale ? item.getQuantity() : Integer.valueOf(taken))
+            .partsToSell(isPartialSale ? Integer.valueOf(taken) : item.getPartsToSell())
+            .unitPrice(item.getUnitPrice())
+            .build();
+    }
+
+    private static StockItem workingCopy(StockItem stockItem) {
+        StockItem copy = new StockItem();
+        copy.setId(stockItem.getId());
+        copy.setProductId(stockItem.getProductId());
+        copy.setProductType(stockItem.getProductType());
+        copy.setQuantity(stockItem.getQuantity());
+        copy.setRemainingParts(stockItem.getRemainingParts());
+        copy.setExpiryDate(stockItem.getExpiryDate());
+        return copy;
+    }
+}
@@ -0,0 +1,587 @@
+package com.Uqar.sale.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.Uqar.moneybox.service.SalesIntegrationService;
+import com.Uqar.moneybox.service.SalesIntegrationService.SalePayment;
+import com.Uqar.numbering.enums.DocumentType;
+import com.Uqar.numbering.service.DocumentNumberAllocator;
+import com.Uqar.product.Enum.PaymentMethod;
+import com.Uqar.product.Enum.PaymentType;
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.mapper.StockItemMapper;
+import com.Uqar.product.service.ProductMetadataResolver;
+import com.Uqar.product.service.StockAvailabilityCache;
+import com.Uqar.product.service.StockBatchIndex;
+import com.Uqar.product.service.StockDeductionEngine;
+import com.Uqar.reports.service.SalesRollupService;
+import com.Uqar.sale.dto.OfflineSaleBatchRequest;
+import com.Uqar.sale.dto.OfflineSaleBatchResponse;
+import com.Uqar.sale.dto.OfflineSaleDTORequest;
+import com.Uqar.sale.dto.OfflineSaleResultDTO;
+import com.Uqar.sale.dto.SaleInvoiceDTORequest;
+import com.Uqar.sale.dto.SaleInvoiceItemDTORequest;
+import com.Uqar.sale.entity.SaleInvoice;
+import com.Uqar.sale.entity.SaleInvoiceItem;
+import com.Uqar.sale.enums.OfflineSaleStatus;
+import com.Uqar.sale.mapper.SaleMapper;
+import com.Uqar.sale.repo.SaleInvoiceItemRepository;
+import com.Uqar.sale.repo.SaleInvoiceRepository;
+import com.Uqar.user.Enum.Currency;
+import com.Uqar.user.entity.Customer;
+import com.Uqar.user.entity.CustomerDebt;
+import com.Uqar.user.entity.Pharmacy;
+import com.Uqar.user.mapper.CustomerDebtMapper;
+import com.Uqar.user.repository.CustomerDebtRepository;
+import com.Uqar.user.repository.CustomerRepo;
+import com.Uqar.user.repository.UserRepository;
+import com.Uqar.user.service.BaseSecurityService;
+import com.Uqar.utils.annotation.Audited;
+import com.Uqar.utils.exception.ConflictException;
+import com.Uqar.utils.exception.InsufficientStockException;
+import com.Uqar.utils.exception.RequestNotValidException;
+import com.Uqar.utils.exception.UnAuthorizedException;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * مزامنة مبيعات نقاط البيع المسجلة بدون اتصال
+ * Ingests the sales a point-of-sale device queued while offline, in the order they were made.
+ *
+ * The whole batch is one transaction: every stock item any sale may touch is locked once, in
+ * id order, and product metadata is loaded once. Each sale is then checked and deducted in
+ * memory against the locked batches; a sale whose stock has run out since it was made is
+ * reported as CONFLICT and its deductions undone, an invalid one as REJECTED, and the rest of
+ * the batch goes on. The accepted invoices, their items and the deducted stock are written in
+ * JDBC batches, the sales rollup gets one update per day and currency, and the cash payments
+ * move the money box balance once.
+ *
+ * Sales are identified by the device's client reference (unique per pharmacy), so a batch that
+ * is sent again after a lost response reports the synced sales as DUPLICATE. The references are
+ * looked up after the stock is locked, so a retry running alongside the first request waits for
+ * it and then sees its invoices.
+ */
+@Service
+public class OfflineSaleSyncService extends BaseSecurityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfflineSaleSyncService.class);
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+    // Tolerated difference between the device clock and the server clock
+    private static final long MAX_CLOCK_SKEW_MINUTES = 5;
+
+    private final SaleService saleService;
+    private final SaleInvoiceRepository saleInvoiceRepository;
+    private final SaleInvoiceItemRepository saleInvoiceItemRepository;
+    private final CustomerRepo customerRepository;
+    private final CustomerDebtRepository customerDebtRepository;
+    private final CustomerDebtMapper customerDebtMapper;
+    private final SaleMapper saleMapper;
+    private final StockItemMapper stockItemMapper;
+    private final PaymentValidationService paymentValidationService;
+    private final DiscountCalculationService discountCalculationService;
+    private final FefoBatchAllocator fefoBatchAllocator;
+    private final StockDeductionEngine stockDeductionEngine;
+    private final StockBatchIndex stockBatchIndex;
+    private final StockAvailabilityCache stockAvailabilityCache;
+    private final ProductMetadataResolver productMetadataResolver;
+    private final SalesRollupService salesRollupService;
+    private final SalesIntegrationService salesIntegrationService;
+    private final DocumentNumberAllocator documentNumberAllocator;
+    private final Validator validator;
+    private final int maxBatchSize;
+
+    public OfflineSaleSyncService(SaleService saleService,
+                                  SaleInvoiceRepository saleInvoiceRepository,
+                                  SaleInvoiceItemRepository saleInvoiceItemRepository,
+                                  CustomerRepo customerRepository,
+                                  CustomerDebtRepository customerDebtRepository,
+                                  CustomerDebtMapper customerDebtMapper,
+                                  SaleMapper saleMapper,
+                                  StockItemMapper stockItemMapper,
+                                  PaymentValidationService paymentValidationService,
+                                  DiscountCalculationService discountCalculationService,
+                                  FefoBatchAllocator fefoBatchAllocator,
+                                  StockDeductionEngine stockDeductionEngine,
+                                  StockBatchIndex stockBatchIndex,
+                                  StockAvailabilityCache stockAvailabilityCache,
+                                  ProductMetadataResolver productMetadataResolver,
+                                  SalesRollupService salesRollupService,
+                                  SalesIntegrationService salesIntegrationService,
+                                  DocumentNumberAllocator documentNumberAllocator,
+                                  Validator validator,
+                                  UserRepository userRepository,
+                                  @Value("${sales.offline-sync.max-batch-size:5000}") int maxBatchSize) {
+        super(userRepository);
+        this.saleService = saleService;
+        this.saleInvoiceRepository = saleInvoiceRepository;
+        this.saleInvoiceItemRepository = saleInvoiceItemRepository;
+        this.customerRepository = customerRepository;
+        this.customerDebtRepository = customerDebtRepository;
+        this.customerDebtMapper = customerDebtMapper;
+        this.saleMapper = saleMapper;
+        this.stockItemMapper = stockItemMapper;
+        this.paymentValidationService = paymentValidationService;
+        this.discountCalculationService = discountCalculationService;
+        this.fefoBatchAllocator = fefoBatchAllocator;
+        this.stockDeductionEngine = stockDeductionEngine;
+        this.stockBatchIndex = stockBatchIndex;
+        this.stockAvailabilityCache = stockAvailabilityCache;
+        this.productMetadataResolver = productMetadataResolver;
+        this.salesRollupService = salesRollupService;
+        this.salesIntegrationService = salesIntegrationService;
+        this.documentNumberAllocator = documentNumberAllocator;
+        this.validator = validator;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * مزامنة دفعة من المبيعات المسجلة بدون اتصال
+     * Apply the queued sales in order and return the outcome of each one, in request order
+     */
+    @Transactional
+    @Audited(action = "SYNC_OFFLINE_SALES", targetType = "SALE_INVOICE", includeArgs = false)
+    public OfflineSaleBatchResponse syncSales(OfflineSaleBatchRequest request) {
+        Pharmacy pharmacy = getCurrentUserPharmacy();
+        if (pharmacy == null) {
+            throw new UnAuthorizedException("You are not authorized to sync sale invoices");
+        }
+        List<OfflineSaleDTORequest> sales = request.getSales();
+        if (sales.size() > maxBatchSize) {
+            throw new RequestNotValidException("A sync batch cannot contain more than " + maxBatchSize +
+                " sales, received: " + sales.size());
+        }
+        Long pharmacyId = pharmacy.getId();
+        LocalDateTime now = LocalDateTime.now();
+        OfflineSaleResultDTO[] results = new OfflineSaleResultDTO[sales.size()];
+
+        // التحقق من صحة كل عملية بيع على حدة، والمراجع المكررة داخل الدفعة
+        Map<String, Integer> firstIndexByReference = new HashMap<>();
+        Map<Integer, Integer> repeatedReferences = new LinkedHashMap<>();
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < sales.size(); i++) {
+            OfflineSaleDTORequest sale = sales.get(i);
+            String violation = validate(sale, now);
+            if (violation != null) {
+                results[i] = result(sale, OfflineSaleStatus.REJECTED, violation);
+                continue;
+            }
+            Integer first = firstIndexByReference.putIfAbsent(sale.getClientReference(), i);
+            if (first != null) {
+                repeatedReferences.put(i, first);
+                continue;
+            }
+            pending.add(i);
+        }
+
+        // جميع الدفعات التي قد تلمسها المبيعات، تقفل مرة واحدة بترتيب المعرف
+        Map<Integer, Set<Long>> stockItemIdsBySale = new HashMap<>();
+        Set<Long> stockItemIds = new LinkedHashSet<>();
+        for (Integer index : new ArrayList<>(pending)) {
+            try {
+                Set<Long> saleStockItemIds = fefoBatchAllocator.collectStockItemIds(sales.get(index).getSale().getItems(), pharmacyId);
+                stockItemIdsBySale.put(index, saleStockItemIds);
+                stockItemIds.addAll(saleStockItemIds);
+            } catch (RequestNotValidException e) {
+                results[index] = result(sales.get(index), OfflineSaleStatus.REJECTED, e.getMessage());
+                pending.remove(index);
+            }
+        }
+        List<StockItem> lockedStockItems = stockDeductionEngine.lockStockItems(stockItemIds, List.of());
+        Map<Long, StockItem> stockItemsById = lockedStockItems.stream()
+            .collect(Collectors.toMap(StockItem::getId, stockItem -> stockItem));
+
+        // المبيعات التي تمت مزامنتها في طلب سابق
+        Map<String, Object[]> synced = findSynced(pharmacyId, pending.stream()
+            .map(index -> sales.get(index).getClientReference())
+            .toList());
+        pending.removeIf(index -> {
+            Object[] row = synced.get(sales.get(index).getClientReference());
+            if (row == null) {
+                return false;
+            }
+            results[index] = OfflineSaleResultDTO.builder()
+                .clientReference(sales.get(index).getClientReference())
+                .status(OfflineSaleStatus.DUPLICATE)
+                .invoiceId((Long) row[1])
+                .invoiceNumber((String) row[2])
+                .totalAmount(((Number) row[3]).floatValue())
+                .message("Sale was already synced")
+                .build();
+            return true;
+        });
+
+        productMetadataResolver.preload(lockedStockItems);
+        Map<Long, Customer> customers = customerRepository.findAllById(pending.stream()
+                .map(index -> sales.get(index).getSale().getCustomerId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet())).stream()
+            .collect(Collectors.toMap(Customer::getId, customer -> customer));
+        Customer cashCustomer = null;
+
+        List<AcceptedSale> accepted = new ArrayList<>();
+        for (Integer index : pending) {
+            OfflineSaleDTORequest offlineSale = sales.get(index);
+            SaleInvoiceDTORequest sale = offlineSale.getSale();
+
+            Customer customer;
+            if (sale.getCustomerId() != null) {
+                customer = customers.get(sale.getCustomerId());
+            } else {
+                if (cashCustomer == null) {
+                    cashCustomer = saleService.getOrCreateCashCustomer(pharmacy);
+                }
+                customer = cashCustomer;
+            }
+            String customerViolation = validateCustomer(customer, sale, pharmacyId);
+            if (customerViolation != null) {
+                results[index] = result(offlineSale, OfflineSaleStatus.REJECTED, customerViolation);
+                continue;
+            }
+            // الدفعات المقفلة التي تخص هذه العملية فقط
+            List<StockItem> saleStockItems = stockItemIdsBySale.get(index).stream()
+                .map(stockItemsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+            String foreignStock = saleStockItems.stream()
+                .filter(stockItem -> stockItem.getPharmacy() == null || !pharmacyId.equals(stockItem.getPharmacy().getId()))
+                .map(stockItem -> String.valueOf(stockItem.getId()))
+                .collect(Collectors.joining(", "));
+            if (!foreignStock.isEmpty()) {
+                results[index] = result(offlineSale, OfflineSaleStatus.REJECTED,
+                    "Stock items do not belong to the current pharmacy: " + foreignStock);
+                continue;
+            }
+
+            AcceptedSale acceptedSale;
+            try {
+                acceptedSale = apply(offlineSale, customer, pharmacy, saleStockItems, now);
+            } catch (StockConflict e) {
+                results[index] = result(offlineSale, OfflineSaleStatus.CONFLICT, e.getMessage());
+                continue;
+            } catch (RequestNotValidException | ConflictException e) {
+                results[index] = result(offlineSale, OfflineSaleStatus.REJECTED, e.getMessage());
+                continue;
+            }
+            acceptedSale.invoice().setInvoiceNumber(documentNumberAllocator.next(pharmacyId, DocumentType.SALE));
+            accepted.add(acceptedSale.at(index));
+        }
+
+        if (!accepted.isEmpty()) {
+            save(accepted, pharmacyId, lockedStockItems);
+            for (AcceptedSale acceptedSale : accepted) {
+                SaleInvoice invoice = acceptedSale.invoice();
+                results[acceptedSale.index()] = OfflineSaleResultDTO.builder()
+                    .clientReference(invoice.getClientReference())
+                    .status(OfflineSaleStatus.ACCEPTED)
+                    .invoiceId(invoice.getId())
+                    .invoiceNumber(invoice.getInvoiceNumber())
+                    .totalAmount(invoice.getTotalAmount())
+                    .build();
+            }
+        }
+
+        // المرجع المكرر داخل الدفعة يأخذ نتيجة أول ظهور له
+        repeatedReferences.forEach((index, first) -> {
+            OfflineSaleResultDTO original = results[first];
+            boolean invoiced = original.getStatus() == OfflineSaleStatus.ACCEPTED
+                || original.getStatus() == OfflineSaleStatus.DUPLICATE;
+            results[index] = invoiced
+                ? OfflineSaleResultDTO.builder()
+                    .clientReference(original.getClientReference())
+                    .status(OfflineSaleStatus.DUPLICATE)
+                    .invoiceId(original.getInvoiceId())
+                    .invoiceNumber(original.getInvoiceNumber())
+                    .totalAmount(original.getTotalAmount())
+                    .message("Sale appears more than once in the batch")
+                    .build()
+                : result(sales.get(index), OfflineSaleStatus.REJECTED, "Sale appears more than once in the batch");
+        });
+
+        OfflineSaleBatchResponse response = summarize(Arrays.asList(results));
+        logger.info("Synced {} offline sales of pharmacy {} from device {}: {} accepted, {} duplicates, {} conflicts, {} rejected",
+            sales.size(), pharmacyId, request.getDeviceId(), response.getAccepted(), response.getDuplicates(),
+            response.getConflicts(), response.getRejected());
+        return response;
+    }
+
+    /**
+     * التحقق من صحة بيانات عملية البيع دون أي استعلام
+     * Bean validation and request checks of one queued sale; returns the reason it is invalid, or null
+     */
+    private String validate(OfflineSaleDTORequest offlineSale, LocalDateTime now) {
+        if (offlineSale == null) {
+            return "Sale is required";
+        }
+        Set<String> messages = new LinkedHashSet<>();
+        validator.validate(offlineSale).stream().map(ConstraintViolation::getMessage).forEach(messages::add);
+        if (offlineSale.getSale() != null) {
+            validator.validate(offlineSale.getSale()).stream().map(ConstraintViolation::getMessage).forEach(messages::add);
+        }
+        if (!messages.isEmpty()) {
+            return String.join("; ", messages);
+        }
+
+        SaleInvoiceDTORequest sale = offlineSale.getSale();
+        if (offlineSale.getSoldAt() != null && offlineSale.getSoldAt().isAfter(now.plusMinutes(MAX_CLOCK_SKEW_MINUTES))) {
+            return "Sale time " + offlineSale.getSoldAt() + " is in the future";
+        }
+        if (sale.getCurrency() == null) {
+            sale.setCurrency(Currency.SYP);
+        }
+        if (!Arrays.asList(Currency.SYP, Currency.USD, Currency.EUR).contains(sale.getCurrency())) {
+            return "Unsupported currency: " + sale.getCurrency() + ". Supported currencies are: SYP, USD, EUR";
+        }
+        if (sale.getPaymentType() == PaymentType.CREDIT && sale.getCustomerId() == null) {
+            return "Credit sales require a specific customer";
+        }
+        if (!paymentValidationService.validatePayment(sale.getPaymentType(), sale.getPaymentMethod())) {
+            return "the payment type and payment method are not compatible";
+        }
+        return null;
+    }
+
+    private static String validateCustomer(Customer customer, SaleInvoiceDTORequest sale, Long pharmacyId) {
+        if (customer == null) {
+            return sale.getCustomerId() != null
+                ? "Customer not found with ID: " + sale.getCustomerId()
+                : "Cannot create sale invoice without a customer";
+        }
+        if (customer.getPharmacy() == null || !pharmacyId.equals(customer.getPharmacy().getId())) {
+            return "Customer with ID " + customer.getId() + " does not belong to the current pharmacy";
+        }
+        return null;
+    }
+
+    /**
+     * بناء الفاتورة وخصم المخزون في الذاكرة
+     * Build the invoice of one sale and deduct its stock from the locked batches. Throws
+     * StockConflict (with the deductions undone) when the stock has run out since the sale.
+     */
+    private AcceptedSale apply(OfflineSaleDTORequest offlineSale, Customer customer, Pharmacy pharmacy,
+                               List<StockItem> stockItems, LocalDateTime now) {
+        SaleInvoiceDTORequest sale = offlineSale.getSale();
+        LocalDateTime soldAt = offlineSale.getSoldAt() != null ? offlineSale.getSoldAt() : now;
+
+        Set<Long> stockItemIds = stockItems.stream().map(StockItem::getId).collect(Collectors.toSet());
+        for (SaleInvoiceItemDTORequest item : sale.getItems()) {
+            if (item.getStockItemId() != null && !stockItemIds.contains(item.getStockItemId())) {
+                throw new StockConflict("Stock item no longer exists: " + item.getStockItemId());
+            }
+        }
+
+        List<SaleInvoiceItemDTORequest> requestItems;
+        try {
+            requestItems = fefoBatchAllocator.allocate(sale.getItems(), stockItems, pharmacy.getId());
+        } catch (InsufficientStockException e) {
+            throw new StockConflict(e.getMessage());
+        }
+        List<SaleInvoiceItem> items = saleMapper.toEntityList(requestItems, stockItems, sale.getCurrency());
+
+        // التحقق من البنود وحساب المجموع قبل أي خصم
+        Integer[] partsPerBox = new Integer[items.size()];
+        float total = 0;
+        for (int i = 0; i < items.size(); i++) {
+            SaleInvoiceItem item = items.get(i);
+            SaleInvoiceItemDTORequest requestItem = requestItems.get(i);
+            StockItem stockItem = item.getStockItem();
+
+            partsPerBox[i] = stockItemMapper.getNumberOfPartsPerBox(stockItem.getProductId(), stockItem.getProductType());
+            boolean isPartialSale = isPartialSale(requestItem, partsPerBox[i]);
+            if (isPartialSale && requestItem.getPartsToSell() > partsPerBox[i]) {
+                throw new RequestNotValidException("Parts to sell (" + requestItem.getPartsToSell() +
+                    ") cannot exceed number of parts per box (" + partsPerBox[i] + ")");
+            }
+            if (stockItem.getExpiryDate() != null && stockItem.getExpiryDate().isBefore(soldAt.toLocalDate())) {
+                String productName = stockItemMapper.getProductName(stockItem.getProductId(), stockItem.getProductType());
+                throw new RequestNotValidException("Product expired: " + productName +
+                    " (ID: " + stockItem.getProductId() + "). Expiry date: " + stockItem.getExpiryDate());
+            }
+            item.setSubTotal(isPartialSale ? item.getUnitPrice() : item.getUnitPrice() * item.getQuantity());
+            total += item.getSubTotal();
+        }
+
+        SaleInvoice invoice = saleMapper.toEntityWithCustomerAndDate(sale, customer, pharmacy);
+        invoice.setInvoiceDate(soldAt);
+        invoice.setClientReference(offlineSale.getClientReference());
+
+        float invoiceDiscount = discountCalculationService.calculateDiscount(total, invoice.getDiscountType(), invoice.getDiscount());
+        invoice.setTotalAmount(total - invoiceDiscount);
+
+        float paidAmount = sale.getPaidAmount() != null ? sale.getPaidAmount() : 0;
+        if (sale.getPaymentType() == PaymentType.CASH && paidAmount == 0) {
+            paidAmount = invoice.getTotalAmount();
+        }
+        if (!paymentValidationService.validatePaidAmount(invoice.getTotalAmount(), paidAmount, sale.getPaymentType())) {
+            throw new RequestNotValidException("the paid amount is not valid for payment type: " + sale.getPaymentType());
+        }
+        float remainingAmount = paymentValidationService.calculateRemainingAmount(invoice.getTotalAmount(), paidAmount);
+        if (sale.getPaymentType() == PaymentType.CASH) {
+            if (remainingAmount > 0) {
+                throw new RequestNotValidException("Cash payment must be complete. Remaining amount: " + remainingAmount);
+            }
+            remainingAmount = 0;
+        }
+        invoice.setPaidAmount(paidAmount);
+        invoice.setRemainingAmount(remainingAmount);
+        saleService.calculateInvoiceStatuses(invoice);
+
+        // خصم المخزون، مع إمكانية التراجع إذا نفد المخزون منذ البيع
+        Map<Long, StockSnapshot> snapshots = new LinkedHashMap<>();
+        items.forEach(item -> snapshots.computeIfAbsent(item.getStockItem().getId(), id -> StockSnapshot.of(item.getStockItem())));
+        Map<StockKey, Integer> boxesByProduct = new HashMap<>();
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                SaleInvoiceItem item = items.get(i);
+                SaleInvoiceItemDTORequest requestItem = requestItems.get(i);
+                StockItem stockItem = item.getStockItem();
+                int boxesDeducted;
+                if (isPartialSale(requestItem, partsPerBox[i])) {
+                    boxesDeducted = StockDeductionEngine.deductParts(stockItem, requestItem.getPartsToSell(), partsPerBox[i]);
+                    item.setQuantity(boxesDeducted);
+                } else {
+                    boxesDeducted = StockDeductionEngine.deductBoxes(stockItem, item.getQuantity(), partsPerBox[i]);
+                }
+                boxesByProduct.merge(new StockKey(stockItem.getProductId(), stockItem.getProductType()), boxesDeducted, Integer::sum);
+                item.setSaleInvoice(invoice);
+            }
+        } catch (InsufficientStockException e) {
+            snapshots.values().forEach(StockSnapshot::restore);
+            throw new StockConflict(e.getMessage());
+        } catch (RuntimeException e) {
+            snapshots.values().forEach(StockSnapshot::restore);
+            throw e;
+        }
+        invoice.setItems(items);
+        return new AcceptedSale(invoice, sale, customer, boxesByProduct, -1);
+    }
+
+    /**
+     * حفظ الفواتير المقبولة وتحديث المخزون والملخص والصندوق دفعة واحدة
+     * Write the accepted invoices and everything they change, in batches
+     */
+    private void save(List<AcceptedSale> accepted, Long pharmacyId, List<StockItem> lockedStockItems) {
+        List<SaleInvoice> invoices = accepted.stream().map(AcceptedSale::invoice).toList();
+        saleInvoiceRepository.saveAll(invoices);
+        saleInvoiceItemRepository.saveAll(invoices.stream().flatMap(invoice -> invoice.getItems().stream()).toList());
+
+        stockDeductionEngine.flush(lockedStockItems);
+        stockBatchIndex.update(lockedStockItems);
+        Map<StockKey, Integer> boxesByProduct = new HashMap<>();
+        accepted.forEach(sale -> sale.boxesByProduct().forEach((key, boxes) -> boxesByProduct.merge(key, boxes, Integer::sum)));
+        boxesByProduct.forEach((key, boxes) ->
+            stockAvailabilityCache.adjust(pharmacyId, key.productId(), key.productType(), -boxes));
+
+        salesRollupService.recordSales(invoices);
+
+        List<CustomerDebt> debts = new ArrayList<>();
+        List<SalePayment> payments = new ArrayList<>();
+        for (AcceptedSale sale : accepted) {
+            SaleInvoice invoice = sale.invoice();
+            if (invoice.getRemainingAmount() > 0 && !saleService.isCashCustomer(sale.customer())) {
+                LocalDate dueDate = sale.request().getDebtDueDate() != null
+                    ? sale.request().getDebtDueDate()
+                    : invoice.getInvoiceDate().toLocalDate().plusMonths(1);
+                CustomerDebt debt = customerDebtMapper.toEntityFromSaleInvoice(sale.request(), invoice.getRemainingAmount(), dueDate);
+                debt.setCustomer(sale.customer());
+                debt.setNotes("Debt from sale invoice: " + invoice.getId());
+                debts.add(debt);
+            }
+            if (invoice.getPaymentMethod() == PaymentMethod.CASH && invoice.getPaidAmount() > 0) {
+                payments.add(new SalePayment(invoice.getId(), BigDecimal.valueOf(invoice.getPaidAmount()), invoice.getCurrency()));
+            }
+        }
+        customerDebtRepository.saveAll(debts);
+        salesIntegrationService.recordSalePayments(pharmacyId, payments);
+    }
+
+    private Map<String, Object[]> findSynced(Long pharmacyId, List<String> clientReferences) {
+        Map<String, Object[]> synced = new HashMap<>();
+        for (int from = 0; from < clientReferences.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<String> chunk = clientReferences.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, clientReferences.size()));
+            for (Object[] row : saleInvoiceRepository.findSyncedByClientReferences(pharmacyId, chunk)) {
+                synced.put((String) row[0], row);
+            }
+        }
+        return synced;
+    }
+
+    private static boolean isPartialSale(SaleInvoiceItemDTORequest item, Integer numberOfPartsPerBox) {
+        return item.getPartsToSell() != null && numberOfPartsPerBox != null && numberOfPartsPerBox > 1;
+    }
+
+    private static OfflineSaleResultDTO result(OfflineSaleDTORequest sale, OfflineSaleStatus status, String message) {
+        return OfflineSaleResultDTO.builder()
+            .clientReference(sale != null ? sale.getClientReference() : null)
+            .status(status)
+            .message(message)
+            .build();
+    }
+
+    private static OfflineSaleBatchResponse summarize(Collection<OfflineSaleResultDTO> results) {
+        Map<OfflineSaleStatus, Long> counts = results.stream()
+            .collect(Collectors.groupingBy(OfflineSaleResultDTO::getStatus, Collectors.counting()));
+        return OfflineSaleBatchResponse.builder()
+            .accepted(counts.getOrDefault(OfflineSaleStatus.ACCEPTED, 0L).intValue())
+            .duplicates(counts.getOrDefault(OfflineSaleStatus.DUPLICATE, 0L).intValue())
+            .conflicts(counts.getOrDefault(OfflineSaleStatus.CONFLICT, 0L).intValue())
+            .rejected(counts.getOrDefault(OfflineSaleStatus.REJECTED, 0L).intValue())
+            .results(new ArrayList<>(results))
+            .build();
+    }
+
+    private record StockKey(Long productId, ProductType productType) {
+    }
+
+    private record AcceptedSale(SaleInvoice invoice, SaleInvoiceDTORequest request, Customer customer,
+                                Map<StockKey, Integer> boxesByProduct, int index) {
+
+        AcceptedSale at(int index) {
+            return new AcceptedSale(invoice, request, customer, boxesByProduct, index);
+        }
+    }
+
+    /**
+     * Quantities of a locked batch before a sale's deductions
+     */
+    private record StockSnapshot(StockItem stockItem, Integer quantity, Integer remainingParts) {
+
+        static StockSnapshot of(StockItem stockItem) {
+            return new StockSnapshot(stockItem, stockItem.getQuantity(), stockItem.getRemainingParts());
+        }
+
+        void restore() {
+            stockItem.setQuantity(quantity);
+            stockItem.setRemainingParts(remainingParts);
+        }
+    }
+
+    /**
+     * The stock of a sale has run out since it was made
+     */
+    private static class StockConflict extends RuntimeException {
+        StockConflict(String message) {
+            super(message);
+        }
+    }
+}
@@ -7,6 +7,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -23,13 +25,20 @@ import com.Uqar.product.Enum.PaymentType;
 import com.Uqar.product.entity.StockItem;
 import com.Uqar.product.mapper.StockItemMapper;
 import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.product.service.ProductMetadataResolver;
+import com.Uqar.product.service.StockAvailabilityCache;
+import com.Uqar.product.service.StockBatchIndex;
+import com.Uqar.product.service.StockDeductionEngine;
 import com.Uqar.product.service.StockService;
+import com.Uqar.reports.service.SalesRollupService;
 import com.Uqar.sale.dto.SaleInvoiceDTORequest;
 import com.Uqar.sale.dto.SaleInvoiceDTOResponse;
 import com.Uqar.sale.dto.SaleInvoiceItemDTORequest;
 import com.Uqar.sale.dto.SaleRefundDTORequest;
 import com.Uqar.sale.dto.SaleRefundDTOResponse;
 import com.Uqar.sale.dto.SaleRefundItemDTORequest;
+import com.Uqar.numbering.enums.DocumentType;
+import com.Uqar.numbering.service.DocumentNumberAllocator;
 import com.Uqar.sale.entity.SaleInvoice;
 import com.Uqar.sale.entity.SaleInvoiceItem;
 import com.Uqar.sale.entity.SaleRefund;
@@ -103,6 +112,20 @@ public class SaleService extends BaseSecurityService {
     private NotificationService notificationService;
     @Autowired
     private EmployeeRepository employeeRepository;
+    @Autowired
+    private ProductMetadataResolver productMetadataResolver;
+    @Autowired
+    private StockAvailabilityCache stockAvailabilityCache;
+    @Autowired
+    private StockDeductionEngine stockDeductionEngine;
+    @Autowired
+    private StockBatchIndex stockBatchIndex;
+    @Autowired
+    private FefoBatchAllocator fefoBatchAllocator;
+    @Autowired
+    private SalesRollupService salesRollupService;
+    @Autowired
+    private DocumentNumberAllocator documentNumberAllocator;
 
         public SaleService(SaleInvoiceRepository saleInvoiceRepository,
                        SaleInvoiceItemRepository saleInvoiceItemRepository,
@@ -191,31 +214,32 @@ public class SaleService extends BaseSecurityService {
         
         SaleInvoice invoice = saleMapper.toEntityWithCustomerAndDate(requestDTO, customer, currentPharmacy);
         
-        // Generate invoice number
-        String invoiceNumber = "INV-" + System.currentTimeMillis() + "-" + currentPharmacy.getId();
-        invoice.setInvoiceNumber(invoiceNumber);
+        // رقم الفاتورة التالي في تسلسل الصيدلية
+        invoice.setInvoiceNumber(documentNumberAllocator.next(currentPharmacy.getId(), DocumentType.SALE));
         
-        List<Long> stockItemIds = requestDTO.getItems().stream()
+        // الدفعات المحددة صراحة والدفعات المرشحة للبنود بدون stockItemId (FEFO)
+        Set<Long> stockItemIds = fefoBatchAllocator.collectStockItemIds(requestDTO.getItems(), currentPharmacy.getId());
+        
+        // قفل جميع الدفعات المطلوبة بترتيب المعرف قبل أي خصم
+        List<Long> requiredStockItemIds = requestDTO.getItems().stream()
             .map(SaleInvoiceItemDTORequest::getStockItemId)
+            .filter(Objects::nonNull)
             .collect(Collectors.toList());
+        List<StockItem> stockItems = stockDeductionEngine.lockStockItems(stockItemIds, requiredStockItemIds);
         
-        List<StockItem> stockItems = stockItemRepo.findAllById(stockItemIds);
+        productMetadataResolver.preload(stockItems);
         
-        if (stockItems.size() != stockItemIds.size()) {
-            List<Long> foundIds = stockItems.stream().map(StockItem::getId).collect(Collectors.toList());
-            List<Long> missingIds = stockItemIds.stream()
-                .filter(id -> !foundIds.contains(id))
-                .collect(Collectors.toList());
-            throw new EntityNotFoundException("Stock items not found with IDs: " + missingIds);
-        }
+        // توزيع البنود المعتمدة على المنتج على الدفعات المقفلة
+        List<SaleInvoiceItemDTORequest> requestItems = fefoBatchAllocator.allocate(
+            requestDTO.getItems(), stockItems, currentPharmacy.getId());
         
-        List<SaleInvoiceItem> items = saleMapper.toEntityList(requestDTO.getItems(), stockItems, requestDTO.getCurrency());
+        List<SaleInvoiceItem> items = saleMapper.toEntityList(requestItems, stockItems, requestDTO.getCurrency());
         
         float total = 0;
         
         for (int i = 0; i < items.size(); i++) {
             SaleInvoiceItem item = items.get(i);
-            SaleInvoiceItemDTORequest requestItem = requestDTO.getItems().get(i);
+            SaleInvoiceItemDTORequest requestItem = requestItems.get(i);
             StockItem product = item.getStockItem();
             
             // التحقق من صحة partsToSell إذا كان بيع جزئي
@@ -254,12 +278,11 @@ public class SaleService extends BaseSecurityService {
                         ", Requested: " + requestItem.getPartsToSell());
                 }
             } else {
-                // بيع علبة كاملة: التحقق من توفر عدد كافٍ من العلبات
-                if (!stockService.isQuantityAvailable(product.getProductId(), item.getQuantity(), product.getProductType())) {
+                // بيع علبة كاملة: التحقق من الكمية في الدفعة المقفلة نفسها وليس من كاش المخزون
+                if (item.getQuantity() > product.getQuantity()) {
                     String productName = stockItemMapper.getProductName(product.getProductId(), product.getProductType());
                     throw new RequestNotValidException("Insufficient stock for product: " + productName + 
-                        " (ID: " + product.getProductId() + "). Available: " + 
-                        stockItemRepo.getTotalQuantity(product.getProductId(), getCurrentUserPharmacyId(), product.getProductType()) + 
+                        " (ID: " + product.getProductId() + "). Available: " + product.getQuantity() + 
                         ", Requested: " + item.getQuantity());
                 }
             }
@@ -270,53 +293,17 @@ public class SaleService extends BaseSecurityService {
                     " (ID: " + product.getProductId() + "). Expiry date: " + product.getExpiryDate());
             }
             
-            // خصم المخزون
-            int boxesDeducted = 0;
+            // خصم المخزون (في الذاكرة، يتم الحفظ دفعة واحدة بعد معالجة جميع العناصر)
+            int boxesDeducted;
             if (isPartialSale) {
-                // بيع جزئي: التعامل مع remainingParts
-                Integer partsToSell = requestItem.getPartsToSell();
-                Integer currentRemainingParts = product.getRemainingParts();
-                
-                // إذا لم يكن هناك remainingParts، نبدأ من numberOfPartsPerBox
-                if (currentRemainingParts == null) {
-                    currentRemainingParts = numberOfPartsPerBox;
-                }
-                
-                // خصم الأجزاء المطلوبة
-                int newRemainingParts = currentRemainingParts - partsToSell;
-                
-                if (newRemainingParts <= 0) {
-                    // استنفدت العلبة الحالية: خصم علبة واحدة
-                    boxesDeducted = 1;
-                    product.setQuantity(product.getQuantity() - 1);
-                    
-                    // إذا كانت هناك علبات أخرى، نبدأ علبة جديدة
-                    if (product.getQuantity() > 0) {
-                        product.setRemainingParts(numberOfPartsPerBox + newRemainingParts);
-                    } else {
-                        product.setRemainingParts(null);
-                    }
-                } else {
-                    // لا تزال هناك أجزاء متبقية: تحديث remainingParts فقط
-                    product.setRemainingParts(newRemainingParts);
-                }
+                boxesDeducted = StockDeductionEngine.deductParts(product, requestItem.getPartsToSell(), numberOfPartsPerBox);
                 
                 // تحديث quantity في SaleInvoiceItem ليعكس عدد العلبات المخصومة
                 item.setQuantity(boxesDeducted);
             } else {
-                // بيع علبة كاملة: خصم مباشر
-                boxesDeducted = item.getQuantity();
-                product.setQuantity(product.getQuantity() - boxesDeducted);
-                
-                // إذا كان المنتج قابل للبيع الجزئي: تعيين remainingParts للعلبة الجديدة
-                if (numberOfPartsPerBox != null && numberOfPartsPerBox > 1 && product.getQuantity() > 0) {
-                    product.setRemainingParts(numberOfPartsPerBox);
-                } else if (product.getQuantity() == 0) {
-                    product.setRemainingParts(null);
-                }
+                boxesDeducted = StockDeductionEngine.deductBoxes(product, item.getQuantity(), numberOfPartsPerBox);
             }
-            
-            stockItemRepo.save(product);
+            stockAvailabilityCache.adjust(currentPharmacy.getId(), product.getProductId(), product.getProductType(), -boxesDeducted);
             
             item.setSaleInvoice(invoice);
             
@@ -331,6 +318,10 @@ public class SaleService extends BaseSecurityService {
             total += item.getSubTotal();
         }
         
+        // حفظ جميع الدفعات المخصومة دفعة واحدة
+        stockDeductionEngine.flush(stockItems);
+        stockBatchIndex.update(stockItems);
+        
         float invoiceDiscount = discountCalculationService.calculateDiscount(
             total, 
             invoice.getDiscountType(), 
@@ -366,6 +357,7 @@ public class SaleService extends BaseSecurityService {
         
         SaleInvoice savedInvoice = saleInvoiceRepository.save(invoice);
         saleInvoiceItemRepository.saveAll(items);
+        salesRollupService.recordSale(savedInvoice);
         
         // Integrate with Money Box for cash payments - CRITICAL FIX: Only record paidAmount, not totalAmount
         if (requestDTO.getPaymentMethod() == com.Uqar.product.Enum.PaymentMethod.CASH && savedInvoice.getPaidAmount() > 0) {
@@ -416,7 +408,7 @@ public class SaleService extends BaseSecurityService {
     }
 
   
-    private Customer getOrCreateCashCustomer(Pharmacy pharmacy) {
+    Customer getOrCreateCashCustomer(Pharmacy pharmacy) {
         try {
             Customer cashCustomer = customerRepository.findByNameAndPharmacyId("cash customer", pharmacy.getId())
                 .orElse(null);
@@ -440,7 +432,7 @@ public class SaleService extends BaseSecurityService {
         }
     }
     
-    private boolean isCashCustomer(Customer customer) {
+    boolean isCashCustomer(Customer customer) {
         return customer != null && "cash customer".equalsIgnoreCase(customer.getName());
     }
 
@@ -477,6 +469,8 @@ public class SaleService extends BaseSecurityService {
             if (stockItem != null) {
                 stockItem.setQuantity(stockItem.getQuantity() + item.getQuantity());
                 stockItemRepo.save(stockItem);
+                stockAvailabilityCache.adjust(currentPharmacyId, stockItem.getProductId(), stockItem.getProductType(), item.getQuantity());
+                stockBatchIndex.update(stockItem);
             }
         }
 
@@ -487,6 +481,8 @@ public class SaleService extends BaseSecurityService {
                     .forEach(debt -> customerDebtRepository.delete(debt));
         }
 
+        salesRollupService.recordCancellation(saleInvoice);
+        
         saleInvoiceItemRepository.deleteBySaleInvoiceId(saleId);
 
         saleInvoiceRepository.delete(saleInvoice);
@@ -548,6 +544,7 @@ public class SaleService extends BaseSecurityService {
         }
 
         SaleRefund refund = saleRefundMapper.toEntity(request, saleInvoice, getCurrentUserPharmacy());
+        refund.setRefundNumber(documentNumberAllocator.next(currentPharmacyId, DocumentType.REFUND));
         List<SaleRefundItem> refundItems = new ArrayList<>();
         float totalRefundAmount = 0.0f;
 
@@ -567,6 +564,7 @@ public class SaleService extends BaseSecurityService {
         // حفظ المرتجعات
         SaleRefund savedRefund = saleRefundRepo.save(refund);
         saleRefundItemRepo.saveAll(refundItems);
+        salesRollupService.recordRefund(savedRefund, refundItems);
         
         // تحديث المخزون
         restoreStock(refundItems);
@@ -639,6 +637,9 @@ public class SaleService extends BaseSecurityService {
             if (stockItem != null) {
                 stockItem.setQuantity(stockItem.getQuantity() + refundItem.getRefundQuantity());
                 stockItemRepo.save(stockItem);
+                stockAvailabilityCache.adjust(stockItem.getPharmacy().getId(), stockItem.getProductId(),
+                    stockItem.getProductType(), refundItem.getRefundQuantity());
+                stockBatchIndex.update(stockItem);
                 refundItem.setStockRestored(true);
             }
         }
@@ -683,7 +684,7 @@ public class SaleService extends BaseSecurityService {
     }
 
   
-    private void calculateInvoiceStatuses(SaleInvoice invoice) {
+    void calculateInvoiceStatuses(SaleInvoice invoice) {
         // حساب حالة الدفع
         if (invoice.getRemainingAmount() == 0) {
             invoice.setPaymentStatus(PaymentStatus.FULLY_PAID);
@@ -0,0 +1,52 @@
+package com.Uqar.scheduling.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * عقد تنفيذ مهمة مجدولة (أو جزء منها) على نسخة واحدة من التطبيق
+ * Lease of one shard of a scheduled job, so that only one application instance runs it per firing.
+ * fire_key identifies the firing (e.g. the day of a daily job); a completed firing is not run again
+ * and an unfinished one is taken over once its lease expires.
+ */
+@Entity
+@Table(name = "scheduled_job_lease",
+       uniqueConstraints = @UniqueConstraint(name = "uk_scheduled_job_lease_job_shard",
+                                             columnNames = {"job_name", "shard"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduledJobLease {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", length = 100, nullable = false)
+    private String jobName;
+
+    @Column(name = "shard", nullable = false)
+    private Integer shard;
+
+    @Column(name = "fire_key", length = 100, nullable = false)
+    private String fireKey;
+
+    @Column(name = "owner", length = 200, nullable = false)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    @Builder.Default
+    @Column(name = "completed", nullable = false)
+    private Boolean completed = false;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
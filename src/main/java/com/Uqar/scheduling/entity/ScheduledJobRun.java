@@ -0,0 +1,63 @@
+package com.Uqar.scheduling.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * سجل تنفيذ مهمة مجدولة
+ * History of one run of a scheduled job shard: who ran it, how long it took and how many rows it processed.
+ */
+@Entity
+@Table(name = "scheduled_job_run",
+       indexes = @Index(name = "idx_scheduled_job_run_job_started", columnList = "job_name, started_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduledJobRun {
+
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", length = 100, nullable = false)
+    private String jobName;
+
+    @Column(name = "shard", nullable = false)
+    private Integer shard;
+
+    @Column(name = "shard_count", nullable = false)
+    private Integer shardCount;
+
+    @Column(name = "fire_key", length = 100, nullable = false)
+    private String fireKey;
+
+    @Column(name = "owner", length = 200, nullable = false)
+    private String owner;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at", nullable = false)
+    private LocalDateTime finishedAt;
+
+    @Column(name = "duration_ms", nullable = false)
+    private Long durationMs;
+
+    @Column(name = "rows_processed", nullable = false)
+    private Integer rowsProcessed;
+
+    @Column(name = "status", length = 20, nullable = false)
+    private String status;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+}
@@ -0,0 +1,57 @@
+package com.Uqar.scheduling.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.Uqar.scheduling.entity.ScheduledJobLease;
+
+@Repository
+public interface ScheduledJobLeaseRepository extends JpaRepository<ScheduledJobLease, Long> {
+
+    /**
+     * محاولة الحصول على عقد جزء من المهمة (1 = تم الحصول عليه)
+     * Try to take the lease of a job shard for a firing; returns 1 when taken.
+     * The lease is taken when the row is new, when a previous firing is completed or its lease
+     * expired, or when this firing was started by an instance whose lease expired before finishing.
+     * Times come from the database clock, so the instances' clocks do not need to agree.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO scheduled_job_lease (job_name, shard, fire_key, owner, lease_until, completed, updated_at)
+        VALUES (:jobName, :shard, :fireKey, :owner, now() + make_interval(secs => :leaseSeconds), false, now())
+        ON CONFLICT (job_name, shard) DO UPDATE SET
+            fire_key = EXCLUDED.fire_key,
+            owner = EXCLUDED.owner,
+            lease_until = EXCLUDED.lease_until,
+            completed = false,
+            updated_at = now()
+        WHERE (scheduled_job_lease.fire_key <> EXCLUDED.fire_key
+               AND (scheduled_job_lease.completed OR scheduled_job_lease.lease_until < now()))
+           OR (scheduled_job_lease.fire_key = EXCLUDED.fire_key
+               AND NOT scheduled_job_lease.completed AND scheduled_job_lease.lease_until < now())
+        """, nativeQuery = true)
+    int tryAcquire(@Param("jobName") String jobName,
+                   @Param("shard") int shard,
+                   @Param("fireKey") String fireKey,
+                   @Param("owner") String owner,
+                   @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * إنهاء العقد: completed = true تمنع إعادة التنفيذ لنفس fire_key، و false تسمح لنسخة أخرى بالمحاولة
+     * End the lease. completed = true marks the firing done; false leaves it for another instance to retry.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE scheduled_job_lease
+        SET completed = :completed, lease_until = now(), updated_at = now()
+        WHERE job_name = :jobName AND shard = :shard AND fire_key = :fireKey AND owner = :owner
+        """, nativeQuery = true)
+    int release(@Param("jobName") String jobName,
+                @Param("shard") int shard,
+                @Param("fireKey") String fireKey,
+                @Param("owner") String owner,
+                @Param("completed") boolean completed);
+}
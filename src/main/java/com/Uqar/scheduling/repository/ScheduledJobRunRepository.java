@@ -0,0 +1,10 @@
+package com.Uqar.scheduling.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.Uqar.scheduling.entity.ScheduledJobRun;
+
+@Repository
+public interface ScheduledJobRunRepository extends JpaRepository<ScheduledJobRun, Long> {
+}
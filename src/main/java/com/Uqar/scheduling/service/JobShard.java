@@ -0,0 +1,15 @@
+package com.Uqar.scheduling.service;
+
+/**
+ * جزء من مهمة مجدولة مقسمة حسب معرف الصيدلية
+ * One shard of a scheduled job split by pharmacy id: it owns the pharmacies whose id modulo
+ * count equals index. A job that is not split runs as the single shard {@link #ALL}.
+ */
+public record JobShard(int index, int count) {
+
+    public static final JobShard ALL = new JobShard(0, 1);
+
+    public boolean owns(Long pharmacyId) {
+        return pharmacyId != null && Math.floorMod(pharmacyId, count) == index;
+    }
+}
@@ -0,0 +1,142 @@
+package com.Uqar.scheduling.service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Uqar.scheduling.entity.ScheduledJobRun;
+import com.Uqar.scheduling.repository.ScheduledJobLeaseRepository;
+import com.Uqar.scheduling.repository.ScheduledJobRunRepository;
+
+/**
+ * تنسيق المهام المجدولة بين نسخ التطبيق
+ * Runs each firing of a scheduled job once across all application instances.
+ *
+ * Every instance fires the same @Scheduled methods; before doing the work each one takes a
+ * lease row in scheduled_job_lease for the (job, shard) and the firing's key, and only the
+ * instance that gets it runs that shard. A job split into shards by pharmacy id lets several
+ * instances share one large firing: each instance walks the shards and runs those it can take.
+ * A shard whose instance dies mid-run is taken over once its lease expires. Every run is
+ * recorded in scheduled_job_run with its duration and the number of rows it processed.
+ *
+ * Jobs that maintain per-instance state (the in-memory caches' reloads, the IP block list) or
+ * already claim rows safely (the notification queue, FOR UPDATE SKIP LOCKED) are not coordinated.
+ */
+@Service
+public class ScheduledJobCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledJobCoordinator.class);
+
+    private final ScheduledJobLeaseRepository leaseRepository;
+    private final ScheduledJobRunRepository runRepository;
+    private final TransactionTemplate ownTransaction;
+    private final String instanceId;
+    private final long leaseSeconds;
+    private final int pharmacyShards;
+
+    public ScheduledJobCoordinator(ScheduledJobLeaseRepository leaseRepository,
+                                   ScheduledJobRunRepository runRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${scheduling.jobs.lease-seconds:1800}") long leaseSeconds,
+                                   @Value("${scheduling.jobs.pharmacy-shards:4}") int pharmacyShards) {
+        this.leaseRepository = leaseRepository;
+        this.runRepository = runRepository;
+        // Leases and history commit on their own, whatever the caller's transaction does
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.instanceId = resolveInstanceId();
+        this.leaseSeconds = leaseSeconds;
+        this.pharmacyShards = Math.max(1, pharmacyShards);
+    }
+
+    /**
+     * تنفيذ المهمة مرة واحدة لكل fire key على جميع النسخ
+     * Run the job on this instance if no other instance ran or is running this firing.
+     * Returns the rows processed here (0 when another instance has it).
+     */
+    public int run(String jobName, String fireKey, ToIntFunction<JobShard> work) {
+        return runShard(jobName, fireKey, JobShard.ALL, work);
+    }
+
+    /**
+     * تنفيذ المهمة مقسمة حسب الصيدلية، كل جزء على نسخة واحدة
+     * Run the job split by pharmacy id into scheduling.jobs.pharmacy-shards shards; this instance
+     * runs every shard it can take. Returns the rows processed here.
+     */
+    public int runSharded(String jobName, String fireKey, ToIntFunction<JobShard> work) {
+        int rows = 0;
+        for (int index = 0; index < pharmacyShards; index++) {
+            rows += runShard(jobName, fireKey, new JobShard(index, pharmacyShards), work);
+        }
+        return rows;
+    }
+
+    private int runShard(String jobName, String fireKey, JobShard shard, ToIntFunction<JobShard> work) {
+        Integer acquired = ownTransaction.execute(status ->
+            leaseRepository.tryAcquire(jobName, shard.index(), fireKey, instanceId, leaseSeconds));
+        if (acquired == null || acquired == 0) {
+            logger.debug("Job {} shard {}/{} ({}) is run by another instance", jobName, shard.index(), shard.count(), fireKey);
+            return 0;
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        int rows = 0;
+        String error = null;
+        try {
+            rows = work.applyAsInt(shard);
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            logger.error("Job {} shard {}/{} ({}) failed: {}", jobName, shard.index(), shard.count(), fireKey, error, e);
+        }
+        long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        boolean succeeded = error == null;
+        ScheduledJobRun run = ScheduledJobRun.builder()
+            .jobName(jobName)
+            .shard(shard.index())
+            .shardCount(shard.count())
+            .fireKey(fireKey)
+            .owner(instanceId)
+            .startedAt(startedAt)
+            .finishedAt(LocalDateTime.now())
+            .durationMs(durationMs)
+            .rowsProcessed(rows)
+            .status(succeeded ? ScheduledJobRun.STATUS_SUCCEEDED : ScheduledJobRun.STATUS_FAILED)
+            .errorMessage(error != null && error.length() > 1000 ? error.substring(0, 1000) : error)
+            .build();
+        try {
+            ownTransaction.executeWithoutResult(status -> {
+                leaseRepository.release(jobName, shard.index(), fireKey, instanceId, succeeded);
+                runRepository.save(run);
+            });
+        } catch (Exception e) {
+            // The lease expires on its own; only the history row is lost
+            logger.error("Failed to record run of job {} shard {}: {}", jobName, shard.index(), e.getMessage());
+        }
+
+        logger.info("Job {} shard {}/{} ({}) {} in {} ms, {} rows", jobName, shard.index(), shard.count(), fireKey,
+            succeeded ? "completed" : "failed", durationMs, rows);
+        return rows;
+    }
+
+    private static String resolveInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown-host";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
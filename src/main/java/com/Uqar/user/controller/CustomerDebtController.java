@@ -6,6 +6,7 @@ import com.Uqar.user.dto.PayDebtDTORequest;
 import com.Uqar.user.dto.PayCustomerDebtsRequest;
 import com.Uqar.user.dto.PayCustomerDebtsResponse;
 import com.Uqar.user.service.CustomerDebtService;
+import com.Uqar.utils.annotation.Idempotent;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -96,6 +97,7 @@ public class CustomerDebtController {
 
  
     @PostMapping("/pay")
+    @Idempotent(operation = "PAY_DEBT")
     @Operation(summary = "Pay debt", description = "Makes a payment towards a debt")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully processed payment"),
@@ -112,6 +114,7 @@ public class CustomerDebtController {
     }
 
     @PostMapping("/{customerId}/autoPay")
+    @Idempotent(operation = "AUTO_PAY_DEBT")
     @Operation(summary = "Auto pay debt", description = "Automatically distributes payment across customer debts using FIFO strategy")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully processed payment"),
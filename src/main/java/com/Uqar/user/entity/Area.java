@@ -2,6 +2,8 @@ package com.Uqar.user.entity;
 
 import com.Uqar.utils.entity.AuditedEntity;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +12,7 @@ import lombok.experimental.SuperBuilder;
 import java.util.Set;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "areas")
 @Data
 @SuperBuilder
@@ -31,6 +34,7 @@ public class Area extends AuditedEntity {
     @OneToMany(mappedBy = "area")
     private Set<Pharmacy> pharmacies;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OneToMany(mappedBy = "area", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<AreaTranslation> translations;
 
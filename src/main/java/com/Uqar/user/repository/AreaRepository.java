@@ -1,7 +1,11 @@
 package com.Uqar.user.repository;
 
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.user.entity.Area;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +16,10 @@ public interface AreaRepository extends JpaRepository<Area, Long> {
 
     Optional<Area> findByName(String name);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceDataCache.QUERY_REGION)
+    })
     List<Area> findByIsActiveTrue();
 
     List<Area> findByIsActive(Boolean isActive);
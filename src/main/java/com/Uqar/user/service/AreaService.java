@@ -1,5 +1,6 @@
 package com.Uqar.user.service;
 
+import com.Uqar.config.ReferenceDataCache;
 import com.Uqar.user.dto.AreaRequestDTO;
 import com.Uqar.user.dto.AreaResponseDTO;
 import com.Uqar.user.entity.Area;
@@ -23,6 +24,7 @@ public class AreaService {
 
     private final AreaRepository areaRepository;
     private final AreaTranslationRepository areaTranslationRepository;
+    private final ReferenceDataCache referenceDataCache;
 
 //    public List<AreaResponseDTO> getAllAreas() {
 //        return areaRepository.findAll().stream()
@@ -87,6 +89,7 @@ public class AreaService {
                 areaTranslationRepository.save(translation);
             }
         }
+        referenceDataCache.evict(Area.class, savedArea.getId());
 
         return AreaMapper.toResponseDTO(savedArea);
     }
@@ -114,12 +117,14 @@ public class AreaService {
                 areaTranslationRepository.save(translation);
             }
         }
+        referenceDataCache.evict(Area.class, id);
 
         return AreaMapper.toResponseDTO(updatedArea);
     }
 
     public void deleteArea(Long id) {
         areaRepository.deleteById(id);
+        referenceDataCache.evict(Area.class, id);
     }
 
     public boolean areaExists(String name) {
@@ -0,0 +1,107 @@
+package com.Uqar.user.service;
+
+import com.Uqar.user.entity.Employee;
+import com.Uqar.user.entity.Permission;
+import com.Uqar.user.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * هوية المستخدم المصادق عليه
+ * Immutable identity of the authenticated user: id, role, permissions and pharmacy.
+ *
+ * Resolved once when the JWT is validated and stored as the principal of the request's
+ * Authentication, so services read it without another user lookup. It carries no password
+ * and is only used for token-authenticated requests.
+ */
+public record AuthenticatedPrincipal(
+        Long userId,
+        String email,
+        String roleName,
+        Set<String> permissions,
+        Long pharmacyId,
+        boolean employee) implements UserDetails {
+
+    public AuthenticatedPrincipal {
+        permissions = Set.copyOf(permissions);
+    }
+
+    public static AuthenticatedPrincipal of(User user) {
+        Set<String> permissions = new HashSet<>();
+        if (user.getRole() != null && user.getRole().getPermissions() != null) {
+            user.getRole().getPermissions().stream().map(Permission::getName).forEach(permissions::add);
+        }
+        if (user.getAdditionalPermissions() != null) {
+            user.getAdditionalPermissions().stream().map(Permission::getName).forEach(permissions::add);
+        }
+
+        Long pharmacyId = null;
+        boolean employee = user instanceof Employee;
+        if (user instanceof Employee employeeUser && employeeUser.getPharmacy() != null) {
+            pharmacyId = employeeUser.getPharmacy().getId();
+        }
+
+        return new AuthenticatedPrincipal(
+                user.getId(),
+                user.getEmail(),
+                user.getRole() != null ? user.getRole().getName() : null,
+                permissions,
+                pharmacyId,
+                employee);
+    }
+
+    public boolean hasRole(String name) {
+        return roleName != null && roleName.equals(name);
+    }
+
+    public boolean hasPermission(String permissionName) {
+        return permissions.contains(permissionName);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        Set<GrantedAuthority> authorities = permissions.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toSet());
+        if (roleName != null) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + roleName));
+        }
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
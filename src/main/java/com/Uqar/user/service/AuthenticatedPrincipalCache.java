@@ -0,0 +1,110 @@
+package com.Uqar.user.service;
+
+import com.Uqar.user.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.Uqar.utils.TransactionCallbacks.afterCommit;
+
+/**
+ * ذاكرة مؤقتة محدودة لهويات المستخدمين المصادق عليهم
+ * Bounded, time-limited cache of {@link AuthenticatedPrincipal} by email.
+ *
+ * Used by the JWT filter so a request does not load the user, role and permissions from
+ * the database again. Entries are dropped after the transaction that changes a user or
+ * role commits ({@link #evict}, {@link #evictAll}); the TTL bounds staleness for changes
+ * made outside those services or on other instances.
+ */
+@Component
+public class AuthenticatedPrincipalCache {
+
+    private final UserDetailsService userDetailsService;
+    private final long ttlMillis;
+    private final Map<String, CachedPrincipal> entries;
+
+    // Incremented on every eviction, so a load that raced with an eviction is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public AuthenticatedPrincipalCache(UserDetailsService userDetailsService,
+                                       @Value("${security.principal-cache.max-size:10000}") int maxSize,
+                                       @Value("${security.principal-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.userDetailsService = userDetailsService;
+        this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPrincipal> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * هوية المستخدم من الذاكرة أو من قاعدة البيانات
+     * Principal of the user with the given email, loaded on a miss
+     * @throws UsernameNotFoundException if no user has the email
+     */
+    public AuthenticatedPrincipal get(String email) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CachedPrincipal cached = entries.get(email);
+            if (cached != null && cached.expiresAt() > now) {
+                return cached.principal();
+            }
+        }
+
+        long loadGeneration = generation.get();
+        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        if (!(userDetails instanceof User user)) {
+            throw new UsernameNotFoundException("User not found");
+        }
+        AuthenticatedPrincipal principal = AuthenticatedPrincipal.of(user);
+
+        synchronized (entries) {
+            if (generation.get() == loadGeneration) {
+                entries.put(email, new CachedPrincipal(principal, now + ttlMillis));
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * حذف هوية مستخدم بعد نجاح المعاملة
+     * Drop the user's entry once the current transaction commits
+     */
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (entries) {
+                generation.incrementAndGet();
+                entries.remove(email);
+            }
+        });
+    }
+
+    /**
+     * حذف جميع الهويات (عند تعديل الأدوار وصلاحياتها)
+     * Drop every entry once the current transaction commits, used when a role changes
+     */
+    public void evictAll() {
+        afterCommit(() -> {
+            synchronized (entries) {
+                generation.incrementAndGet();
+                entries.clear();
+            }
+        });
+    }
+
+
+    private record CachedPrincipal(AuthenticatedPrincipal principal, long expiresAt) {
+    }
+}
@@ -142,7 +142,6 @@ public class AuthorizationService extends BaseSecurityService {
      * @return true if the current user is the same as the requested user
      */
     public boolean isCurrentUser(Long userId) {
-        User currentUser = getCurrentUser();
-        return currentUser.getId().equals(userId);
+        return getCurrentUserId().equals(userId);
     }
 } 
\ No newline at end of file
@@ -6,8 +6,10 @@ import com.Uqar.user.entity.User;
 import com.Uqar.user.repository.UserRepository;
 import com.Uqar.utils.exception.ResourceNotFoundException;
 import com.Uqar.utils.exception.UnAuthorizedException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -15,26 +17,57 @@ public abstract class BaseSecurityService {
 
     protected final UserRepository userRepository;
 
+    @Autowired
+    private AuthenticatedPrincipalCache principalCache;
+
     protected BaseSecurityService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
 
     /**
-     * Gets the currently authenticated user
-     * @return The current user
-     * @throws ResourceNotFoundException if the user is not found
+     * Gets the identity of the currently authenticated user without a database lookup.
+     * Token-authenticated requests carry it as their principal; other authentications
+     * (e.g. right after login) resolve it through the principal cache.
+     * @return The current principal
+     * @throws ResourceNotFoundException if the user is not authenticated or not found
      */
-    protected User getCurrentUser() {
+    protected AuthenticatedPrincipal getCurrentPrincipal() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new ResourceNotFoundException("User not authenticated");
         }
-        return userRepository.findByEmail(authentication.getName())
+        if (authentication.getPrincipal() instanceof AuthenticatedPrincipal principal) {
+            return principal;
+        }
+        if (principalCache == null) {
+            return AuthenticatedPrincipal.of(findUserByEmail(authentication.getName()));
+        }
+        try {
+            return principalCache.get(authentication.getName());
+        } catch (UsernameNotFoundException e) {
+            throw new ResourceNotFoundException("User not found");
+        }
+    }
+
+    /**
+     * Gets the currently authenticated user entity.
+     * Loaded by id, so repeated calls within a request are served by the persistence context.
+     * @return The current user
+     * @throws ResourceNotFoundException if the user is not found
+     */
+    protected User getCurrentUser() {
+        Long userId = getCurrentPrincipal().userId();
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+
+    private User findUserByEmail(String email) {
+        return userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 
     public Long getCurrentUserId() {
-        return getCurrentUser().getId();
+        return getCurrentPrincipal().userId();
     }
 
     /**
@@ -42,8 +75,7 @@ public abstract class BaseSecurityService {
      * @return true if the user is a platform admin
      */
     protected boolean isAdmin() {
-        User currentUser = getCurrentUser();
-        return currentUser.getRole().getName().equals("PLATFORM_ADMIN");
+        return getCurrentPrincipal().hasRole("PLATFORM_ADMIN");
     }
 
     /**
@@ -52,8 +84,7 @@ public abstract class BaseSecurityService {
      * @return true if the user has the specified role
      */
     protected boolean hasRole(String roleName) {
-        User currentUser = getCurrentUser();
-        return currentUser.getRole().getName().equals(roleName);
+        return getCurrentPrincipal().hasRole(roleName);
     }
 
     /**
@@ -78,7 +109,14 @@ public abstract class BaseSecurityService {
      * @throws UnAuthorizedException if user is not an employee or has no pharmacy
      */
     protected Long getCurrentUserPharmacyId() {
-        return getCurrentUserPharmacy().getId();
+        AuthenticatedPrincipal principal = getCurrentPrincipal();
+        if (!principal.employee()) {
+            throw new UnAuthorizedException("User is not an employee");
+        }
+        if (principal.pharmacyId() == null) {
+            throw new UnAuthorizedException("User is not associated with any pharmacy");
+        }
+        return principal.pharmacyId();
     }
 
     /**
@@ -111,8 +149,7 @@ public abstract class BaseSecurityService {
      */
     protected boolean isCurrentUserEmployee() {
         try {
-            User currentUser = getCurrentUser();
-            return currentUser instanceof Employee;
+            return getCurrentPrincipal().employee();
         } catch (Exception e) {
             return false;
         }
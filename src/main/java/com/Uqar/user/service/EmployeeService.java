@@ -38,17 +38,20 @@ public class EmployeeService extends BaseSecurityService {
     private final EmployeeWorkingHoursRepository employeeWorkingHoursRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AuthenticatedPrincipalCache principalCache;
     
     public EmployeeService(EmployeeRepository employeeRepository,
                          EmployeeWorkingHoursRepository employeeWorkingHoursRepository,
                          RoleRepository roleRepository,
                          PasswordEncoder passwordEncoder,
-                         UserRepository userRepository) {
+                         UserRepository userRepository,
+                         AuthenticatedPrincipalCache principalCache) {
         super(userRepository);
         this.employeeRepository = employeeRepository;
         this.employeeWorkingHoursRepository = employeeWorkingHoursRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
     }
     
     Logger logger = Logger.getLogger(EmployeeService.class.getName());
@@ -122,9 +125,11 @@ public class EmployeeService extends BaseSecurityService {
         
         // Validate and get employee
         Employee employee = validateAndGetEmployee(employeeId, managerPharmacyId);
+        principalCache.evict(employee.getEmail());
         
         // Update employee fields using mapper (password is not updated for security)
         updateEmployeeFields(employee, dto);
+        principalCache.evict(employee.getEmail());
         
         // Handle working hours update (support both legacy and new format)
         updateEmployeeWorkingHoursRequests(employee, dto.getWorkingHoursRequests());
@@ -164,6 +169,7 @@ public class EmployeeService extends BaseSecurityService {
         
         // Delete employee
         employeeRepository.delete(employee);
+        principalCache.evict(employee.getEmail());
         logger.info("Employee deleted successfully");
     }
     
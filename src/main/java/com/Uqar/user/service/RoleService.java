@@ -23,6 +23,7 @@ public class RoleService {
 
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
+    private final AuthenticatedPrincipalCache principalCache;
 
     public List<Role> getAllRoles() {
         return roleRepository.findAll();
@@ -78,6 +79,8 @@ public class RoleService {
         role.setDescription(roleDetails.getDescription());
         role.setActive(roleDetails.getIsActive());
         
+        // Cached principals carry the role name
+        principalCache.evictAll();
         return roleRepository.save(role);
     }
 
@@ -91,6 +94,7 @@ public class RoleService {
         }
         
         roleRepository.delete(role);
+        principalCache.evictAll();
     }
 
     @Transactional
@@ -108,6 +112,7 @@ public class RoleService {
                 .collect(Collectors.toSet());
         
         role.setPermissions(permissions);
+        principalCache.evictAll();
         return roleRepository.save(role);
     }
 
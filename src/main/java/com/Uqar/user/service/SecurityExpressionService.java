@@ -1,6 +1,5 @@
 package com.Uqar.user.service;
 
-import com.Uqar.user.entity.User;
 import com.Uqar.user.repository.UserRepository;
 import org.springframework.stereotype.Service;
 
@@ -17,24 +16,21 @@ public class SecurityExpressionService extends BaseSecurityService {
      * Checks if the current user is a Pharmacy Manager
      */
     public boolean isPharmacyManager() {
-        User currentUser = getCurrentUser();
-        return currentUser.getRole().getName().equals("PHARMACY_MANAGER");
+        return getCurrentPrincipal().hasRole("PHARMACY_MANAGER");
     }
 
     /**
      * Checks if the current user is a Pharmacist
      */
     public boolean isPharmacist() {
-        User currentUser = getCurrentUser();
-        return currentUser.getRole().getName().equals("PHARMACIST");
+        return getCurrentPrincipal().hasRole("PHARMACIST");
     }
 
     /**
      * Checks if the current user is a Trainee
      */
     public boolean isTrainee() {
-        User currentUser = getCurrentUser();
-        return currentUser.getRole().getName().equals("TRAINEE");
+        return getCurrentPrincipal().hasRole("TRAINEE");
     }
 
     /**
@@ -43,15 +39,7 @@ public class SecurityExpressionService extends BaseSecurityService {
      * @return true if the user has the permission
      */
     public boolean hasPermission(String permissionName) {
-        User currentUser = getCurrentUser();
-        // Check role permissions
-        boolean hasRolePermission = currentUser.getRole().getPermissions().stream()
-                .anyMatch(permission -> permission.getName().equals(permissionName));
-        if (hasRolePermission) {
-            return true;
-        }
-        // Check additional permissions
-        return currentUser.getAdditionalPermissions().stream()
-                .anyMatch(permission -> permission.getName().equals(permissionName));
+        // Role permissions and additional permissions are both part of the principal
+        return getCurrentPrincipal().hasPermission(permissionName);
     }
 } 
\ No newline at end of file
@@ -50,6 +50,7 @@ public class UserService {
     private final RateLimiterConfig rateLimiterConfig;
     private final RateLimiterRegistry rateLimiterRegistry;
     private final UserMapper userMapper;
+    private final AuthenticatedPrincipalCache principalCache;
     
 
     /**
@@ -123,6 +124,7 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("Role not found with id: " + userDetails.getRoleId()));
         
         validateUserUpdate(targetRole, user.getRole());
+        principalCache.evict(user.getEmail());
         
         user.setFirstName(userDetails.getFirstName());
         user.setLastName(userDetails.getLastName());
@@ -135,6 +137,7 @@ public class UserService {
             user.setAdditionalPermissions(permissions);
         }
         
+        principalCache.evict(user.getEmail());
         return userMapper.toResponse(userRepository.save(user));
     }
 
@@ -163,6 +166,7 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         userRepository.delete(user);
+        principalCache.evict(user.getEmail());
     }
 
     public UserAuthenticationResponse login(AuthenticationRequest request, HttpServletRequest httpServletRequest) {
@@ -252,6 +256,7 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
         Set<Permission> permissions = new HashSet<>(permissionRepository.findAllById(permissionIds));
         user.setAdditionalPermissions(permissions);
+        principalCache.evict(user.getEmail());
         return userMapper.toResponse(userRepository.save(user));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.Uqar.utils.Aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.Uqar.idempotency.service.IdempotencyService;
+import com.Uqar.utils.annotation.Idempotent;
+import com.Uqar.utils.exception.RequestNotValidException;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Aspect for requests that carry an Idempotency-Key header
+ * Runs methods annotated with @Idempotent through the IdempotencyService, per authenticated user
+ * and key. Requests without the header, or without an authenticated user, run as usual.
+ *
+ * The aspect runs inside the method security interceptors, so a request rejected by @PreAuthorize
+ * never claims its key. @Min and the other parameter constraints of the controllers are checked by
+ * Spring MVC before the controller proxy is called.
+ */
+@Aspect
+@Component
+@Order(IdempotencyAspect.ORDER)
+public class IdempotencyAspect {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    // Method security interceptors are ordered from Integer.MIN_VALUE (AuthorizationInterceptorsOrder),
+    // the transaction advisor is LOWEST_PRECEDENCE
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyService idempotencyService;
+
+    public IdempotencyAspect(IdempotencyService idempotencyService) {
+        this.idempotencyService = idempotencyService;
+    }
+
+    @Around("@annotation(idempotent)")
+    public Object runOnce(ProceedingJoinPoint joinPoint, Idempotent idempotent) throws Throwable {
+        String idempotencyKey = getIdempotencyKey();
+        String owner = getCurrentUser();
+        if (idempotencyKey == null || owner == null) {
+            return joinPoint.proceed();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new RequestNotValidException(IDEMPOTENCY_KEY_HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        return idempotencyService.execute(owner, idempotencyKey, idempotent.operation(), joinPoint.getArgs(), joinPoint::proceed);
+    }
+
+    private String getIdempotencyKey() {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        return key != null && !key.isBlank() ? key.trim() : null;
+    }
+
+    private String getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() &&
+            !"anonymousUser".equals(authentication.getPrincipal())) {
+            return authentication.getName();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.Uqar.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * إجراءات تنفذ بعد نجاح المعاملة الحالية
+ * Callbacks run once the current transaction has committed, used by the in-memory caches and
+ * indexes so a rolled-back change never reaches them.
+ */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * تنفيذ الإجراء بعد نجاح المعاملة الحالية (أو فوراً إن لم توجد معاملة)
+     * Run the action after the current transaction commits, or right away without one
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.Uqar.utils.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller method whose requests may carry an Idempotency-Key header.
+ * When the header is present, the IdempotencyAspect runs the method at most once per user and
+ * key and answers retries with the stored response; without the header the method runs as usual.
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+    /**
+     * The operation the key is used for (e.g., "CREATE_SALE"); reusing a key for another
+     * operation or another request body is rejected
+     */
+    String operation();
+}
@@ -2,6 +2,7 @@ package com.Uqar.utils.auditing;
 
 
 import com.Uqar.user.entity.User;
+import com.Uqar.user.service.AuthenticatedPrincipal;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -21,6 +22,9 @@ public class ApplicationAuditingAware implements AuditorAware<Long> {
          authentication instanceof AnonymousAuthenticationToken){
             return Optional.of(1L);
         }
+        if (authentication.getPrincipal() instanceof AuthenticatedPrincipal principal) {
+            return Optional.ofNullable(principal.userId());
+        }
         User dealerPrincipal = (User) authentication.getPrincipal();
         return Optional.ofNullable(dealerPrincipal.getId());
     }
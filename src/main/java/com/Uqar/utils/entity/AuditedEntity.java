@@ -47,4 +47,17 @@ public class AuditedEntity extends BaseEntity {
 
     private String createdByUserType;
     private String lastModifiedByUserType;
+
+    /**
+     * Copy of another entity's id and audit columns, for the copy constructors of the subclasses
+     */
+    protected AuditedEntity(AuditedEntity source) {
+        super(source);
+        this.createdAt = source.createdAt;
+        this.updatedAt = source.updatedAt;
+        this.createdBy = source.createdBy;
+        this.lastModifiedBy = source.lastModifiedBy;
+        this.createdByUserType = source.createdByUserType;
+        this.lastModifiedByUserType = source.lastModifiedByUserType;
+    }
 }
@@ -13,6 +13,11 @@ import java.io.Serializable;
 @SuperBuilder
 @NoArgsConstructor
 public class BaseEntity extends BaseIdEntity implements Serializable {
+
+    protected BaseEntity(BaseEntity source) {
+        super(source);
+    }
+
     @Override
     protected String getSequenceName() {
         throw new IllegalStateException("getSequenceName() must be overridden by the entity class");
@@ -6,6 +6,7 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.GenericGenerator;
 
 import java.io.Serializable;
 
@@ -16,19 +17,35 @@ import java.io.Serializable;
 @NoArgsConstructor
 public abstract class BaseIdEntity implements Serializable {
     
+    /** حجم كتلة المعرفات للجداول ذات الإدخال الكثيف / Ids reserved per sequence call by the high-volume tables */
+    protected static final int POOLED_ALLOCATION_SIZE = 50;
+
     @EqualsAndHashCode.Include
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
-    @SequenceGenerator(
-        name = "id_sequence",
-        sequenceName = "#{T(com.TreadX.utils.entity.BaseIdEntity).getSequenceName()}",
-        allocationSize = 1
-    )
+    @GeneratedValue(generator = "entity_sequence")
+    @GenericGenerator(name = "entity_sequence", type = EntitySequenceGenerator.class)
     private Long id;
 
+    /**
+     * Copy of another entity's id, for the copy constructors of the subclasses
+     */
+    protected BaseIdEntity(BaseIdEntity source) {
+        this.id = source.id;
+    }
+
     /**
      * This method must be implemented by each entity to provide its own sequence name
      * @return The sequence name for this entity
      */
     protected abstract String getSequenceName();
+
+    /**
+     * Number of ids reserved per call to the sequence. Entities inserted in bulk return
+     * {@link #POOLED_ALLOCATION_SIZE} so their inserts can be batched; the sequence's
+     * INCREMENT BY must be the same value.
+     * @return The allocation size for this entity
+     */
+    protected int getSequenceAllocationSize() {
+        return 1;
+    }
 } 
\ No newline at end of file
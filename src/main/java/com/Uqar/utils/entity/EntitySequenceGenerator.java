@@ -0,0 +1,72 @@
+package com.Uqar.utils.entity;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * مولد المعرفات من تسلسل خاص بكل كيان
+ * Sequence id generator of {@link BaseIdEntity}: each entity draws its ids from the sequence
+ * named by its {@code getSequenceName()}, reserving {@code getSequenceAllocationSize()} ids per
+ * call. With an allocation size above one the ids are handed out from memory (pooled-lo, see
+ * hibernate.id.optimizer.pooled.preferred), so inserting many rows costs one sequence call per
+ * block and the inserts themselves can be sent as JDBC batches.
+ *
+ * Entities that do not name a sequence use "&lt;table&gt;_id_seq".
+ */
+public class EntitySequenceGenerator extends SequenceStyleGenerator {
+
+    /**
+     * التسلسل المستخدم لكيان
+     * Sequence name and allocation size used for an entity class
+     */
+    public record EntitySequence(String name, int allocationSize) {
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        EntitySequence sequence = sequenceOf(parameters.getProperty(IdentifierGenerator.ENTITY_NAME),
+            parameters.getProperty(PersistentIdentifierGenerator.TABLE));
+        parameters.setProperty(SEQUENCE_PARAM, sequence.name());
+        parameters.setProperty(INCREMENT_PARAM, String.valueOf(sequence.allocationSize()));
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    public static EntitySequence sequenceOf(Class<? extends BaseIdEntity> entityClass) {
+        return sequenceOf(entityClass.getName(), null);
+    }
+
+    /**
+     * التسلسل المستخدم لكيان مع اسم جدوله للكيانات التي لا تحدد تسلسلاً
+     * Sequence of an entity class, falling back to "&lt;table&gt;_id_seq" like the generator
+     */
+    public static EntitySequence sequenceOf(Class<? extends BaseIdEntity> entityClass, String tableName) {
+        return sequenceOf(entityClass.getName(), tableName);
+    }
+
+    private static EntitySequence sequenceOf(String entityName, String tableName) {
+        BaseIdEntity entity;
+        try {
+            entity = (BaseIdEntity) Class.forName(entityName, true, EntitySequenceGenerator.class.getClassLoader())
+                .getDeclaredConstructor()
+                .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new MappingException("Cannot create " + entityName + " to read its id sequence", e);
+        }
+        String name;
+        try {
+            name = entity.getSequenceName();
+        } catch (IllegalStateException e) {
+            if (tableName == null) {
+                throw e;
+            }
+            name = tableName + "_id_seq";
+        }
+        return new EntitySequence(name, Math.max(1, entity.getSequenceAllocationSize()));
+    }
+}
@@ -0,0 +1,11 @@
+package com.Uqar.utils.exception;
+
+/**
+ * نقص في المخزون المتاح للبيع
+ * The stock left cannot cover the requested quantity; answered like any other invalid request.
+ */
+public class InsufficientStockException extends RequestNotValidException {
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
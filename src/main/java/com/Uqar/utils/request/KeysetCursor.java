@@ -0,0 +1,76 @@
+package com.Uqar.utils.request;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import com.Uqar.utils.response.CursorPageDTO;
+import com.Uqar.utils.exception.RequestNotValidException;
+
+/**
+ * مؤشر الصفحة في القوائم المرتبة من الأحدث إلى الأقدم
+ * Position of the last returned row in a list ordered newest first by (createdAt DESC, id DESC).
+ *
+ * The next page is read with "createdAt < :createdAt OR (createdAt = :createdAt AND id < :id)"
+ * and a LIMIT of size + 1, so the database seeks to the cursor through the (…, created_at, id)
+ * index instead of skipping OFFSET rows, and rows added meanwhile do not shift the pages.
+ * The cursor is opaque to clients: they pass back the nextCursor of the previous page.
+ */
+public record KeysetCursor(LocalDateTime createdAt, long id) {
+
+    // Sorts before every real row of a newest-first list
+    public static final KeysetCursor START = new KeysetCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new KeysetCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new RequestNotValidException("Invalid page cursor");
+        }
+    }
+
+    public String encode() {
+        String value = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isStart() {
+        return this.equals(START);
+    }
+
+    /**
+     * حد الاستعلام: صف إضافي لمعرفة وجود صفحة تالية
+     * One row more than the page, to know whether a next page exists without counting
+     */
+    public static Pageable limit(int size) {
+        return PageRequest.of(0, size + 1);
+    }
+
+    /**
+     * بناء الصفحة من الصفوف المقروءة بـ limit
+     * Build the page from rows read with {@link #limit}: the extra row is dropped and the next
+     * cursor points at the last row kept. totalElements is passed through as is (null when not counted).
+     */
+    public static <E, T> CursorPageDTO<T> page(List<E> rows, int size,
+                                                Function<E, LocalDateTime> createdAt, Function<E, Long> id,
+                                                Function<List<E>, List<T>> mapper, Long totalElements) {
+        boolean hasNext = rows.size() > size;
+        List<E> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            E last = pageRows.get(pageRows.size() - 1);
+            nextCursor = new KeysetCursor(createdAt.apply(last), id.apply(last)).encode();
+        }
+        return new CursorPageDTO<>(mapper.apply(pageRows), size, nextCursor, hasNext, totalElements);
+    }
+}
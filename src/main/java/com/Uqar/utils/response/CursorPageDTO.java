@@ -0,0 +1,27 @@
+package com.Uqar.utils.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * صفحة نتائج بمؤشر للصفحة التالية
+ * A page of results with an opaque cursor for the next page (null on the last page).
+ * totalElements is only filled when the caller asked for it on the first page, otherwise null.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+    private Long totalElements;
+
+    public CursorPageDTO(List<T> content, int size, String nextCursor, boolean hasNext) {
+        this(content, size, nextCursor, hasNext, null);
+    }
+}
@@ -0,0 +1,21 @@
+-- Migration: Create daily sales rollup table
+-- Description: Pre-aggregated revenue/cost/profit/invoice count per (pharmacy, day, currency) for the profit reports.
+--              Kept up to date by sales, refunds and cancellations; backfill with POST /api/admin/reports/sales-rollup/rebuild
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS daily_sales_rollup (
+    id BIGSERIAL PRIMARY KEY,
+    pharmacy_id BIGINT NOT NULL,
+    sales_date DATE NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+    total_revenue NUMERIC(19, 4) NOT NULL DEFAULT 0,
+    total_cost NUMERIC(19, 4) NOT NULL DEFAULT 0,
+    total_profit NUMERIC(19, 4) NOT NULL DEFAULT 0,
+    invoice_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_daily_sales_rollup_pharmacy_date_currency UNIQUE (pharmacy_id, sales_date, currency)
+);
+
+COMMENT ON TABLE daily_sales_rollup IS
+'الملخص اليومي للمبيعات والأرباح - Daily sales/profit rollup per pharmacy, day and invoice currency (net of refunds)';
@@ -0,0 +1,13 @@
+-- Migration: Add claim/lease columns to notification
+-- Description: The notification dispatcher claims PENDING rows with FOR UPDATE SKIP LOCKED and marks them
+--              with its instance id and a lease expiry, so several app instances never send the same row twice.
+--              A row whose lease expired (instance crashed mid-send) becomes claimable again.
+-- Author: System
+-- Date: 2026-10-17
+
+ALTER TABLE notification ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(100);
+ALTER TABLE notification ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_notification_pending_ready
+    ON notification (created_at)
+    WHERE status = 'PENDING';
@@ -0,0 +1,29 @@
+-- Migration: Create pharmaceutical_import_job table
+-- Description: Background Excel imports of the national drug list record their progress here.
+--              last_row is the last sheet row whose products were committed, and it is written in the
+--              same transaction as those products, so a job interrupted by a restart resumes after it.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS pharmaceutical_import_job (
+    id              BIGSERIAL PRIMARY KEY,
+    file_name       VARCHAR(255) NOT NULL,
+    file_path       VARCHAR(1024) NOT NULL,
+    status          VARCHAR(20)  NOT NULL,
+    last_row        INTEGER      NOT NULL DEFAULT 0,
+    processed_rows  INTEGER      NOT NULL DEFAULT 0,
+    inserted_count  INTEGER      NOT NULL DEFAULT 0,
+    updated_count   INTEGER      NOT NULL DEFAULT 0,
+    skipped_count   INTEGER      NOT NULL DEFAULT 0,
+    failed_count    INTEGER      NOT NULL DEFAULT 0,
+    errors          TEXT,
+    created_by      BIGINT,
+    created_at      TIMESTAMP    NOT NULL DEFAULT NOW(),
+    started_at      TIMESTAMP,
+    finished_at     TIMESTAMP,
+    updated_at      TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_pharmaceutical_import_job_status
+    ON pharmaceutical_import_job (status);
+
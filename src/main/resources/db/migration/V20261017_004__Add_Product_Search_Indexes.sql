@@ -0,0 +1,71 @@
+-- Migration: Add trigram search indexes for products and stock items
+-- Description: Product search used LOWER(x) LIKE '%keyword%', which cannot use an index and does not
+--              match Arabic spelling variants. uqar_search_normalize() folds a name to its search form
+--              (lower case, no tashkeel or tatweel, one alef, ة as ه, ى as ي, western digits), and
+--              pg_trgm GIN indexes on that form serve both substring (LIKE) and fuzzy (<%) matches.
+--              The Java side (ProductSearchTerm.normalize) must fold keywords the same way.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE OR REPLACE FUNCTION uqar_search_normalize(value TEXT)
+RETURNS TEXT
+LANGUAGE sql
+IMMUTABLE
+PARALLEL SAFE
+AS $$
+    SELECT btrim(regexp_replace(
+        translate(
+            regexp_replace(lower(value), '[\u064B-\u065F\u0670\u0640]', '', 'g'),
+            'أإآٱىئؤة٠١٢٣٤٥٦٧٨٩۰۱۲۳۴۵۶۷۸۹',
+            'ااااييوه01234567890123456789'),
+        '\s+', ' ', 'g'))
+$$;
+
+-- Relevance of one normalized candidate for a normalized term:
+-- exact match, then prefix, then word prefix, then trigram word similarity (at most 1)
+CREATE OR REPLACE FUNCTION uqar_search_rank(term TEXT, candidate TEXT)
+RETURNS REAL
+LANGUAGE sql
+IMMUTABLE
+PARALLEL SAFE
+AS $$
+    SELECT CASE
+        WHEN candidate IS NULL OR term IS NULL OR term = '' THEN 0
+        WHEN candidate = term THEN 3
+        WHEN starts_with(candidate, term) THEN 2
+        WHEN position(' ' || term IN candidate) > 0 THEN 1.5
+        ELSE word_similarity(term, candidate)
+    END
+$$;
+
+CREATE INDEX IF NOT EXISTS idx_master_product_trade_name_trgm
+    ON master_product USING gin (uqar_search_normalize(trade_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_master_product_scientific_name_trgm
+    ON master_product USING gin (uqar_search_normalize(scientific_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_master_product_barcode_trgm
+    ON master_product USING gin (barcode gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_master_product_translation_trade_name_trgm
+    ON master_product_translation USING gin (uqar_search_normalize(trade_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_master_product_translation_scientific_name_trgm
+    ON master_product_translation USING gin (uqar_search_normalize(scientific_name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_pharmacy_product_trade_name_trgm
+    ON pharmacy_product USING gin (uqar_search_normalize(trade_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_pharmacy_product_scientific_name_trgm
+    ON pharmacy_product USING gin (uqar_search_normalize(scientific_name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_pharmacy_product_translation_trade_name_trgm
+    ON pharmacy_product_translation USING gin (uqar_search_normalize(trade_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_pharmacy_product_translation_scientific_name_trgm
+    ON pharmacy_product_translation USING gin (uqar_search_normalize(scientific_name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_pharmacy_product_barcode_barcode_trgm
+    ON pharmacy_product_barcode USING gin (barcode gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_stock_item_product_name_trgm
+    ON stock_item USING gin (uqar_search_normalize(product_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_stock_item_barcode_trgm
+    ON stock_item USING gin (barcode gin_trgm_ops);
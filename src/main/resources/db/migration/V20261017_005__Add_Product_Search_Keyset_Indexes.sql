@@ -0,0 +1,13 @@
+-- Migration: Add indexes for the unified keyset product search
+-- Description: Each page of the unified search sums the stock of its own rows only, one index probe per
+--              row on (pharmacy_id, product_type, product_id). Browsing without a keyword walks the
+--              pharmacy's products in id order from the last id of the previous page.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE INDEX IF NOT EXISTS idx_stock_item_pharmacy_product_available
+    ON stock_item (pharmacy_id, product_type, product_id)
+    WHERE quantity > 0;
+
+CREATE INDEX IF NOT EXISTS idx_pharmacy_product_pharmacy_id_id
+    ON pharmacy_product (pharmacy_id, id);
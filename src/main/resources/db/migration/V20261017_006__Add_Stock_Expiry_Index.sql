@@ -0,0 +1,9 @@
+-- Migration: Add index for loading the stock expiry index
+-- Description: The in-memory expiry index loads each pharmacy's in-stock batches with their expiry
+--              date once; the partial index serves that load and the fallback expiry reports.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE INDEX IF NOT EXISTS idx_stock_item_pharmacy_expiry_available
+    ON stock_item (pharmacy_id, expiry_date)
+    WHERE quantity > 0 AND expiry_date IS NOT NULL;
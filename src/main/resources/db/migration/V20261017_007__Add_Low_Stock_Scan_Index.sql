@@ -0,0 +1,10 @@
+-- Migration: Add index for the set-based low stock check
+-- Description: The daily low stock check takes the minStockLevel of each product's most recent stock
+--              item with DISTINCT ON (product_id, product_type) ... ORDER BY created_at DESC; the index
+--              lets that step read the rows in order instead of sorting the whole table.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE INDEX IF NOT EXISTS idx_stock_item_product_latest
+    ON stock_item (product_id, product_type, created_at DESC)
+    INCLUDE (min_stock_level);
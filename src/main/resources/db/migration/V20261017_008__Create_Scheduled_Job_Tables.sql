@@ -0,0 +1,36 @@
+-- Migration: Create scheduled job coordination tables
+-- Description: scheduled_job_lease holds one row per (job, shard); an instance runs a shard only after
+--              taking its lease for the firing (fire_key), so the daily jobs run once across all
+--              instances. scheduled_job_run records every run with its duration and rows processed.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS scheduled_job_lease (
+    id BIGSERIAL PRIMARY KEY,
+    job_name VARCHAR(100) NOT NULL,
+    shard INTEGER NOT NULL,
+    fire_key VARCHAR(100) NOT NULL,
+    owner VARCHAR(200) NOT NULL,
+    lease_until TIMESTAMP NOT NULL,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_scheduled_job_lease_job_shard UNIQUE (job_name, shard)
+);
+
+CREATE TABLE IF NOT EXISTS scheduled_job_run (
+    id BIGSERIAL PRIMARY KEY,
+    job_name VARCHAR(100) NOT NULL,
+    shard INTEGER NOT NULL,
+    shard_count INTEGER NOT NULL,
+    fire_key VARCHAR(100) NOT NULL,
+    owner VARCHAR(200) NOT NULL,
+    started_at TIMESTAMP NOT NULL,
+    finished_at TIMESTAMP NOT NULL,
+    duration_ms BIGINT NOT NULL,
+    rows_processed INTEGER NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    error_message VARCHAR(1000)
+);
+
+CREATE INDEX IF NOT EXISTS idx_scheduled_job_run_job_started
+    ON scheduled_job_run (job_name, started_at);
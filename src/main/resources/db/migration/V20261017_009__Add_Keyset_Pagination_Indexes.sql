@@ -0,0 +1,21 @@
+-- Migration: Add indexes for cursor (keyset) pagination of the list endpoints
+-- Description: The /cursor list endpoints read "WHERE <owner> = ? AND (created_at, id) < (?, ?)
+--              ORDER BY created_at DESC, id DESC LIMIT n"; each index matches that order, so a page
+--              is an index range scan from the cursor instead of an OFFSET scan over the earlier rows.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE INDEX IF NOT EXISTS idx_purchase_invoice_pharmacy_keyset
+    ON purchase_invoice (pharmacy_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_purchase_order_pharmacy_status_keyset
+    ON purchase_order (pharmacy_id, status, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_money_box_transaction_keyset
+    ON money_box_transaction (money_box_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_complaints_pharmacy_keyset
+    ON complaints (pharmacy_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_notification_user_keyset
+    ON notification (user_id, created_at DESC, id DESC);
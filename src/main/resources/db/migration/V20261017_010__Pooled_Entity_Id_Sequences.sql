@@ -0,0 +1,86 @@
+-- Migration: Per-entity id sequences, pooled for the high-volume tables
+-- Description: Ids now come from the sequence each entity names (BaseIdEntity.getSequenceName()).
+--              sale_invoices, sale_invoice_items, stock_item, notification, purchase_invoice_item and
+--              money_box_transaction reserve 50 ids per call (pooled-lo) so their inserts can be batched;
+--              the other tables keep a step of 1. Every sequence is created if missing and restarted
+--              just above the current MAX(id) of its table(s), so existing ids are kept as they are.
+--              money_box_transaction moves from an identity column to its sequence.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE OR REPLACE FUNCTION pg_temp.sync_id_sequence(seq_name TEXT, table_names TEXT[], step INT)
+RETURNS VOID AS $$
+DECLARE
+    max_id BIGINT := 0;
+    table_max BIGINT;
+    table_name TEXT;
+BEGIN
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH 1 INCREMENT BY %s', seq_name, step);
+    EXECUTE format('ALTER SEQUENCE %I INCREMENT BY %s', seq_name, step);
+    FOREACH table_name IN ARRAY table_names LOOP
+        IF to_regclass(quote_ident(table_name)) IS NOT NULL THEN
+            EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', table_name) INTO table_max;
+            max_id := GREATEST(max_id, table_max);
+        END IF;
+    END LOOP;
+    -- The next nextval() returns MAX(id) + 1
+    PERFORM setval(quote_ident(seq_name), max_id + 1, false);
+END;
+$$ LANGUAGE plpgsql;
+
+-- money_box_transaction: identity column -> sequence default
+DO $$
+BEGIN
+    IF to_regclass('money_box_transaction') IS NOT NULL THEN
+        ALTER TABLE money_box_transaction ALTER COLUMN id DROP IDENTITY IF EXISTS;
+    END IF;
+END $$;
+
+-- High-volume tables: blocks of 50 ids
+SELECT pg_temp.sync_id_sequence('sale_invoice_id_seq', ARRAY['sale_invoices'], 50);
+SELECT pg_temp.sync_id_sequence('sale_invoice_item_id_seq', ARRAY['sale_invoice_items'], 50);
+SELECT pg_temp.sync_id_sequence('stock_item_id_seq', ARRAY['stock_item'], 50);
+SELECT pg_temp.sync_id_sequence('notification_id_seq', ARRAY['notification'], 50);
+SELECT pg_temp.sync_id_sequence('purchase_invoice_item_id_seq', ARRAY['purchase_invoice_item'], 50);
+SELECT pg_temp.sync_id_sequence('money_box_transaction_id_seq', ARRAY['money_box_transaction'], 50);
+
+DO $$
+BEGIN
+    IF to_regclass('money_box_transaction') IS NOT NULL THEN
+        ALTER TABLE money_box_transaction ALTER COLUMN id SET DEFAULT nextval('money_box_transaction_id_seq');
+        ALTER SEQUENCE money_box_transaction_id_seq OWNED BY money_box_transaction.id;
+    END IF;
+END $$;
+
+-- Other tables: step of 1
+-- User and Employee are one TABLE_PER_CLASS hierarchy and share user_id_seq
+SELECT pg_temp.sync_id_sequence('user_id_seq', ARRAY['user', 'employee'], 1);
+SELECT pg_temp.sync_id_sequence('work_shift_id_seq', ARRAY['work_shift'], 1);
+SELECT pg_temp.sync_id_sequence('employee_working_hours_id_seq', ARRAY['employee_working_hours'], 1);
+SELECT pg_temp.sync_id_sequence('roles_id_seq', ARRAY['roles'], 1);
+SELECT pg_temp.sync_id_sequence('permissions_id_seq', ARRAY['permissions'], 1);
+SELECT pg_temp.sync_id_sequence('pharmacy_id_seq', ARRAY['pharmacy'], 1);
+SELECT pg_temp.sync_id_sequence('area_id_seq', ARRAY['areas'], 1);
+SELECT pg_temp.sync_id_sequence('area_translation_id_seq', ARRAY['area_translations'], 1);
+SELECT pg_temp.sync_id_sequence('customer_id_seq', ARRAY['customers'], 1);
+SELECT pg_temp.sync_id_sequence('customer_debt_id_seq', ARRAY['customer_debt'], 1);
+SELECT pg_temp.sync_id_sequence('supplier_id_seq', ARRAY['suppliers'], 1);
+SELECT pg_temp.sync_id_sequence('device_token_id_seq', ARRAY['device_token'], 1);
+SELECT pg_temp.sync_id_sequence('purchase_order_id_seq', ARRAY['purchase_order'], 1);
+SELECT pg_temp.sync_id_sequence('purchase_order_item_id_seq', ARRAY['purchase_order_item'], 1);
+SELECT pg_temp.sync_id_sequence('purchase_invoice_id_seq', ARRAY['purchase_invoice'], 1);
+SELECT pg_temp.sync_id_sequence('sale_refund_id_seq', ARRAY['sale_refunds'], 1);
+SELECT pg_temp.sync_id_sequence('sale_refund_item_id_seq', ARRAY['sale_refund_items'], 1);
+SELECT pg_temp.sync_id_sequence('master_product_id_seq', ARRAY['master_product'], 1);
+SELECT pg_temp.sync_id_sequence('master_product_translation_id_seq', ARRAY['master_product_translation'], 1);
+SELECT pg_temp.sync_id_sequence('pharmacy_product_id_seq', ARRAY['pharmacy_product'], 1);
+SELECT pg_temp.sync_id_sequence('pharmacy_product_translation_id_seq', ARRAY['pharmacy_product_translation'], 1);
+SELECT pg_temp.sync_id_sequence('pharmacy_product_barcode_id_seq', ARRAY['pharmacy_product_barcode'], 1);
+SELECT pg_temp.sync_id_sequence('category_id_seq', ARRAY['categories'], 1);
+SELECT pg_temp.sync_id_sequence('category_translation_id_seq', ARRAY['category_translation'], 1);
+SELECT pg_temp.sync_id_sequence('form_id_seq', ARRAY['forms'], 1);
+SELECT pg_temp.sync_id_sequence('form_translation_id_seq', ARRAY['form_translation'], 1);
+SELECT pg_temp.sync_id_sequence('type_id_seq', ARRAY['types'], 1);
+SELECT pg_temp.sync_id_sequence('type_translation_id_seq', ARRAY['type_translation'], 1);
+SELECT pg_temp.sync_id_sequence('manufacturer_id_seq', ARRAY['manufacturers'], 1);
+SELECT pg_temp.sync_id_sequence('manufacturer_translation_id_seq', ARRAY['manufacturer_translation'], 1);
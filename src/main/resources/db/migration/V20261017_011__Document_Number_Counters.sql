@@ -0,0 +1,21 @@
+-- Migration: Per-pharmacy document number counters
+-- Description: Sale, refund, purchase and inventory numbers come from per-pharmacy sequences
+--              (INV-12-000042) instead of the clock. Each application instance reserves blocks of
+--              numbers from document_number_counter with one upsert and hands them out in memory.
+--              Sale refunds get their own number.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS document_number_counter (
+    id BIGSERIAL PRIMARY KEY,
+    pharmacy_id BIGINT NOT NULL,
+    document_type VARCHAR(20) NOT NULL,
+    next_value BIGINT NOT NULL,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_document_number_counter_pharmacy_type UNIQUE (pharmacy_id, document_type)
+);
+
+ALTER TABLE sale_refunds ADD COLUMN IF NOT EXISTS refund_number VARCHAR(50);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sale_refunds_refund_number
+    ON sale_refunds (refund_number);
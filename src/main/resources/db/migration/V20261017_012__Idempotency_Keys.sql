@@ -0,0 +1,22 @@
+-- Migration: Idempotency keys of the sale, refund, debt payment and money box requests
+-- Description: A request sent with an Idempotency-Key header claims (owner, key) here in its own
+--              transaction and stores its response; retries get the stored response instead of
+--              running the checkout or posting again. Rows are purged after the retention period.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    id BIGSERIAL PRIMARY KEY,
+    owner VARCHAR(200) NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    operation VARCHAR(100) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    response_status INTEGER,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP,
+    CONSTRAINT uk_idempotency_key_owner_key UNIQUE (owner, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_key_created_at
+    ON idempotency_key (created_at);
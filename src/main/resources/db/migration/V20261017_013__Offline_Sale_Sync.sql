@@ -0,0 +1,12 @@
+-- Migration: Client references of sales synced from offline point-of-sale devices
+-- Description: A sale queued on a device while offline carries the device's own reference; it is
+--              stored with the invoice so a batch that is sent again is reported as duplicates
+--              instead of selling the stock twice.
+-- Author: System
+-- Date: 2026-10-17
+
+ALTER TABLE sale_invoices ADD COLUMN IF NOT EXISTS client_reference VARCHAR(100);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sale_invoices_pharmacy_client_reference
+    ON sale_invoices (pharmacy_id, client_reference)
+    WHERE client_reference IS NOT NULL;
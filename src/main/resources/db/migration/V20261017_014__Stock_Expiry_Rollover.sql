@@ -0,0 +1,12 @@
+-- Migration: Create the stock expiry rollover table
+-- Description: One row per pharmacy with the day of its last expiry rollover whose notifications went
+--              out, and the time from which the next rollover looks for received or re-dated batches.
+--              Any instance can run the next rollover from it, and a failed run leaves it unchanged.
+-- Author: System
+-- Date: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS stock_expiry_rollover (
+    pharmacy_id BIGINT PRIMARY KEY,
+    rollover_date DATE NOT NULL,
+    checked_at TIMESTAMP NOT NULL
+);
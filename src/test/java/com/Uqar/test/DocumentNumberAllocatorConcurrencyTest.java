@@ -0,0 +1,178 @@
+package com.Uqar.test;
+
+import com.Uqar.numbering.enums.DocumentType;
+import com.Uqar.numbering.repository.DocumentNumberCounterRepository;
+import com.Uqar.numbering.service.DocumentNumberAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stress tests for per-pharmacy document numbers handed out by several application instances.
+ * The document_number_counter table is simulated in memory: reserveBlock behaves like the
+ * INSERT ... ON CONFLICT DO UPDATE ... RETURNING and releaseBlock like the conditional UPDATE.
+ */
+@ExtendWith(MockitoExtension.class)
+public class DocumentNumberAllocatorConcurrencyTest {
+
+    private static final Long PHARMACY_ID = 7L;
+
+    private final CounterTable table = new CounterTable();
+
+    @Mock
+    private DocumentNumberCounterRepository counterRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(counterRepository.reserveBlock(any(), anyString(), anyLong())).thenAnswer(invocation ->
+            table.reserve(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        lenient().when(counterRepository.releaseBlock(any(), anyString(), anyLong(), anyLong())).thenAnswer(invocation ->
+            table.release(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+    }
+
+    @Test
+    public void testConcurrentInstancesNeverHandOutTheSameNumber() throws Exception {
+        DocumentNumberAllocator first = allocator();
+        DocumentNumberAllocator second = allocator();
+        int sales = 4000;
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(sales, index -> {
+            DocumentNumberAllocator allocator = index % 2 == 0 ? first : second;
+            assertTrue(numbers.add(allocator.next(PHARMACY_ID, DocumentType.SALE)), "duplicate number");
+        });
+
+        assertEquals(sales, numbers.size());
+        // Blocks grow under load, so far fewer reservations than numbers
+        assertTrue(table.reservations.get() * 20 < sales, table.reservations.get() + " reservations");
+    }
+
+    @Test
+    public void testSequencesAreDenseAfterRelease() throws Exception {
+        DocumentNumberAllocator first = allocator();
+        DocumentNumberAllocator second = allocator();
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(1000, index ->
+            values.add((index % 2 == 0 ? first : second).nextValue(PHARMACY_ID, DocumentType.SALE)));
+        first.releaseUnused();
+        second.releaseUnused();
+
+        // Only a tail that another instance reserved past stays unused
+        long next = table.nextValue(PHARMACY_ID, DocumentType.SALE);
+        long gaps = next - 1 - values.size();
+        assertTrue(gaps <= 100, gaps + " unused numbers before " + next);
+        assertTrue(values.stream().allMatch(value -> value >= 1 && value < next));
+    }
+
+    @Test
+    public void testNumbersArePerPharmacyAndDocumentType() {
+        DocumentNumberAllocator allocator = allocator();
+
+        assertEquals("INV-7-000001", allocator.next(PHARMACY_ID, DocumentType.SALE));
+        assertEquals("INV-7-000002", allocator.next(PHARMACY_ID, DocumentType.SALE));
+        assertEquals("RET-7-000001", allocator.next(PHARMACY_ID, DocumentType.REFUND));
+        assertEquals("INV-8-000001", allocator.next(8L, DocumentType.SALE));
+        assertEquals("PUR-7-000001", allocator.next(PHARMACY_ID, DocumentType.PURCHASE));
+        assertEquals("ADJ-7-000001", allocator.next(PHARMACY_ID, DocumentType.INVENTORY));
+    }
+
+    @Test
+    public void testRestartContinuesAfterReleasedNumbers() {
+        DocumentNumberAllocator before = allocator();
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i, before.nextValue(PHARMACY_ID, DocumentType.SALE));
+        }
+        before.releaseUnused();
+
+        DocumentNumberAllocator after = allocator();
+        assertEquals(11, after.nextValue(PHARMACY_ID, DocumentType.SALE));
+    }
+
+    private DocumentNumberAllocator allocator() {
+        return new DocumentNumberAllocator(counterRepository, transactionManager, 1, 100);
+    }
+
+    private void runConcurrently(int operations, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < operations; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    operation.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The document_number_counter rows: one next_value per pharmacy and document type
+     */
+    private static final class CounterTable {
+        private final Map<String, Long> rows = new HashMap<>();
+        private final AtomicInteger reservations = new AtomicInteger();
+
+        synchronized long reserve(Long pharmacyId, String documentType, long blockSize) {
+            reservations.incrementAndGet();
+            long end = rows.getOrDefault(pharmacyId + "_" + documentType, 1L) + blockSize;
+            rows.put(pharmacyId + "_" + documentType, end);
+            return end;
+        }
+
+        synchronized int release(Long pharmacyId, String documentType, long unusedFrom, long blockEnd) {
+            String key = pharmacyId + "_" + documentType;
+            if (rows.getOrDefault(key, 1L) != blockEnd) {
+                return 0;
+            }
+            rows.put(key, unusedFrom);
+            return 1;
+        }
+
+        synchronized long nextValue(Long pharmacyId, DocumentType documentType) {
+            return rows.getOrDefault(pharmacyId + "_" + documentType.name(), 1L);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(int index) throws Exception;
+    }
+}
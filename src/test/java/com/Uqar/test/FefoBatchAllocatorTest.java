@@ -0,0 +1,201 @@
+package com.Uqar.test;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.mapper.StockItemMapper;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.product.service.StockBatchIndex;
+import com.Uqar.product.service.StockExpiryIndex;
+import com.Uqar.sale.dto.SaleInvoiceItemDTORequest;
+import com.Uqar.sale.service.FefoBatchAllocator;
+import com.Uqar.user.entity.Pharmacy;
+import com.Uqar.utils.exception.RequestNotValidException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the first-expiry-first-out split of product sale lines across batches,
+ * and of the periodic reload of the batch index that proposes the candidates.
+ */
+@ExtendWith(MockitoExtension.class)
+public class FefoBatchAllocatorTest {
+
+    private static final Long PHARMACY_ID = 4L;
+    private static final Long PRODUCT_ID = 12L;
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final List<StockItem> stock = new ArrayList<>();
+    private final AtomicInteger batchLoads = new AtomicInteger();
+    private int partsPerBox = 1;
+
+    @Mock
+    private StockItemRepo stockItemRepo;
+
+    @Mock
+    private StockItemMapper stockItemMapper;
+
+    private StockBatchIndex stockBatchIndex;
+    private FefoBatchAllocator allocator;
+
+    @BeforeEach
+    public void setUp() {
+        when(stockItemRepo.findSellableBatchesOrderByExpiry(eq(PHARMACY_ID), eq(PRODUCT_ID), eq(ProductType.PHARMACY)))
+            .thenAnswer(invocation -> {
+                batchLoads.incrementAndGet();
+                // Copies, like a fresh query outside the sale's persistence context
+                return stock.stream()
+                    .filter(stockItem -> stockItem.getQuantity() > 0
+                        && (stockItem.getExpiryDate() == null || !stockItem.getExpiryDate().isBefore(TODAY)))
+                    .sorted(StockBatchIndex.FEFO_ORDER)
+                    .map(stockItem -> batch(stockItem.getId(), stockItem.getExpiryDate(), stockItem.getQuantity()))
+                    .toList();
+            });
+        lenient().when(stockItemMapper.getNumberOfPartsPerBox(any(), any())).thenAnswer(invocation -> partsPerBox);
+        lenient().when(stockItemMapper.getProductName(any(Long.class), any(ProductType.class)))
+            .thenAnswer(invocation -> "Product " + invocation.getArgument(0));
+
+        stockBatchIndex = new StockBatchIndex(stockItemRepo, new StockExpiryIndex(stockItemRepo, null, 30));
+        allocator = new FefoBatchAllocator(stockBatchIndex, stockItemMapper);
+    }
+
+    @Test
+    public void testProductLineTakesTheEarliestExpiryFirst() {
+        stock.add(batch(1L, null, 10));
+        stock.add(batch(2L, TODAY.plusDays(90), 4));
+        stock.add(batch(3L, TODAY.plusDays(10), 3));
+        stock.add(batch(4L, TODAY.minusDays(1), 20));
+
+        List<SaleInvoiceItemDTORequest> items = List.of(productLine(9, null));
+        Set<Long> candidates = allocator.collectStockItemIds(items, PHARMACY_ID);
+        // The expired batch is never proposed, batches without expiry come last
+        assertEquals(List.of(3L, 2L, 1L), List.copyOf(candidates));
+
+        List<SaleInvoiceItemDTORequest> allocated = allocator.allocate(items, locked(candidates), PHARMACY_ID);
+
+        assertEquals(List.of(3L, 2L, 1L), allocated.stream().map(SaleInvoiceItemDTORequest::getStockItemId).toList());
+        assertEquals(List.of(3, 4, 2), allocated.stream().map(SaleInvoiceItemDTORequest::getQuantity).toList());
+        // The locked rows themselves are left for the deduction
+        assertEquals(3, stock.get(2).getQuantity());
+    }
+
+    @Test
+    public void testExplicitBatchLineIsReservedBeforeTheProductLine() {
+        stock.add(batch(1L, TODAY.plusDays(5), 4));
+        stock.add(batch(2L, TODAY.plusDays(60), 10));
+
+        SaleInvoiceItemDTORequest explicit = SaleInvoiceItemDTORequest.builder()
+            .stockItemId(1L).productId(PRODUCT_ID).productType(ProductType.PHARMACY).quantity(3).unitPrice(10f).build();
+        List<SaleInvoiceItemDTORequest> items = List.of(productLine(2, null), explicit);
+
+        List<SaleInvoiceItemDTORequest> allocated =
+            allocator.allocate(items, locked(allocator.collectStockItemIds(items, PHARMACY_ID)), PHARMACY_ID);
+
+        // Only one box is left in the earliest batch once the explicit line has taken three
+        assertEquals(3, allocated.size());
+        assertEquals(1L, allocated.get(0).getStockItemId());
+        assertEquals(1, allocated.get(0).getQuantity());
+        assertEquals(2L, allocated.get(1).getStockItemId());
+        assertEquals(1, allocated.get(1).getQuantity());
+        assertSame(explicit, allocated.get(2));
+    }
+
+    @Test
+    public void testPartsAreTakenFromTheOpenBoxOfTheEarliestBatch() {
+        partsPerBox = 10;
+        StockItem open = batch(1L, TODAY.plusDays(5), 1);
+        open.setRemainingParts(4);
+        stock.add(open);
+        stock.add(batch(2L, TODAY.plusDays(40), 2));
+
+        List<SaleInvoiceItemDTORequest> items = List.of(productLine(1, 7));
+        List<SaleInvoiceItemDTORequest> allocated =
+            allocator.allocate(items, locked(allocator.collectStockItemIds(items, PHARMACY_ID)), PHARMACY_ID);
+
+        assertEquals(List.of(1L, 2L), allocated.stream().map(SaleInvoiceItemDTORequest::getStockItemId).toList());
+        assertEquals(List.of(4, 3), allocated.stream().map(SaleInvoiceItemDTORequest::getPartsToSell).toList());
+    }
+
+    @Test
+    public void testShortageEvictsTheProductSoTheNextSaleReloadsIt() {
+        stock.add(batch(1L, TODAY.plusDays(5), 2));
+        List<SaleInvoiceItemDTORequest> items = List.of(productLine(5, null));
+        List<StockItem> locked = locked(allocator.collectStockItemIds(items, PHARMACY_ID));
+
+        RequestNotValidException e = assertThrows(RequestNotValidException.class,
+            () -> allocator.allocate(items, locked, PHARMACY_ID));
+        assertTrue(e.getMessage().contains("Available: 2"));
+
+        // A batch received on another node shows up on the next sale
+        stock.add(batch(2L, TODAY.plusDays(30), 6));
+        assertEquals(List.of(1L, 2L), List.copyOf(allocator.collectStockItemIds(items, PHARMACY_ID)));
+        assertEquals(2, batchLoads.get());
+    }
+
+    @Test
+    public void testReloadPicksUpBatchesMissedByTheStockEvents() {
+        stock.add(batch(1L, TODAY.plusDays(20), 2));
+        assertEquals(List.of(1L), stockBatchIndex.findSellableBatchIds(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY, TODAY));
+
+        // Changed by direct SQL: a new earlier batch, and the old one sold out
+        stock.add(batch(2L, TODAY.plusDays(3), 5));
+        stock.get(0).setQuantity(0);
+        assertEquals(List.of(1L), stockBatchIndex.findSellableBatchIds(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY, TODAY));
+
+        stockBatchIndex.reload();
+
+        assertEquals(List.of(2L), stockBatchIndex.findSellableBatchIds(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY, TODAY));
+    }
+
+    @Test
+    public void testReloadDoesNotPutBackEvictedProducts() {
+        stock.add(batch(1L, TODAY.plusDays(20), 2));
+        stockBatchIndex.findSellableBatchIds(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY, TODAY);
+        stockBatchIndex.evict(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY);
+
+        stockBatchIndex.reload();
+
+        assertEquals(1, batchLoads.get());
+    }
+
+    private SaleInvoiceItemDTORequest productLine(int quantity, Integer partsToSell) {
+        return SaleInvoiceItemDTORequest.builder()
+            .productId(PRODUCT_ID)
+            .productType(ProductType.PHARMACY)
+            .quantity(quantity)
+            .partsToSell(partsToSell)
+            .unitPrice(10f)
+            .build();
+    }
+
+    private List<StockItem> locked(Set<Long> stockItemIds) {
+        return stock.stream().filter(stockItem -> stockItemIds.contains(stockItem.getId())).toList();
+    }
+
+    private static StockItem batch(Long id, LocalDate expiryDate, int quantity) {
+        StockItem stockItem = new StockItem();
+        stockItem.setId(id);
+        stockItem.setProductId(PRODUCT_ID);
+        stockItem.setProductType(ProductType.PHARMACY);
+        stockItem.setExpiryDate(expiryDate);
+        stockItem.setQuantity(quantity);
+        Pharmacy pharmacy = new Pharmacy();
+        pharmacy.setId(PHARMACY_ID);
+        stockItem.setPharmacy(pharmacy);
+        return stockItem;
+    }
+}
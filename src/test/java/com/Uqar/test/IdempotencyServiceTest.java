@@ -0,0 +1,158 @@
+package com.Uqar.test;
+
+import com.Uqar.idempotency.entity.IdempotencyRecord;
+import com.Uqar.idempotency.repository.IdempotencyRecordRepository;
+import com.Uqar.idempotency.service.IdempotencyService;
+import com.Uqar.utils.exception.ConflictException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the Idempotency-Key handling of the sale, refund, debt payment and money box requests.
+ * The idempotency_key table is simulated in memory; every call counts the queries it sends.
+ */
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    private static final String OWNER = "cashier@pharmacy.com";
+
+    private final KeyTable table = new KeyTable();
+    private final AtomicInteger checkouts = new AtomicInteger();
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp() {
+        when(repository.claim(anyString(), anyString(), anyString(), anyString())).thenAnswer(invocation ->
+            table.claim(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+        lenient().when(repository.findByOwnerAndIdempotencyKey(anyString(), anyString())).thenAnswer(invocation ->
+            table.find(invocation.getArgument(0), invocation.getArgument(1)));
+        when(repository.complete(anyString(), anyString(), anyInt(), anyString())).thenAnswer(invocation ->
+            table.complete(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    }
+
+    @Test
+    public void testRetryReturnsStoredResponseWithoutRunningAgain() {
+        IdempotencyService service = service();
+        Object[] args = {Map.of("customerId", 3, "paidAmount", 150)};
+
+        Object first = service.execute(OWNER, "till-1-0001", "CREATE_SALE", args, this::checkout);
+        int queries = table.queries.get();
+        Object retry = service.execute(OWNER, "till-1-0001", "CREATE_SALE", args, this::checkout);
+
+        assertEquals(1, checkouts.get());
+        assertEquals(HttpStatus.CREATED, ((ResponseEntity<?>) first).getStatusCode());
+        ResponseEntity<?> replayed = (ResponseEntity<?>) retry;
+        assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+        assertEquals("{\"invoiceNumber\":\"INV-7-000001\"}", replayed.getBody());
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        // Answered from the recent keys without touching the table
+        assertEquals(queries, table.queries.get());
+    }
+
+    @Test
+    public void testRetryOnAnotherInstanceReplaysFromTable() {
+        Object[] args = {Map.of("customerId", 3, "paidAmount", 150)};
+        service().execute(OWNER, "till-1-0002", "CREATE_SALE", args, this::checkout);
+
+        IdempotencyService otherInstance = service();
+        int queries = table.queries.get();
+        ResponseEntity<?> replayed = (ResponseEntity<?>) otherInstance.execute(OWNER, "till-1-0002", "CREATE_SALE", args, this::checkout);
+
+        assertEquals(1, checkouts.get());
+        assertEquals("{\"invoiceNumber\":\"INV-7-000001\"}", replayed.getBody());
+        // The claim that found the key, and the lookup of its response
+        assertEquals(queries + 2, table.queries.get());
+    }
+
+    @Test
+    public void testKeyReusedForAnotherRequestIsRejected() {
+        IdempotencyService service = service();
+        service.execute(OWNER, "till-1-0003", "CREATE_SALE", new Object[]{Map.of("paidAmount", 150)}, this::checkout);
+
+        assertThrows(ConflictException.class, () ->
+            service.execute(OWNER, "till-1-0003", "CREATE_SALE", new Object[]{Map.of("paidAmount", 999)}, this::checkout));
+        assertThrows(ConflictException.class, () ->
+            service.execute(OWNER, "till-1-0003", "SALE_REFUND", new Object[]{Map.of("paidAmount", 150)}, this::checkout));
+        assertEquals(1, checkouts.get());
+    }
+
+    @Test
+    public void testKeysAreScopedToTheUser() {
+        IdempotencyService service = service();
+        Object[] args = {Map.of("paidAmount", 150)};
+
+        service.execute(OWNER, "till-1-0004", "CREATE_SALE", args, this::checkout);
+        service.execute("other@pharmacy.com", "till-1-0004", "CREATE_SALE", args, this::checkout);
+
+        assertEquals(2, checkouts.get());
+    }
+
+    private ResponseEntity<Map<String, String>> checkout() {
+        checkouts.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("invoiceNumber", "INV-7-000001"));
+    }
+
+    private IdempotencyService service() {
+        return new IdempotencyService(repository, transactionManager, new ObjectMapper(), null, 100, 48);
+    }
+
+    /**
+     * The idempotency_key rows by owner and key
+     */
+    private static final class KeyTable {
+        private final Map<String, IdempotencyRecord> rows = new LinkedHashMap<>();
+        private final AtomicInteger queries = new AtomicInteger();
+
+        synchronized int claim(String owner, String key, String operation, String requestHash) {
+            queries.incrementAndGet();
+            if (rows.containsKey(owner + "\n" + key)) {
+                return 0;
+            }
+            rows.put(owner + "\n" + key, IdempotencyRecord.builder()
+                .owner(owner).idempotencyKey(key).operation(operation).requestHash(requestHash)
+                .createdAt(LocalDateTime.now()).build());
+            return 1;
+        }
+
+        synchronized Optional<IdempotencyRecord> find(String owner, String key) {
+            queries.incrementAndGet();
+            return Optional.ofNullable(rows.get(owner + "\n" + key));
+        }
+
+        synchronized int complete(String owner, String key, int status, String body) {
+            queries.incrementAndGet();
+            IdempotencyRecord record = rows.get(owner + "\n" + key);
+            record.setResponseStatus(status);
+            record.setResponseBody(body);
+            record.setCompletedAt(LocalDateTime.now());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.Uqar.test;
+
+import com.Uqar.moneybox.entity.MoneyBox;
+import com.Uqar.moneybox.enums.MoneyBoxStatus;
+import com.Uqar.moneybox.repository.MoneyBoxRepository;
+import com.Uqar.moneybox.service.EnhancedMoneyBoxAuditService;
+import com.Uqar.moneybox.service.ExchangeRateService;
+import com.Uqar.moneybox.service.MoneyBoxLedger;
+import com.Uqar.moneybox.service.SalesIntegrationService;
+import com.Uqar.moneybox.service.SalesIntegrationService.SalePayment;
+import com.Uqar.user.Enum.Currency;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the money box balance on PostgreSQL: postings from parallel transactions go through
+ * MoneyBoxRepository.addToBalance (UPDATE ... RETURNING current_balance), directly and through
+ * the synced sale payments of SalesIntegrationService.recordSalePayments. The balance and the
+ * ledger rows are read back from the tables. Skipped where Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({MoneyBoxLedger.class, EnhancedMoneyBoxAuditService.class, SalesIntegrationService.class,
+    MoneyBoxBalanceAtomicityTest.Auditing.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class MoneyBoxBalanceAtomicityTest {
+
+    private static final int TILLS = 8;
+    private static final BigDecimal INITIAL = new BigDecimal("1000.00");
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    // SYP postings never reach the exchange rate service
+    @MockBean
+    private ExchangeRateService exchangeRateService;
+
+    @Autowired
+    private MoneyBoxLedger moneyBoxLedger;
+
+    @Autowired
+    private SalesIntegrationService salesIntegrationService;
+
+    @Autowired
+    private MoneyBoxRepository moneyBoxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+    private MoneyBox moneyBox;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Long pharmacyId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(pharmacy_id), 0) + 1 FROM money_box", Long.class);
+        MoneyBox newMoneyBox = new MoneyBox();
+        newMoneyBox.setPharmacyId(pharmacyId);
+        newMoneyBox.setCurrentBalance(INITIAL);
+        newMoneyBox.setInitialBalance(INITIAL);
+        newMoneyBox.setStatus(MoneyBoxStatus.OPEN);
+        newMoneyBox.setCurrency(Currency.SYP.name());
+        newMoneyBox.setCreatedAt(LocalDateTime.now());
+        moneyBox = transactionTemplate.execute(status -> moneyBoxRepository.save(newMoneyBox));
+    }
+
+    @Test
+    public void testConcurrentPostingsEachReturnTheirOwnBalance() throws Exception {
+        List<MoneyBoxLedger.Posting> postings = runConcurrently(200, posting ->
+            transactionTemplate.execute(status -> moneyBoxLedger.post(moneyBox.getId(), BigDecimal.ONE)));
+
+        assertEquals(new BigDecimal("1200.00"), balance());
+        // No two postings saw the same balance: each update ran on the row the previous one committed
+        List<BigDecimal> balancesAfter = new ArrayList<>();
+        for (MoneyBoxLedger.Posting posting : postings) {
+            assertEquals(0, BigDecimal.ONE.compareTo(posting.balanceAfter().subtract(posting.balanceBefore())));
+            balancesAfter.add(posting.balanceAfter());
+        }
+        balancesAfter.sort(null);
+        for (int i = 0; i < balancesAfter.size(); i++) {
+            assertEquals(0, INITIAL.add(BigDecimal.valueOf(i + 1)).compareTo(balancesAfter.get(i)));
+        }
+    }
+
+    @Test
+    public void testRolledBackPostingLeavesTheBalance() {
+        transactionTemplate.executeWithoutResult(status -> {
+            moneyBoxLedger.post(moneyBox.getId(), new BigDecimal("500.00"));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(INITIAL, balance());
+    }
+
+    @Test
+    public void testConcurrentSyncedSalePaymentsChainTheLedger() throws Exception {
+        int batches = 40;
+        int salesPerBatch = 5;
+        BigDecimal expected = INITIAL;
+        for (int i = 0; i < batches * salesPerBatch; i++) {
+            expected = expected.add(amount(i));
+        }
+
+        runConcurrently(batches, batch -> {
+            List<SalePayment> payments = new ArrayList<>();
+            for (int sale = batch * salesPerBatch; sale < (batch + 1) * salesPerBatch; sale++) {
+                payments.add(new SalePayment((long) sale, amount(sale), Currency.SYP));
+            }
+            transactionTemplate.executeWithoutResult(status ->
+                salesIntegrationService.recordSalePayments(moneyBox.getPharmacyId(), payments));
+            return null;
+        });
+
+        assertEquals(expected, balance());
+        // Every amount is positive, so in balance order the rows form one unbroken chain
+        List<Map<String, Object>> ledger = jdbcTemplate.queryForList(
+            "SELECT amount, balance_before, balance_after FROM money_box_transaction " +
+            "WHERE money_box_id = ? ORDER BY balance_before", moneyBox.getId());
+        assertEquals(batches * salesPerBatch, ledger.size());
+        BigDecimal balance = INITIAL;
+        for (Map<String, Object> row : ledger) {
+            BigDecimal amount = (BigDecimal) row.get("amount");
+            assertEquals(balance, row.get("balance_before"));
+            balance = balance.add(amount);
+            assertEquals(balance, row.get("balance_after"));
+        }
+        assertEquals(expected, balance);
+    }
+
+    private BigDecimal balance() {
+        return jdbcTemplate.queryForObject("SELECT current_balance FROM money_box WHERE id = ?", BigDecimal.class,
+            moneyBox.getId());
+    }
+
+    private static BigDecimal amount(int sale) {
+        return BigDecimal.valueOf(100 + (sale % 37) * 25L, 2);
+    }
+
+    private static <T> List<T> runConcurrently(int tasks, IntFunction<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(TILLS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.apply(index);
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The auditor of the created_by columns, which the application configuration provides
+     */
+    @TestConfiguration
+    static class Auditing {
+
+        @Bean
+        public AuditorAware<Long> auditorAware() {
+            return () -> Optional.of(0L);
+        }
+    }
+}
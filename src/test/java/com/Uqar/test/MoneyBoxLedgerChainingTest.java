@@ -0,0 +1,250 @@
+package com.Uqar.test;
+
+import com.Uqar.moneybox.entity.MoneyBox;
+import com.Uqar.moneybox.entity.MoneyBoxTransaction;
+import com.Uqar.moneybox.enums.TransactionType;
+import com.Uqar.moneybox.repository.MoneyBoxRepository;
+import com.Uqar.moneybox.repository.MoneyBoxTransactionRepository;
+import com.Uqar.moneybox.service.EnhancedMoneyBoxAuditService;
+import com.Uqar.moneybox.service.MoneyBoxLedger;
+import com.Uqar.moneybox.service.SalesIntegrationService;
+import com.Uqar.user.Enum.Currency;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of how money box postings through SalesIntegrationService chain their ledger entries.
+ * The money_box row is simulated in memory and addToBalance is assumed to be atomic, like
+ * the UPDATE ... RETURNING it stands for; MoneyBoxBalanceAtomicityTest runs it on PostgreSQL.
+ * What is checked is that every posting records the balance the update returned, so the
+ * entries form one chain, and that every call works on its own loaded copy of the money box,
+ * like separate persistence contexts.
+ */
+@ExtendWith(MockitoExtension.class)
+public class MoneyBoxLedgerChainingTest {
+
+    private static final Long PHARMACY_ID = 7L;
+    private static final Long MONEY_BOX_ID = 70L;
+
+    private final MoneyBoxRow row = new MoneyBoxRow(new BigDecimal("1000.00"));
+    private final ConcurrentLinkedQueue<MoneyBoxTransaction> ledger = new ConcurrentLinkedQueue<>();
+
+    @Mock
+    private MoneyBoxRepository moneyBoxRepository;
+
+    @Mock
+    private MoneyBoxTransactionRepository transactionRepository;
+
+    private SalesIntegrationService salesIntegrationService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        when(moneyBoxRepository.findByPharmacyId(PHARMACY_ID)).thenAnswer(invocation -> Optional.of(row.load()));
+        when(moneyBoxRepository.findById(MONEY_BOX_ID)).thenAnswer(invocation -> Optional.of(row.load()));
+        when(moneyBoxRepository.addToBalance(eq(MONEY_BOX_ID), any())).thenAnswer(invocation -> row.add(invocation.getArgument(1)));
+        when(transactionRepository.save(any())).thenAnswer(invocation -> {
+            ledger.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        lenient().when(transactionRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            ((Iterable<MoneyBoxTransaction>) invocation.getArgument(0)).forEach(ledger::add);
+            return invocation.getArgument(0);
+        });
+
+        MoneyBoxLedger moneyBoxLedger = new MoneyBoxLedger(moneyBoxRepository);
+        // SYP postings never reach the exchange rate service
+        EnhancedMoneyBoxAuditService auditService =
+            new EnhancedMoneyBoxAuditService(transactionRepository, moneyBoxRepository, null, moneyBoxLedger);
+        salesIntegrationService = new SalesIntegrationService(moneyBoxRepository, transactionRepository, null, auditService);
+    }
+
+    @Test
+    public void testConcurrentSalePaymentsChainFromTheReturnedBalances() throws Exception {
+        int sales = 500;
+        BigDecimal expected = new BigDecimal("1000.00");
+        for (int i = 0; i < sales; i++) {
+            expected = expected.add(amount(i));
+        }
+
+        runConcurrently(sales, saleIndex ->
+            salesIntegrationService.recordSalePayment(PHARMACY_ID, (long) saleIndex, amount(saleIndex), Currency.SYP));
+
+        assertEquals(0, expected.compareTo(row.balance()), "final balance " + row.balance());
+        assertEquals(sales, ledger.size());
+        assertLedgerChainsFrom(new BigDecimal("1000.00"));
+    }
+
+    @Test
+    public void testConcurrentPaymentsAndRefundsChainFromTheReturnedBalances() throws Exception {
+        int operations = 400;
+        BigDecimal expected = new BigDecimal("1000.00");
+        for (int i = 0; i < operations; i++) {
+            expected = i % 4 == 0 ? expected.subtract(amount(i)) : expected.add(amount(i));
+        }
+
+        runConcurrently(operations, index -> {
+            if (index % 4 == 0) {
+                salesIntegrationService.recordSaleRefund(PHARMACY_ID, (long) index, amount(index), Currency.SYP);
+            } else {
+                salesIntegrationService.recordSalePayment(PHARMACY_ID, (long) index, amount(index), Currency.SYP);
+            }
+        });
+
+        assertEquals(0, expected.compareTo(row.balance()), "final balance " + row.balance());
+        assertEquals(operations, ledger.size());
+        assertLedgerChainsFrom(new BigDecimal("1000.00"));
+    }
+
+    @Test
+    public void testPostingRecordsBalanceBeforeAndAfter() {
+        salesIntegrationService.recordSalePayment(PHARMACY_ID, 1L, new BigDecimal("250.50"), Currency.SYP);
+        salesIntegrationService.recordSaleRefund(PHARMACY_ID, 1L, new BigDecimal("50.50"), Currency.SYP);
+
+        List<MoneyBoxTransaction> rows = new ArrayList<>(ledger);
+        assertEquals(TransactionType.SALE_PAYMENT, rows.get(0).getTransactionType());
+        assertEquals(0, new BigDecimal("1000.00").compareTo(rows.get(0).getBalanceBefore()));
+        assertEquals(0, new BigDecimal("1250.50").compareTo(rows.get(0).getBalanceAfter()));
+        assertEquals(TransactionType.SALE_REFUND, rows.get(1).getTransactionType());
+        assertEquals(0, new BigDecimal("-50.50").compareTo(rows.get(1).getAmount()));
+        assertEquals(0, new BigDecimal("1250.50").compareTo(rows.get(1).getBalanceBefore()));
+        assertEquals(0, new BigDecimal("1200.00").compareTo(rows.get(1).getBalanceAfter()));
+    }
+
+    @Test
+    public void testSyncedSalePaymentsMoveTheBalanceOnce() throws Exception {
+        List<SalesIntegrationService.SalePayment> batch = new ArrayList<>();
+        BigDecimal expected = new BigDecimal("1000.00");
+        for (int i = 0; i < 200; i++) {
+            batch.add(new SalesIntegrationService.SalePayment((long) i, amount(i), Currency.SYP));
+            expected = expected.add(amount(i));
+        }
+        for (int i = 200; i < 300; i++) {
+            expected = expected.add(amount(i));
+        }
+
+        // A synced batch alongside single checkouts at other tills
+        runConcurrently(101, index -> {
+            if (index == 0) {
+                salesIntegrationService.recordSalePayments(PHARMACY_ID, batch);
+            } else {
+                salesIntegrationService.recordSalePayment(PHARMACY_ID, 199L + index, amount(199 + index), Currency.SYP);
+            }
+        });
+
+        assertEquals(0, expected.compareTo(row.balance()), "final balance " + row.balance());
+        assertEquals(300, ledger.size());
+        assertEquals(101, row.updates());
+        assertLedgerChainsFrom(new BigDecimal("1000.00"));
+    }
+
+    /**
+     * Every posting moves the balance by its amount, and the postings form one unbroken chain
+     * from the initial to the final balance: the balances they start from are exactly the
+     * balances the others ended with, plus the initial one.
+     */
+    private void assertLedgerChainsFrom(BigDecimal initial) {
+        List<BigDecimal> starts = new ArrayList<>();
+        List<BigDecimal> ends = new ArrayList<>();
+        starts.add(row.balance().setScale(2));
+        ends.add(initial.setScale(2));
+        for (MoneyBoxTransaction transaction : ledger) {
+            assertEquals("SUCCESS", transaction.getOperationStatus());
+            assertEquals(0, transaction.getAmount().compareTo(
+                transaction.getBalanceAfter().subtract(transaction.getBalanceBefore())));
+            starts.add(transaction.getBalanceBefore().setScale(2));
+            ends.add(transaction.getBalanceAfter().setScale(2));
+        }
+        starts.sort(Comparator.naturalOrder());
+        ends.sort(Comparator.naturalOrder());
+        assertEquals(ends, starts);
+    }
+
+    private static BigDecimal amount(int index) {
+        return BigDecimal.valueOf(100 + (index % 37) * 25L, 2);
+    }
+
+    private void runConcurrently(int operations, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < operations; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    operation.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stand-in for the money_box row: a Java lock plays the part of the database's atomic update.
+     */
+    private static final class MoneyBoxRow {
+        private BigDecimal balance;
+        private int updates;
+
+        private MoneyBoxRow(BigDecimal balance) {
+            this.balance = balance;
+        }
+
+        synchronized BigDecimal add(BigDecimal delta) {
+            updates++;
+            balance = balance.add(delta);
+            return balance;
+        }
+
+        synchronized int updates() {
+            return updates;
+        }
+
+        synchronized BigDecimal balance() {
+            return balance;
+        }
+
+        MoneyBox load() {
+            MoneyBox moneyBox = new MoneyBox();
+            moneyBox.setId(MONEY_BOX_ID);
+            moneyBox.setPharmacyId(PHARMACY_ID);
+            moneyBox.setCurrency("SYP");
+            moneyBox.setCurrentBalance(balance());
+            return moneyBox;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(int index) throws Exception;
+    }
+}
@@ -0,0 +1,193 @@
+package com.Uqar.test;
+
+import com.Uqar.notification.dto.FCMNotificationDTO;
+import com.Uqar.notification.service.NotificationDispatcher;
+import com.Uqar.notification.service.NotificationDispatcher.DispatchRequest;
+import com.Uqar.notification.service.NotificationDispatcher.DispatchResult;
+import com.Uqar.notification.service.PushNotificationClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the parallel notification dispatcher against a stub messaging client.
+ */
+public class NotificationDispatcherTest {
+
+    @Test
+    public void testSamePayloadIsSentAsMulticastBatches() {
+        StubClient client = new StubClient(0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FCMNotificationDTO payload = payload("Expiry alert");
+
+        List<DispatchRequest> requests = new ArrayList<>();
+        for (long id = 1; id <= 1200; id++) {
+            requests.add(new DispatchRequest(id, List.of("token-" + id), payload));
+        }
+
+        List<DispatchResult> results;
+        try (NotificationDispatcher dispatcher = new NotificationDispatcher(client, registry, 4)) {
+            results = dispatcher.dispatch(requests);
+        }
+
+        assertEquals(1200, results.size());
+        assertTrue(results.stream().allMatch(DispatchResult::delivered));
+        // 1200 tokens with one payload: 500 + 500 + 200
+        assertEquals(3, client.calls.size());
+        assertTrue(client.calls.stream().allMatch(tokens -> tokens.size() <= 500));
+        assertEquals(1200.0, registry.counter("notifications.dispatch", "result", "delivered").count());
+        assertEquals(3.0, registry.counter("notifications.dispatch.multicast.calls").count());
+    }
+
+    @Test
+    public void testDifferentPayloadsAreNotMerged() {
+        StubClient client = new StubClient(0);
+        List<DispatchRequest> requests = List.of(
+            new DispatchRequest(1L, List.of("a"), payload("Low stock")),
+            new DispatchRequest(2L, List.of("b"), payload("Expiry alert")),
+            new DispatchRequest(3L, List.of("c"), payload("Low stock")));
+
+        try (NotificationDispatcher dispatcher = new NotificationDispatcher(client, new SimpleMeterRegistry(), 2)) {
+            dispatcher.dispatch(requests);
+        }
+
+        assertEquals(2, client.calls.size());
+        assertTrue(client.calls.contains(List.of("a", "c")));
+        assertTrue(client.calls.contains(List.of("b")));
+    }
+
+    @Test
+    public void testSameDeviceIsNotCollapsedAcrossNotifications() {
+        StubClient client = new StubClient(0);
+        FCMNotificationDTO payload = payload("Reminder");
+        List<DispatchRequest> requests = List.of(
+            new DispatchRequest(1L, List.of("shared"), payload),
+            new DispatchRequest(2L, List.of("shared"), payload));
+
+        List<DispatchResult> results;
+        try (NotificationDispatcher dispatcher = new NotificationDispatcher(client, new SimpleMeterRegistry(), 2)) {
+            results = dispatcher.dispatch(requests);
+        }
+
+        assertEquals(2, client.calls.size());
+        assertTrue(results.stream().allMatch(DispatchResult::delivered));
+    }
+
+    @Test
+    public void testInvalidTokensAndFailuresAreReported() {
+        StubClient client = new StubClient(0);
+        client.results.put("dead", "INVALID_TOKEN");
+        client.results.put("down", "UNAVAILABLE");
+        FCMNotificationDTO payload = payload("Order update");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        List<DispatchResult> results;
+        try (NotificationDispatcher dispatcher = new NotificationDispatcher(client, registry, 2)) {
+            results = dispatcher.dispatch(List.of(
+                new DispatchRequest(1L, List.of("dead", "alive"), payload),
+                new DispatchRequest(2L, List.of("down"), payload),
+                new DispatchRequest(3L, List.of("dead"), payload)));
+        }
+
+        assertTrue(results.get(0).delivered());
+        assertEquals(List.of("dead"), results.get(0).invalidTokens());
+        assertFalse(results.get(1).delivered());
+        assertTrue(results.get(1).invalidTokens().isEmpty());
+        assertFalse(results.get(2).delivered());
+        assertEquals(List.of("dead"), results.get(2).invalidTokens());
+        assertEquals(2.0, registry.counter("notifications.dispatch", "result", "undelivered").count());
+    }
+
+    @Test
+    public void testClientExceptionMarksChunkUndelivered() {
+        PushNotificationClient failing = (tokens, payload) -> {
+            throw new IllegalStateException("Firebase not initialized");
+        };
+
+        List<DispatchResult> results;
+        try (NotificationDispatcher dispatcher = new NotificationDispatcher(failing, new SimpleMeterRegistry(), 2)) {
+            results = dispatcher.dispatch(List.of(new DispatchRequest(1L, List.of("a"), payload("x"))));
+        }
+
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).delivered());
+    }
+
+    @Test
+    public void testChunksAreSentInParallelWithinThePoolBound() {
+        StubClient client = new StubClient(50);
+        List<DispatchRequest> requests = new ArrayList<>();
+        for (long id = 1; id <= 16; id++) {
+            requests.add(new DispatchRequest(id, List.of("token-" + id), payload("Message " + id)));
+        }
+
+        long start = System.nanoTime();
+        List<DispatchResult> results;
+        try (NotificationDispatcher dispatcher = new NotificationDispatcher(client, new SimpleMeterRegistry(), 4)) {
+            results = dispatcher.dispatch(requests);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(16, results.size());
+        assertTrue(results.stream().allMatch(DispatchResult::delivered));
+        assertTrue(client.maxConcurrent.get() > 1, "chunks should overlap");
+        assertTrue(client.maxConcurrent.get() <= 4, "pool bound exceeded: " + client.maxConcurrent.get());
+        // 16 calls of 50 ms on 4 threads take ~200 ms, sequentially ~800 ms
+        assertTrue(elapsedMillis < 700, "dispatch took " + elapsedMillis + " ms");
+    }
+
+    private static FCMNotificationDTO payload(String title) {
+        return FCMNotificationDTO.builder()
+            .title(title)
+            .body(title + " body")
+            .data(Map.of("type", "TEST"))
+            .build();
+    }
+
+    /**
+     * Stub messaging client: records each multicast call and answers SUCCESS unless
+     * a token has a preset result.
+     */
+    private static class StubClient implements PushNotificationClient {
+        private final long latencyMillis;
+        private final List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, String> results = new HashMap<>();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        StubClient(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Map<String, String> sendNotificationToMultipleDevices(List<String> deviceTokens, FCMNotificationDTO notificationDTO) {
+            int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            try {
+                calls.add(List.copyOf(deviceTokens));
+                if (latencyMillis > 0) {
+                    Thread.sleep(latencyMillis);
+                }
+                Map<String, String> response = new HashMap<>();
+                for (String token : Set.copyOf(deviceTokens)) {
+                    response.put(token, results.getOrDefault(token, "SUCCESS"));
+                }
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Map.of();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.Uqar.test;
+
+import com.Uqar.moneybox.service.SalesIntegrationService;
+import com.Uqar.moneybox.service.SalesIntegrationService.SalePayment;
+import com.Uqar.numbering.enums.DocumentType;
+import com.Uqar.numbering.service.DocumentNumberAllocator;
+import com.Uqar.product.Enum.PaymentMethod;
+import com.Uqar.product.Enum.PaymentType;
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.mapper.StockItemMapper;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.product.service.CurrencyConversionService;
+import com.Uqar.product.service.ProductMetadataResolver;
+import com.Uqar.product.service.StockAvailabilityCache;
+import com.Uqar.product.service.StockBatchIndex;
+import com.Uqar.product.service.StockDeductionEngine;
+import com.Uqar.product.service.StockExpiryIndex;
+import com.Uqar.reports.service.SalesRollupService;
+import com.Uqar.sale.dto.OfflineSaleBatchRequest;
+import com.Uqar.sale.dto.OfflineSaleBatchResponse;
+import com.Uqar.sale.dto.OfflineSaleDTORequest;
+import com.Uqar.sale.dto.OfflineSaleResultDTO;
+import com.Uqar.sale.dto.SaleInvoiceDTORequest;
+import com.Uqar.sale.dto.SaleInvoiceItemDTORequest;
+import com.Uqar.sale.entity.SaleInvoice;
+import com.Uqar.sale.enums.OfflineSaleStatus;
+import com.Uqar.sale.mapper.SaleMapper;
+import com.Uqar.sale.repo.SaleInvoiceItemRepository;
+import com.Uqar.sale.repo.SaleInvoiceRepository;
+import com.Uqar.sale.service.DiscountCalculationService;
+import com.Uqar.sale.service.FefoBatchAllocator;
+import com.Uqar.sale.service.OfflineSaleSyncService;
+import com.Uqar.sale.service.PaymentValidationService;
+import com.Uqar.sale.service.SaleService;
+import com.Uqar.user.Enum.Currency;
+import com.Uqar.user.entity.Customer;
+import com.Uqar.user.entity.Employee;
+import com.Uqar.user.entity.Pharmacy;
+import com.Uqar.user.mapper.CustomerDebtMapper;
+import com.Uqar.user.repository.CustomerDebtRepository;
+import com.Uqar.user.repository.CustomerRepo;
+import com.Uqar.user.repository.UserRepository;
+import com.Uqar.user.service.AuthenticatedPrincipal;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the outcome of each queued sale of an offline sync batch.
+ * The tables are simulated in memory: locked stock items are the same instances the
+ * service deducts, and saved invoices are what later client reference lookups find.
+ */
+@ExtendWith(MockitoExtension.class)
+public class OfflineSaleSyncServiceTest {
+
+    private static final Long PHARMACY_ID = 1L;
+    private static final Long OTHER_PHARMACY_ID = 2L;
+    private static final Long CUSTOMER_ID = 50L;
+    private static final Long EMPLOYEE_ID = 9L;
+
+    private final Pharmacy pharmacy = pharmacy(PHARMACY_ID);
+    private final Map<Long, StockItem> stock = new LinkedHashMap<>();
+    private final List<SaleInvoice> invoices = new ArrayList<>();
+    private final List<SalePayment> payments = new ArrayList<>();
+    private final List<SaleInvoice> rolledUp = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong(100);
+    private final AtomicLong invoiceNumbers = new AtomicLong();
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CustomerRepo customerRepository;
+
+    @Mock
+    private SaleInvoiceRepository saleInvoiceRepository;
+
+    @Mock
+    private SaleInvoiceItemRepository saleInvoiceItemRepository;
+
+    @Mock
+    private CustomerDebtRepository customerDebtRepository;
+
+    @Mock
+    private StockItemRepo stockItemRepo;
+
+    @Mock
+    private StockItemMapper stockItemMapper;
+
+    @Mock
+    private CurrencyConversionService currencyConversionService;
+
+    @Mock
+    private ProductMetadataResolver productMetadataResolver;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private SalesIntegrationService salesIntegrationService;
+
+    @Mock
+    private DocumentNumberAllocator documentNumberAllocator;
+
+    private OfflineSaleSyncService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        stock.put(10L, batch(10L, pharmacy, 5));
+        stock.put(11L, batch(11L, pharmacy, 2));
+        stock.put(20L, batch(20L, pharmacy(OTHER_PHARMACY_ID), 8));
+
+        Employee employee = new Employee();
+        employee.setId(EMPLOYEE_ID);
+        employee.setPharmacy(pharmacy);
+        AuthenticatedPrincipal principal = new AuthenticatedPrincipal(EMPLOYEE_ID, "till@uqar.test", "PHARMACY_EMPLOYEE",
+            Set.of(), PHARMACY_ID, true);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+        Customer customer = new Customer();
+        customer.setId(CUSTOMER_ID);
+        customer.setName("Walk-in regular");
+        customer.setPharmacy(pharmacy);
+
+        when(userRepository.findById(EMPLOYEE_ID)).thenReturn(Optional.of(employee));
+        when(customerRepository.findAllById(anyIterable())).thenAnswer(invocation ->
+            ((Collection<Long>) invocation.getArgument(0)).contains(CUSTOMER_ID) ? List.of(customer) : List.of());
+        when(saleInvoiceRepository.findSyncedByClientReferences(eq(PHARMACY_ID), anyCollection())).thenAnswer(invocation ->
+            invoices.stream()
+                .filter(invoice -> ((Collection<String>) invocation.getArgument(1)).contains(invoice.getClientReference()))
+                .map(invoice -> new Object[]{invoice.getClientReference(), invoice.getId(),
+                    invoice.getInvoiceNumber(), invoice.getTotalAmount()})
+                .toList());
+        lenient().when(saleInvoiceRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            for (SaleInvoice invoice : (Iterable<SaleInvoice>) invocation.getArgument(0)) {
+                invoice.setId(ids.incrementAndGet());
+                invoices.add(invoice);
+            }
+            return invocation.getArgument(0);
+        });
+        when(stockItemRepo.findAllByIdInOrderByIdForUpdate(anyCollection())).thenAnswer(invocation ->
+            ((Collection<Long>) invocation.getArgument(0)).stream()
+                .map(stock::get)
+                .filter(Objects::nonNull)
+                .toList());
+
+        lenient().when(stockItemMapper.getNumberOfPartsPerBox(any(Long.class), any(ProductType.class))).thenReturn(1);
+        lenient().when(stockItemMapper.getProductName(any(Long.class), any(ProductType.class)))
+            .thenAnswer(invocation -> "Product " + invocation.getArgument(0));
+        lenient().when(currencyConversionService.getDisplayPrice(any(BigDecimal.class), any(Currency.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().doAnswer(invocation -> rolledUp.addAll(invocation.getArgument(0)))
+            .when(salesRollupService).recordSales(anyCollection());
+        lenient().doAnswer(invocation -> payments.addAll(invocation.getArgument(1)))
+            .when(salesIntegrationService).recordSalePayments(eq(PHARMACY_ID), anyList());
+        lenient().when(documentNumberAllocator.next(PHARMACY_ID, DocumentType.SALE))
+            .thenAnswer(invocation -> "S-" + invoiceNumbers.incrementAndGet());
+
+        service = service();
+    }
+
+    @AfterEach
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testResentBatchReportsTheSyncedSalesAsDuplicates() {
+        OfflineSaleBatchRequest request = batchOf(sale("till-1-0001", line(10L, 2)));
+
+        OfflineSaleResultDTO first = service.syncSales(request).getResults().get(0);
+        assertEquals(OfflineSaleStatus.ACCEPTED, first.getStatus());
+
+        // The response was lost and the device sends the same batch again
+        OfflineSaleBatchResponse retry = service.syncSales(batchOf(sale("till-1-0001", line(10L, 2))));
+
+        OfflineSaleResultDTO duplicate = retry.getResults().get(0);
+        assertEquals(OfflineSaleStatus.DUPLICATE, duplicate.getStatus());
+        assertEquals(first.getInvoiceId(), duplicate.getInvoiceId());
+        assertEquals(first.getInvoiceNumber(), duplicate.getInvoiceNumber());
+        assertEquals(1, retry.getDuplicates());
+        assertEquals(1, invoices.size());
+        assertEquals(3, stock.get(10L).getQuantity());
+        assertEquals(1, payments.size());
+        assertEquals(1, rolledUp.size());
+    }
+
+    @Test
+    public void testReferenceRepeatedWithinTheBatchIsInvoicedOnce() {
+        OfflineSaleBatchResponse response = service.syncSales(batchOf(
+            sale("till-1-0002", line(10L, 1)),
+            sale("till-1-0002", line(10L, 1))));
+
+        OfflineSaleResultDTO first = response.getResults().get(0);
+        OfflineSaleResultDTO repeated = response.getResults().get(1);
+        assertEquals(OfflineSaleStatus.ACCEPTED, first.getStatus());
+        assertEquals(OfflineSaleStatus.DUPLICATE, repeated.getStatus());
+        assertEquals(first.getInvoiceId(), repeated.getInvoiceId());
+        assertEquals("Sale appears more than once in the batch", repeated.getMessage());
+        assertEquals(1, invoices.size());
+        assertEquals(4, stock.get(10L).getQuantity());
+    }
+
+    @Test
+    public void testConflictUndoesTheDeductionsOfTheSale() {
+        // The second line needs more boxes than are left, after the first line was deducted
+        OfflineSaleBatchResponse response = service.syncSales(batchOf(
+            sale("till-1-0003", line(10L, 2), line(11L, 3)),
+            sale("till-1-0004", line(10L, 5))));
+
+        OfflineSaleResultDTO conflict = response.getResults().get(0);
+        assertEquals(OfflineSaleStatus.CONFLICT, conflict.getStatus());
+        assertNull(conflict.getInvoiceId());
+        assertTrue(conflict.getMessage().contains("stock item 11"));
+        // The boxes of the first line went back, so the next sale could take all five
+        assertEquals(OfflineSaleStatus.ACCEPTED, response.getResults().get(1).getStatus());
+        assertEquals(0, stock.get(10L).getQuantity());
+        assertEquals(2, stock.get(11L).getQuantity());
+        assertEquals(1, response.getConflicts());
+        assertEquals(List.of("till-1-0004"), invoices.stream().map(SaleInvoice::getClientReference).toList());
+    }
+
+    @Test
+    public void testStockOfAnotherPharmacyIsRejected() {
+        OfflineSaleBatchResponse response = service.syncSales(batchOf(
+            sale("till-1-0005", line(20L, 1)),
+            sale("till-1-0006", line(11L, 1))));
+
+        OfflineSaleResultDTO rejected = response.getResults().get(0);
+        assertEquals(OfflineSaleStatus.REJECTED, rejected.getStatus());
+        assertEquals("Stock items do not belong to the current pharmacy: 20", rejected.getMessage());
+        assertEquals(8, stock.get(20L).getQuantity());
+        // The rest of the batch goes on
+        assertEquals(OfflineSaleStatus.ACCEPTED, response.getResults().get(1).getStatus());
+        assertEquals(1, response.getRejected());
+        assertEquals(1, response.getAccepted());
+        assertEquals(List.of("till-1-0006"), invoices.stream().map(SaleInvoice::getClientReference).toList());
+    }
+
+    @Test
+    public void testInvalidSaleIsRejectedNotReportedAsConflict() {
+        // Expired before the device sold it: no stock change would make this sale valid
+        stock.get(10L).setExpiryDate(LocalDate.now().minusDays(3));
+
+        OfflineSaleBatchResponse response = service.syncSales(batchOf(sale("till-1-0007", line(10L, 1))));
+
+        OfflineSaleResultDTO rejected = response.getResults().get(0);
+        assertEquals(OfflineSaleStatus.REJECTED, rejected.getStatus());
+        assertTrue(rejected.getMessage().startsWith("Product expired"));
+        assertEquals(0, response.getConflicts());
+        assertEquals(5, stock.get(10L).getQuantity());
+        assertTrue(invoices.isEmpty());
+    }
+
+    private static OfflineSaleBatchRequest batchOf(OfflineSaleDTORequest... sales) {
+        return new OfflineSaleBatchRequest("till-1", List.of(sales));
+    }
+
+    private static OfflineSaleDTORequest sale(String clientReference, SaleInvoiceItemDTORequest... items) {
+        return OfflineSaleDTORequest.builder()
+            .clientReference(clientReference)
+            .soldAt(LocalDateTime.now().minusHours(2))
+            .sale(SaleInvoiceDTORequest.builder()
+                .customerId(CUSTOMER_ID)
+                .paymentType(PaymentType.CASH)
+                .paymentMethod(PaymentMethod.CASH)
+                .currency(Currency.SYP)
+                .items(List.of(items))
+                .build())
+            .build();
+    }
+
+    private static SaleInvoiceItemDTORequest line(Long stockItemId, int quantity) {
+        return SaleInvoiceItemDTORequest.builder()
+            .stockItemId(stockItemId)
+            .quantity(quantity)
+            .unitPrice(1000f)
+            .build();
+    }
+
+    private static Pharmacy pharmacy(Long id) {
+        Pharmacy pharmacy = new Pharmacy();
+        pharmacy.setId(id);
+        pharmacy.setName("Pharmacy " + id);
+        return pharmacy;
+    }
+
+    private static StockItem batch(Long id, Pharmacy pharmacy, int quantity) {
+        StockItem stockItem = new StockItem();
+        stockItem.setId(id);
+        stockItem.setPharmacy(pharmacy);
+        stockItem.setProductId(id + 1000);
+        stockItem.setProductType(ProductType.PHARMACY);
+        stockItem.setQuantity(quantity);
+        stockItem.setExpiryDate(LocalDate.now().plusMonths(6));
+        stockItem.setActualPurchasePrice(600.0);
+        return stockItem;
+    }
+
+    private OfflineSaleSyncService service() {
+        StockBatchIndex stockBatchIndex = new StockBatchIndex(stockItemRepo, new StockExpiryIndex(stockItemRepo, null, 30));
+
+        return new OfflineSaleSyncService(
+            new SaleService(saleInvoiceRepository, null, customerRepository, stockItemRepo, null, null, null,
+                null, null, null, null, stockItemMapper, null, null, userRepository),
+            saleInvoiceRepository,
+            saleInvoiceItemRepository,
+            customerRepository,
+            customerDebtRepository,
+            new CustomerDebtMapper(),
+            new SaleMapper(stockItemMapper, currencyConversionService),
+            stockItemMapper,
+            new PaymentValidationService(),
+            new DiscountCalculationService(),
+            new FefoBatchAllocator(stockBatchIndex, stockItemMapper),
+            new StockDeductionEngine(stockItemRepo),
+            stockBatchIndex,
+            new StockAvailabilityCache(stockItemRepo),
+            productMetadataResolver,
+            salesRollupService,
+            salesIntegrationService,
+            documentNumberAllocator,
+            Validation.buildDefaultValidatorFactory().getValidator(),
+            userRepository,
+            5000);
+    }
+}
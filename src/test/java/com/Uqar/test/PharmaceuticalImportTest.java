@@ -0,0 +1,236 @@
+package com.Uqar.test;
+
+import com.Uqar.product.Enum.ImportJobStatus;
+import com.Uqar.product.entity.MasterProduct;
+import com.Uqar.product.entity.PharmaceuticalImportJob;
+import com.Uqar.product.repo.FormRepo;
+import com.Uqar.product.repo.ManufacturerRepo;
+import com.Uqar.product.repo.MasterProductRepo;
+import com.Uqar.product.repo.PharmaceuticalImportJobRepo;
+import com.Uqar.product.service.MasterProductCatalogue;
+import com.Uqar.product.service.PharmaceuticalImportService;
+import com.Uqar.product.service.PharmaceuticalSheetReader;
+import jakarta.persistence.EntityManager;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests of the pharmaceutical import on a small workbook: the rows streamed by the sheet
+ * reader, and a job that continues after its committed last_row instead of starting over.
+ */
+@ExtendWith(MockitoExtension.class)
+public class PharmaceuticalImportTest {
+
+    private static final Long JOB_ID = 11L;
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private ManufacturerRepo manufacturerRepo;
+
+    @Mock
+    private FormRepo formRepo;
+
+    @Mock
+    private MasterProductRepo masterProductRepo;
+
+    @Mock
+    private PharmaceuticalImportJobRepo importJobRepo;
+
+    @Mock
+    private MasterProductCatalogue masterProductCatalogue;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PharmaceuticalImportService service;
+    private final List<String> persistedBarcodes = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        service = new PharmaceuticalImportService();
+        ReflectionTestUtils.setField(service, "manufacturerRepository", manufacturerRepo);
+        ReflectionTestUtils.setField(service, "formRepository", formRepo);
+        ReflectionTestUtils.setField(service, "masterProductRepository", masterProductRepo);
+        ReflectionTestUtils.setField(service, "importJobRepository", importJobRepo);
+        ReflectionTestUtils.setField(service, "masterProductCatalogue", masterProductCatalogue);
+        ReflectionTestUtils.setField(service, "entityManager", entityManager);
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.invokeMethod(service, "setTransactionManager", transactionManager);
+    }
+
+    @Test
+    public void testXlsxRowsAreStreamedWithTheirSheetRowNumber() throws IOException {
+        Path file = workbook(new XSSFWorkbook(), "products.xlsx");
+        Map<Integer, Map<String, String>> rows = new LinkedHashMap<>();
+
+        PharmaceuticalSheetReader.read(file, rows::put);
+
+        // Sheet row 4 is empty and is not reported
+        assertEquals(List.of(2, 3, 5, 6, 7), List.copyOf(rows.keySet()));
+        Map<String, String> first = rows.get(2);
+        assertEquals("Product 2", first.get("الاسم التجاري"));
+        assertEquals("Substance 2", first.get("التركيب"));   // header written as "التركيب "
+        assertEquals("300", first.get("السعر للعموم"));      // numeric cell, formatted as shown
+        assertEquals("B2", first.get("الباركود"));
+        assertFalse(rows.get(3).containsKey("التركيب"));      // blank cell
+    }
+
+    @Test
+    public void testXlsRowsMatchTheXlsxReader() throws IOException {
+        Map<Integer, Map<String, String>> xlsx = new LinkedHashMap<>();
+        Map<Integer, Map<String, String>> xls = new LinkedHashMap<>();
+
+        PharmaceuticalSheetReader.read(workbook(new XSSFWorkbook(), "products.xlsx"), xlsx::put);
+        PharmaceuticalSheetReader.read(workbook(new HSSFWorkbook(), "products.xls"), xls::put);
+
+        assertEquals(xlsx, xls);
+    }
+
+    @Test
+    public void testFailedJobResumesAfterItsLastCommittedRow() throws Exception {
+        PharmaceuticalImportJob job = job(workbook(new XSSFWorkbook(), "products.xlsx"), ImportJobStatus.QUEUED);
+        // Row 6 fails the first time it is written, which rolls back the chunk of rows 5 and 6
+        boolean[] failed = {false};
+        doAnswer(invocation -> {
+            String barcode = ((MasterProduct) invocation.getArgument(0)).getBarcode();
+            if (barcode.equals("B6") && !failed[0]) {
+                failed[0] = true;
+                throw new IllegalStateException("connection lost");
+            }
+            persistedBarcodes.add(barcode);
+            return null;
+        }).when(entityManager).persist(any(MasterProduct.class));
+
+        when(importJobRepo.findByStatusInOrderByIdAsc(eq(EnumSet.of(ImportJobStatus.QUEUED, ImportJobStatus.RUNNING))))
+            .thenReturn(List.of(job));
+        service.resumeInterruptedImports();
+        awaitQueuedJobs();
+
+        assertEquals(ImportJobStatus.FAILED, job.getStatus());
+        assertEquals(3, job.getLastRow());
+        assertEquals(List.of("B2", "B3", "B5"), persistedBarcodes);
+
+        persistedBarcodes.clear();
+        service.resumeImport(JOB_ID);
+        shutdown();
+
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(7, job.getLastRow());
+        assertEquals(List.of("B5", "B6", "B7"), persistedBarcodes);
+        assertEquals(5, job.getProcessedRows());
+        assertEquals(5, job.getInsertedCount());
+        assertFalse(Files.exists(Path.of(job.getFilePath())));
+    }
+
+    @Test
+    public void testInterruptedJobContinuesAfterItsLastCommittedRow() throws Exception {
+        PharmaceuticalImportJob job = job(workbook(new XSSFWorkbook(), "products.xlsx"), ImportJobStatus.RUNNING);
+        // Rows 2 and 3 were committed before the restart
+        job.setLastRow(3);
+        job.setProcessedRows(2);
+        job.setInsertedCount(2);
+        doAnswer(invocation -> persistedBarcodes.add(((MasterProduct) invocation.getArgument(0)).getBarcode()))
+            .when(entityManager).persist(any(MasterProduct.class));
+        when(importJobRepo.findByStatusInOrderByIdAsc(any())).thenReturn(List.of(job));
+
+        service.resumeInterruptedImports();
+        shutdown();
+
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(List.of("B5", "B6", "B7"), persistedBarcodes);
+        assertEquals(7, job.getLastRow());
+        assertEquals(5, job.getProcessedRows());
+    }
+
+    private PharmaceuticalImportJob job(Path file, ImportJobStatus status) {
+        PharmaceuticalImportJob job = PharmaceuticalImportJob.builder()
+            .id(JOB_ID)
+            .fileName(file.getFileName().toString())
+            .filePath(file.toString())
+            .status(status)
+            .build();
+        when(importJobRepo.findById(JOB_ID)).thenReturn(Optional.of(job));
+        return job;
+    }
+
+    /**
+     * Header on sheet row 1 (with the padded names of the real files), products on rows 2-7
+     * with row 4 left empty; row 3 has no scientific name.
+     */
+    private Path workbook(Workbook workbook, String name) throws IOException {
+        try (workbook) {
+            Sheet sheet = workbook.createSheet("Sheet1");
+            Row header = sheet.createRow(0);
+            String[] columns = {"الاسم التجاري", "التركيب ", " العبوة", "السعر للعموم", "الباركود"};
+            for (int column = 0; column < columns.length; column++) {
+                header.createCell(column).setCellValue(columns[column]);
+            }
+            for (int rowNumber = 2; rowNumber <= 7; rowNumber++) {
+                if (rowNumber == 4) {
+                    continue;
+                }
+                Row row = sheet.createRow(rowNumber - 1);
+                row.createCell(0).setCellValue("Product " + rowNumber);
+                if (rowNumber != 3) {
+                    row.createCell(1).setCellValue("Substance " + rowNumber);
+                }
+                row.createCell(2).setCellValue("20 tablets");
+                row.createCell(3).setCellValue(100 * rowNumber + 100);
+                row.createCell(4).setCellValue("B" + rowNumber);
+            }
+            Path file = dir.resolve(name);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                workbook.write(out);
+            }
+            return file;
+        }
+    }
+
+    private ExecutorService executor() {
+        return (ExecutorService) ReflectionTestUtils.getField(service, "executor");
+    }
+
+    // The import executor runs one job at a time, so a task queued behind the job runs after it
+    private void awaitQueuedJobs() throws Exception {
+        executor().submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private void shutdown() throws InterruptedException {
+        executor().shutdown();
+        assertTrue(executor().awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
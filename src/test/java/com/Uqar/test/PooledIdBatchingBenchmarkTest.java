@@ -0,0 +1,219 @@
+package com.Uqar.test;
+
+import com.Uqar.notification.entity.Notification;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.purchase.entity.PurchaseInvoice;
+import com.Uqar.purchase.entity.PurchaseInvoiceItem;
+import com.Uqar.sale.entity.SaleInvoice;
+import com.Uqar.sale.entity.SaleInvoiceItem;
+import com.Uqar.sale.entity.SaleRefund;
+import com.Uqar.utils.entity.EntitySequenceGenerator;
+import com.Uqar.utils.entity.EntitySequenceGenerator.EntitySequence;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the simulated database round trips of sale checkout and purchase receiving, before and
+ * after moving the high-volume tables to pooled sequences with JDBC batching.
+ * No database is involved: the sequences and the batching of the flush are in-memory stand-ins,
+ * and every sequence call, single insert and executed batch is counted as one call. The counts
+ * show how the calls are grouped, not their timing on PostgreSQL. Ids come from Hibernate's own
+ * pooled-lo optimizer over the simulated sequence.
+ */
+public class PooledIdBatchingBenchmarkTest {
+
+    private static final int BATCH_SIZE = 50;
+    private static final int SALES = 500;
+    private static final int ITEMS_PER_SALE = 8;
+    private static final int RECEIVINGS = 20;
+    private static final int ITEMS_PER_RECEIVING = 120;
+
+    @Test
+    public void testHighVolumeEntitiesUsePooledSequences() {
+        assertEquals(new EntitySequence("sale_invoice_id_seq", 50), EntitySequenceGenerator.sequenceOf(SaleInvoice.class));
+        assertEquals(new EntitySequence("sale_invoice_item_id_seq", 50), EntitySequenceGenerator.sequenceOf(SaleInvoiceItem.class));
+        assertEquals(new EntitySequence("stock_item_id_seq", 50), EntitySequenceGenerator.sequenceOf(StockItem.class));
+        assertEquals(new EntitySequence("notification_id_seq", 50), EntitySequenceGenerator.sequenceOf(Notification.class));
+        assertEquals(new EntitySequence("purchase_invoice_item_id_seq", 50), EntitySequenceGenerator.sequenceOf(PurchaseInvoiceItem.class));
+        // Low-volume tables keep one id per call
+        assertEquals(new EntitySequence("purchase_invoice_id_seq", 1), EntitySequenceGenerator.sequenceOf(PurchaseInvoice.class));
+        assertEquals(new EntitySequence("sale_refund_id_seq", 1), EntitySequenceGenerator.sequenceOf(SaleRefund.class));
+    }
+
+    @Test
+    public void testSaleCheckoutRoundTrips() {
+        RoundTrips identity = new RoundTrips();
+        RoundTrips pooled = new RoundTrips();
+        Database database = new Database(pooled);
+
+        for (int sale = 0; sale < SALES; sale++) {
+            List<String> inserts = new ArrayList<>();
+            inserts.add("sale_invoices");
+            for (int item = 0; item < ITEMS_PER_SALE; item++) {
+                inserts.add("sale_invoice_items");
+            }
+            inserts.add("money_box_transaction");
+
+            identity.count += inserts.size();
+            flush(inserts, database, true);
+        }
+
+        // Per sale: 3 batches (invoice, items, ledger) plus a share of the sequence calls
+        assertTrue(pooled.count * 3 < identity.count, "pooled " + pooled.count + " vs identity " + identity.count);
+        database.assertUniqueIds();
+    }
+
+    @Test
+    public void testPurchaseReceivingRoundTrips() {
+        RoundTrips identity = new RoundTrips();
+        RoundTrips unordered = new RoundTrips();
+        RoundTrips ordered = new RoundTrips();
+        Database unorderedDatabase = new Database(unordered);
+        Database orderedDatabase = new Database(ordered);
+
+        for (int receiving = 0; receiving < RECEIVINGS; receiving++) {
+            List<String> inserts = new ArrayList<>();
+            inserts.add("purchase_invoice");
+            // Each invoice item creates its stock batch, so the inserts are interleaved
+            for (int item = 0; item < ITEMS_PER_RECEIVING; item++) {
+                inserts.add("purchase_invoice_item");
+                inserts.add("stock_item");
+            }
+            inserts.add("money_box_transaction");
+
+            identity.count += inserts.size();
+            flush(inserts, unorderedDatabase, false);
+            flush(inserts, orderedDatabase, true);
+        }
+
+        // Without ordering every table switch ends the batch
+        assertTrue(ordered.count * 10 < unordered.count, "ordered " + ordered.count + " vs unordered " + unordered.count);
+        assertTrue(ordered.count * 15 < identity.count, "ordered " + ordered.count + " vs identity " + identity.count);
+        orderedDatabase.assertUniqueIds();
+    }
+
+    @Test
+    public void testPooledLoBlocksDoNotCollideWithColumnDefault() {
+        RoundTrips roundTrips = new RoundTrips();
+        Database database = new Database(roundTrips);
+        Set<Long> ids = new HashSet<>();
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(ids.add(database.nextId("stock_item")), "duplicate application id");
+            if (i % 37 == 0) {
+                // A row inserted with DEFAULT nextval('stock_item_id_seq'), e.g. by a SQL script
+                assertTrue(ids.add(database.sequence("stock_item").nextval()), "duplicate default id");
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Assigns the ids at persist and sends the inserts at flush in JDBC batches of BATCH_SIZE;
+     * with orderInserts the statements are grouped by table first (hibernate.order_inserts)
+     */
+    private static void flush(List<String> inserts, Database database, boolean orderInserts) {
+        inserts.forEach(database::nextId);
+        List<String> statements = new ArrayList<>(inserts);
+        if (orderInserts) {
+            List<String> tableOrder = inserts.stream().distinct().toList();
+            statements.sort(Comparator.comparingInt(tableOrder::indexOf));
+        }
+        String batchTable = null;
+        int batchRows = 0;
+        for (String table : statements) {
+            if (!table.equals(batchTable) || batchRows == BATCH_SIZE) {
+                database.roundTrips.count++;
+                batchTable = table;
+                batchRows = 0;
+            }
+            batchRows++;
+        }
+    }
+
+    private static final class RoundTrips {
+        long count;
+    }
+
+    private static final class Database {
+        private final RoundTrips roundTrips;
+        private final Map<String, Sequence> sequences = new HashMap<>();
+        private final Map<String, Optimizer> optimizers = new HashMap<>();
+        private final Map<String, Set<Long>> assigned = new HashMap<>();
+
+        Database(RoundTrips roundTrips) {
+            this.roundTrips = roundTrips;
+        }
+
+        Sequence sequence(String table) {
+            return sequences.computeIfAbsent(table, t -> new Sequence(roundTrips, allocationSize(t)));
+        }
+
+        long nextId(String table) {
+            Sequence sequence = sequence(table);
+            Optimizer optimizer = optimizers.computeIfAbsent(table, t -> OptimizerFactory.buildOptimizer(
+                StandardOptimizerDescriptor.POOLED_LO, Long.class, sequence.step, -1));
+            long id = (Long) optimizer.generate(sequence);
+            assigned.computeIfAbsent(table, t -> new HashSet<>());
+            assertTrue(assigned.get(table).add(id), "duplicate id " + id + " in " + table);
+            return id;
+        }
+
+        void assertUniqueIds() {
+            assigned.forEach((table, ids) -> assertFalse(ids.isEmpty(), table));
+        }
+
+        private static int allocationSize(String table) {
+            return table.equals("purchase_invoice") ? 1 : 50;
+        }
+    }
+
+    /**
+     * In-memory stand-in for a PostgreSQL sequence: nextval() is one round trip
+     */
+    private static final class Sequence implements AccessCallback {
+        private final RoundTrips roundTrips;
+        private final int step;
+        private long next = 1;
+
+        Sequence(RoundTrips roundTrips, int step) {
+            this.roundTrips = roundTrips;
+            this.step = step;
+        }
+
+        long nextval() {
+            roundTrips.count++;
+            long value = next;
+            next += step;
+            return value;
+        }
+
+        @Override
+        public IntegralDataTypeHolder getNextValue() {
+            IntegralDataTypeHolder value = IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class);
+            value.initialize(nextval());
+            return value;
+        }
+
+        @Override
+        public String getTenantIdentifier() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.Uqar.test;
+
+import com.Uqar.reports.repository.DailySalesRollupRepository;
+import com.Uqar.reports.service.SalesRollupService;
+import com.Uqar.scheduling.repository.ScheduledJobLeaseRepository;
+import com.Uqar.scheduling.repository.ScheduledJobRunRepository;
+import com.Uqar.scheduling.service.ScheduledJobCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests of the one-time fill of daily_sales_rollup from the sales history.
+ * The rollup and lease tables are simulated in memory; a lease is taken once per
+ * (job, shard, fire key), like scheduled_job_lease after a completed run.
+ */
+@ExtendWith(MockitoExtension.class)
+public class SalesRollupBackfillTest {
+
+    @Mock
+    private DailySalesRollupRepository rollupRepository;
+
+    @Mock
+    private ScheduledJobLeaseRepository leaseRepository;
+
+    @Mock
+    private ScheduledJobRunRepository runRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final List<String> rebuilds = new ArrayList<>();
+    private final List<LocalDate> rollupDays = new ArrayList<>();
+    private final Set<String> leases = new HashSet<>();
+    private LocalDateTime firstSale = LocalDate.now().minusMonths(2).withDayOfMonth(20).atTime(10, 30);
+    private final LocalDate[] window = new LocalDate[2];
+
+    @BeforeEach
+    public void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(leaseRepository.tryAcquire(anyString(), anyInt(), anyString(), anyString(), anyLong()))
+            .thenAnswer(invocation -> leases.add(invocation.getArgument(0) + "/" + invocation.getArgument(1) + "/"
+                + invocation.getArgument(2)) ? 1 : 0);
+        lenient().when(leaseRepository.release(anyString(), anyInt(), anyString(), anyString(), anyBoolean())).thenReturn(1);
+
+        lenient().when(rollupRepository.findFirstInvoiceDate()).thenAnswer(invocation -> firstSale);
+        lenient().when(rollupRepository.findPharmacyIdsWithSales(any(), any())).thenReturn(List.of(3L, 8L));
+        lenient().doAnswer(invocation -> {
+            window[0] = invocation.getArgument(1);
+            window[1] = invocation.getArgument(2);
+            rebuilds.add(invocation.getArgument(0) + ":" + window[0] + ".." + window[1]);
+            return null;
+        }).when(rollupRepository).deleteByPharmacyIdAndSalesDateBetween(any(), any(), any());
+        lenient().when(rollupRepository.aggregateInvoices(any(), any(), any())).thenAnswer(invocation ->
+            !firstSale.toLocalDate().isBefore(window[0]) && !firstSale.toLocalDate().isAfter(window[1])
+                ? List.of(Map.of("date", firstSale.toLocalDate().toString(), "currency", "SYP", "invoiceCount", 1L, "revenue", 100))
+                : List.of());
+        lenient().doAnswer(invocation -> rollupDays.add(invocation.getArgument(1)))
+            .when(rollupRepository).applyDelta(any(), any(), any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    public void testFirstStartFillsEveryMonthSinceTheFirstSaleUpToYesterday() {
+        service().backfillOnFirstStart();
+
+        // Today is left to the nightly rebuild, sales may still be committing
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        List<String> expected = new ArrayList<>();
+        for (Long pharmacyId : List.of(3L, 8L)) {
+            for (LocalDate month = firstSale.toLocalDate().withDayOfMonth(1); !month.isAfter(yesterday); month = month.plusMonths(1)) {
+                LocalDate monthEnd = month.plusMonths(1).minusDays(1);
+                expected.add(pharmacyId + ":" + month + ".." + (monthEnd.isAfter(yesterday) ? yesterday : monthEnd));
+            }
+        }
+        assertEquals(expected.stream().sorted().toList(), rebuilds.stream().sorted().toList());
+        assertTrue(rebuilds.stream().noneMatch(rebuild -> rebuild.endsWith(".." + LocalDate.now())));
+        // Each day with sales gets its rollup row, including the history before the deploy
+        assertTrue(rollupDays.contains(firstSale.toLocalDate()));
+    }
+
+    @Test
+    public void testLaterStartsDoNotRebuildAgain() {
+        service().backfillOnFirstStart();
+        int first = rebuilds.size();
+
+        // Another instance, or a restart
+        service().backfillOnFirstStart();
+
+        assertEquals(first, rebuilds.size());
+    }
+
+    @Test
+    public void testNoSalesNoBackfill() {
+        firstSale = null;
+        service().backfillOnFirstStart();
+
+        assertTrue(rebuilds.isEmpty());
+    }
+
+    private SalesRollupService service() {
+        ScheduledJobCoordinator coordinator = new ScheduledJobCoordinator(leaseRepository, runRepository, transactionManager, 60, 4);
+        return new SalesRollupService(rollupRepository, transactionManager, coordinator);
+    }
+}
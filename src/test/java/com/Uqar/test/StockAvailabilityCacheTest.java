@@ -0,0 +1,135 @@
+package com.Uqar.test;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.product.service.StockAvailabilityCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that the stock availability cache only ever holds committed quantities.
+ * The stock_item sum is simulated: committed is what other transactions see, and a
+ * running sale's own deductions are visible only to reads made inside it.
+ */
+@ExtendWith(MockitoExtension.class)
+public class StockAvailabilityCacheTest {
+
+    private static final Long PHARMACY_ID = 7L;
+    private static final Long PRODUCT_ID = 5L;
+
+    private final AtomicInteger committed = new AtomicInteger(10);
+    private final AtomicInteger uncommittedDelta = new AtomicInteger();
+    private final AtomicInteger loads = new AtomicInteger();
+    private Runnable duringLoad = () -> { };
+
+    @Mock
+    private StockItemRepo stockItemRepo;
+
+    private StockAvailabilityCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        when(stockItemRepo.getTotalQuantity(any(), any(), any())).thenAnswer(invocation -> {
+            loads.incrementAndGet();
+            int quantity = TransactionSynchronizationManager.isActualTransactionActive()
+                ? committed.get() + uncommittedDelta.get()
+                : committed.get();
+            duringLoad.run();
+            return quantity;
+        });
+        cache = new StockAvailabilityCache(stockItemRepo);
+    }
+
+    @AfterEach
+    public void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void testSaleDeductionIsCountedOnce() {
+        beginTransaction();
+        uncommittedDelta.set(-3);
+        // A miss inside the sale sees its own flushed deduction, but must not cache it
+        assertEquals(7, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+        cache.adjust(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY, -3);
+        commit();
+
+        assertEquals(7, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+    }
+
+    @Test
+    public void testRolledBackSaleLeavesNoQuantityBehind() {
+        beginTransaction();
+        uncommittedDelta.set(-4);
+        assertEquals(6, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+        cache.adjust(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY, -4);
+        rollback();
+
+        assertEquals(10, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+    }
+
+    @Test
+    public void testLoadRacingACommittedSaleIsNotStored() {
+        // Warm the pharmacy so the sale's delta has somewhere to go
+        cache.getAvailableQuantity(PHARMACY_ID, 99L, ProductType.PHARMACY);
+
+        // Another till commits a sale of 2 after the sum was read but before it is stored
+        duringLoad = () -> {
+            duringLoad = () -> { };
+            committed.addAndGet(-2);
+            cache.adjust(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY, -2);
+        };
+        assertEquals(10, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+
+        assertEquals(8, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+        int loadsAfterReload = loads.get();
+        assertEquals(8, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+        assertEquals(loadsAfterReload, loads.get());
+    }
+
+    @Test
+    public void testReadOnlyTransactionPopulatesTheCache() {
+        beginTransaction();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(10, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+        commit();
+
+        int loadsBefore = loads.get();
+        assertEquals(10, cache.getAvailableQuantity(PHARMACY_ID, PRODUCT_ID, ProductType.PHARMACY));
+        assertEquals(loadsBefore, loads.get());
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private void commit() {
+        committed.addAndGet(uncommittedDelta.getAndSet(0));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        endTransaction();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private void rollback() {
+        uncommittedDelta.set(0);
+        endTransaction();
+    }
+}
@@ -0,0 +1,180 @@
+package com.Uqar.test;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.service.StockDeductionEngine;
+import com.Uqar.utils.exception.RequestNotValidException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the sale stock deduction arithmetic and of the order the sale locks its stock rows in.
+ * The row locks are Java stand-ins, one per stock item id, taken in StockDeductionEngine.lockOrder;
+ * the SELECT ... FOR UPDATE of stock_item itself is exercised on PostgreSQL by StockDeductionRowLockTest.
+ */
+public class StockDeductionLockOrderTest {
+
+    private final Map<Long, ReentrantLock> simulatedRowLocks = new ConcurrentHashMap<>();
+
+    @Test
+    public void testSalesSerializedOnOneBatchNeverOversell() throws Exception {
+        StockItem batch = stockItem(1L, 50, null);
+        AtomicInteger successfulSales = new AtomicInteger();
+
+        runConcurrently(200, saleIndex -> {
+            try {
+                withSimulatedRowLocks(List.of(batch.getId()), () -> StockDeductionEngine.deductBoxes(batch, 1, null));
+                successfulSales.incrementAndGet();
+            } catch (RequestNotValidException e) {
+                // insufficient stock: the sale is rejected
+            }
+        });
+
+        assertEquals(50, successfulSales.get());
+        assertEquals(0, batch.getQuantity());
+        assertNull(batch.getRemainingParts());
+    }
+
+    @Test
+    public void testPartialSalesSerializedOnOneBatchNeverOversell() throws Exception {
+        StockItem batch = stockItem(1L, 5, null);
+        AtomicInteger successfulSales = new AtomicInteger();
+        AtomicInteger boxesDeducted = new AtomicInteger();
+
+        runConcurrently(100, saleIndex -> {
+            try {
+                withSimulatedRowLocks(List.of(batch.getId()),
+                    () -> boxesDeducted.addAndGet(StockDeductionEngine.deductParts(batch, 1, 10)));
+                successfulSales.incrementAndGet();
+            } catch (RequestNotValidException e) {
+                // insufficient parts: the sale is rejected
+            }
+        });
+
+        assertEquals(50, successfulSales.get());
+        assertEquals(5, boxesDeducted.get());
+        assertEquals(0, batch.getQuantity());
+        assertNull(batch.getRemainingParts());
+    }
+
+    @Test
+    public void testMultiLineSalesInOppositeOrderLockInTheSameOrder() throws Exception {
+        StockItem batchA = stockItem(1L, 1000, null);
+        StockItem batchB = stockItem(2L, 1000, null);
+
+        runConcurrently(200, saleIndex -> {
+            // نصف الفواتير تطلب A ثم B والنصف الآخر B ثم A
+            List<StockItem> lines = saleIndex % 2 == 0 ? List.of(batchA, batchB) : List.of(batchB, batchA);
+            List<Long> requestedIds = lines.stream().map(StockItem::getId).toList();
+            withSimulatedRowLocks(requestedIds, () -> lines.forEach(line -> StockDeductionEngine.deductBoxes(line, 2, null)));
+        });
+
+        assertEquals(600, batchA.getQuantity());
+        assertEquals(600, batchB.getQuantity());
+    }
+
+    @Test
+    public void testLockOrderIsDistinctAndAscending() {
+        assertEquals(List.of(3L, 7L, 12L), StockDeductionEngine.lockOrder(List.of(12L, 3L, 7L, 3L)));
+    }
+
+    @Test
+    public void testPartialDeductionKeepsRemainingPartsSemantics() {
+        StockItem batch = stockItem(1L, 3, null);
+
+        // فتح علبة جديدة: الأجزاء المتبقية تبدأ من عدد الأجزاء في العلبة
+        assertEquals(0, StockDeductionEngine.deductParts(batch, 4, 10));
+        assertEquals(3, batch.getQuantity());
+        assertEquals(6, batch.getRemainingParts());
+
+        // استنفاد العلبة المفتوحة: خصم علبة والبدء بعلبة جديدة
+        assertEquals(1, StockDeductionEngine.deductParts(batch, 6, 10));
+        assertEquals(2, batch.getQuantity());
+        assertEquals(10, batch.getRemainingParts());
+
+        // بيع علبة كاملة يعيد تعيين الأجزاء للعلبة التالية
+        assertEquals(1, StockDeductionEngine.deductBoxes(batch, 1, 10));
+        assertEquals(1, batch.getQuantity());
+        assertEquals(10, batch.getRemainingParts());
+
+        assertEquals(1, StockDeductionEngine.deductParts(batch, 10, 10));
+        assertEquals(0, batch.getQuantity());
+        assertNull(batch.getRemainingParts());
+
+        assertThrows(RequestNotValidException.class, () -> StockDeductionEngine.deductParts(batch, 1, 10));
+        assertThrows(RequestNotValidException.class, () -> StockDeductionEngine.deductBoxes(batch, 1, 10));
+    }
+
+    private void withSimulatedRowLocks(List<Long> stockItemIds, Runnable deduction) {
+        List<ReentrantLock> acquired = new ArrayList<>();
+        try {
+            for (Long id : StockDeductionEngine.lockOrder(stockItemIds)) {
+                ReentrantLock lock = simulatedRowLocks.computeIfAbsent(id, key -> new ReentrantLock());
+                try {
+                    if (!lock.tryLock(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("Timed out waiting for stock item " + id + " (deadlock)");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                acquired.add(lock);
+            }
+            deduction.run();
+        } finally {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                acquired.get(i).unlock();
+            }
+        }
+    }
+
+    private void runConcurrently(int sales, SaleTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < sales; i++) {
+                int saleIndex = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(saleIndex);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static StockItem stockItem(Long id, int quantity, Integer remainingParts) {
+        StockItem stockItem = new StockItem();
+        stockItem.setId(id);
+        stockItem.setProductId(100L + id);
+        stockItem.setProductType(ProductType.PHARMACY);
+        stockItem.setQuantity(quantity);
+        stockItem.setRemainingParts(remainingParts);
+        return stockItem;
+    }
+
+    @FunctionalInterface
+    private interface SaleTask {
+        void run(int saleIndex) throws Exception;
+    }
+}
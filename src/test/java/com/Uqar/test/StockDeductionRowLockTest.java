@@ -0,0 +1,190 @@
+package com.Uqar.test;
+
+import com.Uqar.product.Enum.ProductType;
+import com.Uqar.product.entity.StockItem;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.product.service.StockDeductionEngine;
+import com.Uqar.user.Enum.PharmacyType;
+import com.Uqar.user.entity.Pharmacy;
+import com.Uqar.user.repository.PharmacyRepository;
+import com.Uqar.utils.exception.InsufficientStockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of StockDeductionEngine on PostgreSQL: concurrent sales, each in its own transaction,
+ * lock their stock_item rows with SELECT ... FOR UPDATE, deduct, and write back with flush.
+ * The quantities are read back from the table. Skipped where Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({StockDeductionEngine.class, StockDeductionRowLockTest.Auditing.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StockDeductionRowLockTest {
+
+    private static final int TILLS = 8;
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StockDeductionEngine stockDeductionEngine;
+
+    @Autowired
+    private StockItemRepo stockItemRepo;
+
+    @Autowired
+    private PharmacyRepository pharmacyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+    private Pharmacy pharmacy;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        pharmacy = transactionTemplate.execute(status -> pharmacyRepository.save(Pharmacy.builder()
+            .name("Pharmacy")
+            .licenseNumber(UUID.randomUUID().toString())
+            .type(PharmacyType.MAIN)
+            .build()));
+    }
+
+    @Test
+    public void testConcurrentSalesOfOneBatchNeverOversell() throws Exception {
+        Long batch = batch(20);
+
+        List<Boolean> sales = runConcurrently(60, sale -> sell(List.of(batch), 1));
+
+        assertEquals(20, sales.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, quantity(batch));
+        assertNoNegativeStock();
+    }
+
+    @Test
+    public void testSalesOfOverlappingBatchesInEitherOrderNeitherDeadlockNorOversell() throws Exception {
+        Long first = batch(30);
+        Long second = batch(12);
+
+        // Half of the tills list the batches the other way round; each sale takes a box from both
+        List<Boolean> sales = runConcurrently(50, sale ->
+            sell(sale % 2 == 0 ? List.of(first, second) : List.of(second, first), 1));
+
+        assertEquals(12, sales.stream().filter(Boolean::booleanValue).count());
+        // A sale short on the second batch rolls back the box it took from the first
+        assertEquals(18, quantity(first));
+        assertEquals(0, quantity(second));
+        assertNoNegativeStock();
+    }
+
+    /**
+     * One sale: lock the batches, deduct from each and write them back in one transaction.
+     * Returns false when a batch ran out and the sale was rolled back.
+     */
+    private boolean sell(List<Long> stockItemIds, int boxes) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<StockItem> locked = stockDeductionEngine.lockStockItems(stockItemIds);
+                for (StockItem stockItem : locked) {
+                    StockDeductionEngine.deductBoxes(stockItem, boxes, null);
+                }
+                stockDeductionEngine.flush(locked);
+            });
+            return true;
+        } catch (InsufficientStockException e) {
+            return false;
+        }
+    }
+
+    private Long batch(int quantity) {
+        StockItem stockItem = new StockItem();
+        stockItem.setPharmacy(pharmacy);
+        stockItem.setProductId(1000L);
+        stockItem.setProductType(ProductType.PHARMACY);
+        stockItem.setQuantity(quantity);
+        stockItem.setExpiryDate(LocalDate.now().plusMonths(6));
+        stockItem.setActualPurchasePrice(600.0);
+        return transactionTemplate.execute(status -> stockItemRepo.save(stockItem).getId());
+    }
+
+    private int quantity(Long stockItemId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM stock_item WHERE id = ?", Integer.class, stockItemId);
+    }
+
+    private void assertNoNegativeStock() {
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM stock_item WHERE quantity < 0 OR remaining_parts < 0", Integer.class));
+    }
+
+    private static <T> List<T> runConcurrently(int tasks, IntFunction<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(TILLS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.apply(index);
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The auditor of the created_by column, which the application configuration provides
+     */
+    @TestConfiguration
+    static class Auditing {
+
+        @Bean
+        public AuditorAware<Long> auditorAware() {
+            return () -> Optional.of(0L);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.Uqar.test;
+
+import com.Uqar.product.entity.StockExpiryRollover;
+import com.Uqar.product.repo.StockExpiryRolloverRepo;
+import com.Uqar.product.repo.StockItemRepo;
+import com.Uqar.product.service.StockExpiryIndex;
+import com.Uqar.product.service.StockExpiryIndex.ExpiryRollover;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests of the daily expiry rollover: the previous rollover comes from stock_expiry_rollover,
+ * and batches received on any instance are found by their created_at/updated_at.
+ */
+@ExtendWith(MockitoExtension.class)
+public class StockExpiryRolloverTest {
+
+    private static final Long PHARMACY_ID = 3L;
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 17);
+
+    @Mock
+    private StockItemRepo stockItemRepo;
+
+    @Mock
+    private StockExpiryRolloverRepo rolloverRepo;
+
+    private StockExpiryIndex index() {
+        return new StockExpiryIndex(stockItemRepo, rolloverRepo, 30);
+    }
+
+    @Test
+    public void testReportsOnlyTheBatchesThatCrossedAThreshold() {
+        previousRollover(TODAY.minusDays(1), TODAY.minusDays(1).atTime(9, 0));
+        inStock(
+            row(1L, TODAY.minusDays(1)),   // expired yesterday
+            row(2L, TODAY.minusDays(5)),   // expired long ago, reported before
+            row(3L, TODAY.plusDays(30)),   // entered the window today
+            row(4L, TODAY.plusDays(10)),   // already inside the window yesterday
+            row(5L, TODAY.plusDays(90)));
+        changedSince(TODAY.minusDays(1).atTime(8, 50));
+
+        ExpiryRollover rollover = index().rollover(PHARMACY_ID, TODAY);
+
+        assertEquals(List.of(1L), rollover.newlyExpired());
+        assertEquals(List.of(3L), rollover.newlyExpiringSoon());
+    }
+
+    @Test
+    public void testBatchReceivedOnAnotherInstanceInsideTheWindowIsReported() {
+        previousRollover(TODAY.minusDays(1), TODAY.minusDays(1).atTime(9, 0));
+        inStock(row(4L, TODAY.plusDays(10)), row(6L, TODAY.plusDays(12)));
+        // Batch 6 was received after the previous rollover, on whichever instance
+        changedSince(TODAY.minusDays(1).atTime(8, 50), row(6L, TODAY.plusDays(12)));
+
+        ExpiryRollover rollover = index().rollover(PHARMACY_ID, TODAY);
+
+        assertTrue(rollover.newlyExpired().isEmpty());
+        assertEquals(List.of(6L), rollover.newlyExpiringSoon());
+    }
+
+    @Test
+    public void testRolloverIsStoredOnlyWhenCompleted() {
+        previousRollover(TODAY.minusDays(2), TODAY.minusDays(2).atTime(9, 0));
+        inStock(row(1L, TODAY.minusDays(2)), row(2L, TODAY.minusDays(1)));
+        changedSince(TODAY.minusDays(2).atTime(8, 50));
+        StockExpiryIndex index = index();
+
+        // A failed send on the previous day left the rollover two days behind: both crossings are reported
+        ExpiryRollover rollover = index.rollover(PHARMACY_ID, TODAY);
+        assertEquals(List.of(1L, 2L), rollover.newlyExpired());
+        verify(rolloverRepo, never()).save(any());
+
+        index.completeRollover(rollover);
+
+        ArgumentCaptor<StockExpiryRollover> saved = ArgumentCaptor.forClass(StockExpiryRollover.class);
+        verify(rolloverRepo).save(saved.capture());
+        assertEquals(PHARMACY_ID, saved.getValue().getPharmacyId());
+        assertEquals(TODAY, saved.getValue().getRolloverDate());
+        assertEquals(rollover.checkedAt(), saved.getValue().getCheckedAt());
+    }
+
+    @Test
+    public void testCompletedDayIsNotRolledOverAgain() {
+        previousRollover(TODAY, TODAY.atTime(9, 0));
+        StockExpiryIndex index = index();
+
+        ExpiryRollover rollover = index.rollover(PHARMACY_ID, TODAY);
+        index.completeRollover(rollover);
+
+        assertTrue(rollover.isEmpty());
+        verifyNoInteractions(stockItemRepo);
+        verify(rolloverRepo, never()).save(any());
+    }
+
+    private void previousRollover(LocalDate day, LocalDateTime checkedAt) {
+        when(rolloverRepo.findById(PHARMACY_ID)).thenReturn(Optional.of(new StockExpiryRollover(PHARMACY_ID, day, checkedAt)));
+    }
+
+    private void inStock(Object[]... rows) {
+        when(stockItemRepo.findExpiryDatesByPharmacyId(PHARMACY_ID)).thenReturn(new ArrayList<>(List.of(rows)));
+    }
+
+    private void changedSince(LocalDateTime since, Object[]... rows) {
+        when(stockItemRepo.findExpiryDatesChangedSince(eq(PHARMACY_ID), eq(since))).thenReturn(new ArrayList<>(List.of(rows)));
+    }
+
+    private static Object[] row(Long stockItemId, LocalDate expiryDate) {
+        return new Object[]{stockItemId, expiryDate};
+    }
+}